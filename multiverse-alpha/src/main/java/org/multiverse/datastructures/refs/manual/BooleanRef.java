@@ -0,0 +1,269 @@
+package org.multiverse.datastructures.refs.manual;
+
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTranlocalSnapshot;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.DirtinessStatus;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.multiverse.templates.AtomicTemplate;
+
+import static java.lang.String.format;
+
+/**
+ * A manual instrumented {@link org.multiverse.datastructures.refs.BooleanRef}. The value is stored as a raw boolean in
+ * the tranlocal, so no boxing is needed.
+ * <p/>
+ * There is no getOrAwait with a predicate; a boolean only has 2 values, so {@link #await(boolean)} is enough.
+ * <p/>
+ * If a transaction is running, the operations are executed directly on it, so no template needs to be created and the
+ * value doesn't need to be boxed for the return value of the template. If no transaction is running, an AtomicTemplate
+ * is used to create one.
+ *
+ * @author Peter Veentjer
+ */
+public final class BooleanRef extends FastAtomicObjectMixin {
+
+    /**
+     * Creates a committed BooleanRef with the given value.
+     *
+     * @param stm   the {@link Stm} used for committing the ref.
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static BooleanRef createCommittedRef(Stm stm, boolean value) {
+        Transaction t = stm.startUpdateTransaction("createRef");
+        BooleanRef ref = new BooleanRef(t, value);
+        t.commit();
+        return ref;
+    }
+
+    /**
+     * Creates a committed BooleanRef with the given value using the Stm in the {@link
+     * org.multiverse.api.GlobalStmInstance}.
+     *
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static BooleanRef createCommittedRef(boolean value) {
+        return createCommittedRef(getGlobalStmInstance(), value);
+    }
+
+    private static Transaction getActiveTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t == null || t.getStatus() != TransactionStatus.active ? null : t;
+    }
+
+    public BooleanRef() {
+        this(false);
+    }
+
+    public BooleanRef(final boolean value) {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                BooleanRefTranlocal tranlocal = (BooleanRefTranlocal) ((AlphaTransaction) t).load(BooleanRef.this);
+                tranlocal.value = value;
+                return null;
+            }
+        }.execute();
+    }
+
+    public BooleanRef(Transaction t, boolean value) {
+        BooleanRefTranlocal tranlocal = (BooleanRefTranlocal) ((AlphaTransaction) t).load(BooleanRef.this);
+        tranlocal.value = value;
+    }
+
+    private BooleanRefTranlocal load(Transaction t) {
+        return (BooleanRefTranlocal) ((AlphaTransaction) t).load(this);
+    }
+
+    private BooleanRefTranlocal loadForWrite(Transaction t) {
+        BooleanRefTranlocal tranlocal = (BooleanRefTranlocal) ((AlphaTransaction) t).load(this);
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        return tranlocal;
+    }
+
+    public boolean get() {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return get(t);
+        }
+
+        return new AtomicTemplate<Boolean>(true) {
+            @Override
+            public Boolean execute(Transaction t) {
+                return get(t);
+            }
+        }.execute();
+    }
+
+    public boolean get(Transaction t) {
+        return load(t).value;
+    }
+
+    public void await(final boolean desiredValue) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            await(t, desiredValue);
+            return;
+        }
+
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) {
+                await(t, desiredValue);
+                return null;
+            }
+        }.execute();
+    }
+
+    public void await(Transaction t, boolean desiredValue) {
+        if (load(t).value != desiredValue) {
+            throw RetryError.create();
+        }
+    }
+
+    public boolean set(final boolean newValue) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return set(t, newValue);
+        }
+
+        return new AtomicTemplate<Boolean>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return set(t, newValue);
+            }
+        }.execute();
+    }
+
+    public boolean set(Transaction t, boolean newValue) {
+        BooleanRefTranlocal tranlocal = loadForWrite(t);
+        boolean oldValue = tranlocal.value;
+        tranlocal.value = newValue;
+        return oldValue;
+    }
+
+    public boolean compareAndSet(final boolean expected, final boolean update) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return compareAndSet(t, expected, update);
+        }
+
+        return new AtomicTemplate<Boolean>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return compareAndSet(t, expected, update);
+            }
+        }.execute();
+    }
+
+    public boolean compareAndSet(Transaction t, boolean expected, boolean update) {
+        BooleanRefTranlocal tranlocal = loadForWrite(t);
+        if (tranlocal.value != expected) {
+            return false;
+        }
+
+        tranlocal.value = update;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("BooleanRef(value=%s)", get());
+    }
+
+    @Override
+    public BooleanRefTranlocal ___loadUpdatable(long readVersion) {
+        BooleanRefTranlocal origin = (BooleanRefTranlocal) ___load(readVersion);
+        if (origin == null) {
+            return new BooleanRefTranlocal(this);
+        } else {
+            return new BooleanRefTranlocal(origin);
+        }
+    }
+}
+
+class BooleanRefTranlocal extends AlphaTranlocal {
+
+    //field belonging to the stm.
+    BooleanRef ___atomicObject;
+    BooleanRefTranlocal ___origin;
+
+    boolean value;
+
+    BooleanRefTranlocal(BooleanRefTranlocal origin) {
+        this.___origin = origin;
+        this.___atomicObject = origin.___atomicObject;
+        this.value = origin.value;
+    }
+
+    BooleanRefTranlocal(BooleanRef owner) {
+        this.___atomicObject = owner;
+    }
+
+    @Override
+    public BooleanRefTranlocal openForWrite() {
+        return new BooleanRefTranlocal(this);
+    }
+
+    @Override
+    public AlphaAtomicObject getAtomicObject() {
+        return ___atomicObject;
+    }
+
+    @Override
+    public void prepareForCommit(long writeVersion) {
+        this.___writeVersion = writeVersion;
+        this.___origin = null;
+    }
+
+    @Override
+    public AlphaTranlocalSnapshot takeSnapshot() {
+        return new BooleanRefTranlocalSnapshot(this);
+    }
+
+    @Override
+    public DirtinessStatus getDirtinessStatus() {
+        if (___writeVersion > 0) {
+            return DirtinessStatus.readonly;
+        } else if (___origin == null) {
+            return DirtinessStatus.fresh;
+        } else if (___origin.value != this.value) {
+            return DirtinessStatus.dirty;
+        } else {
+            return DirtinessStatus.clean;
+        }
+    }
+}
+
+class BooleanRefTranlocalSnapshot extends AlphaTranlocalSnapshot {
+
+    final BooleanRefTranlocal ___tranlocal;
+    final boolean value;
+
+    BooleanRefTranlocalSnapshot(BooleanRefTranlocal tranlocal) {
+        this.___tranlocal = tranlocal;
+        this.value = tranlocal.value;
+    }
+
+    @Override
+    public AlphaTranlocal getTranlocal() {
+        return ___tranlocal;
+    }
+
+    @Override
+    public void restore() {
+        ___tranlocal.value = value;
+    }
+}
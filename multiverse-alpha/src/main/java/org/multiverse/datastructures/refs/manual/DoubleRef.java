@@ -0,0 +1,289 @@
+package org.multiverse.datastructures.refs.manual;
+
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.datastructures.refs.DoublePredicate;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTranlocalSnapshot;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.DirtinessStatus;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.multiverse.templates.AtomicTemplate;
+
+import static java.lang.String.format;
+
+/**
+ * A manual instrumented {@link org.multiverse.datastructures.refs.DoubleRef}. The value is stored as a raw double in
+ * the tranlocal, so no boxing is needed.
+ * <p/>
+ * If a transaction is running, the operations are executed directly on it, so no template needs to be created and the
+ * value doesn't need to be boxed for the return value of the template. If no transaction is running, an AtomicTemplate
+ * is used to create one.
+ *
+ * @author Peter Veentjer
+ */
+public final class DoubleRef extends FastAtomicObjectMixin {
+
+    /**
+     * Creates a committed DoubleRef with the given value.
+     *
+     * @param stm   the {@link Stm} used for committing the ref.
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static DoubleRef createCommittedRef(Stm stm, double value) {
+        Transaction t = stm.startUpdateTransaction("createRef");
+        DoubleRef ref = new DoubleRef(t, value);
+        t.commit();
+        return ref;
+    }
+
+    /**
+     * Creates a committed DoubleRef with the given value using the Stm in the {@link
+     * org.multiverse.api.GlobalStmInstance}.
+     *
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static DoubleRef createCommittedRef(double value) {
+        return createCommittedRef(getGlobalStmInstance(), value);
+    }
+
+    private static Transaction getActiveTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t == null || t.getStatus() != TransactionStatus.active ? null : t;
+    }
+
+    public DoubleRef() {
+        this(0.0d);
+    }
+
+    public DoubleRef(final double value) {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                DoubleRefTranlocal tranlocal = (DoubleRefTranlocal) ((AlphaTransaction) t).load(DoubleRef.this);
+                tranlocal.value = value;
+                return null;
+            }
+        }.execute();
+    }
+
+    public DoubleRef(Transaction t, double value) {
+        DoubleRefTranlocal tranlocal = (DoubleRefTranlocal) ((AlphaTransaction) t).load(DoubleRef.this);
+        tranlocal.value = value;
+    }
+
+    private DoubleRefTranlocal load(Transaction t) {
+        return (DoubleRefTranlocal) ((AlphaTransaction) t).load(this);
+    }
+
+    private DoubleRefTranlocal loadForWrite(Transaction t) {
+        DoubleRefTranlocal tranlocal = (DoubleRefTranlocal) ((AlphaTransaction) t).load(this);
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        return tranlocal;
+    }
+
+    public double get() {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return get(t);
+        }
+
+        return new AtomicTemplate<Double>(true) {
+            @Override
+            public Double execute(Transaction t) {
+                return get(t);
+            }
+        }.execute();
+    }
+
+    public double get(Transaction t) {
+        return load(t).value;
+    }
+
+    public double getOrAwait(final DoublePredicate predicate) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return getOrAwait(t, predicate);
+        }
+
+        return new AtomicTemplate<Double>() {
+            @Override
+            public Double execute(Transaction t) {
+                return getOrAwait(t, predicate);
+            }
+        }.execute();
+    }
+
+    public double getOrAwait(Transaction t, DoublePredicate predicate) {
+        DoubleRefTranlocal tranlocal = load(t);
+        if (!predicate.evaluate(tranlocal.value)) {
+            throw RetryError.create();
+        }
+
+        return tranlocal.value;
+    }
+
+    public double set(final double newValue) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return set(t, newValue);
+        }
+
+        return new AtomicTemplate<Double>() {
+            @Override
+            public Double execute(Transaction t) {
+                return set(t, newValue);
+            }
+        }.execute();
+    }
+
+    public double set(Transaction t, double newValue) {
+        DoubleRefTranlocal tranlocal = loadForWrite(t);
+        double oldValue = tranlocal.value;
+        tranlocal.value = newValue;
+        return oldValue;
+    }
+
+    public double add(final double amount) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return add(t, amount);
+        }
+
+        return new AtomicTemplate<Double>() {
+            @Override
+            public Double execute(Transaction t) {
+                return add(t, amount);
+            }
+        }.execute();
+    }
+
+    public double add(Transaction t, double amount) {
+        DoubleRefTranlocal tranlocal = loadForWrite(t);
+        tranlocal.value += amount;
+        return tranlocal.value;
+    }
+
+    public boolean compareAndSet(final double expected, final double update) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return compareAndSet(t, expected, update);
+        }
+
+        return new AtomicTemplate<Boolean>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return compareAndSet(t, expected, update);
+            }
+        }.execute();
+    }
+
+    public boolean compareAndSet(Transaction t, double expected, double update) {
+        DoubleRefTranlocal tranlocal = loadForWrite(t);
+        if (Double.doubleToLongBits(tranlocal.value) != Double.doubleToLongBits(expected)) {
+            return false;
+        }
+
+        tranlocal.value = update;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("DoubleRef(value=%s)", get());
+    }
+
+    @Override
+    public DoubleRefTranlocal ___loadUpdatable(long readVersion) {
+        DoubleRefTranlocal origin = (DoubleRefTranlocal) ___load(readVersion);
+        if (origin == null) {
+            return new DoubleRefTranlocal(this);
+        } else {
+            return new DoubleRefTranlocal(origin);
+        }
+    }
+}
+
+class DoubleRefTranlocal extends AlphaTranlocal {
+
+    //field belonging to the stm.
+    DoubleRef ___atomicObject;
+    DoubleRefTranlocal ___origin;
+
+    double value;
+
+    DoubleRefTranlocal(DoubleRefTranlocal origin) {
+        this.___origin = origin;
+        this.___atomicObject = origin.___atomicObject;
+        this.value = origin.value;
+    }
+
+    DoubleRefTranlocal(DoubleRef owner) {
+        this.___atomicObject = owner;
+    }
+
+    @Override
+    public DoubleRefTranlocal openForWrite() {
+        return new DoubleRefTranlocal(this);
+    }
+
+    @Override
+    public AlphaAtomicObject getAtomicObject() {
+        return ___atomicObject;
+    }
+
+    @Override
+    public void prepareForCommit(long writeVersion) {
+        this.___writeVersion = writeVersion;
+        this.___origin = null;
+    }
+
+    @Override
+    public AlphaTranlocalSnapshot takeSnapshot() {
+        return new DoubleRefTranlocalSnapshot(this);
+    }
+
+    @Override
+    public DirtinessStatus getDirtinessStatus() {
+        if (___writeVersion > 0) {
+            return DirtinessStatus.readonly;
+        } else if (___origin == null) {
+            return DirtinessStatus.fresh;
+        } else if (Double.doubleToLongBits(___origin.value) != Double.doubleToLongBits(this.value)) {
+            return DirtinessStatus.dirty;
+        } else {
+            return DirtinessStatus.clean;
+        }
+    }
+}
+
+class DoubleRefTranlocalSnapshot extends AlphaTranlocalSnapshot {
+
+    final DoubleRefTranlocal ___tranlocal;
+    final double value;
+
+    DoubleRefTranlocalSnapshot(DoubleRefTranlocal tranlocal) {
+        this.___tranlocal = tranlocal;
+        this.value = tranlocal.value;
+    }
+
+    @Override
+    public AlphaTranlocal getTranlocal() {
+        return ___tranlocal;
+    }
+
+    @Override
+    public void restore() {
+        ___tranlocal.value = value;
+    }
+}
@@ -0,0 +1,305 @@
+package org.multiverse.datastructures.refs.manual;
+
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.datastructures.refs.IntPredicate;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTranlocalSnapshot;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.DirtinessStatus;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.multiverse.templates.AtomicTemplate;
+
+import static java.lang.String.format;
+
+/**
+ * A manual instrumented {@link org.multiverse.datastructures.refs.IntRef}. The value is stored as a raw int in the
+ * tranlocal, so no boxing is needed.
+ * <p/>
+ * If a transaction is running, the operations are executed directly on it, so no template needs to be created and the
+ * value doesn't need to be boxed for the return value of the template. If no transaction is running, an AtomicTemplate
+ * is used to create one.
+ *
+ * @author Peter Veentjer
+ */
+public final class IntRef extends FastAtomicObjectMixin {
+
+    /**
+     * Creates a committed IntRef with the given value.
+     *
+     * @param stm   the {@link Stm} used for committing the ref.
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static IntRef createCommittedRef(Stm stm, int value) {
+        Transaction t = stm.startUpdateTransaction("createRef");
+        IntRef ref = new IntRef(t, value);
+        t.commit();
+        return ref;
+    }
+
+    /**
+     * Creates a committed IntRef with the given value using the Stm in the {@link
+     * org.multiverse.api.GlobalStmInstance}.
+     *
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static IntRef createCommittedRef(int value) {
+        return createCommittedRef(getGlobalStmInstance(), value);
+    }
+
+    private static Transaction getActiveTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t == null || t.getStatus() != TransactionStatus.active ? null : t;
+    }
+
+    public IntRef() {
+        this(0);
+    }
+
+    public IntRef(final int value) {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                IntRefTranlocal tranlocal = (IntRefTranlocal) ((AlphaTransaction) t).load(IntRef.this);
+                tranlocal.value = value;
+                return null;
+            }
+        }.execute();
+    }
+
+    public IntRef(Transaction t, int value) {
+        IntRefTranlocal tranlocal = (IntRefTranlocal) ((AlphaTransaction) t).load(IntRef.this);
+        tranlocal.value = value;
+    }
+
+    private IntRefTranlocal load(Transaction t) {
+        return (IntRefTranlocal) ((AlphaTransaction) t).load(this);
+    }
+
+    private IntRefTranlocal loadForWrite(Transaction t) {
+        IntRefTranlocal tranlocal = (IntRefTranlocal) ((AlphaTransaction) t).load(this);
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        return tranlocal;
+    }
+
+    public int get() {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return get(t);
+        }
+
+        return new AtomicTemplate<Integer>(true) {
+            @Override
+            public Integer execute(Transaction t) {
+                return get(t);
+            }
+        }.execute();
+    }
+
+    public int get(Transaction t) {
+        return load(t).value;
+    }
+
+    public int getOrAwait(final IntPredicate predicate) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return getOrAwait(t, predicate);
+        }
+
+        return new AtomicTemplate<Integer>() {
+            @Override
+            public Integer execute(Transaction t) {
+                return getOrAwait(t, predicate);
+            }
+        }.execute();
+    }
+
+    public int getOrAwait(Transaction t, IntPredicate predicate) {
+        IntRefTranlocal tranlocal = load(t);
+        if (!predicate.evaluate(tranlocal.value)) {
+            throw RetryError.create();
+        }
+
+        return tranlocal.value;
+    }
+
+    public int set(final int newValue) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return set(t, newValue);
+        }
+
+        return new AtomicTemplate<Integer>() {
+            @Override
+            public Integer execute(Transaction t) {
+                return set(t, newValue);
+            }
+        }.execute();
+    }
+
+    public int set(Transaction t, int newValue) {
+        IntRefTranlocal tranlocal = loadForWrite(t);
+        int oldValue = tranlocal.value;
+        tranlocal.value = newValue;
+        return oldValue;
+    }
+
+    public int inc() {
+        return add(1);
+    }
+
+    public int inc(Transaction t) {
+        return add(t, 1);
+    }
+
+    public int dec() {
+        return add(-1);
+    }
+
+    public int dec(Transaction t) {
+        return add(t, -1);
+    }
+
+    public int add(final int amount) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return add(t, amount);
+        }
+
+        return new AtomicTemplate<Integer>() {
+            @Override
+            public Integer execute(Transaction t) {
+                return add(t, amount);
+            }
+        }.execute();
+    }
+
+    public int add(Transaction t, int amount) {
+        IntRefTranlocal tranlocal = loadForWrite(t);
+        tranlocal.value += amount;
+        return tranlocal.value;
+    }
+
+    public boolean compareAndSet(final int expected, final int update) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return compareAndSet(t, expected, update);
+        }
+
+        return new AtomicTemplate<Boolean>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return compareAndSet(t, expected, update);
+            }
+        }.execute();
+    }
+
+    public boolean compareAndSet(Transaction t, int expected, int update) {
+        IntRefTranlocal tranlocal = loadForWrite(t);
+        if (tranlocal.value != expected) {
+            return false;
+        }
+
+        tranlocal.value = update;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("IntRef(value=%s)", get());
+    }
+
+    @Override
+    public IntRefTranlocal ___loadUpdatable(long readVersion) {
+        IntRefTranlocal origin = (IntRefTranlocal) ___load(readVersion);
+        if (origin == null) {
+            return new IntRefTranlocal(this);
+        } else {
+            return new IntRefTranlocal(origin);
+        }
+    }
+}
+
+class IntRefTranlocal extends AlphaTranlocal {
+
+    //field belonging to the stm.
+    IntRef ___atomicObject;
+    IntRefTranlocal ___origin;
+
+    int value;
+
+    IntRefTranlocal(IntRefTranlocal origin) {
+        this.___origin = origin;
+        this.___atomicObject = origin.___atomicObject;
+        this.value = origin.value;
+    }
+
+    IntRefTranlocal(IntRef owner) {
+        this.___atomicObject = owner;
+    }
+
+    @Override
+    public IntRefTranlocal openForWrite() {
+        return new IntRefTranlocal(this);
+    }
+
+    @Override
+    public AlphaAtomicObject getAtomicObject() {
+        return ___atomicObject;
+    }
+
+    @Override
+    public void prepareForCommit(long writeVersion) {
+        this.___writeVersion = writeVersion;
+        this.___origin = null;
+    }
+
+    @Override
+    public AlphaTranlocalSnapshot takeSnapshot() {
+        return new IntRefTranlocalSnapshot(this);
+    }
+
+    @Override
+    public DirtinessStatus getDirtinessStatus() {
+        if (___writeVersion > 0) {
+            return DirtinessStatus.readonly;
+        } else if (___origin == null) {
+            return DirtinessStatus.fresh;
+        } else if (___origin.value != this.value) {
+            return DirtinessStatus.dirty;
+        } else {
+            return DirtinessStatus.clean;
+        }
+    }
+}
+
+class IntRefTranlocalSnapshot extends AlphaTranlocalSnapshot {
+
+    final IntRefTranlocal ___tranlocal;
+    final int value;
+
+    IntRefTranlocalSnapshot(IntRefTranlocal tranlocal) {
+        this.___tranlocal = tranlocal;
+        this.value = tranlocal.value;
+    }
+
+    @Override
+    public AlphaTranlocal getTranlocal() {
+        return ___tranlocal;
+    }
+
+    @Override
+    public void restore() {
+        ___tranlocal.value = value;
+    }
+}
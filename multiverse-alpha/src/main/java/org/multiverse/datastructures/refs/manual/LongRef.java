@@ -0,0 +1,305 @@
+package org.multiverse.datastructures.refs.manual;
+
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.datastructures.refs.LongPredicate;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTranlocalSnapshot;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.DirtinessStatus;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.multiverse.templates.AtomicTemplate;
+
+import static java.lang.String.format;
+
+/**
+ * A manual instrumented {@link org.multiverse.datastructures.refs.LongRef}. The value is stored as a raw long in the
+ * tranlocal, so no boxing is needed.
+ * <p/>
+ * If a transaction is running, the operations are executed directly on it, so no template needs to be created and the
+ * value doesn't need to be boxed for the return value of the template. If no transaction is running, an AtomicTemplate
+ * is used to create one.
+ *
+ * @author Peter Veentjer
+ */
+public final class LongRef extends FastAtomicObjectMixin {
+
+    /**
+     * Creates a committed LongRef with the given value.
+     *
+     * @param stm   the {@link Stm} used for committing the ref.
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static LongRef createCommittedRef(Stm stm, long value) {
+        Transaction t = stm.startUpdateTransaction("createRef");
+        LongRef ref = new LongRef(t, value);
+        t.commit();
+        return ref;
+    }
+
+    /**
+     * Creates a committed LongRef with the given value using the Stm in the {@link
+     * org.multiverse.api.GlobalStmInstance}.
+     *
+     * @param value the initial value.
+     * @return the created ref.
+     */
+    public static LongRef createCommittedRef(long value) {
+        return createCommittedRef(getGlobalStmInstance(), value);
+    }
+
+    private static Transaction getActiveTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t == null || t.getStatus() != TransactionStatus.active ? null : t;
+    }
+
+    public LongRef() {
+        this(0L);
+    }
+
+    public LongRef(final long value) {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                LongRefTranlocal tranlocal = (LongRefTranlocal) ((AlphaTransaction) t).load(LongRef.this);
+                tranlocal.value = value;
+                return null;
+            }
+        }.execute();
+    }
+
+    public LongRef(Transaction t, long value) {
+        LongRefTranlocal tranlocal = (LongRefTranlocal) ((AlphaTransaction) t).load(LongRef.this);
+        tranlocal.value = value;
+    }
+
+    private LongRefTranlocal load(Transaction t) {
+        return (LongRefTranlocal) ((AlphaTransaction) t).load(this);
+    }
+
+    private LongRefTranlocal loadForWrite(Transaction t) {
+        LongRefTranlocal tranlocal = (LongRefTranlocal) ((AlphaTransaction) t).load(this);
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        return tranlocal;
+    }
+
+    public long get() {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return get(t);
+        }
+
+        return new AtomicTemplate<Long>(true) {
+            @Override
+            public Long execute(Transaction t) {
+                return get(t);
+            }
+        }.execute();
+    }
+
+    public long get(Transaction t) {
+        return load(t).value;
+    }
+
+    public long getOrAwait(final LongPredicate predicate) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return getOrAwait(t, predicate);
+        }
+
+        return new AtomicTemplate<Long>() {
+            @Override
+            public Long execute(Transaction t) {
+                return getOrAwait(t, predicate);
+            }
+        }.execute();
+    }
+
+    public long getOrAwait(Transaction t, LongPredicate predicate) {
+        LongRefTranlocal tranlocal = load(t);
+        if (!predicate.evaluate(tranlocal.value)) {
+            throw RetryError.create();
+        }
+
+        return tranlocal.value;
+    }
+
+    public long set(final long newValue) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return set(t, newValue);
+        }
+
+        return new AtomicTemplate<Long>() {
+            @Override
+            public Long execute(Transaction t) {
+                return set(t, newValue);
+            }
+        }.execute();
+    }
+
+    public long set(Transaction t, long newValue) {
+        LongRefTranlocal tranlocal = loadForWrite(t);
+        long oldValue = tranlocal.value;
+        tranlocal.value = newValue;
+        return oldValue;
+    }
+
+    public long inc() {
+        return add(1);
+    }
+
+    public long inc(Transaction t) {
+        return add(t, 1);
+    }
+
+    public long dec() {
+        return add(-1);
+    }
+
+    public long dec(Transaction t) {
+        return add(t, -1);
+    }
+
+    public long add(final long amount) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return add(t, amount);
+        }
+
+        return new AtomicTemplate<Long>() {
+            @Override
+            public Long execute(Transaction t) {
+                return add(t, amount);
+            }
+        }.execute();
+    }
+
+    public long add(Transaction t, long amount) {
+        LongRefTranlocal tranlocal = loadForWrite(t);
+        tranlocal.value += amount;
+        return tranlocal.value;
+    }
+
+    public boolean compareAndSet(final long expected, final long update) {
+        Transaction t = getActiveTransaction();
+        if (t != null) {
+            return compareAndSet(t, expected, update);
+        }
+
+        return new AtomicTemplate<Boolean>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return compareAndSet(t, expected, update);
+            }
+        }.execute();
+    }
+
+    public boolean compareAndSet(Transaction t, long expected, long update) {
+        LongRefTranlocal tranlocal = loadForWrite(t);
+        if (tranlocal.value != expected) {
+            return false;
+        }
+
+        tranlocal.value = update;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("LongRef(value=%s)", get());
+    }
+
+    @Override
+    public LongRefTranlocal ___loadUpdatable(long readVersion) {
+        LongRefTranlocal origin = (LongRefTranlocal) ___load(readVersion);
+        if (origin == null) {
+            return new LongRefTranlocal(this);
+        } else {
+            return new LongRefTranlocal(origin);
+        }
+    }
+}
+
+class LongRefTranlocal extends AlphaTranlocal {
+
+    //field belonging to the stm.
+    LongRef ___atomicObject;
+    LongRefTranlocal ___origin;
+
+    long value;
+
+    LongRefTranlocal(LongRefTranlocal origin) {
+        this.___origin = origin;
+        this.___atomicObject = origin.___atomicObject;
+        this.value = origin.value;
+    }
+
+    LongRefTranlocal(LongRef owner) {
+        this.___atomicObject = owner;
+    }
+
+    @Override
+    public LongRefTranlocal openForWrite() {
+        return new LongRefTranlocal(this);
+    }
+
+    @Override
+    public AlphaAtomicObject getAtomicObject() {
+        return ___atomicObject;
+    }
+
+    @Override
+    public void prepareForCommit(long writeVersion) {
+        this.___writeVersion = writeVersion;
+        this.___origin = null;
+    }
+
+    @Override
+    public AlphaTranlocalSnapshot takeSnapshot() {
+        return new LongRefTranlocalSnapshot(this);
+    }
+
+    @Override
+    public DirtinessStatus getDirtinessStatus() {
+        if (___writeVersion > 0) {
+            return DirtinessStatus.readonly;
+        } else if (___origin == null) {
+            return DirtinessStatus.fresh;
+        } else if (___origin.value != this.value) {
+            return DirtinessStatus.dirty;
+        } else {
+            return DirtinessStatus.clean;
+        }
+    }
+}
+
+class LongRefTranlocalSnapshot extends AlphaTranlocalSnapshot {
+
+    final LongRefTranlocal ___tranlocal;
+    final long value;
+
+    LongRefTranlocalSnapshot(LongRefTranlocal tranlocal) {
+        this.___tranlocal = tranlocal;
+        this.value = tranlocal.value;
+    }
+
+    @Override
+    public AlphaTranlocal getTranlocal() {
+        return ___tranlocal;
+    }
+
+    @Override
+    public void restore() {
+        ___tranlocal.value = value;
+    }
+}
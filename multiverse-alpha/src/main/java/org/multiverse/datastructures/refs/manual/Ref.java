@@ -127,7 +127,7 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
 
     @Override
     public E getOrAwait() {
-        return new AtomicTemplate<E>(true) {
+        return new AtomicTemplate<E>() {
             @Override
             public E execute(Transaction t) throws Exception {
                 return getOrAwait(t);
@@ -248,6 +248,11 @@ class RefTranlocal<E> extends AlphaTranlocal {
         this.value = origin.value;
     }
 
+    @Override
+    public RefTranlocal<E> openForWrite() {
+        return new RefTranlocal<E>(this);
+    }
+
     RefTranlocal(Ref<E> owner) {
         this(owner, null);
     }
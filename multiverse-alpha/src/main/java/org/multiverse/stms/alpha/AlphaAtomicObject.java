@@ -18,6 +18,8 @@ public interface AlphaAtomicObject {
      * Loads the {@link AlphaTranlocal} with a version equal or smaller than readVersion. It is very
      * important for the implementation to not to return a too old version. If this happens, the
      * system could start to suffer from lost updates (not seeing changes you should have seen).
+     * <p/>
+     * If the most recently committed Tranlocal is too new, the version history is searched.
      *
      * The returned instance can't be used for updates. See the {@link #___loadUpdatable(long)}.
      *
@@ -39,6 +41,15 @@ public interface AlphaAtomicObject {
 
     AlphaTranlocal ___loadUpdatable(long readVersion);
 
+    /**
+     * Returns the id of this AlphaAtomicObject. The id is unique and never changes, so it can be used to
+     * determine a global order of atomicobjects, e.g. the order in which the commit locks are acquired. The id is
+     * assigned the first time it is needed.
+     *
+     * @return the id, always larger than 0.
+     */
+    long ___getId();
+
     /**
      * Acquires the lock. The lock is only acquired it the lock is free.
      *
@@ -65,11 +76,17 @@ public interface AlphaAtomicObject {
      * <p/>
      * It is important that this call only is made when the lock already was acquired.
      *
-     * @param tranlocal    the Tranlocal to storeAndReleaseLock.
-     * @param writeVersion the version to storeAndReleaseLock the Tranlocal with.
+     * <p/>
+     * The previously committed Tranlocal is kept in the version history of the stored Tranlocal, so that
+     * transactions with an older read version still can load it. At most maxHistoryDepth older versions are kept,
+     * so with 0 no history is kept at all.
+     *
+     * @param tranlocal       the Tranlocal to storeAndReleaseLock.
+     * @param writeVersion    the version to storeAndReleaseLock the Tranlocal with.
+     * @param maxHistoryDepth the maximum number of older versions to keep.
      * @return the Listeners to wake up. Could be null if there are no listeners to wake up.
      */
-    Listeners ___storeAndReleaseLock(AlphaTranlocal tranlocal, long writeVersion);
+    Listeners ___storeAndReleaseLock(AlphaTranlocal tranlocal, long writeVersion, int maxHistoryDepth);
 
     /**
      * Registers a listener for retrying (the condition variable version for STM's). The Latch is a
@@ -82,6 +99,14 @@ public interface AlphaAtomicObject {
      */
     boolean ___registerRetryListener(Latch listener, long minimumWakeupVersion);
 
+    /**
+     * Removes a listener that was registered using {@link #___registerRetryListener(Latch, long)}, e.g. because the
+     * retry it was registered for, timed out. If the listener isn't registered (anymore), the call is ignored.
+     *
+     * @param listener the Latch to remove.
+     */
+    void ___deregisterRetryListener(Latch listener);
+
     /**
      * Returns the current owner of the lock, or null if AtomicObject is not locked.
      *
@@ -0,0 +1,39 @@
+package org.multiverse.stms.alpha;
+
+/**
+ * A transaction that publishes the commit it is executing. Once the write version of a commit is known (the clock has
+ * been ticked), the commit can't fail anymore, and the tranlocals that are going to be stored, are prepared with this
+ * write version. At that moment the commit is published, and it stays published until all locks are released.
+ * <p/>
+ * A transaction that wants to load an atomicobject that is locked by a publishing transaction, doesn't need to wait
+ * for the lock to be released (or fail with a {@link org.multiverse.api.exceptions.LoadLockedException}):
+ * <ol>
+ * <li>if its read version is smaller than the published write version, the write is not relevant, so the currently
+ * committed tranlocal (or one from the version history) can be used.</li>
+ * <li>if its read version is equal or larger than the published write version, the published tranlocal can be
+ * used.</li>
+ * </ol>
+ * The methods are called by other threads than the one executing the transaction, so the information returned could
+ * already be stale. It is the responsibility of the caller to validate it (see {@link
+ * org.multiverse.stms.alpha.mixins.LockedLoadHelper}).
+ *
+ * @author Peter Veentjer
+ */
+public interface AlphaCommitPublisher {
+
+    /**
+     * Returns the write version of the commit that currently is published.
+     *
+     * @return the published write version, or 0 if no commit is published.
+     */
+    long getPublishedWriteVersion();
+
+    /**
+     * Returns the tranlocal that is going to be stored for the atomicObject by the published commit.
+     *
+     * @param atomicObject the AlphaAtomicObject to look for.
+     * @return the found tranlocal, or null if not found. The returned value could belong to another commit of this
+     *         transaction.
+     */
+    AlphaTranlocal getPublishedTranlocal(AlphaAtomicObject atomicObject);
+}
@@ -0,0 +1,24 @@
+package org.multiverse.stms.alpha;
+
+/**
+ * A function that is executed on a tranlocal using {@link AlphaTransaction#commute(AlphaAtomicObject,
+ * AlphaCommutingFunction)}. The order in which commuting functions of different transactions are executed on the
+ * same atomicobject should not matter for the outcome, e.g. incrementing a counter or adding to a size. That is why
+ * they don't need to be validated against the readVersion of the transaction and don't cause writeconflicts.
+ * <p/>
+ * The function is executed at commit time while the lock on the atomicobject is hold, so it should be fast and should
+ * not access other atomicobjects. It also should not have side effects outside the tranlocal, because the transaction
+ * could still fail after the function has been executed (e.g. when not all locks can be acquired), and it could be
+ * executed again when the transaction is retried.
+ *
+ * @author Peter Veentjer
+ */
+public interface AlphaCommutingFunction {
+
+    /**
+     * Executes this function on the tranlocal.
+     *
+     * @param tranlocal the updatable tranlocal of the atomicobject the function commutes on.
+     */
+    void apply(AlphaTranlocal tranlocal);
+}
@@ -3,6 +3,7 @@ package org.multiverse.stms.alpha;
 import org.multiverse.api.Stm;
 import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.commitlock.CommitLockPolicy;
+import org.multiverse.utils.commitlock.ContentionManagingCommitLockPolicy;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.profiling.ProfilerAware;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
@@ -32,6 +33,11 @@ import java.util.logging.Logger;
  * <p/>
  * The logging can be completely removed by the JIT if the loggingPossible flag is set to false. No additional checks
  * are done.. so you don't need to pay the price for it if you don't use it.
+ * <p/>
+ * <h3>Pooling</h3> If {@link AlphaStmConfig#transactionPoolingEnabled} is set, transactions are pooled per thread; a
+ * committed or aborted transaction is recycled the next time a transaction is started by the same thread. So a
+ * reference to a transaction should not be used after it has completed. Pooling is not done when logging is
+ * possible.
  *
  * @author Peter Veentjer.
  */
@@ -55,6 +61,8 @@ public final class AlphaStm implements Stm, ProfilerAware {
 
     private final ReadonlyAlphaTransactionDependencies readonlyAlphaTransactionDependencies;
 
+    private final ThreadLocal<TransactionPool> transactionPool;
+
     public static AlphaStm createFast() {
         return new AlphaStm(AlphaStmConfig.createFastConfig());
     }
@@ -93,14 +101,28 @@ public final class AlphaStm implements Stm, ProfilerAware {
         }
         this.loggingPossible = config.loggingPossible;
         this.logIdGenerator = loggingPossible ? new AtomicLong() : null;
-        this.commitLockPolicy = config.commitLockPolicy;
+        this.commitLockPolicy = config.contentionManager == null
+                ? config.commitLockPolicy
+                : new ContentionManagingCommitLockPolicy(config.contentionManager, profiler);
         this.restartBackoffPolicy = config.restartBackoffPolicy;
+        this.transactionPool = config.transactionPoolingEnabled ? new ThreadLocal<TransactionPool>() {
+            @Override
+            protected TransactionPool initialValue() {
+                return new TransactionPool();
+            }
+        } : null;
 
         this.updateTransactionDependencies = new UpdateTransactionDependencies(
                 clock,
                 restartBackoffPolicy,
                 commitLockPolicy,
-                profiler);
+                profiler,
+                config.maxHistoryDepth,
+                new TransactionSizeHints(),
+                config.readVersionExtensionEnabled,
+                config.commitPublishingEnabled,
+                config.bulkStoreExecutor,
+                config.bulkCommitThreshold);
         this.readonlyAlphaTransactionDependencies = new ReadonlyAlphaTransactionDependencies(
                 clock,
                 restartBackoffPolicy,
@@ -145,6 +167,8 @@ public final class AlphaStm implements Stm, ProfilerAware {
                     familyName,
                     logIdGenerator.incrementAndGet(),
                     Level.FINE);
+        } else if (transactionPool != null) {
+            return transactionPool.get().takeUpdateTransaction(updateTransactionDependencies, familyName);
         } else {
             return new UpdateAlphaTransaction(
                     updateTransactionDependencies,
@@ -160,6 +184,8 @@ public final class AlphaStm implements Stm, ProfilerAware {
                     familyName,
                     logIdGenerator.incrementAndGet(),
                     Level.FINE);
+        } else if (transactionPool != null) {
+            return transactionPool.get().takeReadonlyTransaction(readonlyAlphaTransactionDependencies, familyName);
         } else {
             return new ReadonlyAlphaTransaction(
                     readonlyAlphaTransactionDependencies,
@@ -5,11 +5,14 @@ import org.multiverse.utils.clock.RelaxedClock;
 import org.multiverse.utils.clock.StrictClock;
 import org.multiverse.utils.commitlock.CommitLockPolicy;
 import org.multiverse.utils.commitlock.GenericCommitLockPolicy;
+import org.multiverse.utils.contentionmanager.ContentionManager;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.profiling.SimpleProfileRepository;
 import org.multiverse.utils.restartbackoff.ExponentialRestartBackoffPolicy;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
+import java.util.concurrent.Executor;
+
 /**
  * An Object responsible for storing the configuration for an {@link AlphaStm}. So instead
  * of having to deal with ever growing number of arguments, the AlphaStm constructor only
@@ -55,6 +58,62 @@ public final class AlphaStmConfig {
 
     public RestartBackoffPolicy restartBackoffPolicy = ExponentialRestartBackoffPolicy.INSTANCE_10_MS_MAX;
 
+    /**
+     * The maximum number of older committed versions that are kept for every atomicobject. Long readonly
+     * transactions are able to find their version in this history instead of failing with a
+     * {@link org.multiverse.api.exceptions.LoadTooOldVersionException} once an atomicobject they need, is updated.
+     * <p/>
+     * A higher value increases the chance of finding the right version, but also keeps more garbage alive. A value
+     * of 0 means that no history is kept.
+     */
+    public int maxHistoryDepth = 0;
+
+    /**
+     * If transactions should be pooled per thread. A pooled transaction that is committed or aborted is recycled
+     * the next time the same thread starts a transaction, so a transaction should not be used after it has
+     * completed. It reduces the pressure on the garbage collector.
+     * <p/>
+     * Pooling is not done if loggingPossible is set.
+     */
+    public boolean transactionPoolingEnabled = false;
+
+    /**
+     * If update transactions should try to extend their read version when they encounter an atomicobject that has
+     * been updated after their read version, instead of failing with a
+     * {@link org.multiverse.api.exceptions.LoadTooOldVersionException}. The extension only succeeds if none of the
+     * atomicobjects the transaction already has loaded, has been updated in the meantime. The price is a validation
+     * of all loaded atomicobjects every time an extension is tried.
+     */
+    public boolean readVersionExtensionEnabled = false;
+
+    /**
+     * If update transactions should publish their write version and writeset while they store their changes. A
+     * transaction that wants to load an atomicobject that is locked by a publishing transaction, is able to determine
+     * the tranlocal it needs without waiting for the lock to be released (and without failing with a
+     * {@link org.multiverse.api.exceptions.LoadLockedException}). The price is a volatile write per commit.
+     */
+    public boolean commitPublishingEnabled = false;
+
+    /**
+     * The ContentionManager that decides what an update transaction does when it can't acquire a lock while
+     * committing. If it is set, the commitLockPolicy is replaced by a
+     * {@link org.multiverse.utils.commitlock.ContentionManagingCommitLockPolicy} that uses this ContentionManager
+     * (and the profiler to collect statistics). If it is null, the commitLockPolicy is used.
+     */
+    public ContentionManager contentionManager = null;
+
+    /**
+     * The Executor used to store the writeset of very large commits (see bulkCommitThreshold) in parallel. If it is
+     * null, the writeset always is stored by the committing thread. The threads of the Executor should not execute
+     * transactions themselves, because the committing thread waits for the stores to complete.
+     */
+    public Executor bulkStoreExecutor = null;
+
+    /**
+     * The minimum size of the writeset of a commit, before the store is done using the bulkStoreExecutor.
+     */
+    public int bulkCommitThreshold = 10 * 1000;
+
     /**
      * Check if the AlphaStmConfig has been configured correctly.
      *
@@ -72,5 +131,13 @@ public final class AlphaStmConfig {
         if(restartBackoffPolicy == null){
             throw new IllegalStateException("Invalid configuration, 'restartBackoffPolicy' can't be null");            
         }
+
+        if (maxHistoryDepth < 0) {
+            throw new IllegalStateException("Invalid configuration, 'maxHistoryDepth' can't be smaller than 0");
+        }
+
+        if (bulkCommitThreshold < 1) {
+            throw new IllegalStateException("Invalid configuration, 'bulkCommitThreshold' can't be smaller than 1");
+        }
     }
 }
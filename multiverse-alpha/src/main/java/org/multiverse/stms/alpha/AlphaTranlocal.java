@@ -33,6 +33,18 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
      */
     public long ___writeVersion = 0;
 
+    /**
+     * The tranlocal that was committed before this tranlocal on the same atomicobject. Together they form the version
+     * history of the atomicobject; the chain is trimmed when new versions are committed (see {@link
+     * #trimHistory(int)}), so it doesn't grow unbounded and old versions can be garbage collected.
+     * <p/>
+     * The field is only set when the tranlocal is committed, and only while the lock on the atomicobject is hold. It
+     * is not volatile: the publication of this tranlocal (the volatile write in the atomicobject) makes it visible to
+     * readers. If a reader sees a stale value because of trimming, it will only find less history, never a wrong
+     * version.
+     */
+    public AlphaTranlocal ___previous;
+
     /**
      * Is called just before this tranlocal commits. It allows the Tranlocal to do needed cleanup.
      * <p/>
@@ -53,6 +65,16 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
      */
     public abstract AlphaAtomicObject getAtomicObject();
 
+    /**
+     * Creates an updatable copy of this committed tranlocal; the copy has this tranlocal as origin. It is what the
+     * ___loadUpdatable method of the atomicobject does after loading the committed tranlocal, but it can be used
+     * when the committed tranlocal is already known, e.g. when the lock is hold while commuting functions are
+     * applied.
+     *
+     * @return the updatable copy.
+     */
+    public abstract AlphaTranlocal openForWrite();
+
     /**
      * Creates the TranlocalSnapshot of the Tranlocal. A snapshot should only be made if this Tranlocal is not
      * committed.
@@ -76,6 +98,66 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
      */
     public abstract DirtinessStatus getDirtinessStatus();
 
+    /**
+     * Tries to resolve a conflict with a tranlocal that was committed after this tranlocal was loaded. It is called
+     * while the lock on the atomicobject is hold by the transaction that owns this (uncommitted) tranlocal.
+     * <p/>
+     * By default a conflict can't be resolved: conflicts are detected on the granularity of the atomicobject. A
+     * tranlocal that tracks changes per field (see {@link org.multiverse.api.annotations.AtomicObject#fieldGranularity()})
+     * can resolve the conflict if none of the fields it changed were changed after the readVersion. In that case the
+     * fields it didn't change are copied from mostRecentlyWritten, and mostRecentlyWritten becomes the new origin of
+     * this tranlocal, so that the commit doesn't overwrite the changes of the other transaction.
+     *
+     * @param mostRecentlyWritten the most recently committed tranlocal of the atomicobject.
+     * @param readVersion         the read version of the transaction.
+     * @return true if the conflict is resolved, false otherwise.
+     */
+    public boolean tryResolveConflict(AlphaTranlocal mostRecentlyWritten, long readVersion) {
+        return false;
+    }
+
+    /**
+     * Searches the version history (this tranlocal included) for the tranlocal that was committed with the highest
+     * version equal or smaller than readVersion. This is the tranlocal that was 'current' at the moment readVersion
+     * was the time of the clock.
+     * <p/>
+     * This method should only be called on committed tranlocals.
+     *
+     * @param readVersion the version to look for.
+     * @return the found tranlocal, or null if the version history doesn't go back far enough.
+     */
+    public final AlphaTranlocal findHistoricalVersion(long readVersion) {
+        AlphaTranlocal tranlocal = this;
+        do {
+            if (tranlocal.___writeVersion <= readVersion) {
+                return tranlocal;
+            }
+            tranlocal = tranlocal.___previous;
+        } while (tranlocal != null);
+
+        return null;
+    }
+
+    /**
+     * Trims the version history so that at most maxHistoryDepth older versions remain reachable from this tranlocal.
+     * Older versions are released so they can be garbage collected.
+     * <p/>
+     * Since the history already is trimmed on every commit, normally only a single link needs to be cut.
+     *
+     * @param maxHistoryDepth the maximum number of older versions to keep.
+     */
+    public final void trimHistory(int maxHistoryDepth) {
+        AlphaTranlocal tranlocal = this;
+        for (int depth = 0; depth < maxHistoryDepth; depth++) {
+            tranlocal = tranlocal.___previous;
+            if (tranlocal == null) {
+                return;
+            }
+        }
+
+        tranlocal.___previous = null;
+    }
+
     @Override
     public final CommitLockResult tryLockAndDetectConflicts(Transaction lockOwner) {
         if (SANITY_CHECKS_ENABLED) {
@@ -110,6 +192,10 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
             return CommitLockResult.success;
         }
 
+        if (tryResolveConflict(mostRecentlyWritten, lockOwner.getReadVersion())) {
+            return CommitLockResult.success;
+        }
+
         atomicObject.___releaseLock(lockOwner);
         return CommitLockResult.conflict;
     }
@@ -131,4 +217,9 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
 
         getAtomicObject().___releaseLock(expectedLockOwner);
     }
+
+    @Override
+    public final Transaction getLockOwner() {
+        return getAtomicObject().___getLockOwner();
+    }
 }
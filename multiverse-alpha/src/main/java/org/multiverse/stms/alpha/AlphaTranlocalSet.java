@@ -0,0 +1,301 @@
+package org.multiverse.stms.alpha;
+
+import static java.lang.System.arraycopy;
+import static java.lang.System.identityHashCode;
+
+/**
+ * A set of {@link AlphaTranlocal} instances, keyed on their {@link AlphaAtomicObject}. It is used by the {@link
+ * UpdateAlphaTransaction} to keep track of the tranlocals that have been attached.
+ * <p/>
+ * The set is specialized for the small number of attached tranlocals most transactions have and, unlike an {@link
+ * java.util.IdentityHashMap}, doesn't create any litter when it is used. It upgrades itself transparently when it
+ * overflows:
+ * <ol>
+ * <li>if the set is created with a capacity of 1, no array is created and the single tranlocal is stored in a
+ * field. This is the cheapest mode and very common because many transactions only touch a single atomicobject.</li>
+ * <li>the tranlocals are stored in an array in the order they are attached. As long as the set is small, a lookup
+ * just is a linear scan over this array.</li>
+ * <li>when the set grows beyond {@link #LINEAR_SCAN_THRESHOLD}, an open addressing (linear probing) table is used
+ * for lookups. No entry objects are needed because the key of a tranlocal can be obtained using {@link
+ * AlphaTranlocal#getAtomicObject()}.</li>
+ * <li>the arrays are not thrown away when the set is cleared, so they can be reused when the transaction
+ * restarts.</li>
+ * </ol>
+ * <p/>
+ * This class is not threadsafe; a transaction is only used by a single thread. The only exception is {@link
+ * #getConcurrently(AlphaAtomicObject)}, see {@link AlphaCommitPublisher}.
+ * <p/>
+ * It is not possible to remove a single tranlocal, only the complete set can be cleared.
+ *
+ * @author Peter Veentjer
+ */
+final class AlphaTranlocalSet {
+
+    /**
+     * The maximum number of tranlocals that are searched using a linear scan. If there are more, the hash table is
+     * used.
+     */
+    static final int LINEAR_SCAN_THRESHOLD = 8;
+
+    /**
+     * If the array is more than TRIM_FACTOR times larger than needed, it is released when the set is cleared (see
+     * {@link #clear(int)}).
+     */
+    static final int TRIM_FACTOR = 4;
+
+    private final int initialCapacity;
+
+    //contains the only tranlocal as long as the array is null.
+    private AlphaTranlocal single;
+
+    //contains the tranlocals in the order they were attached. Is null as long as there is at most a single tranlocal
+    //and the set was created with an initial capacity of 1.
+    private AlphaTranlocal[] array;
+    private int size;
+
+    //the open addressing table, only used when the size exceeds the LINEAR_SCAN_THRESHOLD. The length is always a
+    //power of 2 and at least twice the size, so there always are free slots.
+    private AlphaTranlocal[] table;
+    private boolean tableInUse;
+
+    /**
+     * Creates an AlphaTranlocalSet with the given initial capacity.
+     *
+     * @param initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if initialCapacity smaller than 1.
+     */
+    AlphaTranlocalSet(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.initialCapacity = initialCapacity;
+        if (initialCapacity > 1) {
+            this.array = new AlphaTranlocal[initialCapacity];
+        }
+    }
+
+    /**
+     * Returns the number of tranlocals in this set.
+     *
+     * @return the number of tranlocals in this set.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if this set is empty.
+     *
+     * @return true if the set is empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the tranlocal at the given index. The index is the order in which the tranlocals were added, so this
+     * method can be used to iterate over the set without creating an iterator.
+     *
+     * @param index the index of the tranlocal.
+     * @return the tranlocal at the given index.
+     */
+    AlphaTranlocal get(int index) {
+        return array == null ? single : array[index];
+    }
+
+    /**
+     * Gets the tranlocal for the given atomicObject.
+     *
+     * @param atomicObject the atomicObject to look for.
+     * @return the found tranlocal, or null if none is found.
+     */
+    AlphaTranlocal get(AlphaAtomicObject atomicObject) {
+        if (array == null) {
+            return single != null && single.getAtomicObject() == atomicObject ? single : null;
+        }
+
+        if (!tableInUse) {
+            for (int k = 0; k < size; k++) {
+                AlphaTranlocal tranlocal = array[k];
+                if (tranlocal.getAtomicObject() == atomicObject) {
+                    return tranlocal;
+                }
+            }
+            return null;
+        }
+
+        int mask = table.length - 1;
+        int index = indexFor(atomicObject, mask);
+        while (true) {
+            AlphaTranlocal tranlocal = table[index];
+            if (tranlocal == null) {
+                return null;
+            } else if (tranlocal.getAtomicObject() == atomicObject) {
+                return tranlocal;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Gets the tranlocal for the atomicObject, just like {@link #get(AlphaAtomicObject)}, but this method can be
+     * called by another thread than the one that owns this set. If the set is modified concurrently, the result could
+     * be stale or null, but the lookup never fails and always terminates. So the caller needs to validate the
+     * returned tranlocal.
+     *
+     * @param atomicObject the AlphaAtomicObject to look for.
+     * @return the found tranlocal, or null if not found.
+     */
+    AlphaTranlocal getConcurrently(AlphaAtomicObject atomicObject) {
+        AlphaTranlocal[] array = this.array;
+        if (array == null) {
+            AlphaTranlocal single = this.single;
+            return single != null && single.getAtomicObject() == atomicObject ? single : null;
+        }
+
+        AlphaTranlocal[] table = this.table;
+        if (!tableInUse || table == null) {
+            for (int k = 0; k < array.length; k++) {
+                AlphaTranlocal tranlocal = array[k];
+                if (tranlocal != null && tranlocal.getAtomicObject() == atomicObject) {
+                    return tranlocal;
+                }
+            }
+            return null;
+        }
+
+        int mask = table.length - 1;
+        int index = indexFor(atomicObject, mask);
+        for (int k = 0; k < table.length; k++) {
+            AlphaTranlocal tranlocal = table[index];
+            if (tranlocal == null) {
+                return null;
+            } else if (tranlocal.getAtomicObject() == atomicObject) {
+                return tranlocal;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a tranlocal to this set. It is the responsibility of the caller to make sure that there is no tranlocal
+     * for the same atomicObject in this set.
+     *
+     * @param tranlocal the tranlocal to add.
+     */
+    void put(AlphaTranlocal tranlocal) {
+        if (array == null) {
+            if (single == null) {
+                single = tranlocal;
+                size = 1;
+                return;
+            }
+
+            //the single tranlocal mode overflows.
+            array = new AlphaTranlocal[Math.max(initialCapacity, 4)];
+            array[0] = single;
+            single = null;
+        }
+
+        if (size == array.length) {
+            AlphaTranlocal[] newArray = new AlphaTranlocal[array.length * 2];
+            arraycopy(array, 0, newArray, 0, size);
+            array = newArray;
+        }
+
+        array[size] = tranlocal;
+        size++;
+
+        if (tableInUse) {
+            if (size * 2 > table.length) {
+                rebuildTable(table.length * 2);
+            } else {
+                insertInTable(tranlocal);
+            }
+        } else if (size > LINEAR_SCAN_THRESHOLD) {
+            int minimalLength = size * 2;
+            rebuildTable(table == null || table.length < minimalLength ? tableLength(minimalLength) : table.length);
+        }
+    }
+
+    /**
+     * Removes all tranlocals from this set. The arrays are kept, so they can be reused.
+     */
+    void clear() {
+        if (array == null) {
+            single = null;
+        } else {
+            for (int k = 0; k < size; k++) {
+                array[k] = null;
+            }
+        }
+        size = 0;
+
+        if (tableInUse) {
+            clearTable();
+            tableInUse = false;
+        }
+    }
+
+    /**
+     * Removes all tranlocals from this set, just like {@link #clear()}. If the arrays are much larger than needed for
+     * the expected number of tranlocals and the tranlocals that just were removed, they are released. This prevents a
+     * single large transaction from keeping a large array alive in a transaction that is reused (see {@link
+     * TransactionPool}).
+     *
+     * @param expectedSize the expected number of tranlocals the next time this set is used.
+     */
+    void clear(int expectedSize) {
+        int needed = Math.max(expectedSize, size);
+        clear();
+
+        if (array != null && array.length > TRIM_FACTOR * Math.max(needed, 4)) {
+            array = needed > 1 ? new AlphaTranlocal[needed] : null;
+            table = null;
+        }
+    }
+
+    private void rebuildTable(int length) {
+        if (table == null || table.length != length) {
+            table = new AlphaTranlocal[length];
+        } else {
+            clearTable();
+        }
+
+        for (int k = 0; k < size; k++) {
+            insertInTable(array[k]);
+        }
+        tableInUse = true;
+    }
+
+    private void insertInTable(AlphaTranlocal tranlocal) {
+        int mask = table.length - 1;
+        int index = indexFor(tranlocal.getAtomicObject(), mask);
+        while (table[index] != null) {
+            index = (index + 1) & mask;
+        }
+        table[index] = tranlocal;
+    }
+
+    private void clearTable() {
+        for (int k = 0; k < table.length; k++) {
+            table[k] = null;
+        }
+    }
+
+    private static int tableLength(int minimalLength) {
+        int length = 1;
+        while (length < minimalLength) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    private static int indexFor(AlphaAtomicObject atomicObject, int mask) {
+        int hash = identityHashCode(atomicObject);
+        //spreads the higher bits, identity hashcodes often only differ in the higher bits.
+        hash ^= (hash >>> 16);
+        return hash & mask;
+    }
+}
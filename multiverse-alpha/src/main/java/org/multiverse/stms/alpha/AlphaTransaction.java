@@ -32,4 +32,42 @@ public interface AlphaTransaction extends Transaction {
      *          if this transaction isn't active.
      */
     AlphaTranlocal load(AlphaAtomicObject atomicObject);
+
+    /**
+     * Registers a commuting function on the atomicObject. Unlike a normal write, the function is not executed on the
+     * state the transaction has read, but on the most recently committed state at commit time while the lock on the
+     * atomicObject is hold. So concurrent transactions that only commute on the same atomicObject, don't cause
+     * writeconflicts. This is useful for counters and sizes.
+     * <p/>
+     * If the atomicObject already is loaded by this transaction, the function is executed directly on the loaded
+     * tranlocal and the write is treated like a normal write. If the atomicObject is loaded after the commute, the
+     * pending commuting functions are executed on the loaded tranlocal, so the transaction sees its own changes.
+     *
+     * @param atomicObject the atomicObject to commute on.
+     * @param function     the function to execute.
+     * @throws NullPointerException if atomicObject or function is null.
+     * @throws org.multiverse.api.exceptions.ReadonlyException
+     *                              if this transaction is readonly.
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *                              if this transaction isn't active.
+     */
+    void commute(AlphaAtomicObject atomicObject, AlphaCommutingFunction function);
+
+    /**
+     * Registers a condition that needs to be satisfied before this transaction is woken up when it retries (see
+     * {@link org.multiverse.api.StmUtils#retry()}) and the atomicObject is changed. Without a condition every commit
+     * on the atomicObject wakes up the transaction. A previously registered condition for the atomicObject is
+     * replaced.
+     * <p/>
+     * The condition only is used for the next retry; when the transaction is restarted, the conditions are removed.
+     *
+     * @param atomicObject the atomicObject the condition is registered for.
+     * @param condition    the condition.
+     * @throws NullPointerException if atomicObject or condition is null.
+     * @throws org.multiverse.api.exceptions.ReadonlyException
+     *                              if this transaction is readonly (readonly transactions can't retry).
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *                              if this transaction isn't active.
+     */
+    void registerWakeupCondition(AlphaAtomicObject atomicObject, AlphaWakeupCondition condition);
 }
@@ -0,0 +1,25 @@
+package org.multiverse.stms.alpha;
+
+/**
+ * A condition that is evaluated when a retrying transaction (see {@link org.multiverse.api.StmUtils#retry()}) could be
+ * woken up because an atomicobject it has read, has been committed. The transaction only is woken up if the condition
+ * is satisfied, so a waiter that waits for a specific state (e.g. a collection that is not empty) isn't woken up
+ * by every commit on the atomicobject (see {@link AlphaTransaction#registerWakeupCondition(AlphaAtomicObject,
+ * AlphaWakeupCondition)}).
+ * <p/>
+ * The condition is evaluated by the thread that committed the change, after the change has been stored. So it should
+ * be fast, it should not access other atomicobjects and should not have side effects. If the condition throws an
+ * exception, the transaction is woken up.
+ *
+ * @author Peter Veentjer
+ */
+public interface AlphaWakeupCondition {
+
+    /**
+     * Checks if the condition is satisfied.
+     *
+     * @param tranlocal the most recently committed tranlocal of the atomicobject. It should not be modified.
+     * @return true if the waiting transaction should be woken up, false otherwise.
+     */
+    boolean isSatisfied(AlphaTranlocal tranlocal);
+}
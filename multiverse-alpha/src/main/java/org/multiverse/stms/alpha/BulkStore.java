@@ -0,0 +1,129 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.utils.Listeners;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Stores the writeset of a very large commit in parallel. The writeset is split in chunks of {@link #CHUNK_SIZE}
+ * tranlocals; all chunks but the last one are stored by the {@link Executor}, the last one is stored by the
+ * committing thread itself. The committing thread waits till all chunks are stored.
+ * <p/>
+ * The ordering guarantees of the store (see {@link org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin}) are kept:
+ * every tranlocal is stored while the lock on its atomicobject is held, and the locks are released by the committing
+ * thread after {@link #storeAll()} has returned, so after all stores have completed (the CountDownLatch provides the
+ * happens before relation).
+ * <p/>
+ * A BulkStore is only used once, so the price of the object creation is only paid by very large commits.
+ *
+ * @author Peter Veentjer
+ */
+final class BulkStore {
+
+    /**
+     * The number of tranlocals that are stored in a single task.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    private final AlphaTranlocal[] writeSet;
+    private final int size;
+    private final long writeVersion;
+    private final int maxHistoryDepth;
+    private final Executor executor;
+    private final CountDownLatch pendingChunks;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a BulkStore.
+     *
+     * @param writeSet        the writeset to store.
+     * @param size            the number of tranlocals in the writeset.
+     * @param writeVersion    the version of the commit.
+     * @param maxHistoryDepth the maximum depth of the version history.
+     * @param executor        the Executor that executes the stores of the chunks.
+     */
+    BulkStore(AlphaTranlocal[] writeSet, int size, long writeVersion, int maxHistoryDepth, Executor executor) {
+        this.writeSet = writeSet;
+        this.size = size;
+        this.writeVersion = writeVersion;
+        this.maxHistoryDepth = maxHistoryDepth;
+        this.executor = executor;
+        this.pendingChunks = new CountDownLatch(chunkCount(size));
+    }
+
+    /**
+     * Stores all tranlocals in the writeset and waits till all stores have completed. The locks are not released.
+     *
+     * @throws RuntimeException if a store failed.
+     * @throws Error            if a store failed.
+     */
+    void storeAll() {
+        int chunkCount = chunkCount(size);
+        for (int chunk = 0; chunk < chunkCount - 1; chunk++) {
+            final int begin = chunk * CHUNK_SIZE;
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    storeChunk(begin);
+                }
+            };
+
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                storeChunk(begin);
+            }
+        }
+
+        storeChunk((chunkCount - 1) * CHUNK_SIZE);
+        awaitChunks();
+
+        Throwable cause = failure;
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+    }
+
+    private void storeChunk(int begin) {
+        try {
+            int end = Math.min(begin + CHUNK_SIZE, size);
+            for (int k = begin; k < end; k++) {
+                AlphaTranlocal tranlocal = writeSet[k];
+                Listeners listeners = tranlocal.getAtomicObject().___storeAndReleaseLock(
+                        tranlocal, writeVersion, maxHistoryDepth);
+                if (listeners != null) {
+                    listeners.openAll();
+                }
+            }
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            pendingChunks.countDown();
+        }
+    }
+
+    private void awaitChunks() {
+        //the locks can only be released when all stores have completed, so the wait can't be interrupted.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pendingChunks.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int chunkCount(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+}
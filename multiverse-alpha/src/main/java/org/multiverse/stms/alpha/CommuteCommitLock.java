@@ -0,0 +1,37 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.utils.commitlock.CommitLock;
+import org.multiverse.utils.commitlock.CommitLockResult;
+
+/**
+ * The {@link CommitLock} of an atomicobject a commuting function is executed on (see {@link
+ * UpdateAlphaTransaction#commute(AlphaAtomicObject, AlphaCommutingFunction)}). Because the atomicobject has not been
+ * read, there is nothing to conflict with; so acquiring the lock never results in a conflict.
+ * <p/>
+ * It makes it possible to acquire the locks of the commuting atomicobjects through the {@link
+ * org.multiverse.utils.commitlock.CommitLockPolicy}, together with the writeset and in the same global order.
+ * <p/>
+ * Instances are reused by the transaction that owns them, so this class is not threadsafe.
+ *
+ * @author Peter Veentjer
+ */
+final class CommuteCommitLock implements CommitLock {
+
+    AlphaAtomicObject atomicObject;
+
+    @Override
+    public CommitLockResult tryLockAndDetectConflicts(Transaction lockOwner) {
+        return atomicObject.___tryLock(lockOwner) ? CommitLockResult.success : CommitLockResult.failure;
+    }
+
+    @Override
+    public void releaseLock(Transaction expectedLockOwner) {
+        atomicObject.___releaseLock(expectedLockOwner);
+    }
+
+    @Override
+    public Transaction getLockOwner() {
+        return atomicObject.___getLockOwner();
+    }
+}
@@ -30,8 +30,9 @@ import static java.lang.String.format;
  * T1 (ro):     |--load_X-----load_X--|
  * T2 (up): |---write_X----|
  * </pre>
- * In the future a version history will be added for previous committed data. So the chance that a old version is not
- * available is going to decrease.
+ * To reduce the chance of this happening, a version history of previously committed data can be kept for every
+ * atomicobject (see {@link AlphaStmConfig#maxHistoryDepth}). If the history goes back far enough, the second load
+ * will find the version of X that was current when T1 started.
  *
  * @author Peter Veentjer.
  */
@@ -77,6 +78,20 @@ public class ReadonlyAlphaTransaction extends AbstractTransaction<ReadonlyAlphaT
         }
     }
 
+    @Override
+    public void commute(AlphaAtomicObject atomicObject, AlphaCommutingFunction function) {
+        String msg = format("Can't commute on atomicObject '%s' in readonly transaction '%s'.",
+                            toAtomicObjectString(atomicObject), familyName);
+        throw new ReadonlyException(msg);
+    }
+
+    @Override
+    public void registerWakeupCondition(AlphaAtomicObject atomicObject, AlphaWakeupCondition condition) {
+        String msg = format("Can't register a wakeup condition on atomicObject '%s' in readonly transaction '%s'.",
+                            toAtomicObjectString(atomicObject), familyName);
+        throw new ReadonlyException(msg);
+    }
+
     @Override
     protected long onCommit() {
         long value = super.onCommit();
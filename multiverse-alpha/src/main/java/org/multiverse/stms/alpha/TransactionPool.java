@@ -0,0 +1,44 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.api.TransactionStatus;
+
+/**
+ * A per thread pool of transactions used by the {@link AlphaStm} when transaction pooling is enabled (see {@link
+ * AlphaStmConfig#transactionPoolingEnabled}).
+ * <p/>
+ * The pool contains at most a single update and a single readonly transaction. When a transaction is requested and
+ * the pooled one is committed or aborted, it is recycled instead of creating a new one. If the pooled one still is
+ * active (e.g. because the thread manually started multiple transactions), a new transaction is created and that
+ * one is pooled instead.
+ * <p/>
+ * This class is not threadsafe; it should only be used by the thread that owns it.
+ *
+ * @author Peter Veentjer
+ */
+final class TransactionPool {
+
+    private UpdateAlphaTransaction updateTransaction;
+
+    private ReadonlyAlphaTransaction readonlyTransaction;
+
+    UpdateAlphaTransaction takeUpdateTransaction(UpdateTransactionDependencies dependencies, String familyName) {
+        if (updateTransaction == null || updateTransaction.getStatus() == TransactionStatus.active) {
+            updateTransaction = new UpdateAlphaTransaction(dependencies, familyName);
+        } else {
+            updateTransaction.recycle(familyName);
+        }
+
+        return updateTransaction;
+    }
+
+    ReadonlyAlphaTransaction takeReadonlyTransaction(ReadonlyAlphaTransactionDependencies dependencies,
+                                                     String familyName) {
+        if (readonlyTransaction == null || readonlyTransaction.getStatus() == TransactionStatus.active) {
+            readonlyTransaction = new ReadonlyAlphaTransaction(dependencies, familyName);
+        } else {
+            readonlyTransaction.recycle(familyName);
+        }
+
+        return readonlyTransaction;
+    }
+}
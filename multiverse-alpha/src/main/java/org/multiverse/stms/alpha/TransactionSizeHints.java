@@ -0,0 +1,92 @@
+package org.multiverse.stms.alpha;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Learns, per transaction familyName, how many atomicobjects a transaction typically attaches. The {@link
+ * UpdateAlphaTransaction} uses this hint to start with the cheapest structure for its attached tranlocals (see {@link
+ * AlphaTranlocalSet}), instead of always starting with a structure that needs to grow.
+ * <p/>
+ * The hint for a family is a moving estimate of the sizes that have been signalled for that family (capped by {@link
+ * #MAX_HINT}). It moves towards a signalled size with a fraction of the difference (see {@link #SMOOTHING}), so the
+ * hint converges to the typical size of the family and a single outlier (e.g. a transaction that touches a complete
+ * collection once) only moves the hint temporarily. Transactions without a familyName don't learn and always start
+ * with the smallest structure.
+ * <p/>
+ * This class is threadsafe. The map is only written when the hint changes, so in a stable situation there only are
+ * reads.
+ *
+ * @author Peter Veentjer
+ */
+public final class TransactionSizeHints {
+
+    /**
+     * The maximum value of a hint, to prevent that a single huge transaction makes all following transactions of
+     * the same family allocate huge arrays.
+     */
+    public static final int MAX_HINT = 1024;
+
+    /**
+     * The hint moves 1/SMOOTHING of the difference towards a signalled size. Growing rounds up, so that a family that
+     * constantly needs one more atomicobject than the hint, will reach that size.
+     */
+    public static final int SMOOTHING = 4;
+
+    private final ConcurrentMap<String, Integer> hints = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Returns the expected number of atomicobjects a transaction with the given familyName is going to attach.
+     *
+     * @param familyName the familyName of the transaction (is allowed to be null).
+     * @return the size hint, will always be equal or larger than 1.
+     */
+    public int getHint(String familyName) {
+        if (familyName == null) {
+            return 1;
+        }
+
+        Integer hint = hints.get(familyName);
+        return hint == null ? 1 : hint;
+    }
+
+    /**
+     * Signals the number of atomicobjects a transaction with the given familyName attached.
+     *
+     * @param familyName the familyName of the transaction (is allowed to be null).
+     * @param size       the number of attached atomicobjects.
+     */
+    public void signal(String familyName, int size) {
+        if (familyName == null) {
+            return;
+        }
+
+        if (size < 1) {
+            size = 1;
+        } else if (size > MAX_HINT) {
+            size = MAX_HINT;
+        }
+
+        while (true) {
+            Integer current = hints.get(familyName);
+            if (current == null) {
+                if (size == 1 || hints.putIfAbsent(familyName, size) == null) {
+                    return;
+                }
+            } else {
+                int update = estimate(current, size);
+                if (update == current || hints.replace(familyName, current, update)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int estimate(int current, int size) {
+        if (size > current) {
+            return current + (size - current + SMOOTHING - 1) / SMOOTHING;
+        } else {
+            return current - (current - size) / SMOOTHING;
+        }
+    }
+}
@@ -2,15 +2,16 @@ package org.multiverse.stms.alpha;
 
 import org.multiverse.api.exceptions.*;
 import org.multiverse.stms.AbstractTransaction;
+import static org.multiverse.stms.alpha.AlphaStmUtils.getLoadUncommittedMessage;
 import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
 import org.multiverse.utils.Listeners;
 import static org.multiverse.utils.commitlock.CommitLockUtils.nothingToLock;
+import org.multiverse.utils.commitlock.CommitLock;
+import org.multiverse.utils.commitlock.CommitLockResult;
 import static org.multiverse.utils.commitlock.CommitLockUtils.releaseLocks;
 import org.multiverse.utils.latches.Latch;
 
 import static java.lang.String.format;
-import java.util.IdentityHashMap;
-import java.util.Map;
 
 /**
  * A {@link org.multiverse.api.Transaction} implementation that is used to do updates. It can also be used for reaonly
@@ -18,28 +19,72 @@ import java.util.Map;
  * <p/>
  * Comment about design: A state design pattern would have been a solution to reduce the switch statements, but to
  * prevent object creation, this is not done.
+ * <p/>
+ * The transaction adapts to the number of atomicobjects it attaches: it starts with the size that is learned for its
+ * familyName (see {@link TransactionSizeHints}) and the attached set upgrades itself transparently on overflow (see
+ * {@link AlphaTranlocalSet}). A transaction that only attaches a single atomicobject, doesn't need any array and
+ * commits without a writeset.
+ * <p/>
+ * Commuting functions (see {@link #commute(AlphaAtomicObject, AlphaCommutingFunction)}) on atomicobjects that are not
+ * attached, are kept in reusable arrays and are applied on the most recently committed state of the atomicobject
+ * while the commit locks are held. Because the atomicobject has not been read, no conflict can be detected on it.
+ * <p/>
+ * If commit publishing is enabled, the transaction publishes its write version and writeset while it stores its
+ * changes (see {@link AlphaCommitPublisher}), so that other transactions don't need to wait for its locks.
  *
  * @author Peter Veentjer.
  */
 public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactionDependencies>
-        implements AlphaTransaction {
+        implements AlphaTransaction, AlphaCommitPublisher {
 
     private final static AlphaTranlocal[] EMPTY_WRITESET = new AlphaTranlocal[0];
 
     //the attached set contains the Translocals loaded and attached.
-    private final Map<AlphaAtomicObject, AlphaTranlocal> attached
-            = new IdentityHashMap<AlphaAtomicObject, AlphaTranlocal>(2);
+    private final AlphaTranlocalSet attached;
+
+    //the writeset is reused between commits/restarts to prevent object creation. It is null terminated, so only the
+    //elements before the first null are part of the writeset (see CommitLockPolicy).
+    private AlphaTranlocal[] writeSet = EMPTY_WRITESET;
+    private int writeSetSize;
 
     private SnapshotStack snapshotStack;
 
+    //the pending commuting functions. The element at index k of the 4 arrays belongs to the same commute. The
+    //tranlocals array contains the tranlocals that are created for the commutes during the commit. The arrays and the
+    //locks are created lazily and reused between commits/restarts.
+    private AlphaAtomicObject[] commuteAtomicObjects;
+    private AlphaCommutingFunction[] commuteFunctions;
+    private AlphaTranlocal[] commuteTranlocals;
+    private CommuteCommitLock[] commuteLocks;
+    private int commuteCount;
+
+    //the locks of a commit with commutes: the writeset and the locks of the commuting atomicobjects, sorted on the id
+    //of the atomicobjects. It is null terminated and reused, just like the writeset.
+    private CommitLock[] commuteLockSet;
+
+    //the wakeup conditions for the next retry. The element at index k of the 3 arrays belongs to the same condition.
+    //The arrays and the latches are created lazily and reused between restarts. The wakeupLatches are registered
+    //for the conditions instead of the latch of the retry (see WakeupConditionLatch).
+    private AlphaAtomicObject[] wakeupAtomicObjects;
+    private AlphaWakeupCondition[] wakeupConditions;
+    private WakeupConditionLatch[] wakeupLatches;
+    private int wakeupConditionCount;
+
+    //the write version of the commit that is published, 0 if no commit is published. The write is the publication of
+    //the prepared tranlocals, see AlphaCommitPublisher.
+    private volatile long publishedWriteVersion;
+
     public UpdateAlphaTransaction(UpdateTransactionDependencies params, String familyName) {
         super(params, familyName);
+        this.attached = new AlphaTranlocalSet(params.sizeHints.getHint(familyName));
         init();
     }
 
     protected void doInit() {
         this.snapshotStack = null;
-        this.attached.clear();
+        this.attached.clear(dependencies.sizeHints.getHint(familyName));
+        clearCommutes();
+        clearWakeupConditions();
 
         if (dependencies.profiler != null) {
             dependencies.profiler.incCounter("updatetransaction.started.count", getFamilyName());
@@ -57,7 +102,7 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
                 AlphaTranlocal tranlocal = attached.get(atomicObject);
                 if (tranlocal == null) {
                     try {
-                        tranlocal = atomicObject.___loadUpdatable(getReadVersion());
+                        tranlocal = loadUpdatable(atomicObject);
                     } catch (LoadTooOldVersionException e) {
                         if (dependencies.profiler != null) {
                             dependencies.profiler.incCounter("atomicobject.snapshottooold.count",
@@ -74,7 +119,12 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
                         throw e;
                     }
 
-                    attached.put(atomicObject, tranlocal);
+                    attached.put(tranlocal);
+                    incKarma();
+
+                    if (commuteCount > 0) {
+                        applyPendingCommutes(tranlocal);
+                    }
 
                     if (dependencies.profiler != null) {
                         dependencies.profiler.incCounter("atomicobject.load.count", atomicObject.getClass().getName());
@@ -104,6 +154,277 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
         }
     }
 
+    private AlphaTranlocal loadUpdatable(AlphaAtomicObject atomicObject) {
+        try {
+            return atomicObject.___loadUpdatable(getReadVersion());
+        } catch (LoadTooOldVersionException e) {
+            if (!dependencies.readVersionExtensionEnabled || !tryExtendReadVersion()) {
+                throw e;
+            }
+
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.readversionextended.count", getFamilyName());
+            }
+
+            return atomicObject.___loadUpdatable(getReadVersion());
+        }
+    }
+
+    /**
+     * Tries to extend the read version of this transaction to the current time of the clock. This is only possible
+     * if all attached tranlocals still are valid at the current time: so the atomicobject has not been updated after
+     * the read version and it is not locked (if it is locked, the version it is going to get, could be smaller than
+     * the new read version).
+     * <p/>
+     * The time is read before the validation, so every transaction that has ticked the clock before, has locked the
+     * atomicobjects it is going to update before that. So if it isn't finished, the lock is seen, and if it is
+     * finished the new version is seen.
+     *
+     * @return true if the read version was extended, false otherwise.
+     */
+    private boolean tryExtendReadVersion() {
+        long newReadVersion = dependencies.clock.getTime();
+
+        for (int k = 0; k < attached.size(); k++) {
+            AlphaAtomicObject atomicObject = attached.get(k).getAtomicObject();
+
+            if (atomicObject.___getLockOwner() != null) {
+                return false;
+            }
+
+            AlphaTranlocal mostRecentlyWritten = atomicObject.___load();
+            //a fresh atomicobject has not been committed yet, so it can't be changed by another transaction.
+            if (mostRecentlyWritten != null && mostRecentlyWritten.___writeVersion > getReadVersion()) {
+                return false;
+            }
+        }
+
+        extendReadVersion(newReadVersion);
+        return true;
+    }
+
+    /**
+     * Applies the pending commuting functions on the atomicobject of the tranlocal that just has been loaded. The
+     * pending commutes are not removed, but because the atomicobject is attached from now on, they are ignored when
+     * the transaction commits. This makes it possible to restore the state when an orelse branch is rolled back.
+     *
+     * @param tranlocal the just loaded tranlocal.
+     */
+    private void applyPendingCommutes(AlphaTranlocal tranlocal) {
+        AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+        for (int k = 0; k < commuteCount; k++) {
+            if (commuteAtomicObjects[k] == atomicObject) {
+                commuteFunctions[k].apply(tranlocal);
+            }
+        }
+    }
+
+    @Override
+    public void commute(AlphaAtomicObject atomicObject, AlphaCommutingFunction function) {
+        switch (getStatus()) {
+            case active:
+                if (atomicObject == null || function == null) {
+                    throw new NullPointerException();
+                }
+
+                AlphaTranlocal tranlocal = attached.get(atomicObject);
+                if (tranlocal != null) {
+                    //the atomicobject already is attached, so the function can be applied like a normal write.
+                    function.apply(tranlocal);
+                } else {
+                    addCommute(atomicObject, function);
+                }
+                incKarma();
+
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("updatetransaction.commute.count", getFamilyName());
+                }
+                break;
+            case committed: {
+                String msg = format("Can't call commute with atomicobject '%s' on committed transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            case aborted: {
+                String msg = format("Can't call commute with atomicObject '%s' on aborted transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    @Override
+    public void registerWakeupCondition(AlphaAtomicObject atomicObject, AlphaWakeupCondition condition) {
+        switch (getStatus()) {
+            case active:
+                if (atomicObject == null || condition == null) {
+                    throw new NullPointerException();
+                }
+
+                for (int k = 0; k < wakeupConditionCount; k++) {
+                    if (wakeupAtomicObjects[k] == atomicObject) {
+                        wakeupConditions[k] = condition;
+                        return;
+                    }
+                }
+
+                if (wakeupAtomicObjects == null) {
+                    wakeupAtomicObjects = new AlphaAtomicObject[2];
+                    wakeupConditions = new AlphaWakeupCondition[2];
+                    wakeupLatches = new WakeupConditionLatch[2];
+                } else if (wakeupConditionCount == wakeupAtomicObjects.length) {
+                    int newLength = wakeupConditionCount * 2;
+                    AlphaAtomicObject[] newAtomicObjects = new AlphaAtomicObject[newLength];
+                    System.arraycopy(wakeupAtomicObjects, 0, newAtomicObjects, 0, wakeupConditionCount);
+                    wakeupAtomicObjects = newAtomicObjects;
+                    AlphaWakeupCondition[] newConditions = new AlphaWakeupCondition[newLength];
+                    System.arraycopy(wakeupConditions, 0, newConditions, 0, wakeupConditionCount);
+                    wakeupConditions = newConditions;
+                    WakeupConditionLatch[] newLatches = new WakeupConditionLatch[newLength];
+                    System.arraycopy(wakeupLatches, 0, newLatches, 0, wakeupLatches.length);
+                    wakeupLatches = newLatches;
+                }
+
+                wakeupAtomicObjects[wakeupConditionCount] = atomicObject;
+                wakeupConditions[wakeupConditionCount] = condition;
+                wakeupConditionCount++;
+                break;
+            case committed: {
+                String msg = format(
+                        "Can't call registerWakeupCondition with atomicobject '%s' on committed transaction '%s'.",
+                        toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            case aborted: {
+                String msg = format(
+                        "Can't call registerWakeupCondition with atomicObject '%s' on aborted transaction '%s'.",
+                        toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Returns the latch that needs to be registered as retry listener on the atomicObject. If there is a wakeup
+     * condition for the atomicObject, the latch is wrapped so that the condition is evaluated before it is opened. The
+     * wrapping latch is reused between restarts, so no object is created for it on every retry.
+     *
+     * @param atomicObject the atomicObject to register the latch on.
+     * @param latch        the latch of the retry.
+     * @return the latch to register.
+     */
+    private Latch getRetryListener(AlphaAtomicObject atomicObject, Latch latch) {
+        for (int k = 0; k < wakeupConditionCount; k++) {
+            if (wakeupAtomicObjects[k] == atomicObject) {
+                WakeupConditionLatch listener = wakeupLatches[k];
+                if (listener == null) {
+                    listener = new WakeupConditionLatch();
+                    wakeupLatches[k] = listener;
+                }
+                listener.init(latch, atomicObject, wakeupConditions[k]);
+                return listener;
+            }
+        }
+        return latch;
+    }
+
+    /**
+     * Returns the latch that has been registered as retry listener on the atomicObject by the {@link
+     * #getRetryListener(AlphaAtomicObject, Latch)}.
+     *
+     * @param atomicObject the atomicObject the latch was registered on.
+     * @param latch        the latch of the retry.
+     * @return the registered latch.
+     */
+    private Latch getRegisteredRetryListener(AlphaAtomicObject atomicObject, Latch latch) {
+        for (int k = 0; k < wakeupConditionCount; k++) {
+            if (wakeupAtomicObjects[k] == atomicObject && wakeupLatches[k] != null) {
+                return wakeupLatches[k];
+            }
+        }
+        return latch;
+    }
+
+    /**
+     * Clears the wakeup conditions so that they can be garbage collected. The wakeup latches are kept for reuse.
+     */
+    private void clearWakeupConditions() {
+        for (int k = 0; k < wakeupConditionCount; k++) {
+            wakeupAtomicObjects[k] = null;
+            wakeupConditions[k] = null;
+            if (wakeupLatches[k] != null) {
+                wakeupLatches[k].clear();
+            }
+        }
+        wakeupConditionCount = 0;
+    }
+
+    private void addCommute(AlphaAtomicObject atomicObject, AlphaCommutingFunction function) {
+        if (commuteAtomicObjects == null) {
+            commuteAtomicObjects = new AlphaAtomicObject[4];
+            commuteFunctions = new AlphaCommutingFunction[4];
+            commuteTranlocals = new AlphaTranlocal[4];
+            commuteLocks = new CommuteCommitLock[4];
+        } else if (commuteCount == commuteAtomicObjects.length) {
+            int newLength = commuteCount * 2;
+            AlphaAtomicObject[] newAtomicObjects = new AlphaAtomicObject[newLength];
+            System.arraycopy(commuteAtomicObjects, 0, newAtomicObjects, 0, commuteCount);
+            commuteAtomicObjects = newAtomicObjects;
+            AlphaCommutingFunction[] newFunctions = new AlphaCommutingFunction[newLength];
+            System.arraycopy(commuteFunctions, 0, newFunctions, 0, commuteCount);
+            commuteFunctions = newFunctions;
+            commuteTranlocals = new AlphaTranlocal[newLength];
+            CommuteCommitLock[] newLocks = new CommuteCommitLock[newLength];
+            System.arraycopy(commuteLocks, 0, newLocks, 0, commuteCount);
+            commuteLocks = newLocks;
+        }
+
+        commuteAtomicObjects[commuteCount] = atomicObject;
+        commuteFunctions[commuteCount] = function;
+        commuteCount++;
+    }
+
+    /**
+     * Checks if the commute at the given index needs to be executed during the commit: so the atomicobject is not
+     * attached (then the function already is applied on the attached tranlocal) and it is the first commute on that
+     * atomicobject (all commutes on the same atomicobject are executed on the same tranlocal).
+     *
+     * @param index the index of the commute.
+     * @return true if the commute is the first commute that needs to be executed for its atomicobject.
+     */
+    private boolean isFirstPendingCommute(int index) {
+        AlphaAtomicObject atomicObject = commuteAtomicObjects[index];
+        if (attached.get(atomicObject) != null) {
+            return false;
+        }
+
+        for (int k = 0; k < index; k++) {
+            if (commuteAtomicObjects[k] == atomicObject) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears the pending commutes so that the atomicobjects, functions and tranlocals can be garbage collected.
+     */
+    private void clearCommutes() {
+        for (int k = 0; k < commuteCount; k++) {
+            commuteAtomicObjects[k] = null;
+            commuteFunctions[k] = null;
+            commuteTranlocals[k] = null;
+            if (commuteLocks[k] != null) {
+                commuteLocks[k].atomicObject = null;
+            }
+        }
+        commuteCount = 0;
+    }
+
     @Override
     protected long onCommit() {
         long commitVersion = doCommit();
@@ -111,11 +432,23 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
             dependencies.profiler.incCounter("updatetransaction.committed.count", getFamilyName());
         }
 
+        dependencies.sizeHints.signal(familyName, attached.size());
         attached.clear();
+        clearWriteSet();
+        clearCommutes();
+        clearWakeupConditions();
         return commitVersion;
     }
 
     private long doCommit() {
+        if (commuteCount > 0) {
+            return doCommitWithCommutes();
+        }
+
+        if (attached.size() == 1) {
+            return doCommitSingle(attached.get(0));
+        }
+
         AlphaTranlocal[] writeSet = createWriteSet();
         if (nothingToLock(writeSet)) {
             //if there is nothing to commit, we are done.
@@ -128,7 +461,7 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
         boolean locksNeedToBeReleased = true;
         long writeVersion = 0;
         try {
-            acquireLocksAndCheckForConflicts(writeSet);
+            checkCommitLockResult(dependencies.commitLockPolicy.tryLockAllAndDetectConflicts(writeSet, this));
             writeVersion = dependencies.clock.tick();
 
             if (SANITY_CHECKS_ENABLED) {
@@ -137,6 +470,7 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
                 }
             }
 
+            publishCommit(writeSet, writeVersion);
             storeAllAndReleaseLocks(writeSet, writeVersion);
             locksNeedToBeReleased = true;
             return writeVersion;
@@ -144,75 +478,340 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
             if (locksNeedToBeReleased) {
                 releaseLocks(writeSet, this);
             }
+            unpublishCommit();
         }
     }
 
     /**
-     * Creates the writeset; a set of objects which state needs to be committed.
+     * Commits a transaction that has pending commutes. The locks of the writeset and of the atomicobjects of the
+     * pending commutes are acquired together through the CommitLockPolicy, in the same global order as a normal
+     * writeset (see {@link WriteSetSorter}). After that the functions are applied on a copy of the most recently
+     * committed state. The functions are applied before the clock is ticked and anything is stored, so if a function
+     * fails, the transaction aborts without any change being visible.
      *
-     * @return the created WriteSet. The returned value will never be null.
+     * @return the version of the commit.
+     */
+    private long doCommitWithCommutes() {
+        AlphaTranlocal[] writeSet = createWriteSet();
+        CommitLock[] lockSet = createCommuteLockSet(writeSet);
+        try {
+            checkCommitLockResult(dependencies.commitLockPolicy.tryLockAllAndDetectConflicts(lockSet, this));
+
+            for (int k = 0; k < commuteCount; k++) {
+                if (isFirstPendingCommute(k)) {
+                    commuteTranlocals[k] = applyCommutes(k);
+                }
+            }
+
+            long writeVersion = dependencies.clock.tick();
+
+            if (SANITY_CHECKS_ENABLED) {
+                if (writeVersion <= getReadVersion()) {
+                    throw new PanicError("The clock went back in time");
+                }
+            }
+
+            publishCommit(writeSet, writeVersion);
+            storeAllAndReleaseLocks(writeSet, writeVersion);
+            for (int k = 0; k < commuteCount; k++) {
+                if (commuteTranlocals[k] != null) {
+                    store(commuteTranlocals[k], writeVersion);
+                }
+            }
+            return writeVersion;
+        } finally {
+            //releasing a lock that is not owned by this transaction, is ignored.
+            releaseLocks(lockSet, this);
+            clearCommuteLockSet();
+            unpublishCommit();
+        }
+    }
+
+    /**
+     * Creates the set of locks for a commit with commutes: the writeset followed by the locks of the atomicobjects of
+     * the pending commutes, sorted on the id of the atomicobjects. The writeset already is sorted and there normally
+     * are only a few commuting atomicobjects, so these are inserted using an insertion sort.
+     *
+     * @param writeSet the (sorted) writeset.
+     * @return the null terminated set of locks.
+     */
+    private CommitLock[] createCommuteLockSet(AlphaTranlocal[] writeSet) {
+        int length = writeSetSize + commuteCount + 1;
+        if (commuteLockSet == null || commuteLockSet.length < length) {
+            commuteLockSet = new CommitLock[length];
+        }
+
+        System.arraycopy(writeSet, 0, commuteLockSet, 0, writeSetSize);
+        int size = writeSetSize;
+        for (int k = 0; k < commuteCount; k++) {
+            if (!isFirstPendingCommute(k)) {
+                continue;
+            }
+
+            CommuteCommitLock lock = commuteLocks[k];
+            if (lock == null) {
+                lock = new CommuteCommitLock();
+                commuteLocks[k] = lock;
+            }
+            lock.atomicObject = commuteAtomicObjects[k];
+
+            long id = lock.atomicObject.___getId();
+            int index = size - 1;
+            while (index >= 0 && getAtomicObjectId(commuteLockSet[index]) > id) {
+                commuteLockSet[index + 1] = commuteLockSet[index];
+                index--;
+            }
+            commuteLockSet[index + 1] = lock;
+            size++;
+        }
+        commuteLockSet[size] = null;
+        return commuteLockSet;
+    }
+
+    private static long getAtomicObjectId(CommitLock lock) {
+        if (lock instanceof CommuteCommitLock) {
+            return ((CommuteCommitLock) lock).atomicObject.___getId();
+        }
+        return ((AlphaTranlocal) lock).getAtomicObject().___getId();
+    }
+
+    /**
+     * Clears the commute lockset so that the committed tranlocals can be garbage collected.
+     */
+    private void clearCommuteLockSet() {
+        for (int k = 0; k < commuteLockSet.length; k++) {
+            if (commuteLockSet[k] == null) {
+                return;
+            }
+            commuteLockSet[k] = null;
+        }
+    }
+
+    /**
+     * Creates a new tranlocal for the atomicobject of the commute at the given index, based on the most recently
+     * committed state, and applies all commuting functions for that atomicobject on it. The atomicobject needs to be
+     * locked by this transaction.
+     *
+     * @param index the index of the first commute on the atomicobject.
+     * @return the created tranlocal.
+     */
+    private AlphaTranlocal applyCommutes(int index) {
+        AlphaAtomicObject atomicObject = commuteAtomicObjects[index];
+        AlphaTranlocal committed = atomicObject.___load();
+        if (committed == null) {
+            throw new LoadUncommittedException(getLoadUncommittedMessage(atomicObject));
+        }
+
+        AlphaTranlocal tranlocal = committed.openForWrite();
+        for (int k = index; k < commuteCount; k++) {
+            if (commuteAtomicObjects[k] == atomicObject) {
+                commuteFunctions[k].apply(tranlocal);
+            }
+        }
+        return tranlocal;
+    }
+
+    /**
+     * Commits a transaction that has only attached a single tranlocal. No writeset is needed for that.
+     *
+     * @param tranlocal the single attached tranlocal.
+     * @return the version of the commit.
+     */
+    private long doCommitSingle(AlphaTranlocal tranlocal) {
+        if (!isDirty(tranlocal)) {
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.emptycommit.count", getFamilyName());
+            }
+            return getReadVersion();
+        }
+
+        try {
+            checkCommitLockResult(dependencies.commitLockPolicy.tryLockAndDetectConflict(tranlocal, this));
+            long writeVersion = dependencies.clock.tick();
+
+            if (SANITY_CHECKS_ENABLED) {
+                if (writeVersion <= getReadVersion()) {
+                    throw new PanicError("The clock went back in time");
+                }
+            }
+
+            if (dependencies.commitPublishingEnabled) {
+                tranlocal.prepareForCommit(writeVersion);
+                publishedWriteVersion = writeVersion;
+            }
+            store(tranlocal, writeVersion);
+
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.individualwrite.count", getFamilyName());
+            }
+            return writeVersion;
+        } finally {
+            tranlocal.releaseLock(this);
+            unpublishCommit();
+        }
+    }
+
+    /**
+     * Publishes the commit if commit publishing is enabled: all tranlocals that are going to be stored are prepared
+     * with the writeVersion, and after that the writeVersion is published. Should only be called when the commit
+     * can't fail anymore.
+     *
+     * @param writeSet     the writeset of the commit.
+     * @param writeVersion the version of the commit.
+     */
+    private void publishCommit(AlphaTranlocal[] writeSet, long writeVersion) {
+        if (!dependencies.commitPublishingEnabled) {
+            return;
+        }
+
+        for (int k = 0; k < writeSet.length; k++) {
+            AlphaTranlocal tranlocal = writeSet[k];
+            if (tranlocal == null) {
+                break;
+            }
+            tranlocal.prepareForCommit(writeVersion);
+        }
+
+        for (int k = 0; k < commuteCount; k++) {
+            if (commuteTranlocals[k] != null) {
+                commuteTranlocals[k].prepareForCommit(writeVersion);
+            }
+        }
+
+        publishedWriteVersion = writeVersion;
+    }
+
+    /**
+     * Removes the publication of the commit. Should be called after all locks have been released.
+     */
+    private void unpublishCommit() {
+        if (publishedWriteVersion != 0) {
+            publishedWriteVersion = 0;
+        }
+    }
+
+    @Override
+    public long getPublishedWriteVersion() {
+        return publishedWriteVersion;
+    }
+
+    @Override
+    public AlphaTranlocal getPublishedTranlocal(AlphaAtomicObject atomicObject) {
+        AlphaTranlocal tranlocal = attached.getConcurrently(atomicObject);
+        if (tranlocal != null) {
+            return tranlocal;
+        }
+
+        AlphaTranlocal[] commuteTranlocals = this.commuteTranlocals;
+        if (commuteTranlocals != null) {
+            for (int k = 0; k < commuteTranlocals.length; k++) {
+                tranlocal = commuteTranlocals[k];
+                if (tranlocal != null && tranlocal.getAtomicObject() == atomicObject) {
+                    return tranlocal;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the writeset; a set of objects which state needs to be committed. The writeset array is reused, so no
+     * object creation is needed unless it needs to grow.
+     * <p/>
+     * The writeset is sorted on the id of the atomicobjects (see {@link WriteSetSorter}).
+     *
+     * @return the created WriteSet. The returned value will never be null, but could be empty (first element null).
      *
      * @throws org.multiverse.api.exceptions.WriteConflictException
      *          if can be determined that another transaction did a conflicting write.
      */
     private AlphaTranlocal[] createWriteSet() {
-        if (attached.isEmpty()) {
-            return EMPTY_WRITESET;
+        if (writeSet.length < attached.size()) {
+            writeSet = new AlphaTranlocal[attached.size()];
         }
 
-        AlphaTranlocal[] writeSet = null;
-
-        int skipped = 0;
         int index = 0;
-        for (AlphaTranlocal tranlocal : attached.values()) {
-            switch (tranlocal.getDirtinessStatus()) {
-                case clean:
-                    //fall through
-                case readonly:
-                    skipped++;
-                    break;
-                case fresh:
-                    //fall through
-                case dirty:
-                    if (dependencies.profiler != null) {
-                        dependencies.profiler.incCounter(
-                                "atomicobject.dirty.count", tranlocal.getAtomicObject().getClass().getName());
-                    }
+        for (int k = 0; k < attached.size(); k++) {
+            AlphaTranlocal tranlocal = attached.get(k);
+            if (isDirty(tranlocal)) {
+                writeSet[index] = tranlocal;
+                index++;
+            }
+        }
 
-                    if (writeSet == null) {
-                        writeSet = new AlphaTranlocal[attached.size() - skipped];
-                    }
-                    writeSet[index] = tranlocal;
-                    index++;
-                    break;
-                case conflict:
-                    //if we can already determine that the write can never happen, start a write conflict
-                    //and fail immediately.
-                    if (dependencies.profiler != null) {
-                        dependencies.profiler.incCounter("atomicobject.conflict.count",
-                                                         tranlocal.getAtomicObject().getClass().getName());
-                        dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
-                    }
+        if (index < writeSet.length) {
+            writeSet[index] = null;
+        }
 
-                    if (WriteConflictException.reuse) {
-                        throw WriteConflictException.INSTANCE;
-                    } else {
-                        String msg = format(
-                                "There was a writeconflict in transaction with familyname '%s' on atomicobject '%s'",
-                                getFamilyName(),
-                                toAtomicObjectString(tranlocal));
-                        throw new WriteConflictException(msg);
-                    }
-                default:
-                    throw new RuntimeException();
-            }
+        //the locks are acquired in a global order, so large overlapping commits don't keep failing on each other.
+        if (index > 1) {
+            WriteSetSorter.sort(writeSet, index);
+        }
+        writeSetSize = index;
+        return writeSet;
+    }
+
+    /**
+     * Checks if the tranlocal needs to be written.
+     *
+     * @param tranlocal the tranlocal to check.
+     * @return true if the tranlocal is fresh or dirty, false otherwise.
+     *
+     * @throws org.multiverse.api.exceptions.WriteConflictException
+     *          if can be determined that another transaction did a conflicting write.
+     */
+    private boolean isDirty(AlphaTranlocal tranlocal) {
+        switch (tranlocal.getDirtinessStatus()) {
+            case clean:
+                //fall through
+            case readonly:
+                return false;
+            case fresh:
+                //fall through
+            case dirty:
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter(
+                            "atomicobject.dirty.count", tranlocal.getAtomicObject().getClass().getName());
+                }
+                return true;
+            case conflict:
+                //if we can already determine that the write can never happen, start a write conflict
+                //and fail immediately.
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("atomicobject.conflict.count",
+                                                     tranlocal.getAtomicObject().getClass().getName());
+                    dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
+                }
+
+                if (WriteConflictException.reuse) {
+                    throw WriteConflictException.INSTANCE;
+                } else {
+                    String msg = format(
+                            "There was a writeconflict in transaction with familyname '%s' on atomicobject '%s'",
+                            getFamilyName(),
+                            toAtomicObjectString(tranlocal));
+                    throw new WriteConflictException(msg);
+                }
+            default:
+                throw new RuntimeException();
         }
+    }
 
-        return writeSet == null ? EMPTY_WRITESET : writeSet;
+    /**
+     * Clears the writeset so that the committed tranlocals can be garbage collected.
+     */
+    private void clearWriteSet() {
+        writeSetSize = 0;
+        for (int k = 0; k < writeSet.length; k++) {
+            if (writeSet[k] == null) {
+                return;
+            }
+            writeSet[k] = null;
+        }
     }
 
-    private void acquireLocksAndCheckForConflicts(AlphaTranlocal[] writeSet) {
-        switch (dependencies.commitLockPolicy.tryLockAllAndDetectConflicts(writeSet, this)) {
+    private void checkCommitLockResult(CommitLockResult result) {
+        switch (result) {
             case success:
                 //todo: problem is that if the locks are not acquired successfully, it isn't clear
                 //how many locks were acquired.
@@ -252,16 +851,22 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
 
     private void storeAllAndReleaseLocks(AlphaTranlocal[] writeSet, long commitVersion) {
         try {
+            if (dependencies.bulkStoreExecutor != null && writeSetSize >= dependencies.bulkCommitThreshold) {
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("updatetransaction.bulkstore.count", getFamilyName());
+                }
+
+                new BulkStore(writeSet, writeSetSize, commitVersion, dependencies.maxHistoryDepth,
+                              dependencies.bulkStoreExecutor).storeAll();
+                return;
+            }
+
             for (int k = 0; k < writeSet.length; k++) {
                 AlphaTranlocal tranlocal = writeSet[k];
                 if (tranlocal == null) {
                     return;
                 } else {
-                    AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
-                    Listeners listeners = atomicObject.___storeAndReleaseLock(tranlocal, commitVersion);
-                    if (listeners != null) {
-                        listeners.openAll();
-                    }
+                    store(tranlocal, commitVersion);
                 }
             }
         } finally {
@@ -273,9 +878,22 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
         }
     }
 
+    private void store(AlphaTranlocal tranlocal, long commitVersion) {
+        AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+        Listeners listeners = atomicObject.___storeAndReleaseLock(
+                tranlocal, commitVersion, dependencies.maxHistoryDepth);
+        if (listeners != null) {
+            listeners.openAll();
+        }
+    }
+
     @Override
     protected void doAbort() {
+        dependencies.sizeHints.signal(familyName, attached.size());
         attached.clear();
+        clearWriteSet();
+        clearCommutes();
+        clearWakeupConditions();
         if (dependencies.profiler != null) {
             dependencies.profiler.incCounter("updatetransaction.aborted.count", getFamilyName());
         }
@@ -295,8 +913,9 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
         long minimalVersion = getReadVersion() + 1;
 
         boolean atLeastOneRegistration = false;
-        for (AlphaAtomicObject atomicObject : attached.keySet()) {
-            if (atomicObject.___registerRetryListener(latch, minimalVersion)) {
+        for (int k = 0; k < attached.size(); k++) {
+            AlphaAtomicObject atomicObject = attached.get(k).getAtomicObject();
+            if (atomicObject.___registerRetryListener(getRetryListener(atomicObject, latch), minimalVersion)) {
                 atLeastOneRegistration = true;
 
                 if (latch.isOpen()) {
@@ -311,15 +930,24 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
         }
     }
 
+    @Override
+    protected void doDeregisterRetryLatch(Latch latch) {
+        //the attached objects are still available, they are only cleared when the transaction is restarted.
+        for (int k = 0; k < attached.size(); k++) {
+            AlphaAtomicObject atomicObject = attached.get(k).getAtomicObject();
+            atomicObject.___deregisterRetryListener(getRegisteredRetryListener(atomicObject, latch));
+        }
+    }
+
     @Override
     protected void doStartOr() {
-        snapshotStack = new SnapshotStack(snapshotStack, createSnapshot());
+        snapshotStack = new SnapshotStack(snapshotStack, createSnapshot(), commuteCount, wakeupConditionCount);
     }
 
     private AlphaTranlocalSnapshot createSnapshot() {
         AlphaTranlocalSnapshot result = null;
-        for (AlphaTranlocal tranlocal : attached.values()) {
-            AlphaTranlocalSnapshot snapshot = tranlocal.takeSnapshot();
+        for (int k = 0; k < attached.size(); k++) {
+            AlphaTranlocalSnapshot snapshot = attached.get(k).takeSnapshot();
             snapshot.___next = result;
             result = snapshot;
         }
@@ -341,8 +969,24 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
             throw new IllegalStateException();
         }
         AlphaTranlocalSnapshot snapshot = snapshotStack.snapshot;
+        int snapshotCommuteCount = snapshotStack.commuteCount;
+        int snapshotWakeupConditionCount = snapshotStack.wakeupConditionCount;
         snapshotStack = snapshotStack.next;
         restoreSnapshot(snapshot);
+
+        //the commutes that were added in the rolled back branch are dropped.
+        for (int k = snapshotCommuteCount; k < commuteCount; k++) {
+            commuteAtomicObjects[k] = null;
+            commuteFunctions[k] = null;
+        }
+        commuteCount = snapshotCommuteCount;
+
+        //the wakeup conditions that were registered in the rolled back branch are dropped.
+        for (int k = snapshotWakeupConditionCount; k < wakeupConditionCount; k++) {
+            wakeupAtomicObjects[k] = null;
+            wakeupConditions[k] = null;
+        }
+        wakeupConditionCount = snapshotWakeupConditionCount;
     }
 
     private void restoreSnapshot(AlphaTranlocalSnapshot snapshot) {
@@ -350,7 +994,7 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
 
         while (snapshot != null) {
             AlphaTranlocal tranlocal = snapshot.getTranlocal();
-            attached.put(tranlocal.getAtomicObject(), tranlocal);
+            attached.put(tranlocal);
             snapshot.restore();
             snapshot = snapshot.___next;
         }
@@ -360,10 +1004,15 @@ public class UpdateAlphaTransaction extends AbstractTransaction<UpdateTransactio
 
         public final SnapshotStack next;
         public final AlphaTranlocalSnapshot snapshot;
+        public final int commuteCount;
+        public final int wakeupConditionCount;
 
-        SnapshotStack(SnapshotStack next, AlphaTranlocalSnapshot snapshot) {
+        SnapshotStack(SnapshotStack next, AlphaTranlocalSnapshot snapshot, int commuteCount,
+                      int wakeupConditionCount) {
             this.next = next;
             this.snapshot = snapshot;
+            this.commuteCount = commuteCount;
+            this.wakeupConditionCount = wakeupConditionCount;
         }
     }
 }
\ No newline at end of file
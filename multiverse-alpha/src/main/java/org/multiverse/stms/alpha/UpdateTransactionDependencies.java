@@ -6,6 +6,8 @@ import org.multiverse.utils.commitlock.CommitLockPolicy;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
+import java.util.concurrent.Executor;
+
 /**
  * Contains the dependencies for the UpdateAlphaTransaction. The {@link org.multiverse.stms.alpha.AlphaStm} could be
  * seen as a dependency injection container for the UpdateAlphaTransaction.
@@ -25,12 +27,30 @@ public class UpdateTransactionDependencies extends AbstractTransactionDependenci
 
     public final ProfileRepository profiler;
     public final CommitLockPolicy commitLockPolicy;
+    public final int maxHistoryDepth;
+    public final TransactionSizeHints sizeHints;
+    public final boolean readVersionExtensionEnabled;
+    public final boolean commitPublishingEnabled;
+    public final Executor bulkStoreExecutor;
+    public final int bulkCommitThreshold;
 
     public UpdateTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
-                                         CommitLockPolicy commitLockPolicy, ProfileRepository profiler) {
+                                         CommitLockPolicy commitLockPolicy, ProfileRepository profiler,
+                                         int maxHistoryDepth, TransactionSizeHints sizeHints,
+                                         boolean readVersionExtensionEnabled, boolean commitPublishingEnabled,
+                                         Executor bulkStoreExecutor, int bulkCommitThreshold) {
         super(clock, restartBackoffPolicy);
         assert commitLockPolicy != null;
+        assert maxHistoryDepth >= 0;
+        assert sizeHints != null;
+        assert bulkCommitThreshold > 0;
         this.profiler = profiler;
         this.commitLockPolicy = commitLockPolicy;
+        this.maxHistoryDepth = maxHistoryDepth;
+        this.sizeHints = sizeHints;
+        this.readVersionExtensionEnabled = readVersionExtensionEnabled;
+        this.commitPublishingEnabled = commitPublishingEnabled;
+        this.bulkStoreExecutor = bulkStoreExecutor;
+        this.bulkCommitThreshold = bulkCommitThreshold;
     }
 }
@@ -0,0 +1,120 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Latch} that is registered as retry listener on an atomicobject instead of the latch of the retrying
+ * transaction, when there is an {@link AlphaWakeupCondition} for that atomicobject. When a commit opens it, the
+ * condition is evaluated on the most recently committed tranlocal: if it is satisfied, the latch of the transaction is
+ * opened, otherwise it registers itself again so that it is evaluated on the next commit.
+ * <p/>
+ * Once the latch of the transaction has been opened (e.g. because of a change on another atomicobject), it isn't
+ * registered again. The same goes for a {@link ParkingLatch} that has been reset to be reused for another retry.
+ * <p/>
+ * To keep the retry free of object creation, a WakeupConditionLatch is reused by the {@link UpdateAlphaTransaction}
+ * for the retries of all its attempts (see {@link #init(Latch, AlphaAtomicObject, AlphaWakeupCondition)}). A
+ * registration from an earlier retry that still is pending on some atomicobject, then acts like a registration of the
+ * current retry; the worst that can happen is a spurious wakeup, and a retrying transaction needs to deal with those
+ * anyway. Because it can be opened by other threads while it is reinitialized, the fields are volatile and a cleared
+ * WakeupConditionLatch ignores an open.
+ *
+ * @author Peter Veentjer
+ */
+final class WakeupConditionLatch implements Latch {
+
+    private volatile Latch latch;
+    private volatile AlphaAtomicObject atomicObject;
+    private volatile AlphaWakeupCondition condition;
+    private volatile long generation;
+
+    /**
+     * Initializes this WakeupConditionLatch for a retry.
+     *
+     * @param latch        the latch of the retrying transaction.
+     * @param atomicObject the atomicobject the condition applies to.
+     * @param condition    the wakeup condition.
+     */
+    void init(Latch latch, AlphaAtomicObject atomicObject, AlphaWakeupCondition condition) {
+        this.generation = getGeneration(latch);
+        this.atomicObject = atomicObject;
+        this.condition = condition;
+        this.latch = latch;
+    }
+
+    /**
+     * Clears this WakeupConditionLatch so that the latch, atomicobject and condition can be garbage collected. A
+     * cleared WakeupConditionLatch ignores an open.
+     */
+    void clear() {
+        this.latch = null;
+        this.atomicObject = null;
+        this.condition = null;
+    }
+
+    private static long getGeneration(Latch latch) {
+        return latch instanceof ParkingLatch ? ((ParkingLatch) latch).getGeneration() : 0;
+    }
+
+    @Override
+    public void open() {
+        Latch latch = this.latch;
+        AlphaAtomicObject atomicObject = this.atomicObject;
+        AlphaWakeupCondition condition = this.condition;
+        if (latch == null || atomicObject == null || condition == null) {
+            return;
+        }
+
+        if (latch.isOpen() || getGeneration(latch) != generation) {
+            return;
+        }
+
+        AlphaTranlocal committed = atomicObject.___load();
+        if (committed == null || isSatisfied(condition, committed)) {
+            latch.open();
+            return;
+        }
+
+        //the change is not relevant for the waiting transaction, so lets wait for the next one. If a newer version
+        //already has been committed, the registration opens this latch again.
+        if (!atomicObject.___registerRetryListener(this, committed.___writeVersion + 1)) {
+            latch.open();
+        }
+    }
+
+    private static boolean isSatisfied(AlphaWakeupCondition condition, AlphaTranlocal committed) {
+        try {
+            return condition.isSatisfied(committed);
+        } catch (RuntimeException ex) {
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        Latch latch = this.latch;
+        return latch == null || latch.isOpen();
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+        latch.await();
+    }
+
+    @Override
+    public void awaitUninterruptible() {
+        latch.awaitUninterruptible();
+    }
+
+    @Override
+    public boolean tryAwait(long timeout, TimeUnit unit) throws InterruptedException {
+        return latch.tryAwait(timeout, unit);
+    }
+
+    @Override
+    public boolean tryAwaitUninterruptible(long timeout, TimeUnit unit) {
+        return latch.tryAwaitUninterruptible(timeout, unit);
+    }
+}
@@ -0,0 +1,100 @@
+package org.multiverse.stms.alpha;
+
+/**
+ * Sorts a writeset on the id of the atomicobjects (see {@link AlphaAtomicObject#___getId()}).
+ * <p/>
+ * If every transaction acquires its commit locks in the same global order, 2 transactions with overlapping writesets
+ * can't end up each holding a lock the other one needs: the one that gets the lock on the first shared atomicobject
+ * also is able to get the rest (unless another transaction already is further in the order). So large overlapping
+ * commits make progress instead of both failing to obtain their locks and retrying.
+ * <p/>
+ * The sort is done in place and doesn't create any objects: an insertion sort for small writesets and a quicksort for
+ * larger ones.
+ *
+ * @author Peter Veentjer
+ */
+final class WriteSetSorter {
+
+    /**
+     * The maximum number of tranlocals that are sorted using an insertion sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Sorts the first size elements of the writeSet.
+     *
+     * @param writeSet the writeSet to sort.
+     * @param size     the number of elements in the writeSet that need to be sorted.
+     */
+    static void sort(AlphaTranlocal[] writeSet, int size) {
+        quicksort(writeSet, 0, size - 1);
+    }
+
+    private static void quicksort(AlphaTranlocal[] writeSet, int low, int high) {
+        //loop on the larger part and recurse on the smaller part, so the recursion depth is at most log(n).
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = partition(writeSet, low, high);
+            if (pivotIndex - low < high - pivotIndex) {
+                quicksort(writeSet, low, pivotIndex - 1);
+                low = pivotIndex + 1;
+            } else {
+                quicksort(writeSet, pivotIndex + 1, high);
+                high = pivotIndex - 1;
+            }
+        }
+
+        insertionSort(writeSet, low, high);
+    }
+
+    private static int partition(AlphaTranlocal[] writeSet, int low, int high) {
+        //median of three as pivot, so already sorted writesets don't degrade the sort.
+        int middle = (low + high) >>> 1;
+        if (id(writeSet[middle]) < id(writeSet[low])) {
+            swap(writeSet, low, middle);
+        }
+        if (id(writeSet[high]) < id(writeSet[low])) {
+            swap(writeSet, low, high);
+        }
+        if (id(writeSet[high]) < id(writeSet[middle])) {
+            swap(writeSet, middle, high);
+        }
+        swap(writeSet, middle, high);
+
+        long pivot = id(writeSet[high]);
+        int storeIndex = low;
+        for (int k = low; k < high; k++) {
+            if (id(writeSet[k]) < pivot) {
+                swap(writeSet, k, storeIndex);
+                storeIndex++;
+            }
+        }
+        swap(writeSet, storeIndex, high);
+        return storeIndex;
+    }
+
+    private static void insertionSort(AlphaTranlocal[] writeSet, int low, int high) {
+        for (int k = low + 1; k <= high; k++) {
+            AlphaTranlocal tranlocal = writeSet[k];
+            long id = id(tranlocal);
+            int index = k - 1;
+            while (index >= low && id(writeSet[index]) > id) {
+                writeSet[index + 1] = writeSet[index];
+                index--;
+            }
+            writeSet[index + 1] = tranlocal;
+        }
+    }
+
+    private static long id(AlphaTranlocal tranlocal) {
+        return tranlocal.getAtomicObject().___getId();
+    }
+
+    private static void swap(AlphaTranlocal[] writeSet, int index1, int index2) {
+        AlphaTranlocal tmp = writeSet[index1];
+        writeSet[index1] = writeSet[index2];
+        writeSet[index2] = tmp;
+    }
+
+    private WriteSetSorter() {
+    }
+}
@@ -0,0 +1,169 @@
+package org.multiverse.stms.alpha.instrumentation;
+
+import org.multiverse.stms.alpha.instrumentation.asm.ConstantPoolScanner;
+import org.multiverse.stms.alpha.instrumentation.asm.Instrumentor;
+import org.multiverse.stms.alpha.instrumentation.asm.MetadataRepository;
+import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.readFile;
+import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.writeToFile;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiler that instruments classes offline, so that the {@link MultiverseJavaAgent} isn't needed at runtime. The
+ * classes in a directory (normally target/classes) are instrumented in place, and the generated tranlocal and
+ * tranlocal snapshot classes are written next to the atomic objects. The instrumented classes start as fast as
+ * uninstrumented classes, and can be used in environments where no javaagent can be added.
+ * <p/>
+ * The instrumentation is the same as the instrumentation done by the JavaAgent (both use the {@link Instrumentor}).
+ * Instrumented classes are marked, so when the JavaAgent is used as well, they are not instrumented again.
+ * <p/>
+ * The compiler works in 2 passes: first the metadata of all atomic objects in the directory is extracted, and after
+ * that the classes are instrumented. This is needed because an instrumented atomic object doesn't contain its managed
+ * fields anymore, so the metadata can't be extracted from it. The metadata of classes outside of the directory is
+ * read from the classpath. All classes that access fields of atomic objects need to be instrumented in the same run as
+ * the atomic objects.
+ * <p/>
+ * Usage:
+ * <pre>
+ * java -cp multiverse-core.jar:multiverse-alpha.jar:asm-all.jar \
+ *      org.multiverse.stms.alpha.instrumentation.MultiverseCompiler target/classes [classpath entries]
+ * </pre>
+ * With Maven the compiler can be run in the process-classes phase using the exec-maven-plugin.
+ *
+ * @author Peter Veentjer
+ */
+public final class MultiverseCompiler {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: MultiverseCompiler <classes directory> [classpath entries]");
+            System.exit(1);
+        }
+
+        File classesDirectory = new File(args[0]);
+        List<File> classpath = new LinkedList<File>();
+        for (int k = 1; k < args.length; k++) {
+            classpath.add(new File(args[k]));
+        }
+
+        MultiverseCompiler compiler = new MultiverseCompiler(classesDirectory, classpath);
+        int instrumentedCount = compiler.compile();
+        System.out.printf("Multiverse compiler instrumented %s classes in '%s'\n", instrumentedCount, classesDirectory);
+    }
+
+    private final File classesDirectory;
+    private final List<File> classpath;
+    //the MetadataRepository only has a weak reference to the ClassLoader, so it is kept alive by the compiler.
+    private final ClassLoader classLoader;
+    private final Instrumentor instrumentor = new Instrumentor(MultiverseJavaAgent.DUMP_BYTECODE);
+
+    /**
+     * Creates a MultiverseCompiler.
+     *
+     * @param classesDirectory the directory containing the classes to instrument.
+     * @param classpath        the classpath needed to find the metadata of classes outside the classesDirectory.
+     * @throws NullPointerException     if classesDirectory or classpath is null.
+     * @throws IllegalArgumentException if classesDirectory is not a directory.
+     */
+    public MultiverseCompiler(File classesDirectory, List<File> classpath) {
+        if (classesDirectory == null || classpath == null) {
+            throw new NullPointerException();
+        }
+
+        if (!classesDirectory.isDirectory()) {
+            throw new IllegalArgumentException(
+                    String.format("classesDirectory '%s' is not a directory", classesDirectory));
+        }
+
+        this.classesDirectory = classesDirectory;
+        this.classpath = classpath;
+        this.classLoader = createClassLoader();
+    }
+
+    /**
+     * Instruments all classes in the classesDirectory.
+     *
+     * @return the number of instrumented classes.
+     */
+    public int compile() {
+        List<File> classFiles = new LinkedList<File>();
+        collectClassFiles(classesDirectory, classFiles);
+
+        MetadataRepository metadataRepository = MetadataRepository.getInstance(classLoader);
+
+        for (File classFile : classFiles) {
+            ConstantPoolScanner scanner = new ConstantPoolScanner(readFile(classFile));
+            if (scanner.usesAtomicAnnotations() && !scanner.isInstrumented()) {
+                metadataRepository.ensureMetadataExtracted(toClassName(classFile));
+            }
+        }
+
+        int instrumentedCount = 0;
+        for (File classFile : classFiles) {
+            if (compile(classFile, metadataRepository)) {
+                instrumentedCount++;
+            }
+        }
+
+        return instrumentedCount;
+    }
+
+    private boolean compile(File classFile, MetadataRepository metadataRepository) {
+        String className = toClassName(classFile);
+        byte[] bytecode = readFile(classFile);
+        ConstantPoolScanner scanner = new ConstantPoolScanner(bytecode);
+        if (!instrumentor.needsInstrumentation(className, scanner, metadataRepository)) {
+            return false;
+        }
+
+        Instrumentor.Result result = instrumentor.instrument(className, bytecode, scanner, metadataRepository);
+        for (Map.Entry<String, byte[]> entry : result.generatedClasses.entrySet()) {
+            writeToFile(new File(classesDirectory, entry.getKey() + ".class"), entry.getValue());
+        }
+        writeToFile(classFile, result.bytecode);
+        return true;
+    }
+
+    private ClassLoader createClassLoader() {
+        List<URL> urls = new LinkedList<URL>();
+        try {
+            urls.add(classesDirectory.toURI().toURL());
+            for (File file : classpath) {
+                urls.add(file.toURI().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), MultiverseCompiler.class.getClassLoader());
+    }
+
+    /**
+     * Returns the internal name of the class in the classFile, e.g. 'org/multiverse/Foo'.
+     */
+    private String toClassName(File classFile) {
+        String path = classFile.getAbsolutePath().substring(classesDirectory.getAbsolutePath().length() + 1);
+        return path.substring(0, path.length() - ".class".length()).replace(File.separatorChar, '/');
+    }
+
+    private static void collectClassFiles(File directory, List<File> classFiles) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectClassFiles(file, classFiles);
+            } else if (file.getName().endsWith(".class")) {
+                classFiles.add(file);
+            }
+        }
+    }
+}
@@ -3,19 +3,24 @@ package org.multiverse.stms.alpha.instrumentation;
 import org.multiverse.MultiverseConstants;
 import org.multiverse.stms.alpha.instrumentation.asm.*;
 import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.*;
-import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
 import static org.multiverse.utils.instrumentation.ClassUtils.defineClass;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.InsnList;
+import org.multiverse.utils.instrumentation.InstrumentationProblemMonitor;
 
+import java.io.File;
+import java.io.IOException;
 import static java.lang.Boolean.parseBoolean;
+import static java.lang.String.format;
 import static java.lang.System.getProperty;
 import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.lang.instrument.UnmodifiableClassException;
+import java.security.CodeSource;
 import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The JavaAgent that enhances classfiles specifically for the multiverse alpha stm engine.
@@ -24,9 +29,19 @@ import java.security.ProtectionDomain;
  */
 public class MultiverseJavaAgent {
 
+    private final static Logger logger = Logger.getLogger(MultiverseJavaAgent.class.getName());
+
     public final static boolean DUMP_BYTECODE = parseBoolean(
             getProperty(MultiverseJavaAgent.class.getName() + ".dumpBytecode", "false"));
 
+    public final static boolean PRINT_STATISTICS = parseBoolean(
+            getProperty(MultiverseJavaAgent.class.getName() + ".printStatistics", "false"));
+
+    /**
+     * The directory of the {@link InstrumentationCache}. If it isn't set, no cache is used.
+     */
+    public final static String CACHE_DIRECTORY = getProperty(MultiverseJavaAgent.class.getName() + ".cacheDirectory");
+
     public static void premain(String agentArgs, Instrumentation inst) throws UnmodifiableClassException {
 
         printInfo();
@@ -34,16 +49,49 @@ public class MultiverseJavaAgent {
     }
 
     private static void registerTransformers(Instrumentation inst) {
-        //it is very important that the order of these transformers is not
-        //changed, unless you really know what you are doing.
-        inst.addTransformer(new InitClassFileTransformer());
-        inst.addTransformer(new JSRInlineClassFileTransformer());
-        inst.addTransformer(new TranlocalClassFileTransformer());
-        inst.addTransformer(new TranlocalSnapshotClassFileTransformer());
-        inst.addTransformer(new AtomicObjectFieldAccessClassFileTransformer());
-        inst.addTransformer(new AtomicObjectClassFileTransformer());
-        inst.addTransformer(new AtomicMethodClassFileTransformer());
+        final MultiverseClassFileTransformer transformer = new MultiverseClassFileTransformer(createCache());
+        inst.addTransformer(transformer);
         //inst.addTransformer(new VerifyingClassFileTransformer());
+
+        if (PRINT_STATISTICS) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    transformer.printStatistics();
+                }
+            });
+        }
+    }
+
+    private static InstrumentationCache createCache() {
+        if (CACHE_DIRECTORY == null) {
+            return null;
+        }
+
+        try {
+            InstrumentationCache cache = new InstrumentationCache(new File(CACHE_DIRECTORY), getAgentVersion());
+            System.out.printf("Using instrumentation cache '%s' containing %s classes\n",
+                    cache.getFile(), cache.size());
+            return cache;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, format("Could not open instrumentation cache in '%s'", CACHE_DIRECTORY), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the version of the agent. Apart from the version in the manifest, the location and the last modification
+     * time of the agent are used, so that a cache created by a snapshot build is not used by another snapshot build.
+     */
+    private static String getAgentVersion() {
+        String version = MultiverseJavaAgent.class.getPackage().getImplementationVersion();
+        CodeSource codeSource = MultiverseJavaAgent.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || !"file".equals(codeSource.getLocation().getProtocol())) {
+            return version + "#unknown";
+        }
+
+        File location = new File(codeSource.getLocation().getPath());
+        return version + "#" + location.getAbsolutePath() + "#" + location.lastModified() + "#" + location.length();
     }
 
     private static void printInfo() {
@@ -75,176 +123,113 @@ public class MultiverseJavaAgent {
     }
 
     /**
-     * A ClassFileTransformer that does nothing (dirty hack.. needs to be fixed in the future)
+     * The ClassFileTransformer that does all the instrumentation in a single pass.
+     * <p/>
+     * Before the class is parsed, the constant pool is scanned (see {@link ConstantPoolScanner}). Classes that don't
+     * use the multiverse annotations and don't access fields of atomic objects, are not touched at all; most classes
+     * that are loaded are of this kind. All other classes are instrumented by the {@link Instrumentor}. Classes that
+     * already are instrumented offline by the {@link MultiverseCompiler} are not touched either.
      */
-    public static class InitClassFileTransformer extends AbstractClassFileTransformer {
+    public static class MultiverseClassFileTransformer extends AbstractClassFileTransformer {
 
-        public InitClassFileTransformer() {
-            super("InitClassFileTransformer");
-        }
+        private final Instrumentor instrumentor = new Instrumentor(DUMP_BYTECODE);
+        private final InstrumentationCache cache;
+        private final AtomicLong scannedCount = new AtomicLong();
+        private final AtomicLong instrumentedCount = new AtomicLong();
+        private final AtomicLong scanTimeNs = new AtomicLong();
+        private final AtomicLong instrumentTimeNs = new AtomicLong();
 
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] classfileBuffer)
-                throws IllegalClassFormatException {
-            MetadataRepository.classLoader = loader;
-            return null;
+        public MultiverseClassFileTransformer() {
+            this(null);
         }
-    }
-
-    public static class JSRInlineClassFileTransformer extends AbstractClassFileTransformer {
 
-        public JSRInlineClassFileTransformer() {
-            super("JSRInlineTransformer");
-        }
-
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] classfileBuffer)
-                throws IllegalClassFormatException {
-            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-            JSRInlineClassAdapter inlineAdapter = new JSRInlineClassAdapter(writer);
-            ClassReader reader = new ClassReader(classfileBuffer);
-            reader.accept(inlineAdapter, ClassReader.EXPAND_FRAMES);
-            return writer.toByteArray();
-        }
-    }
-
-    public static class AtomicObjectFieldAccessClassFileTransformer extends AbstractClassFileTransformer {
-
-        public AtomicObjectFieldAccessClassFileTransformer() {
-            super("AtomicObjectFieldAccessTransformer");
+        /**
+         * Creates a MultiverseClassFileTransformer.
+         *
+         * @param cache the InstrumentationCache to use, or null if no cache should be used.
+         */
+        public MultiverseClassFileTransformer(InstrumentationCache cache) {
+            super("MultiverseClassFileTransformer");
+            this.cache = cache;
         }
 
         @Override
         public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
                                   ProtectionDomain protectionDomain, byte[] bytecode)
                 throws IllegalClassFormatException {
-            ClassNode original = loadAsClassNode(bytecode);
-            AtomicObjectFieldAccessTransformer transformer = new AtomicObjectFieldAccessTransformer(original);
-            ClassNode transformed = transformer.transform();
-            byte[] transformedBytecode = toBytecode(transformed);
-            if (DUMP_BYTECODE) {
-                writeToFileInTmpDirectory(transformed.name + "_FixedFields.class", transformedBytecode);
+            MetadataRepository metadataRepository = MetadataRepository.getInstance(loader);
+
+            long startNs = System.nanoTime();
+            ConstantPoolScanner scanner = new ConstantPoolScanner(bytecode);
+            boolean needsInstrumentation;
+            List<ConstantPoolScanner.FieldReference> managedFieldReferences = null;
+            if (cache == null) {
+                needsInstrumentation = instrumentor.needsInstrumentation(className, scanner, metadataRepository);
+            } else {
+                managedFieldReferences = instrumentor.getManagedFieldReferences(className, scanner, metadataRepository);
+                needsInstrumentation = instrumentor.needsInstrumentation(scanner, managedFieldReferences);
             }
-            return transformedBytecode;
-        }
-    }
-
-    public static class AtomicObjectClassFileTransformer extends AbstractClassFileTransformer {
+            long scannedNs = System.nanoTime();
+            scannedCount.incrementAndGet();
+            scanTimeNs.addAndGet(scannedNs - startNs);
 
-        public AtomicObjectClassFileTransformer() {
-            super("AtomicObjectTransformer");
-        }
-
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] bytecode)
-                throws IllegalClassFormatException {
-            if (metadataRepository.isRealAtomicObject(className)) {
-                ClassNode mixin = loadAsClassNode(FastAtomicObjectMixin.class);
-                ClassNode original = loadAsClassNode(bytecode);
-                AtomicObjectTransformer transformer = new AtomicObjectTransformer(original, mixin);
-                ClassNode result = transformer.transform();
-                byte[] resultCode = toBytecode(result);
-                if (DUMP_BYTECODE) {
-                    writeToFileInTmpDirectory(result.name + "__AtomicObject.class", resultCode);
-                }
-                return resultCode;
+            if (!needsInstrumentation) {
+                return null;
             }
 
-            return null;
-        }
-    }
-
-    public static class TranlocalSnapshotClassFileTransformer extends AbstractClassFileTransformer {
-
-        public TranlocalSnapshotClassFileTransformer() {
-            super("TranslocalSnapshotFactory");
-        }
-
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] bytecode)
-                throws IllegalClassFormatException {
-            if (metadataRepository.isRealAtomicObject(className)) {
-                ClassNode original = loadAsClassNode(bytecode);
-                TranlocalSnapshotFactory factory = new TranlocalSnapshotFactory(original);
-                ClassNode result = factory.create();
-                byte[] resultBytecode = toBytecode(result);
-                if (DUMP_BYTECODE) {
-                    writeToFileInTmpDirectory(result.name + ".class", resultBytecode);
-                }
-                defineClass(loader, result.name, resultBytecode);
+            Instrumentor.Result result;
+            try {
+                result = instrument(className, bytecode, scanner, managedFieldReferences, metadataRepository);
+            } catch (RuntimeException ex) {
+                //the JVM would load the original class when the exception is thrown, so the class would silently
+                //run without transactions. A class that can't be used, makes the problem visible.
+                handleThrowable(className, ex);
+                return instrumentor.createFailedClass(bytecode, ex);
             }
 
-            return null;
-        }
-    }
-
-    public static class TranlocalClassFileTransformer extends AbstractClassFileTransformer {
-
-        public TranlocalClassFileTransformer() {
-            super("TranslocalFactory");
-        }
-
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] bytecode)
-                throws IllegalClassFormatException {
-            if (metadataRepository.isRealAtomicObject(className)) {
-                ClassNode original = loadAsClassNode(bytecode);
-                TranlocalFactory transformer = new TranlocalFactory(original);
-                ClassNode result = transformer.create();
-
-                byte[] resultBytecode = toBytecode(result);
-                if (DUMP_BYTECODE) {
-                    writeToFileInTmpDirectory(result.name + ".class", resultBytecode);
-                }
-                defineClass(loader, result.name, resultBytecode);
+            for (Map.Entry<String, byte[]> entry : result.generatedClasses.entrySet()) {
+                defineClass(loader, entry.getKey(), entry.getValue());
             }
 
-            return null;
-        }
-    }
-
-    public static class AtomicMethodClassFileTransformer extends AbstractClassFileTransformer {
-
-        public AtomicMethodClassFileTransformer() {
-            super("AtomicMethodTransformer");
+            instrumentedCount.incrementAndGet();
+            instrumentTimeNs.addAndGet(System.nanoTime() - scannedNs);
+            return result.bytecode;
         }
 
-        @Override
-        public byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                  ProtectionDomain protectionDomain, byte[] classfileBuffer)
-                throws IllegalClassFormatException {
-
-
-            if (metadataRepository.hasAtomicMethods(className)) {
-                boolean restore = InsnList.check;
-                InsnList.check = true;
-                try {
-
-                    ClassNode original = loadAsClassNode(classfileBuffer);
-                    ClassNode donor = loadAsClassNode(AtomicLogicDonor.class);
-                    writeToFileInTmpDirectory(donor.name + ".class", toBytecode(donor));
-
-                    AtomicMethodTransformer transformer = new AtomicMethodTransformer(original, donor);
-                    ClassNode result = transformer.transform();
-
-                    byte[] resultBytecode = toBytecode(result);
-
-                    if (DUMP_BYTECODE) {
-                        writeToFileInTmpDirectory(result.name + "__WithTransaction.class", resultBytecode);
-                    }
-
-                    return resultBytecode;
-                } finally {
-                    InsnList.check = restore;
-                }
+        private Instrumentor.Result instrument(String className, byte[] bytecode, ConstantPoolScanner scanner,
+                                               List<ConstantPoolScanner.FieldReference> managedFieldReferences,
+                                               MetadataRepository metadataRepository) {
+            if (cache == null) {
+                return instrumentor.instrument(className, bytecode, scanner, metadataRepository);
             }
 
-            return null;
+            InstrumentationCache.Key key = InstrumentationCache.createKey(bytecode, managedFieldReferences);
+            Instrumentor.Result result = cache.get(key);
+            if (result != null) {
+                InstrumentationProblemMonitor.INSTANCE.signalCacheHit();
+            } else {
+                InstrumentationProblemMonitor.INSTANCE.signalCacheMiss();
+                result = instrumentor.instrument(className, bytecode, scanner, metadataRepository);
+                cache.put(key, result);
+            }
+            return result;
+        }
+
+        /**
+         * Prints the number of classes that are scanned and instrumented, and the time spent on it. This can be used
+         * to measure the startup overhead of the agent.
+         */
+        public void printStatistics() {
+            System.out.printf(
+                    "Multiverse JavaAgent scanned %s classes in %s ms, and instrumented %s classes in %s ms\n",
+                    scannedCount.get(), scanTimeNs.get() / 1000000,
+                    instrumentedCount.get(), instrumentTimeNs.get() / 1000000);
+
+            if (cache != null) {
+                System.out.printf("Multiverse JavaAgent instrumentation cache had %s hits and %s misses\n",
+                        InstrumentationProblemMonitor.INSTANCE.getCacheHitCount(),
+                        InstrumentationProblemMonitor.INSTANCE.getCacheMissCount());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -24,8 +24,6 @@ public abstract class AbstractClassFileTransformer implements ClassFileTransform
 
     private final static Logger logger = Logger.getLogger(AbstractClassFileTransformer.class.getName());
 
-    public final MetadataRepository metadataRepository = MetadataRepository.INSTANCE;
-
     private final String transformerName;
 
     /**
@@ -69,7 +67,7 @@ public abstract class AbstractClassFileTransformer implements ClassFileTransform
         }
     }
 
-    private void handleThrowable(String className, Throwable ex) {
+    protected void handleThrowable(String className, Throwable ex) {
         String msg = format("Transformer '%s' failed while instrumenting class '%s'. " +
                 "It is not possible to abort the instrumentation process, so the JVM is going to continue, " +
                 "but since this class is partially instrumented, all bets are off.", transformerName, className);
@@ -78,7 +76,7 @@ public abstract class AbstractClassFileTransformer implements ClassFileTransform
         InstrumentationProblemMonitor.INSTANCE.signalProblem();
     }
 
-    private static boolean isIgnoredPackage(String className) {
+    protected static boolean isIgnoredPackage(String className) {
         return className.startsWith("java/") ||
                 className.startsWith("javax/management/") ||
                 className.startsWith("com/jprofiler/") ||
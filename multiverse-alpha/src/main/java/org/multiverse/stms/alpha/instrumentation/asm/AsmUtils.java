@@ -366,6 +366,33 @@ public final class AsmUtils implements Opcodes {
         return null;
     }
 
+    /**
+     * Checks if a ClassNode has the specified invisible annotation (an annotation with the CLASS retention policy).
+     *
+     * @param memberNode      the ClassNode to check
+     * @param annotationClass the Annotation class that is checked for.
+     * @return true if classNode has the specified annotation, false otherwise.
+     */
+    public static boolean hasInvisibleAnnotation(MemberNode memberNode, Class annotationClass) {
+        if (memberNode == null || annotationClass == null) {
+            throw new NullPointerException();
+        }
+
+        if (memberNode.invisibleAnnotations == null) {
+            return false;
+        }
+
+        String annotationClassDescriptor = getDescriptor(annotationClass);
+
+        for (AnnotationNode node : (List<AnnotationNode>) memberNode.invisibleAnnotations) {
+            if (annotationClassDescriptor.equals(node.desc)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public static String internalFormToDescriptor(String internalForm) {
         return format("L%s;", internalForm);
     }
@@ -513,6 +540,39 @@ public final class AsmUtils implements Opcodes {
         }
     }
 
+    public static byte[] readFile(File file) {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            return readBytes(new FileInputStream(file));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads all bytes of an InputStream. The InputStream is closed afterwards.
+     *
+     * @param in the InputStream to read.
+     * @return the read bytes.
+     * @throws IOException if something fails while reading.
+     */
+    public static byte[] readBytes(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
     private static void ensureExistingParent(File file) throws IOException {
         File parent = file.getParentFile();
         if (parent.isDirectory()) {
@@ -8,10 +8,11 @@ import org.multiverse.api.exceptions.RecoverableThrowable;
 import org.multiverse.api.exceptions.RetryError;
 import org.multiverse.api.exceptions.TooManyRetriesException;
 import org.multiverse.templates.AbortedException;
-import org.multiverse.utils.latches.CheapLatch;
 import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
 
 import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The donor class that can be used while instrumenting atomic methods and adding the transaction management
@@ -88,9 +89,7 @@ public class AtomicLogicDonor {
                 return;
             } catch (Throwable throwable) {
                 if (throwable instanceof RetryError) {
-                    Latch latch = new CheapLatch();
-                    t.abortAndRegisterRetryLatch(latch);
-                    latch.awaitUninterruptible();
+                    awaitRetry(t);
                 } else if (throwable instanceof RecoverableThrowable) {
                     t.getRestartBackoffPolicy().delayUninterruptible(t, attempt);
                     //backoff(attempt);
@@ -127,6 +126,30 @@ public class AtomicLogicDonor {
         return t;
     }
 
+    public static void awaitRetry(Transaction t) {
+        Latch latch = ParkingLatch.getThreadLocalLatch();
+        long remainingTimeoutNs = t.getRemainingTimeoutNs();
+        t.abortAndRegisterRetryLatch(latch);
+
+        if (remainingTimeoutNs == Long.MAX_VALUE) {
+            latch.awaitUninterruptible();
+        } else {
+            //a timed retry was done, so the wait is bounded by what is left of the timeout. An interrupt ends the
+            //wait as if the timeout has elapsed; the interrupt status is kept for the caller of the timed retry.
+            long startNs = System.nanoTime();
+            try {
+                if (!latch.tryAwait(remainingTimeoutNs, TimeUnit.NANOSECONDS)) {
+                    t.deregisterRetryLatch(latch);
+                }
+                t.setRemainingTimeoutNs(remainingTimeoutNs - (System.nanoTime() - startNs));
+            } catch (InterruptedException ex) {
+                t.deregisterRetryLatch(latch);
+                t.setRemainingTimeoutNs(0);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public static void abortIfActive(final Transaction t) {
         if (t.getStatus() == TransactionStatus.active) {
             t.abort();
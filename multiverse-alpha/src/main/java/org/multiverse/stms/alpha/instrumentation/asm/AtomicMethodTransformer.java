@@ -34,9 +34,10 @@ public class AtomicMethodTransformer implements Opcodes {
     private final MethodNode donorMethod;
     private final MethodNode donorConstructor;
 
-    public AtomicMethodTransformer(ClassNode classNode, ClassNode donorClass) {
+    public AtomicMethodTransformer(ClassNode classNode, ClassNode donorClass,
+                                   MetadataRepository metadataService) {
         this.classNode = classNode;
-        this.metadataService = MetadataRepository.INSTANCE;
+        this.metadataService = metadataService;
         this.donorClass = donorClass;
         this.donorMethod = getDonorMethod("donorMethod");
         this.donorConstructor = getDonorMethod("donorConstructor");
@@ -12,9 +12,11 @@ import java.util.List;
 public class AtomicObjectFieldAccessTransformer implements Opcodes {
 
     private final ClassNode originalClass;
+    private final MetadataRepository metadataRepository;
 
-    public AtomicObjectFieldAccessTransformer(ClassNode originalClass) {
+    public AtomicObjectFieldAccessTransformer(ClassNode originalClass, MetadataRepository metadataRepository) {
         this.originalClass = originalClass;
+        this.metadataRepository = metadataRepository;
     }
 
     public ClassNode transform() {
@@ -46,7 +48,12 @@ public class AtomicObjectFieldAccessTransformer implements Opcodes {
         fixedMethod.exceptions = originalMethod.exceptions;
         fixedMethod.tryCatchBlocks = new LinkedList();//originalMethod.tryCatchBlocks;
 
-        originalMethod.accept(new AtomicObjectRemappingMethodAdapter(fixedMethod));
+        TranlocalCacheAnalyzer tranlocalCache = new TranlocalCacheAnalyzer(originalClass, originalMethod,
+                                                                           metadataRepository);
+        tranlocalCache.analyze();
+
+        originalMethod.accept(new AtomicObjectRemappingMethodAdapter(fixedMethod, metadataRepository,
+                                                                     tranlocalCache));
 
         return fixedMethod;
     }
@@ -19,25 +19,49 @@ import static java.lang.String.format;
  * <p/>
  * person.firstname -> person.persontranlocal.firstname
  * <p/>
- * Where the persontranlocal is retrieved from the current transaction.
+ * Where the persontranlocal is retrieved from the current transaction. If the {@link TranlocalCacheAnalyzer} has found
+ * that the tranlocal already was retrieved for the same atomic object, the cached tranlocal is used instead.
  */
 public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements Opcodes {
 
     private final MetadataRepository metadataService;
+    private final TranlocalCacheAnalyzer tranlocalCache;
+    private int fieldInsnIndex;
 
-    public AtomicObjectRemappingMethodAdapter(MethodVisitor mv) {
+    public AtomicObjectRemappingMethodAdapter(MethodVisitor mv, MetadataRepository metadataService,
+                                              TranlocalCacheAnalyzer tranlocalCache) {
         super(mv);
-        this.metadataService = MetadataRepository.INSTANCE;
+        this.metadataService = metadataService;
+        this.tranlocalCache = tranlocalCache;
+    }
+
+    @Override
+    public void visitCode() {
+        super.visitCode();
+
+        for (int cacheVar : tranlocalCache.getLazyCacheVars()) {
+            super.visitInsn(ACONST_NULL);
+            super.visitVarInsn(ASTORE, cacheVar);
+        }
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+        super.visitMaxs(maxStack, Math.max(maxLocals, tranlocalCache.getMaxLocals()));
     }
 
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String valueDesc) {
         String tranlocalName = metadataService.getTranlocalName(owner);
+        int cacheVar = tranlocalCache.getCacheVar(fieldInsnIndex);
+        boolean cacheHit = tranlocalCache.isCacheHit(fieldInsnIndex);
+        boolean lazyCache = tranlocalCache.isLazyCacheVar(fieldInsnIndex);
+        fieldInsnIndex++;
 
         if (metadataService.isManagedInstanceField(owner, name)) {
             switch (opcode) {
                 case GETFIELD:
-                    atomicObjectOnTopToTranlocal(owner);
+                    atomicObjectOnTopToTranlocal(owner, cacheVar, cacheHit, lazyCache);
                     mv.visitFieldInsn(GETFIELD, tranlocalName, name, valueDesc);
                     break;
                 case PUTFIELD:
@@ -55,7 +79,7 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
                         //[owner(atomicobject), value(category1),..
                     }
 
-                    atomicObjectOnTopToTranlocal(owner);
+                    atomicObjectOnTopToTranlocal(owner, cacheVar, cacheHit, lazyCache);
 
                     Label continueWithPut = new Label();
                     mv.visitInsn(DUP);
@@ -117,11 +141,36 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
         //System.out.println("end "+owner+"."+name+" opcode="+opcode);
     }
 
-    private void atomicObjectOnTopToTranlocal(String atomicObjectName) {
+    private void atomicObjectOnTopToTranlocal(String atomicObjectName, int cacheVar, boolean cacheHit,
+                                              boolean lazyCache) {
         if (atomicObjectName.contains("__")) {
             throw new RuntimeException("No generated classes are allowed: " + atomicObjectName);
         }
 
+        if (cacheHit) {
+            //the tranlocal of the atomicobject already was loaded, so the atomicobject is replaced by the tranlocal.
+            super.visitInsn(POP);
+            super.visitVarInsn(ALOAD, cacheVar);
+            return;
+        }
+
+        Label loaded = null;
+        if (lazyCache) {
+            //[atomicobject,..
+            Label notLoaded = new Label();
+            loaded = new Label();
+            super.visitVarInsn(ALOAD, cacheVar);
+            super.visitInsn(DUP);
+            super.visitJumpInsn(IFNULL, notLoaded);
+            //[tranlocal, atomicobject,..
+            super.visitInsn(SWAP);
+            super.visitInsn(POP);
+            super.visitJumpInsn(GOTO, loaded);
+            super.visitLabel(notLoaded);
+            //[null, atomicobject,..
+            super.visitInsn(POP);
+        }
+
         super.visitMethodInsn(
                 INVOKESTATIC,
                 getInternalName(ThreadLocalTransaction.class),
@@ -140,5 +189,14 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
 
         String tranlocalName = metadataService.getTranlocalName(atomicObjectName);
         super.visitTypeInsn(CHECKCAST, tranlocalName);
+
+        if (cacheVar != -1) {
+            super.visitInsn(DUP);
+            super.visitVarInsn(ASTORE, cacheVar);
+        }
+
+        if (loaded != null) {
+            super.visitLabel(loaded);
+        }
     }
 }
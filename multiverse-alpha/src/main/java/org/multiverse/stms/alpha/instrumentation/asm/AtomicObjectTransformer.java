@@ -36,10 +36,11 @@ public class AtomicObjectTransformer implements Opcodes {
     private final MetadataRepository metadataService;
     private final String tranlocalName;
 
-    public AtomicObjectTransformer(ClassNode atomicObject, ClassNode mixin) {
+    public AtomicObjectTransformer(ClassNode atomicObject, ClassNode mixin,
+                                   MetadataRepository metadataService) {
         this.atomicObject = atomicObject;
         this.mixin = mixin;
-        this.metadataService = MetadataRepository.INSTANCE;
+        this.metadataService = metadataService;
         this.tranlocalName = metadataService.getTranlocalName(atomicObject);
     }
 
@@ -0,0 +1,152 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The metadata of a class that is needed for the instrumentation. It is created by the {@link MetadataExtractor} and
+ * stored in the {@link MetadataRepository}.
+ * <p/>
+ * A ClassMetadata is created completely before it is stored in the MetadataRepository, and is not changed after that,
+ * so it can be shared between threads without additional synchronization.
+ *
+ * @author Peter Veentjer
+ */
+public final class ClassMetadata {
+
+    private final String name;
+    private final boolean atomicObject;
+    private final boolean realAtomicObject;
+    private final boolean fieldGranularity;
+    private final Map<String, FieldMetadata> fields;
+    private final Map<String, MethodMetadata> methods;
+    private final boolean atomicMethods;
+
+    /**
+     * Creates the metadata of a class that has no metadata of interest, e.g. a class that doesn't use the annotations.
+     *
+     * @param name the internal name of the class.
+     */
+    public ClassMetadata(String name) {
+        this(name, false, false, new HashMap<String, FieldMetadata>(), new HashMap<String, MethodMetadata>());
+    }
+
+    /**
+     * Creates a ClassMetadata.
+     *
+     * @param name             the internal name of the class.
+     * @param atomicObject     if the class is an atomic object.
+     * @param fieldGranularity if the atomic object has field granularity.
+     * @param fields           the metadata of the fields, the key is the name of the field.
+     * @param methods          the metadata of the methods, the key is created with {@link #methodKey(String,
+     *                         String)}.
+     */
+    public ClassMetadata(String name, boolean atomicObject, boolean fieldGranularity,
+                         Map<String, FieldMetadata> fields, Map<String, MethodMetadata> methods) {
+        this.name = name;
+        this.atomicObject = atomicObject;
+        this.fieldGranularity = fieldGranularity;
+        this.fields = Collections.unmodifiableMap(fields);
+        this.methods = Collections.unmodifiableMap(methods);
+
+        boolean realAtomicObject = false;
+        for (FieldMetadata field : fields.values()) {
+            if (field.isManagedField()) {
+                realAtomicObject = true;
+            }
+        }
+        this.realAtomicObject = realAtomicObject;
+
+        boolean atomicMethods = false;
+        for (MethodMetadata method : methods.values()) {
+            if (method.isAtomicMethod()) {
+                atomicMethods = true;
+            }
+        }
+        this.atomicMethods = atomicMethods;
+    }
+
+    static String methodKey(String name, String desc) {
+        return name + desc;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks if the class is an atomic object (so has the AtomicObject annotation).
+     *
+     * @return true if the class is an atomic object.
+     */
+    public boolean isAtomicObject() {
+        return atomicObject;
+    }
+
+    /**
+     * Checks if the class is an atomic object that has managed fields. Only these atomic objects get a tranlocal.
+     *
+     * @return true if the class is a real atomic object.
+     */
+    public boolean isRealAtomicObject() {
+        return realAtomicObject;
+    }
+
+    public boolean hasFieldGranularity() {
+        return fieldGranularity;
+    }
+
+    public boolean hasAtomicMethods() {
+        return atomicMethods;
+    }
+
+    /**
+     * Returns the name of the tranlocal of the atomic object.
+     *
+     * @return the name of the tranlocal, or null if the class is not a real atomic object.
+     */
+    public String getTranlocalName() {
+        return realAtomicObject ? name + "__Tranlocal" : null;
+    }
+
+    /**
+     * Returns the name of the tranlocal snapshot of the atomic object.
+     *
+     * @return the name of the tranlocal snapshot, or null if the class is not a real atomic object.
+     */
+    public String getTranlocalSnapshotName() {
+        return realAtomicObject ? name + "__TranlocalSnapshot" : null;
+    }
+
+    /**
+     * Returns the metadata of a field.
+     *
+     * @param fieldName the name of the field.
+     * @return the FieldMetadata, or null if the field is not found.
+     */
+    public FieldMetadata getFieldMetadata(String fieldName) {
+        return fields.get(fieldName);
+    }
+
+    public boolean isManagedField(String fieldName) {
+        FieldMetadata field = fields.get(fieldName);
+        return field != null && field.isManagedField();
+    }
+
+    /**
+     * Returns the metadata of a method.
+     *
+     * @param methodName the name of the method.
+     * @param desc       the descriptor of the method.
+     * @return the MethodMetadata, or null if the method is not found.
+     */
+    public MethodMetadata getMethodMetadata(String methodName, String desc) {
+        return methods.get(methodKey(methodName, desc));
+    }
+
+    public boolean isAtomicMethod(String methodName, String desc) {
+        MethodMetadata method = getMethodMetadata(methodName, desc);
+        return method != null && method.isAtomicMethod();
+    }
+}
@@ -0,0 +1,249 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import static java.lang.String.format;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A scanner that only looks at the constant pool of a classfile, so that the instrumentation can decide if a class
+ * needs to be transformed without parsing it completely. Building a tree for every class that is loaded is expensive,
+ * and the large majority of classes (all the library classes for example) don't need any instrumentation at all.
+ * <p/>
+ * A class needs to be transformed if:
+ * <ol>
+ * <li>it uses the {@link AtomicObject} or {@link AtomicMethod} annotation. The descriptor of an annotation that is
+ * used in a class, always is stored as Utf8 entry in the constant pool.</li>
+ * <li>it accesses a field of an atomic object. Every GETFIELD/PUTFIELD refers to a Fieldref entry in the constant
+ * pool, so the {@link #getFieldReferences()} contain all fields that could be accessed.</li>
+ * </ol>
+ * A class that already is instrumented (see {@link Instrumented}) should never be transformed again.
+ * <p/>
+ * The scanner doesn't depend on ASM, it reads the raw bytes of the classfile.
+ * <p/>
+ * An instance should not be reused.
+ *
+ * @author Peter Veentjer
+ */
+public final class ConstantPoolScanner {
+
+    private final static int UTF8 = 1;
+    private final static int INTEGER = 3;
+    private final static int FLOAT = 4;
+    private final static int LONG = 5;
+    private final static int DOUBLE = 6;
+    private final static int CLASS = 7;
+    private final static int STRING = 8;
+    private final static int FIELDREF = 9;
+    private final static int METHODREF = 10;
+    private final static int INTERFACE_METHODREF = 11;
+    private final static int NAME_AND_TYPE = 12;
+    private final static int METHOD_HANDLE = 15;
+    private final static int METHOD_TYPE = 16;
+    private final static int DYNAMIC = 17;
+    private final static int INVOKE_DYNAMIC = 18;
+    private final static int MODULE = 19;
+    private final static int PACKAGE = 20;
+
+    private final static byte[] ATOMIC_OBJECT_DESCRIPTOR = toDescriptorBytes(AtomicObject.class);
+    private final static byte[] ATOMIC_METHOD_DESCRIPTOR = toDescriptorBytes(AtomicMethod.class);
+    private final static byte[] INSTRUMENTED_DESCRIPTOR = toDescriptorBytes(Instrumented.class);
+
+    private static byte[] toDescriptorBytes(Class clazz) {
+        String descriptor = "L" + clazz.getName().replace('.', '/') + ";";
+        //a descriptor of a class in the org.multiverse package only contains ascii characters.
+        byte[] result = new byte[descriptor.length()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = (byte) descriptor.charAt(k);
+        }
+        return result;
+    }
+
+    private final byte[] bytecode;
+
+    //the offset of the tag of every constant pool entry. The first entry is unused, and the second slot of a long or
+    //double entry is 0.
+    private final int[] offsets;
+
+    /**
+     * Creates a ConstantPoolScanner for the given bytecode. The constant pool is indexed directly, but the entries are
+     * only decoded when they are needed.
+     *
+     * @param bytecode the bytecode of the class.
+     * @throws NullPointerException     if bytecode is null.
+     * @throws IllegalArgumentException if the bytecode is not a valid classfile.
+     */
+    public ConstantPoolScanner(byte[] bytecode) {
+        if (bytecode == null) {
+            throw new NullPointerException();
+        }
+
+        if (bytecode.length < 10 || readInt(bytecode, 0) != 0xCAFEBABE) {
+            throw new IllegalArgumentException("bytecode is not a valid classfile");
+        }
+
+        this.bytecode = bytecode;
+        this.offsets = new int[readUnsignedShort(8)];
+
+        int offset = 10;
+        for (int index = 1; index < offsets.length; index++) {
+            offsets[index] = offset;
+            int tag = bytecode[offset];
+            switch (tag) {
+                case UTF8:
+                    offset += 3 + readUnsignedShort(offset + 1);
+                    break;
+                case INTEGER:
+                case FLOAT:
+                case FIELDREF:
+                case METHODREF:
+                case INTERFACE_METHODREF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    offset += 5;
+                    break;
+                case LONG:
+                case DOUBLE:
+                    //a long or double takes 2 slots in the constant pool.
+                    offset += 9;
+                    index++;
+                    break;
+                case METHOD_HANDLE:
+                    offset += 4;
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    offset += 3;
+                    break;
+                default:
+                    String msg = format("Unknown constant pool tag %s at offset %s", tag, offset);
+                    throw new IllegalArgumentException(msg);
+            }
+        }
+    }
+
+    /**
+     * Checks if the class uses the {@link AtomicObject} or the {@link AtomicMethod} annotation. If it doesn't, it can't
+     * be an atomic object and it can't have atomic methods.
+     *
+     * @return true if one of the annotations is used, false otherwise.
+     */
+    public boolean usesAtomicAnnotations() {
+        return containsUtf8(ATOMIC_OBJECT_DESCRIPTOR) || containsUtf8(ATOMIC_METHOD_DESCRIPTOR);
+    }
+
+    /**
+     * Checks if the class already is instrumented.
+     *
+     * @return true if the class is instrumented, false otherwise.
+     */
+    public boolean isInstrumented() {
+        return containsUtf8(INSTRUMENTED_DESCRIPTOR);
+    }
+
+    /**
+     * Returns all fields that are referenced from the class. The fields can be declared in the class itself, or in
+     * other classes.
+     *
+     * @return the referenced fields.
+     */
+    public List<FieldReference> getFieldReferences() {
+        List<FieldReference> result = new LinkedList<FieldReference>();
+        for (int index = 1; index < offsets.length; index++) {
+            int offset = offsets[index];
+            if (offset > 0 && bytecode[offset] == FIELDREF) {
+                int classOffset = offsets[readUnsignedShort(offset + 1)];
+                int nameAndTypeOffset = offsets[readUnsignedShort(offset + 3)];
+                String owner = readUtf8(offsets[readUnsignedShort(classOffset + 1)]);
+                String name = readUtf8(offsets[readUnsignedShort(nameAndTypeOffset + 1)]);
+                result.add(new FieldReference(owner, name));
+            }
+        }
+        return result;
+    }
+
+    private boolean containsUtf8(byte[] expected) {
+        for (int index = 1; index < offsets.length; index++) {
+            int offset = offsets[index];
+            if (offset > 0 && bytecode[offset] == UTF8 && utf8Equals(offset, expected)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean utf8Equals(int offset, byte[] expected) {
+        int length = readUnsignedShort(offset + 1);
+        if (length != expected.length) {
+            return false;
+        }
+
+        for (int k = 0; k < length; k++) {
+            if (bytecode[offset + 3 + k] != expected[k]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a Utf8 entry. The classfile uses the modified UTF-8 encoding, see {@link java.io.DataInput#readUTF()}.
+     */
+    private String readUtf8(int offset) {
+        int length = readUnsignedShort(offset + 1);
+        int index = offset + 3;
+        int end = index + length;
+        StringBuilder sb = new StringBuilder(length);
+        while (index < end) {
+            int c = bytecode[index++] & 0xFF;
+            if (c < 0x80) {
+                sb.append((char) c);
+            } else if (c < 0xE0) {
+                sb.append((char) (((c & 0x1F) << 6) | (bytecode[index++] & 0x3F)));
+            } else {
+                int c2 = bytecode[index++] & 0x3F;
+                int c3 = bytecode[index++] & 0x3F;
+                sb.append((char) (((c & 0x0F) << 12) | (c2 << 6) | c3));
+            }
+        }
+        return sb.toString();
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ((bytecode[offset] & 0xFF) << 8) | (bytecode[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) |
+                ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) |
+                (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * A reference to a field, as found in a Fieldref entry of the constant pool.
+     */
+    public static final class FieldReference {
+
+        public final String owner;
+        public final String name;
+
+        public FieldReference(String owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return owner + "." + name;
+        }
+    }
+}
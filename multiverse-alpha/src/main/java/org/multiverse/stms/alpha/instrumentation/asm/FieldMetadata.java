@@ -0,0 +1,32 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+/**
+ * The metadata of a field, see {@link ClassMetadata}.
+ * <p/>
+ * This class is immutable.
+ *
+ * @author Peter Veentjer
+ */
+public final class FieldMetadata {
+
+    private final String name;
+    private final boolean managedField;
+
+    public FieldMetadata(String name, boolean managedField) {
+        this.name = name;
+        this.managedField = managedField;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks if the field is a managed field of an atomic object (so a field that is moved to the tranlocal).
+     *
+     * @return true if the field is managed, false otherwise.
+     */
+    public boolean isManagedField() {
+        return managedField;
+    }
+}
@@ -0,0 +1,354 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import java.io.*;
+import static java.lang.String.format;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An on disk cache for the {@link Instrumentor}, so that a class that already was instrumented in a previous run of
+ * the JVM, doesn't need to be instrumented again. Most classes are the same between deployments, so with a warm cache
+ * the startup time of an instrumented application comes close to that of an uninstrumented one.
+ * <p/>
+ * The key of an entry is a hash of the original bytecode of the class and of the managed fields of other classes that
+ * are accessed (see {@link Instrumentor#getManagedFieldReferences}), since that is all the input the instrumentation
+ * has. The value is the instrumented bytecode and the bytecode of the generated tranlocal and tranlocal snapshot
+ * classes.
+ * <p/>
+ * All entries are stored in a single file that is appended to. The file starts with a header that contains the version
+ * of the agent; if the agent has a different version, the cache is cleared. The entries that exist when the cache is
+ * opened are read from a memory mapped buffer, entries added while running are read using the FileChannel.
+ * <p/>
+ * The file is locked, so only one JVM at a time can use the cache. If the lock can't be acquired, the cache is
+ * disabled for that JVM. Problems while reading or writing the cache are logged and the cache is disabled; a broken
+ * cache should never prevent classes from being instrumented.
+ * <p/>
+ * This class is threadsafe.
+ *
+ * @author Peter Veentjer
+ */
+public final class InstrumentationCache {
+
+    private final static Logger logger = Logger.getLogger(InstrumentationCache.class.getName());
+
+    private final static String FILE_NAME = "multiverse-instrumentation.cache";
+    private final static int MAGIC = 0x4D564943;
+    private final static int FORMAT_VERSION = 1;
+    private final static int KEY_LENGTH = 20;
+    private final static int RECORD_HEADER_LENGTH = KEY_LENGTH + 4;
+
+    /**
+     * Creates the key for a class.
+     *
+     * @param bytecode               the original bytecode of the class.
+     * @param managedFieldReferences the managed fields of other classes that are accessed by the class.
+     * @return the created key.
+     */
+    public static Key createKey(byte[] bytecode, List<ConstantPoolScanner.FieldReference> managedFieldReferences) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        digest.update(bytecode);
+
+        //the order of the references depends on the constant pool, so they are sorted to get a stable key.
+        List<String> references = new ArrayList<String>(managedFieldReferences.size());
+        for (ConstantPoolScanner.FieldReference reference : managedFieldReferences) {
+            references.add(reference.toString());
+        }
+        Collections.sort(references);
+        for (String reference : references) {
+            try {
+                digest.update(reference.getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
+            digest.update((byte) '\n');
+        }
+
+        return new Key(digest.digest());
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final Map<Key, Long> index = new HashMap<Key, Long>();
+
+    //contains the records that already existed when the cache was opened (up to mappedEnd).
+    private final MappedByteBuffer mapped;
+    private final long mappedEnd;
+
+    private volatile boolean enabled = true;
+    private long end;
+
+    /**
+     * Opens the cache in the given directory. If the cache doesn't exist or was created by a different version of the
+     * agent, an empty cache is created.
+     *
+     * @param directory    the directory of the cache.
+     * @param agentVersion the version of the agent.
+     * @throws NullPointerException if directory or agentVersion is null.
+     * @throws IOException          if the cache can't be opened.
+     */
+    public InstrumentationCache(File directory, String agentVersion) throws IOException {
+        if (directory == null || agentVersion == null) {
+            throw new NullPointerException();
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(format("Could not create cache directory '%s'", directory));
+        }
+
+        this.file = new File(directory, FILE_NAME);
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+
+        FileLock lock = channel.tryLock();
+        if (lock == null) {
+            channel.close();
+            throw new IOException(format("Cache file '%s' is used by another process", file));
+        }
+
+        byte[] header = createHeader(agentVersion);
+        if (hasHeader(header)) {
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.end = readIndex(header.length);
+            this.mappedEnd = end;
+            if (end < channel.size()) {
+                //a partially written record at the end (e.g. because the JVM was killed) is removed.
+                channel.truncate(end);
+            }
+        } else {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(header), 0);
+            this.mapped = null;
+            this.mappedEnd = 0;
+            this.end = header.length;
+        }
+    }
+
+    private static byte[] createHeader(String agentVersion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(agentVersion);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private boolean hasHeader(byte[] header) throws IOException {
+        if (channel.size() < header.length) {
+            return false;
+        }
+
+        ByteBuffer found = ByteBuffer.allocate(header.length);
+        channel.read(found, 0);
+        return Arrays.equals(header, found.array());
+    }
+
+    private long readIndex(int offset) {
+        int position = offset;
+        while (position + RECORD_HEADER_LENGTH <= mapped.limit()) {
+            byte[] key = new byte[KEY_LENGTH];
+            mapped.position(position);
+            mapped.get(key);
+            int length = mapped.getInt();
+            int next = position + RECORD_HEADER_LENGTH + length;
+            if (length < 0 || next > mapped.limit()) {
+                break;
+            }
+
+            index.put(new Key(key), (long) position);
+            position = next;
+        }
+
+        return position;
+    }
+
+    /**
+     * Returns the File the cache is stored in.
+     *
+     * @return the File of the cache.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Gets the cached result of the instrumentation.
+     *
+     * @param key the key of the class.
+     * @return the cached result, or null if the class isn't in the cache.
+     */
+    public Instrumentor.Result get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+
+        try {
+            byte[] record;
+            synchronized (this) {
+                Long position = index.get(key);
+                if (position == null) {
+                    return null;
+                }
+                record = readRecord(position);
+            }
+            return decode(record);
+        } catch (IOException e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    private byte[] readRecord(long position) throws IOException {
+        if (position < mappedEnd) {
+            mapped.position((int) position + KEY_LENGTH);
+            byte[] record = new byte[mapped.getInt()];
+            mapped.get(record);
+            return record;
+        }
+
+        ByteBuffer length = ByteBuffer.allocate(4);
+        channel.read(length, position + KEY_LENGTH);
+        length.flip();
+        ByteBuffer record = ByteBuffer.allocate(length.getInt());
+        channel.read(record, position + RECORD_HEADER_LENGTH);
+        return record.array();
+    }
+
+    /**
+     * Puts the result of the instrumentation in the cache.
+     *
+     * @param key    the key of the class.
+     * @param result the result of the instrumentation.
+     */
+    public void put(Key key, Instrumentor.Result result) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            byte[] record = encode(result);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_LENGTH + record.length);
+            buffer.put(key.bytes);
+            buffer.putInt(record.length);
+            buffer.put(record);
+            buffer.flip();
+
+            synchronized (this) {
+                if (index.containsKey(key)) {
+                    return;
+                }
+
+                long position = end;
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                end = position + buffer.limit();
+                index.put(key, position);
+            }
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * Closes the cache; the cache is disabled and the lock on the file is released.
+     */
+    public synchronized void close() {
+        enabled = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, format("Failed to close instrumentation cache '%s'", file), e);
+        }
+    }
+
+    private void disable(IOException e) {
+        enabled = false;
+        String msg = format("Disabling instrumentation cache '%s' because of a problem", file);
+        logger.log(Level.WARNING, msg, e);
+    }
+
+    private static byte[] encode(Instrumentor.Result result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(result.generatedClasses.size());
+        for (Map.Entry<String, byte[]> entry : result.generatedClasses.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.writeInt(result.bytecode.length);
+        out.write(result.bytecode);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Instrumentor.Result decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int generatedCount = in.readInt();
+        Map<String, byte[]> generatedClasses = new LinkedHashMap<String, byte[]>();
+        for (int k = 0; k < generatedCount; k++) {
+            String name = in.readUTF();
+            byte[] generated = new byte[in.readInt()];
+            in.readFully(generated);
+            generatedClasses.put(name, generated);
+        }
+        byte[] bytecode = new byte[in.readInt()];
+        in.readFully(bytecode);
+        return new Instrumentor.Result(bytecode, generatedClasses);
+    }
+
+    /**
+     * The key of an entry in the cache.
+     */
+    public static final class Key {
+
+        private final byte[] bytes;
+        private final int hashCode;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object thatObj) {
+            if (thatObj == this) {
+                return true;
+            }
+
+            if (!(thatObj instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) thatObj;
+            return Arrays.equals(this.bytes, that.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
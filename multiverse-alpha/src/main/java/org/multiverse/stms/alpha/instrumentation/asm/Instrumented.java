@@ -0,0 +1,20 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A marker that is placed on every class that is created or transformed by the {@link Instrumentor}, so that a class
+ * is never instrumented twice. This is needed when classes are instrumented offline (see the MultiverseCompiler) and
+ * the JavaAgent is used as well.
+ * <p/>
+ * The annotation is not visible at runtime; it only is needed in the classfile.
+ *
+ * @author Peter Veentjer
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Instrumented {
+}
@@ -0,0 +1,245 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.*;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.objectweb.asm.ClassReader;
+import static org.objectweb.asm.Opcodes.*;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import static java.lang.String.format;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Does all the instrumentation of a single class for the alpha stm. It is used by the JavaAgent to instrument classes
+ * while they are loaded, and by the MultiverseCompiler to instrument classes offline.
+ * <p/>
+ * The class is parsed once (with the jsr/ret instructions inlined), all transformations are done on the same
+ * ClassNode and the bytecode is written once. It is very important that the order of the transformations is not
+ * changed, unless you really know what you are doing.
+ * <p/>
+ * The metadata is read from the {@link MetadataRepository} of the ClassLoader of the class, so classes of different
+ * ClassLoaders can be instrumented concurrently by the same Instrumentor.
+ *
+ * @author Peter Veentjer
+ */
+public final class Instrumentor {
+
+    private final static String INSTRUMENTED_DESCRIPTOR = Type.getDescriptor(Instrumented.class);
+
+    private final boolean dumpBytecode;
+
+    /**
+     * Creates an Instrumentor.
+     *
+     * @param dumpBytecode if the created bytecode should be written to the tmp directory (for debugging purposes).
+     */
+    public Instrumentor(boolean dumpBytecode) {
+        this.dumpBytecode = dumpBytecode;
+    }
+
+    /**
+     * Checks if a class needs to be instrumented. Only the constant pool of the class is looked at, so this is a lot
+     * cheaper than parsing the class.
+     *
+     * @param className          the internal name of the class.
+     * @param scanner            the ConstantPoolScanner of the class.
+     * @param metadataRepository the MetadataRepository of the ClassLoader of the class.
+     * @return true if the class needs to be instrumented, false otherwise.
+     */
+    public boolean needsInstrumentation(String className, ConstantPoolScanner scanner,
+                                        MetadataRepository metadataRepository) {
+        if (scanner.isInstrumented()) {
+            return false;
+        }
+
+        return scanner.usesAtomicAnnotations() ||
+                !getManagedFieldReferences(className, scanner, metadataRepository).isEmpty();
+    }
+
+    /**
+     * Checks if a class needs to be instrumented.
+     *
+     * @param scanner                the ConstantPoolScanner of the class.
+     * @param managedFieldReferences the result of {@link #getManagedFieldReferences}.
+     * @return true if the class needs to be instrumented, false otherwise.
+     */
+    public boolean needsInstrumentation(ConstantPoolScanner scanner,
+                                        List<ConstantPoolScanner.FieldReference> managedFieldReferences) {
+        if (scanner.isInstrumented()) {
+            return false;
+        }
+
+        return scanner.usesAtomicAnnotations() || !managedFieldReferences.isEmpty();
+    }
+
+    /**
+     * Returns the managed fields of atomic objects that are accessed by the class. Only fields of other classes are
+     * returned; the managed fields of the class itself follow from the class itself.
+     * <p/>
+     * Apart from the bytecode of the class itself, these fields are the only input of the instrumentation.
+     *
+     * @param className          the internal name of the class.
+     * @param scanner            the ConstantPoolScanner of the class.
+     * @param metadataRepository the MetadataRepository of the ClassLoader of the class.
+     * @return the accessed managed fields of other classes.
+     */
+    public List<ConstantPoolScanner.FieldReference> getManagedFieldReferences(String className,
+                                                                              ConstantPoolScanner scanner,
+                                                                              MetadataRepository metadataRepository) {
+        List<ConstantPoolScanner.FieldReference> result = new LinkedList<ConstantPoolScanner.FieldReference>();
+        for (ConstantPoolScanner.FieldReference field : scanner.getFieldReferences()) {
+            if (!field.owner.equals(className) &&
+                    !AbstractClassFileTransformer.isIgnoredPackage(field.owner) &&
+                    metadataRepository.isManagedInstanceField(field.owner, field.name)) {
+                result.add(field);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Instruments a class. Should only be called when {@link #needsInstrumentation} returns true.
+     *
+     * @param className          the internal name of the class.
+     * @param bytecode           the original bytecode of the class.
+     * @param scanner            the ConstantPoolScanner of the class.
+     * @param metadataRepository the MetadataRepository of the ClassLoader of the class.
+     * @return the Result containing the instrumented class and the classes that are generated for it.
+     */
+    public Result instrument(String className, byte[] bytecode, ConstantPoolScanner scanner,
+                             MetadataRepository metadataRepository) {
+        boolean usesAtomicAnnotations = scanner.usesAtomicAnnotations();
+
+        ClassNode classNode = new ClassNode();
+        ClassReader reader = new ClassReader(bytecode);
+        reader.accept(new JSRInlineClassAdapter(classNode), ClassReader.EXPAND_FRAMES);
+
+        //the metadata is extracted from the ClassNode that already is available, instead of loading the class
+        //again. If the class doesn't use the annotations, there is no metadata to extract.
+        if (usesAtomicAnnotations) {
+            metadataRepository.getClassMetadata(classNode);
+        }
+
+        boolean isRealAtomicObject = usesAtomicAnnotations && metadataRepository.isRealAtomicObject(className);
+        boolean hasAtomicMethods = usesAtomicAnnotations && metadataRepository.hasAtomicMethods(className);
+
+        Map<String, byte[]> generatedClasses = new LinkedHashMap<String, byte[]>();
+        if (isRealAtomicObject) {
+            //the tranlocal and the tranlocal snapshot need to be defined before the atomic object itself.
+            addGenerated(generatedClasses, new TranlocalFactory(classNode, metadataRepository).create());
+            addGenerated(generatedClasses, new TranlocalSnapshotFactory(classNode, metadataRepository).create());
+        }
+
+        new AtomicObjectFieldAccessTransformer(classNode, metadataRepository).transform();
+
+        if (isRealAtomicObject) {
+            ClassNode mixin = loadAsClassNode(FastAtomicObjectMixin.class);
+            new AtomicObjectTransformer(classNode, mixin, metadataRepository).transform();
+        }
+
+        if (hasAtomicMethods) {
+            transformAtomicMethods(classNode, metadataRepository);
+        }
+
+        markAsInstrumented(classNode);
+        byte[] result = toBytecode(classNode);
+        if (dumpBytecode) {
+            writeToFileInTmpDirectory(classNode.name + "__Instrumented.class", result);
+        }
+        return new Result(result, generatedClasses);
+    }
+
+    /**
+     * Creates the bytecode for a class that could not be instrumented. Every method and constructor (not the static
+     * initializer) is replaced by one that throws an IncompatibleClassChangeError, so the class still can be loaded,
+     * but using it fails loudly instead of silently running without transactions.
+     *
+     * @param bytecode the original bytecode of the class.
+     * @param cause    the problem that prevented the instrumentation.
+     * @return the bytecode of the unusable class.
+     */
+    public byte[] createFailedClass(byte[] bytecode, Throwable cause) {
+        ClassNode classNode = loadAsClassNode(bytecode);
+        String message = format("Class '%s' could not be instrumented: %s", classNode.name, cause.getMessage());
+
+        for (MethodNode method : (List<MethodNode>) classNode.methods) {
+            if (method.name.equals("<clinit>") || (method.access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
+                continue;
+            }
+
+            InsnList instructions = new InsnList();
+            instructions.add(new TypeInsnNode(NEW, "java/lang/IncompatibleClassChangeError"));
+            instructions.add(new InsnNode(DUP));
+            instructions.add(new LdcInsnNode(message));
+            instructions.add(new MethodInsnNode(
+                    INVOKESPECIAL, "java/lang/IncompatibleClassChangeError", "<init>", "(Ljava/lang/String;)V"));
+            instructions.add(new InsnNode(ATHROW));
+
+            method.instructions = instructions;
+            method.tryCatchBlocks.clear();
+            method.localVariables = null;
+            method.maxStack = 3;
+        }
+
+        markAsInstrumented(classNode);
+        return toBytecode(classNode);
+    }
+
+    private void addGenerated(Map<String, byte[]> generatedClasses, ClassNode generated) {
+        markAsInstrumented(generated);
+        byte[] generatedBytecode = toBytecode(generated);
+        if (dumpBytecode) {
+            writeToFileInTmpDirectory(generated.name + ".class", generatedBytecode);
+        }
+        generatedClasses.put(generated.name, generatedBytecode);
+    }
+
+    private void transformAtomicMethods(ClassNode classNode, MetadataRepository metadataRepository) {
+        boolean restore = InsnList.check;
+        InsnList.check = true;
+        try {
+            ClassNode donor = loadAsClassNode(AtomicLogicDonor.class);
+            if (dumpBytecode) {
+                writeToFileInTmpDirectory(donor.name + ".class", toBytecode(donor));
+            }
+
+            new AtomicMethodTransformer(classNode, donor, metadataRepository).transform();
+        } finally {
+            InsnList.check = restore;
+        }
+    }
+
+    private static void markAsInstrumented(ClassNode classNode) {
+        if (classNode.invisibleAnnotations == null) {
+            classNode.invisibleAnnotations = new LinkedList();
+        }
+        classNode.invisibleAnnotations.add(new AnnotationNode(INSTRUMENTED_DESCRIPTOR));
+    }
+
+    /**
+     * The result of instrumenting a class.
+     */
+    public static final class Result {
+
+        /**
+         * The bytecode of the instrumented class.
+         */
+        public final byte[] bytecode;
+
+        /**
+         * The classes (the tranlocal and the tranlocal snapshot) that are generated for the instrumented class. The
+         * key is the internal name of the class. The classes need to be defined in the order of the map.
+         */
+        public final Map<String, byte[]> generatedClasses;
+
+        Result(byte[] bytecode, Map<String, byte[]> generatedClasses) {
+            this.bytecode = bytecode;
+            this.generatedClasses = generatedClasses;
+        }
+    }
+}
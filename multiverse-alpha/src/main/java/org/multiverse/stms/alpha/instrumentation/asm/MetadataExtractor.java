@@ -2,6 +2,7 @@ package org.multiverse.stms.alpha.instrumentation.asm;
 
 import org.multiverse.api.PropagationLevel;
 import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
 import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.*;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -10,12 +11,14 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * An Extractor responsible for collecting information about a ClassNode and storeAndReleaseLock it in the {@link
- * MetadataRepository}. This is one of the first things that should be run, so that the other transformers/factories
- * have their information in place.
+ * An Extractor responsible for collecting information about a ClassNode. The information is returned as {@link
+ * ClassMetadata} so it can be stored in the {@link MetadataRepository}. This is one of the first things that should be
+ * run, so that the other transformers/factories have their information in place.
  * <p/>
  * An instance should not be reused.
  *
@@ -23,56 +26,47 @@ import java.util.List;
  */
 public final class MetadataExtractor implements Opcodes {
 
-    private boolean isRealAtomicObject = false;
     private boolean isAtomicObject = false;
-    private boolean hasAtomicMethods = false;
-    private ClassNode classNode;
-    private MetadataRepository metadataRepository;
+    private final ClassNode classNode;
+    private final Map<String, FieldMetadata> fields = new HashMap<String, FieldMetadata>();
+    private final Map<String, MethodMetadata> methods = new HashMap<String, MethodMetadata>();
 
     public MetadataExtractor(ClassNode classNode) {
         this.classNode = classNode;
-        this.metadataRepository = MetadataRepository.INSTANCE;
     }
 
-    public void extract() {
-        metadataRepository.signalLoaded(classNode);
+    public ClassMetadata extract() {
+        //the metadata of an instrumented class can't be extracted anymore (the managed fields are removed and the
+        //fields of the mixin are added), so it is treated as a class without metadata.
+        if (hasInvisibleAnnotation(classNode, Instrumented.class)) {
+            return new ClassMetadata(classNode.name);
+        }
 
+        boolean hasFieldGranularity = false;
         if (isAtomicObject()) {
             isAtomicObject = true;
+            hasFieldGranularity = hasFieldGranularity();
         }
 
         extractFieldMetadata();
         extractMethodMetadata();
 
-        metadataRepository.setIsAtomicObject(classNode, isAtomicObject);
-        metadataRepository.setIsRealAtomicObject(classNode, isRealAtomicObject);
-        metadataRepository.setHasAtomicMethods(classNode, hasAtomicMethods);
-
-        if (isRealAtomicObject) {
-            metadataRepository.setTranlocalName(classNode, classNode.name + "__Tranlocal");
-            metadataRepository.setTranlocalSnapshotName(classNode, classNode.name + "__TranlocalSnapshot");
-        }
+        return new ClassMetadata(classNode.name, isAtomicObject, hasFieldGranularity, fields, methods);
     }
 
     private boolean isAtomicObject() {
         return hasAtomicObjectAnnotation(classNode) && !isInterface(classNode);
     }
 
-    private void extractFieldMetadata() {
-        for (FieldNode field : (List<FieldNode>) classNode.fields) {
-            extractFieldMetadata(field);
-        }
+    private boolean hasFieldGranularity() {
+        AnnotationNode atomicObjectAnnotation = AsmUtils.getVisibleAnnotation(classNode, AtomicObject.class);
+        return (Boolean) getValue(atomicObjectAnnotation, "fieldGranularity", false);
     }
 
-    private void extractFieldMetadata(FieldNode field) {
-        boolean isManagedField = false;
-
-        if (isManagedField(field)) {
-            isRealAtomicObject = true;
-            isManagedField = true;
+    private void extractFieldMetadata() {
+        for (FieldNode field : (List<FieldNode>) classNode.fields) {
+            fields.put(field.name, new FieldMetadata(field.name, isManagedField(field)));
         }
-
-        metadataRepository.setIsManagedInstanceField(classNode, field, isManagedField);
     }
 
     /**
@@ -95,7 +89,6 @@ public final class MetadataExtractor implements Opcodes {
     }
 
     private void extractMethodMetadata(MethodNode method) {
-        boolean isAtomicMethod = false;
         AtomicMethodParams params = null;
 
         ensureNoAtomicMethodAccessModifierViolation(method);
@@ -103,25 +96,15 @@ public final class MetadataExtractor implements Opcodes {
         if (isAtomicObject) {
             if (hasAtomicMethodAnnotation(method)) {
                 params = getParams(method);
-                isAtomicMethod = true;
             } else if (hasCorrectMethodAccessForAtomicMethod(method.access) && !isStatic(method)) {
-                isAtomicMethod = true;
                 params = createDefaultParams(method);
             }
         } else if (hasAtomicMethodAnnotation(method)) {
-            isAtomicMethod = true;
             params = getParams(method);
         }
 
-        if (isAtomicMethod) {
-            hasAtomicMethods = true;
-        }
-
-        metadataRepository.setIsAtomicMethod(classNode, method, isAtomicMethod);
-
-        if (isAtomicMethod) {
-            metadataRepository.setAtomicMethodParams(classNode, method, params);
-        }
+        String key = ClassMetadata.methodKey(method.name, method.desc);
+        methods.put(key, new MethodMetadata(method.name, method.desc, params));
     }
 
     private void ensureNoAtomicMethodAccessModifierViolation(MethodNode method) {
@@ -1,21 +1,34 @@
 package org.multiverse.stms.alpha.instrumentation.asm;
 
-import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.io.IOException;
 import java.io.InputStream;
 import static java.lang.String.format;
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A repository (singleton) that stores alle metadata needed for the instrumentation process.
+ * A repository that stores all metadata needed for the instrumentation process.
+ * <p/>
+ * There is a MetadataRepository per ClassLoader (see {@link #getInstance(ClassLoader)}), because the same class name
+ * can refer to different classes in different ClassLoaders. The ClassLoader is only weakly referenced, so when the
+ * ClassLoader is garbage collected (e.g. when a web application is undeployed), the metadata is released as well.
+ * <p/>
+ * The metadata of a class is stored as an immutable {@link ClassMetadata} and is extracted lazily when it is needed for
+ * the first time. The metadata of a class doesn't depend on the metadata of other classes, so when multiple threads
+ * extract the metadata of the same class concurrently, the result is the same; the first one that is stored is used.
+ * <p/>
+ * This class is threadsafe, so classes can be instrumented concurrently (e.g. by parallel capable ClassLoaders).
  *
  * @author Peter Veentjer
  */
@@ -23,78 +36,149 @@ public final class MetadataRepository {
 
     private final static Logger logger = Logger.getLogger(MetadataRepository.class.getName());
 
-    public final static MetadataRepository INSTANCE = new MetadataRepository();
+    private final static Map<ClassLoader, MetadataRepository> repositories =
+            new WeakHashMap<ClassLoader, MetadataRepository>();
 
-    private final Map<String, Object> infoMap = new HashMap<String, Object>();
-
-    public volatile static ClassLoader classLoader;
+    private final static MetadataRepository bootstrapRepository = new MetadataRepository(null);
 
     /**
-     * todo: code needs to be cleaned up
+     * Returns the MetadataRepository for the given ClassLoader. If no MetadataRepository exists yet, it is created.
      *
-     * @param className
+     * @param classLoader the ClassLoader the metadata is loaded from. If null, the bootstrap ClassLoader is used.
+     * @return the MetadataRepository for the ClassLoader.
      */
-    public void ensureMetadataExtracted(String className) {
-        if (isLoaded(className)) {
-            return;
+    public static MetadataRepository getInstance(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return bootstrapRepository;
         }
 
-        if (classLoader == null) {
-            return;
+        synchronized (repositories) {
+            MetadataRepository repository = repositories.get(classLoader);
+            if (repository == null) {
+                repository = new MetadataRepository(classLoader);
+                repositories.put(classLoader, repository);
+            }
+            return repository;
         }
+    }
 
-        if (logger.isLoggable(Level.FINER)) {
-            logger.finer(format("Extracing metadata from class: %s", className));
+    //the repository is the value in the WeakHashMap, so a strong reference to the ClassLoader would prevent the
+    //ClassLoader from being garbage collected.
+    private final WeakReference<ClassLoader> classLoaderRef;
+    private final ConcurrentMap<String, ClassMetadata> classMetadataMap =
+            new ConcurrentHashMap<String, ClassMetadata>();
+
+    private MetadataRepository(ClassLoader classLoader) {
+        this.classLoaderRef = classLoader == null ? null : new WeakReference<ClassLoader>(classLoader);
+    }
+
+    /**
+     * Returns the ClassMetadata of a class. If the metadata isn't available yet, it is extracted from the bytecode of
+     * the class found by the ClassLoader of this MetadataRepository. If the class can't be found, a ClassMetadata
+     * without metadata is returned.
+     *
+     * @param className the internal name of the class.
+     * @return the ClassMetadata of the class.
+     */
+    public ClassMetadata getClassMetadata(String className) {
+        ClassMetadata metadata = classMetadataMap.get(className);
+        if (metadata != null) {
+            return metadata;
         }
 
-        String fileName = Type.getObjectType(className).getInternalName() + ".class";
-        InputStream is = classLoader.getResourceAsStream(fileName);
-        if (is == null) {
-            return;
+        return store(extract(className));
+    }
+
+    /**
+     * Returns the ClassMetadata of a class. If the metadata isn't available yet, it is extracted from the ClassNode,
+     * so the class doesn't need to be loaded and parsed again.
+     *
+     * @param classNode the ClassNode of the class.
+     * @return the ClassMetadata of the class.
+     */
+    public ClassMetadata getClassMetadata(ClassNode classNode) {
+        ClassMetadata metadata = classMetadataMap.get(classNode.name);
+        if (metadata != null) {
+            return metadata;
         }
 
-        ClassNode node = AsmUtils.loadAsClassNode(classLoader, Type.getObjectType(className).getInternalName());
-        MetadataExtractor extractor = new MetadataExtractor(node);
-        extractor.extract();
+        return store(new MetadataExtractor(classNode).extract());
     }
 
-    public boolean isAtomicMethod(ClassNode owner, MethodNode method) {
-        return isAtomicMethod(owner.name, method.name, method.desc);
+    private ClassMetadata store(ClassMetadata metadata) {
+        ClassMetadata found = classMetadataMap.putIfAbsent(metadata.getName(), metadata);
+        return found == null ? metadata : found;
     }
 
-    public boolean isAtomicMethod(String atomicClass, String name, String desc) {
-        ensureMetadataExtracted(atomicClass);
-        String key = "IsAtomicMethod#" + atomicClass + "#" + name + "#" + desc;
-        return getPrepareInfoAsBoolean(key);
+    private ClassMetadata extract(String className) {
+        if (logger.isLoggable(Level.FINER)) {
+            logger.finer(format("Extracting metadata from class: %s", className));
+        }
+
+        byte[] bytecode = readBytecode(className);
+        if (bytecode == null) {
+            return new ClassMetadata(className);
+        }
+
+        //a class that doesn't use the annotations has no metadata, so there is no need to parse it.
+        ConstantPoolScanner scanner = new ConstantPoolScanner(bytecode);
+        if (!scanner.usesAtomicAnnotations() || scanner.isInstrumented()) {
+            return new ClassMetadata(className);
+        }
+
+        ClassNode node = AsmUtils.loadAsClassNode(bytecode);
+        return new MetadataExtractor(node).extract();
     }
 
-    public AtomicMethodParams getAtomicMethodParams(ClassNode atomicClass, MethodNode method) {
-        String key = "AtomicMethodParams#" + atomicClass.name + "#" + method.name + "#" + method.desc;
-        return (AtomicMethodParams) infoMap.get(key);
+    private byte[] readBytecode(String className) {
+        String fileName = className + ".class";
+
+        InputStream is;
+        if (classLoaderRef == null) {
+            is = ClassLoader.getSystemResourceAsStream(fileName);
+        } else {
+            ClassLoader classLoader = classLoaderRef.get();
+            if (classLoader == null) {
+                return null;
+            }
+            is = classLoader.getResourceAsStream(fileName);
+        }
+
+        if (is == null) {
+            return null;
+        }
+
+        try {
+            return AsmUtils.readBytes(is);
+        } catch (IOException e) {
+            throw new RuntimeException("A problem ocurred while loading class: " + fileName, e);
+        }
     }
 
-    public void setAtomicMethodParams(ClassNode atomicClass, MethodNode method, AtomicMethodParams params) {
-        String key = "AtomicMethodParams#" + atomicClass.name + "#" + method.name + "#" + method.desc;
-        infoMap.put(key, params);
+    /**
+     * Makes sure that the metadata of a class is extracted.
+     *
+     * @param className the internal name of the class.
+     */
+    public void ensureMetadataExtracted(String className) {
+        getClassMetadata(className);
     }
 
-    public void setIsAtomicMethod(ClassNode atomicClass, MethodNode method, boolean isAtomicMethod) {
-        String key = "IsAtomicMethod#" + atomicClass.name + "#" + method.name + "#" + method.desc;
-        putBoolean(isAtomicMethod, key);
+    public boolean isLoaded(String className) {
+        return classMetadataMap.containsKey(className);
     }
 
-    private void putBoolean(boolean value, String key) {
-        if (value) {
-            infoMap.put(key, value);
-        }
+    public boolean isAtomicMethod(ClassNode owner, MethodNode method) {
+        return isAtomicMethod(owner.name, method.name, method.desc);
     }
 
-    public void setTranlocalName(ClassNode atomicObject, String tranlocalName) {
-        setTranlocalName(atomicObject.name, tranlocalName);
+    public boolean isAtomicMethod(String atomicClass, String name, String desc) {
+        return getClassMetadata(atomicClass).isAtomicMethod(name, desc);
     }
 
-    public void setTranlocalName(String atomicObjectName, String tranlocalName) {
-        infoMap.put("TranlocalName#" + atomicObjectName, tranlocalName);
+    public AtomicMethodParams getAtomicMethodParams(ClassNode atomicClass, MethodNode method) {
+        MethodMetadata methodMetadata = getClassMetadata(atomicClass.name).getMethodMetadata(method.name, method.desc);
+        return methodMetadata == null ? null : methodMetadata.getAtomicMethodParams();
     }
 
     public String getTranlocalName(ClassNode atomicObject) {
@@ -102,38 +186,19 @@ public final class MetadataRepository {
     }
 
     public String getTranlocalName(String atomicObjectName) {
-        ensureMetadataExtracted(atomicObjectName);
-        return (String) infoMap.get("TranlocalName#" + atomicObjectName);
+        return getClassMetadata(atomicObjectName).getTranlocalName();
     }
 
     public String getTranlocalSnapshotName(ClassNode atomicObject) {
         return getTranlocalSnapshotName(atomicObject.name);
     }
 
-    public void setTranlocalSnapshotName(ClassNode atomicObject, String tranlocalSnapshotName) {
-        setTranlocalSnapshotName(atomicObject.name, tranlocalSnapshotName);
-    }
-
-    public void setTranlocalSnapshotName(String atomicObject, String tranlocalSnapshotName) {
-        ensureMetadataExtracted(atomicObject);
-        infoMap.put("TranlocalSnapshotName#" + atomicObject, tranlocalSnapshotName);
-    }
-
     public String getTranlocalSnapshotName(String atomicObjectName) {
-        ensureMetadataExtracted(atomicObjectName);
-        String key = "TranlocalSnapshotName#" + atomicObjectName;
-        return (String) infoMap.get(key);
+        return getClassMetadata(atomicObjectName).getTranlocalSnapshotName();
     }
 
     public boolean isManagedInstanceField(String atomicObjectName, String fieldName) {
-        ensureMetadataExtracted(atomicObjectName);
-        String key = "IsManagedInstanceField#" + atomicObjectName + "." + fieldName;
-        return getPrepareInfoAsBoolean(key);
-    }
-
-    public void setIsManagedInstanceField(ClassNode atomicObject, FieldNode field, boolean managedField) {
-        String key = "IsManagedInstanceField#" + atomicObject.name + "." + field.name;
-        putBoolean(managedField, key);
+        return getClassMetadata(atomicObjectName).isManagedField(fieldName);
     }
 
     public boolean hasManagedInstanceFields(ClassNode atomicObject) {
@@ -141,40 +206,31 @@ public final class MetadataRepository {
     }
 
     public boolean isAtomicObject(String className) {
-        ensureMetadataExtracted(className);
-        String key = "IsAtomicObject#" + className;
-        return getPrepareInfoAsBoolean(key);
-    }
-
-    public void setIsAtomicObject(ClassNode classNode, boolean atomicObject) {
-        String key = "IsAtomicObject#" + classNode.name;
-        putBoolean(atomicObject, key);
+        return getClassMetadata(className).isAtomicObject();
     }
 
     public boolean isRealAtomicObject(String className) {
-        ensureMetadataExtracted(className);
-        String key = "IsRealAtomicObject#" + className;
-        return getPrepareInfoAsBoolean(key);
+        return getClassMetadata(className).isRealAtomicObject();
     }
 
-    public void setIsRealAtomicObject(ClassNode classNode, boolean hasManagedFields) {
-        String key = "IsRealAtomicObject#" + classNode.name;
-        putBoolean(hasManagedFields, key);
+    public boolean hasFieldGranularity(ClassNode atomicObject) {
+        return hasFieldGranularity(atomicObject.name);
     }
 
-    private boolean getPrepareInfoAsBoolean(String key) {
-        Object result = infoMap.get(key);
-        return result == null ? false : (Boolean) result;
+    public boolean hasFieldGranularity(String className) {
+        return getClassMetadata(className).hasFieldGranularity();
     }
 
     public List<FieldNode> getManagedInstanceFields(ClassNode classNode) {
-        if (!isRealAtomicObject(classNode.name)) {
-            return new LinkedList<FieldNode>();
-        }
+        ClassMetadata metadata = getClassMetadata(classNode.name);
 
         List<FieldNode> fields = new LinkedList<FieldNode>();
+        if (!metadata.isRealAtomicObject()) {
+            return fields;
+        }
+
         for (FieldNode fieldNode : (List<FieldNode>) classNode.fields) {
-            if (isManagedInstanceField(classNode.name, fieldNode.name)) {
+            if (metadata.isManagedField(fieldNode.name)) {
                 fields.add(fieldNode);
             }
         }
@@ -182,46 +238,22 @@ public final class MetadataRepository {
     }
 
     public List<MethodNode> getAtomicMethods(ClassNode classNode) {
+        ClassMetadata metadata = getClassMetadata(classNode.name);
+
         List<MethodNode> result = new LinkedList<MethodNode>();
         for (MethodNode methodNode : (List<MethodNode>) classNode.methods) {
-            if (isAtomicMethod(classNode.name, methodNode.name, methodNode.desc)) {
+            if (metadata.isAtomicMethod(methodNode.name, methodNode.desc)) {
                 result.add(methodNode);
             }
         }
         return result;
     }
 
-    public void setHasAtomicMethods(ClassNode classNode, boolean hasAtomicMethods) {
-        setHasAtomicMethods(classNode.name, hasAtomicMethods);
-    }
-
-    public void setHasAtomicMethods(String className, boolean hasAtomicMethods) {
-        ensureMetadataExtracted(className);
-        String key = "HasAtomicMethods#" + className;
-        putBoolean(hasAtomicMethods, key);
-    }
-
     public boolean hasAtomicMethods(ClassNode classNode) {
         return hasAtomicMethods(classNode.name);
     }
 
     public boolean hasAtomicMethods(String className) {
-        ensureMetadataExtracted(className);
-        String key = "HasAtomicMethods#" + className;
-        return getPrepareInfoAsBoolean(key);
-    }
-
-    public void signalLoaded(ClassNode classNode) {
-        String key = "Prepared#" + classNode.name;
-        putBoolean(true, key);
-    }
-
-    public boolean isLoaded(ClassNode classNode) {
-        return isLoaded(classNode.name);
-    }
-
-    public boolean isLoaded(String className) {
-        String key = "Prepared#" + className;
-        return getPrepareInfoAsBoolean(key);
+        return getClassMetadata(className).hasAtomicMethods();
     }
 }
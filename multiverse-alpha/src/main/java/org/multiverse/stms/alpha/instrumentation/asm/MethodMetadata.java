@@ -0,0 +1,49 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+/**
+ * The metadata of a method, see {@link ClassMetadata}.
+ * <p/>
+ * This class is immutable (the AtomicMethodParams should not be changed once the MethodMetadata is created).
+ *
+ * @author Peter Veentjer
+ */
+public final class MethodMetadata {
+
+    private final String name;
+    private final String desc;
+    private final AtomicMethodParams atomicMethodParams;
+
+    /**
+     * Creates a MethodMetadata.
+     *
+     * @param name               the name of the method.
+     * @param desc               the descriptor of the method.
+     * @param atomicMethodParams the parameters of the atomic method, or null if the method is not atomic.
+     */
+    public MethodMetadata(String name, String desc, AtomicMethodParams atomicMethodParams) {
+        this.name = name;
+        this.desc = desc;
+        this.atomicMethodParams = atomicMethodParams;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public boolean isAtomicMethod() {
+        return atomicMethodParams != null;
+    }
+
+    /**
+     * Returns the parameters of the atomic method.
+     *
+     * @return the parameters, or null if the method is not atomic.
+     */
+    public AtomicMethodParams getAtomicMethodParams() {
+        return atomicMethodParams;
+    }
+}
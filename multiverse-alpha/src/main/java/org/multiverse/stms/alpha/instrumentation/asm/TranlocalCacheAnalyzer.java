@@ -0,0 +1,425 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.isAbstract;
+import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.isNative;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.*;
+
+/**
+ * Analyzes the managed field access in the body of an atomic method, to find out where the tranlocal of an atomic
+ * object that already was loaded from the transaction, can be reused instead of being loaded again. Without reuse
+ * every field access is a load on the transaction (e.g. a lookup in the attached tranlocals of the update
+ * transaction), so a loop over 'this.size' or 'node.next' pays that lookup on every iteration.
+ * <p/>
+ * The tranlocal is cached in a local variable per (local variable containing the atomic object, atomic object class)
+ * combination. A cached tranlocal is only used when it provably belongs to the same atomic object:
+ * <ol>
+ * <li>the atomic object is read from a local variable right before the field access; so no jumps in between and the
+ * local variable is not written in between.</li>
+ * <li>on all paths to the field access, the tranlocal was cached by an earlier field access on the same local
+ * variable, and the local variable was not written after that. This is a forward dataflow analysis; an exception
+ * handler starts without cached tranlocals.</li>
+ * </ol>
+ * If the local variable is never written in the method (e.g. 'this' or an argument), the atomic object is the same for
+ * the complete method. In that case the cache variable is initialized to null at the start of the method, and a field
+ * access that can't prove that the tranlocal is cached, checks the cache variable for null and only loads the tranlocal
+ * if needed. So a loop over 'this.size' loads the tranlocal of 'this' once, instead of once per iteration.
+ * Only atomic methods are analyzed, because the transaction of an atomic method doesn't change while its body is
+ * executed (a retry executes the body again), so loading the same atomic object again would return the same tranlocal.
+ * Other methods can't make that assumption and load the tranlocal on every field access.
+ * <p/>
+ * The field access instructions are identified by their index: the n-th field instruction (of any kind) in the method.
+ * This matches the order in which the instructions are visited by the {@link AtomicObjectRemappingMethodAdapter}.
+ * <p/>
+ * An instance should not be reused.
+ *
+ * @author Peter Veentjer
+ */
+public final class TranlocalCacheAnalyzer implements Opcodes {
+
+    private final ClassNode classNode;
+    private final MethodNode method;
+    private final MetadataRepository metadataRepository;
+
+    private final Map<Integer, Integer> cacheVars = new HashMap<Integer, Integer>();
+    private final Set<Integer> cacheHits = new HashSet<Integer>();
+    private final List<Integer> lazyCacheVars = new LinkedList<Integer>();
+    private int maxLocals;
+
+    public TranlocalCacheAnalyzer(ClassNode classNode, MethodNode method, MetadataRepository metadataRepository) {
+        this.classNode = classNode;
+        this.method = method;
+        this.metadataRepository = metadataRepository;
+        this.maxLocals = method.maxLocals;
+    }
+
+    /**
+     * Returns the local variable that caches the tranlocal for a field instruction.
+     *
+     * @param fieldInsnIndex the index of the field instruction.
+     * @return the index of the local variable, or -1 if the tranlocal is not cached.
+     */
+    public int getCacheVar(int fieldInsnIndex) {
+        Integer var = cacheVars.get(fieldInsnIndex);
+        return var == null ? -1 : var;
+    }
+
+    /**
+     * Checks if the cache variable of a field instruction already contains the tranlocal, so it doesn't need to be
+     * loaded from the transaction. If false and the tranlocal is cached, the loaded tranlocal needs to be stored in the
+     * cache variable.
+     *
+     * @param fieldInsnIndex the index of the field instruction.
+     * @return true if the tranlocal can be read from the cache variable.
+     */
+    public boolean isCacheHit(int fieldInsnIndex) {
+        return cacheHits.contains(fieldInsnIndex);
+    }
+
+    /**
+     * Returns the cache variables that need to be initialized to null at the start of the method. The tranlocal in
+     * these variables is loaded by the first field access that finds the variable null.
+     *
+     * @return the lazy cache variables.
+     */
+    public List<Integer> getLazyCacheVars() {
+        return lazyCacheVars;
+    }
+
+    /**
+     * Checks if the cache variable of a field instruction is a lazy cache variable (see {@link #getLazyCacheVars()}).
+     *
+     * @param fieldInsnIndex the index of the field instruction.
+     * @return true if the cache variable is lazy.
+     */
+    public boolean isLazyCacheVar(int fieldInsnIndex) {
+        return lazyCacheVars.contains(getCacheVar(fieldInsnIndex));
+    }
+
+    /**
+     * Returns the maximum number of local variables of the method including the cache variables.
+     *
+     * @return the maximum number of local variables.
+     */
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    public void analyze() {
+        if (isAbstract(method) || isNative(method)) {
+            return;
+        }
+
+        if (!metadataRepository.isAtomicMethod(classNode, method)) {
+            return;
+        }
+
+        Frame[] frames;
+        try {
+            frames = new Analyzer(new SourceInterpreter()).analyze(classNode.name, method);
+        } catch (AnalyzerException e) {
+            //the method is transformed without caching, the verifier will complain about the problem if needed.
+            return;
+        }
+
+        AbstractInsnNode[] insns = method.instructions.toArray();
+
+        //determine the field access that could use a cached tranlocal, and the key of the cache.
+        int[] accessKeys = new int[insns.length];
+        Arrays.fill(accessKeys, -1);
+        List<Integer> keyVars = new ArrayList<Integer>();
+        Map<String, Integer> keys = new HashMap<String, Integer>();
+        for (int k = 0; k < insns.length; k++) {
+            if (!isManagedFieldAccess(insns[k]) || frames[k] == null) {
+                continue;
+            }
+
+            int var = findReceiverVar(frames, insns, k);
+            if (var == -1) {
+                continue;
+            }
+
+            String owner = ((FieldInsnNode) insns[k]).owner;
+            String key = var + "#" + owner;
+            Integer keyIndex = keys.get(key);
+            if (keyIndex == null) {
+                keyIndex = keyVars.size();
+                keys.put(key, keyIndex);
+                keyVars.add(var);
+            }
+            accessKeys[k] = keyIndex;
+        }
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        BitSet[] cachedBefore = computeCachedBefore(insns, accessKeys, keyVars);
+
+        //a key only gets a cache variable if the cached tranlocal is going to be used, otherwise storing the
+        //tranlocal is useless.
+        Map<Integer, Integer> keyCacheVars = new HashMap<Integer, Integer>();
+        for (int key = 0; key < keyVars.size(); key++) {
+            int var = keyVars.get(key);
+            boolean written = isWritten(insns, var);
+
+            int accessCount = 0;
+            boolean used = false;
+            for (int k = 0; k < insns.length; k++) {
+                if (accessKeys[k] != key) {
+                    continue;
+                }
+
+                accessCount++;
+                if (cachedBefore[k] != null && cachedBefore[k].get(key)) {
+                    used = true;
+                } else if (!written && isInLoop(insns, k)) {
+                    used = true;
+                }
+            }
+
+            if (!written && accessCount > 1) {
+                used = true;
+            }
+
+            if (used) {
+                keyCacheVars.put(key, maxLocals);
+                if (!written) {
+                    lazyCacheVars.add(maxLocals);
+                }
+                maxLocals++;
+            }
+        }
+
+        int fieldInsnIndex = 0;
+        for (int k = 0; k < insns.length; k++) {
+            if (!(insns[k] instanceof FieldInsnNode)) {
+                continue;
+            }
+
+            int key = accessKeys[k];
+            if (key != -1 && keyCacheVars.containsKey(key)) {
+                cacheVars.put(fieldInsnIndex, keyCacheVars.get(key));
+                if (cachedBefore[k] != null && cachedBefore[k].get(key)) {
+                    cacheHits.add(fieldInsnIndex);
+                }
+            }
+            fieldInsnIndex++;
+        }
+    }
+
+    private boolean isManagedFieldAccess(AbstractInsnNode insn) {
+        if (insn.getOpcode() != GETFIELD && insn.getOpcode() != PUTFIELD) {
+            return false;
+        }
+
+        FieldInsnNode fieldInsn = (FieldInsnNode) insn;
+        return metadataRepository.isManagedInstanceField(fieldInsn.owner, fieldInsn.name);
+    }
+
+    /**
+     * Finds the local variable the atomic object of a field access is read from. The value needs to be read from the
+     * local variable (optionally followed by a DUP) in the same straight line of code as the field access.
+     *
+     * @return the index of the local variable, or -1 if not found.
+     */
+    private int findReceiverVar(Frame[] frames, AbstractInsnNode[] insns, int accessIndex) {
+        Frame frame = frames[accessIndex];
+        int depth = insns[accessIndex].getOpcode() == GETFIELD ? 1 : 2;
+        SourceValue receiver = (SourceValue) frame.getStack(frame.getStackSize() - depth);
+
+        while (true) {
+            if (receiver.insns.size() != 1) {
+                return -1;
+            }
+
+            AbstractInsnNode source = (AbstractInsnNode) receiver.insns.iterator().next();
+            int sourceIndex = method.instructions.indexOf(source);
+            switch (source.getOpcode()) {
+                case DUP:
+                    Frame dupFrame = frames[sourceIndex];
+                    receiver = (SourceValue) dupFrame.getStack(dupFrame.getStackSize() - 1);
+                    break;
+                case ALOAD:
+                    int var = ((VarInsnNode) source).var;
+                    return isStraightLine(insns, sourceIndex, accessIndex, var) ? var : -1;
+                default:
+                    return -1;
+            }
+        }
+    }
+
+    /**
+     * Checks if the instructions between from and to (both exclusive) are always executed in order, and don't write
+     * the local variable.
+     */
+    private static boolean isStraightLine(AbstractInsnNode[] insns, int from, int to, int var) {
+        for (int k = from + 1; k < to; k++) {
+            AbstractInsnNode insn = insns[k];
+            if (insn instanceof JumpInsnNode
+                    || insn instanceof TableSwitchInsnNode
+                    || insn instanceof LookupSwitchInsnNode
+                    || isExit(insn)
+                    || writes(insn, var)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWritten(AbstractInsnNode[] insns, int var) {
+        for (AbstractInsnNode insn : insns) {
+            if (writes(insn, var)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an instruction can be executed again after it has been executed (ignoring exception handlers).
+     */
+    private boolean isInLoop(AbstractInsnNode[] insns, int index) {
+        boolean[] visited = new boolean[insns.length];
+        LinkedList<Integer> worklist = new LinkedList<Integer>(getSuccessors(insns, index));
+        while (!worklist.isEmpty()) {
+            int current = worklist.removeFirst();
+            if (current == index) {
+                return true;
+            }
+
+            if (!visited[current]) {
+                visited[current] = true;
+                worklist.addAll(getSuccessors(insns, current));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes for every instruction the keys of which the tranlocal is cached on all paths to that instruction. The
+     * result for unreachable instructions is null.
+     */
+    private BitSet[] computeCachedBefore(AbstractInsnNode[] insns, int[] accessKeys, List<Integer> keyVars) {
+        BitSet[] cachedBefore = new BitSet[insns.length];
+        boolean[] handlers = new boolean[insns.length];
+        LinkedList<Integer> worklist = new LinkedList<Integer>();
+
+        cachedBefore[0] = new BitSet();
+        worklist.add(0);
+        for (TryCatchBlockNode tryCatchBlock : (List<TryCatchBlockNode>) method.tryCatchBlocks) {
+            int handler = method.instructions.indexOf(tryCatchBlock.handler);
+            if (!handlers[handler]) {
+                handlers[handler] = true;
+                cachedBefore[handler] = new BitSet();
+                worklist.add(handler);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.removeFirst();
+            AbstractInsnNode insn = insns[index];
+
+            BitSet cachedAfter = (BitSet) cachedBefore[index].clone();
+            for (int key = 0; key < keyVars.size(); key++) {
+                if (writes(insn, keyVars.get(key))) {
+                    cachedAfter.clear(key);
+                }
+            }
+            if (accessKeys[index] != -1) {
+                cachedAfter.set(accessKeys[index]);
+            }
+
+            for (int successor : getSuccessors(insns, index)) {
+                if (handlers[successor]) {
+                    continue;
+                }
+
+                if (cachedBefore[successor] == null) {
+                    cachedBefore[successor] = (BitSet) cachedAfter.clone();
+                    worklist.add(successor);
+                } else {
+                    BitSet merged = (BitSet) cachedBefore[successor].clone();
+                    merged.and(cachedAfter);
+                    if (!merged.equals(cachedBefore[successor])) {
+                        cachedBefore[successor] = merged;
+                        worklist.add(successor);
+                    }
+                }
+            }
+        }
+
+        return cachedBefore;
+    }
+
+    private List<Integer> getSuccessors(AbstractInsnNode[] insns, int index) {
+        AbstractInsnNode insn = insns[index];
+        List<Integer> successors = new LinkedList<Integer>();
+
+        if (insn instanceof JumpInsnNode) {
+            successors.add(method.instructions.indexOf(((JumpInsnNode) insn).label));
+            if (insn.getOpcode() == GOTO) {
+                return successors;
+            }
+        } else if (insn instanceof TableSwitchInsnNode) {
+            TableSwitchInsnNode switchInsn = (TableSwitchInsnNode) insn;
+            successors.add(method.instructions.indexOf(switchInsn.dflt));
+            for (LabelNode label : (List<LabelNode>) switchInsn.labels) {
+                successors.add(method.instructions.indexOf(label));
+            }
+            return successors;
+        } else if (insn instanceof LookupSwitchInsnNode) {
+            LookupSwitchInsnNode switchInsn = (LookupSwitchInsnNode) insn;
+            successors.add(method.instructions.indexOf(switchInsn.dflt));
+            for (LabelNode label : (List<LabelNode>) switchInsn.labels) {
+                successors.add(method.instructions.indexOf(label));
+            }
+            return successors;
+        } else if (isExit(insn)) {
+            return successors;
+        }
+
+        if (index + 1 < insns.length) {
+            successors.add(index + 1);
+        }
+        return successors;
+    }
+
+    private static boolean isExit(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        return (opcode >= IRETURN && opcode <= RETURN) || opcode == ATHROW || opcode == RET;
+    }
+
+    /**
+     * Checks if an instruction writes the local variable (a long or double also writes the next local variable).
+     */
+    private static boolean writes(AbstractInsnNode insn, int var) {
+        if (insn instanceof IincInsnNode) {
+            return ((IincInsnNode) insn).var == var;
+        }
+
+        if (!(insn instanceof VarInsnNode)) {
+            return false;
+        }
+
+        VarInsnNode varInsn = (VarInsnNode) insn;
+        switch (insn.getOpcode()) {
+            case ISTORE:
+            case FSTORE:
+            case ASTORE:
+                return varInsn.var == var;
+            case LSTORE:
+            case DSTORE:
+                return varInsn.var == var || varInsn.var + 1 == var;
+            default:
+                return false;
+        }
+    }
+}
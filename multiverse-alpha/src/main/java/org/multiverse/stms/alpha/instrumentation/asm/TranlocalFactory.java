@@ -21,6 +21,10 @@ import java.util.List;
 /**
  * A factory responsible for creating the {@link AlphaTranlocal} class based on an {@link AlphaAtomicObject}.
  * <p/>
+ * If the atomicobject has field granularity (see {@link org.multiverse.api.annotations.AtomicObject#fieldGranularity()}),
+ * the tranlocal also contains the write version of every managed field, and is able to resolve a conflict with a
+ * concurrent commit that changed other fields (see {@link AlphaTranlocal#tryResolveConflict(AlphaTranlocal, long)}).
+ * <p/>
  * TranlocalClassNodeFactory should not be reused.
  *
  * @author Peter Veentjer
@@ -31,15 +35,17 @@ public final class TranlocalFactory implements Opcodes {
     private String tranlocalSnapshotName;
     private String tranlocalName;
     private MetadataRepository metadataService;
+    private boolean fieldGranularity;
 
-    public TranlocalFactory(ClassNode atomicObject) {
+    public TranlocalFactory(ClassNode atomicObject, MetadataRepository metadataService) {
         this.atomicObject = atomicObject;
-        this.metadataService = MetadataRepository.INSTANCE;
+        this.metadataService = metadataService;
     }
 
     public ClassNode create() {
         tranlocalName = metadataService.getTranlocalName(atomicObject);
         tranlocalSnapshotName = metadataService.getTranlocalSnapshotName(atomicObject);
+        fieldGranularity = metadataService.hasFieldGranularity(atomicObject);
 
         ClassNode result = new ClassNode();
         result.version = atomicObject.version;
@@ -57,8 +63,14 @@ public final class TranlocalFactory implements Opcodes {
         result.methods.add(createGetDirtinessStatusMethod());
         result.methods.add(createGetAtomicObjectMethod());
         result.methods.add(createTakeSnapshotMethod());
+        result.methods.add(createOpenForWriteMethod());
         result.methods.add(createInitialConstructor());
 
+        if (fieldGranularity) {
+            result.fields.addAll(createFieldWriteVersionFields());
+            result.methods.add(createTryResolveConflictMethod());
+        }
+
         return result;
     }
 
@@ -78,6 +90,21 @@ public final class TranlocalFactory implements Opcodes {
         return result;
     }
 
+    private List<FieldNode> createFieldWriteVersionFields() {
+        List<FieldNode> result = new LinkedList<FieldNode>();
+        for (FieldNode managedField : metadataService.getManagedInstanceFields(atomicObject)) {
+            result.add(new FieldNode(
+                    ACC_PUBLIC + ACC_SYNTHETIC,
+                    getWriteVersionFieldName(managedField),
+                    "J", null, null));
+        }
+        return result;
+    }
+
+    private static String getWriteVersionFieldName(FieldNode managedField) {
+        return "___writeVersion_" + managedField.name;
+    }
+
     private FieldNode createOriginField() {
         return new FieldNode(
                 ACC_PUBLIC + ACC_SYNTHETIC,
@@ -165,6 +192,50 @@ public final class TranlocalFactory implements Opcodes {
         m.visitVarInsn(LLOAD, 1);
         m.visitFieldInsn(PUTFIELD, tranlocalName, "___writeVersion", "J");
 
+        if (fieldGranularity) {
+            //a field that is changed gets the writeVersion, the other fields keep the write version of the origin. If
+            //the tranlocal is fresh, a field is changed if it doesn't contain the default value anymore, and an
+            //unchanged field keeps write version 0.
+            for (FieldNode managedField : metadataService.getManagedInstanceFields(atomicObject)) {
+                String writeVersionField = getWriteVersionFieldName(managedField);
+                Label fresh = new Label();
+                Label changed = new Label();
+                Label unchanged = new Label();
+                Label next = new Label();
+
+                m.visitVarInsn(ALOAD, 0);
+                m.visitFieldInsn(GETFIELD, tranlocalName, "___origin", internalFormToDescriptor(tranlocalName));
+                m.visitJumpInsn(IFNULL, fresh);
+
+                visitLoadOriginValue(m, managedField, false);
+                m.visitVarInsn(ALOAD, 0);
+                m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+                visitJumpIfEqual(m, managedField, unchanged);
+                m.visitJumpInsn(GOTO, changed);
+
+                m.visitLabel(fresh);
+                visitLoadOriginValue(m, managedField, true);
+                m.visitVarInsn(ALOAD, 0);
+                m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+                visitJumpIfEqual(m, managedField, next);
+
+                m.visitLabel(changed);
+                m.visitVarInsn(ALOAD, 0);
+                m.visitVarInsn(LLOAD, 1);
+                m.visitFieldInsn(PUTFIELD, tranlocalName, writeVersionField, "J");
+                m.visitJumpInsn(GOTO, next);
+
+                m.visitLabel(unchanged);
+                m.visitVarInsn(ALOAD, 0);
+                m.visitVarInsn(ALOAD, 0);
+                m.visitFieldInsn(GETFIELD, tranlocalName, "___origin", internalFormToDescriptor(tranlocalName));
+                m.visitFieldInsn(GETFIELD, tranlocalName, writeVersionField, "J");
+                m.visitFieldInsn(PUTFIELD, tranlocalName, writeVersionField, "J");
+
+                m.visitLabel(next);
+            }
+        }
+
         m.visitVarInsn(ALOAD, 0);
         m.visitInsn(ACONST_NULL);
         m.visitFieldInsn(PUTFIELD, tranlocalName, "___origin", internalFormToDescriptor(tranlocalName));
@@ -236,34 +307,7 @@ public final class TranlocalFactory implements Opcodes {
             m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
 
             failure = new Label();
-            switch (getType(managedField.desc).getSort()) {
-                case Type.BOOLEAN:
-                case Type.BYTE:
-                case Type.CHAR:
-                case Type.SHORT:
-                case Type.INT:
-                    m.visitJumpInsn(IF_ICMPEQ, failure);
-                    break;
-                case Type.FLOAT:
-                    m.visitInsn(FCMPL);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.LONG:
-                    m.visitInsn(LCMP);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.DOUBLE:
-                    m.visitInsn(DCMPL);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.OBJECT:
-                    //fall through
-                case Type.ARRAY:
-                    m.visitJumpInsn(IF_ACMPEQ, failure);
-                    break;
-                default:
-                    throw new RuntimeException("Unhandled type: " + managedField.desc);
-            }
+            visitJumpIfEqual(m, managedField, failure);
 
             m.visitFieldInsn(GETSTATIC,
                              getInternalName(DirtinessStatus.class),
@@ -284,6 +328,188 @@ public final class TranlocalFactory implements Opcodes {
         return m;
     }
 
+    /**
+     * Emits the instructions that compare the 2 values of the managedField on top of the stack, and jump to the label
+     * if they are equal.
+     */
+    private static void visitJumpIfEqual(MethodNode m, FieldNode managedField, Label label) {
+        switch (getType(managedField.desc).getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                m.visitJumpInsn(IF_ICMPEQ, label);
+                break;
+            case Type.FLOAT:
+                m.visitInsn(FCMPL);
+                m.visitJumpInsn(IFEQ, label);
+                break;
+            case Type.LONG:
+                m.visitInsn(LCMP);
+                m.visitJumpInsn(IFEQ, label);
+                break;
+            case Type.DOUBLE:
+                m.visitInsn(DCMPL);
+                m.visitJumpInsn(IFEQ, label);
+                break;
+            case Type.OBJECT:
+                //fall through
+            case Type.ARRAY:
+                m.visitJumpInsn(IF_ACMPEQ, label);
+                break;
+            default:
+                throw new RuntimeException("Unhandled type: " + managedField.desc);
+        }
+    }
+
+    /**
+     * Emits the instructions that push the value the managedField had when the tranlocal was opened for writing. If
+     * the tranlocal is fresh (so the atomicobject was not committed when it was loaded), this is the default value of
+     * the field.
+     */
+    private void visitLoadOriginValue(MethodNode m, FieldNode managedField, boolean fresh) {
+        if (!fresh) {
+            m.visitVarInsn(ALOAD, 0);
+            m.visitFieldInsn(GETFIELD, tranlocalName, "___origin", internalFormToDescriptor(tranlocalName));
+            m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+            return;
+        }
+
+        switch (getType(managedField.desc).getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                m.visitInsn(ICONST_0);
+                break;
+            case Type.FLOAT:
+                m.visitInsn(FCONST_0);
+                break;
+            case Type.LONG:
+                m.visitInsn(LCONST_0);
+                break;
+            case Type.DOUBLE:
+                m.visitInsn(DCONST_0);
+                break;
+            case Type.OBJECT:
+                //fall through
+            case Type.ARRAY:
+                m.visitInsn(ACONST_NULL);
+                break;
+            default:
+                throw new RuntimeException("Unhandled type: " + managedField.desc);
+        }
+    }
+
+    /**
+     * Creates the tryResolveConflict method. It is done in 2 passes: first it is checked that none of the changed
+     * fields has been written after the readVersion. If that is the case, the unchanged fields are copied from the
+     * most recently written tranlocal and it becomes the new origin.
+     * <p/>
+     * A fresh tranlocal (e.g. of an atomicobject without a constructor that writes a field, so it isn't committed
+     * before it is used) has no origin; the fields are compared with their default values instead. So the code for
+     * the 2 passes is generated twice: once for a fresh and once for a normal tranlocal.
+     * <p/>
+     * Local variables: 0=this, 1=mostRecentlyWritten, 2/3=readVersion, 4=mostRecentlyWritten casted to the tranlocal.
+     */
+    private MethodNode createTryResolveConflictMethod() {
+        MethodNode m = new MethodNode(
+                ACC_PUBLIC + ACC_SYNTHETIC,
+                "tryResolveConflict",
+                format("(%sJ)Z", getDescriptor(AlphaTranlocal.class)),
+                null,
+                new String[]{});
+
+        Label notFresh = new Label();
+        m.visitVarInsn(ALOAD, 0);
+        m.visitFieldInsn(GETFIELD, tranlocalName, "___origin", internalFormToDescriptor(tranlocalName));
+        m.visitJumpInsn(IFNONNULL, notFresh);
+        visitTryResolveConflict(m, true);
+
+        m.visitLabel(notFresh);
+        visitTryResolveConflict(m, false);
+
+        m.visitMaxs(0, 0);//value's don't matter, will be reculculated, but call is needed
+        m.visitEnd();
+        return m;
+    }
+
+    private void visitTryResolveConflict(MethodNode m, boolean fresh) {
+        String originDesc = internalFormToDescriptor(tranlocalName);
+        List<FieldNode> managedFields = metadataService.getManagedInstanceFields(atomicObject);
+
+        m.visitVarInsn(ALOAD, 1);
+        m.visitTypeInsn(CHECKCAST, tranlocalName);
+        m.visitVarInsn(ASTORE, 4);
+
+        //first pass: check the changed fields
+        for (FieldNode managedField : managedFields) {
+            Label next = new Label();
+
+            visitLoadOriginValue(m, managedField, fresh);
+            m.visitVarInsn(ALOAD, 0);
+            m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+            visitJumpIfEqual(m, managedField, next);
+
+            m.visitVarInsn(ALOAD, 4);
+            m.visitFieldInsn(GETFIELD, tranlocalName, getWriteVersionFieldName(managedField), "J");
+            m.visitVarInsn(LLOAD, 2);
+            m.visitInsn(LCMP);
+            m.visitJumpInsn(IFLE, next);
+            m.visitInsn(ICONST_0);
+            m.visitInsn(IRETURN);
+
+            m.visitLabel(next);
+        }
+
+        //second pass: copy the unchanged fields
+        for (FieldNode managedField : managedFields) {
+            Label next = new Label();
+
+            visitLoadOriginValue(m, managedField, fresh);
+            m.visitVarInsn(ALOAD, 0);
+            m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+            Label unchanged = new Label();
+            visitJumpIfEqual(m, managedField, unchanged);
+            m.visitJumpInsn(GOTO, next);
+
+            m.visitLabel(unchanged);
+            m.visitVarInsn(ALOAD, 0);
+            m.visitVarInsn(ALOAD, 4);
+            m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
+            m.visitFieldInsn(PUTFIELD, tranlocalName, managedField.name, managedField.desc);
+
+            m.visitLabel(next);
+        }
+
+        m.visitVarInsn(ALOAD, 0);
+        m.visitVarInsn(ALOAD, 4);
+        m.visitFieldInsn(PUTFIELD, tranlocalName, "___origin", originDesc);
+        m.visitInsn(ICONST_1);
+        m.visitInsn(IRETURN);
+    }
+
+    private MethodNode createOpenForWriteMethod() {
+        MethodNode m = new MethodNode(
+                ACC_PUBLIC + ACC_SYNTHETIC,
+                "openForWrite",
+                format("()%s", getDescriptor(AlphaTranlocal.class)),
+                null,
+                new String[]{});
+
+        m.visitTypeInsn(NEW, tranlocalName);
+        m.visitInsn(DUP);
+        m.visitVarInsn(ALOAD, 0);
+        String constructorDesc = format("(%s)V", internalFormToDescriptor(tranlocalName));
+        m.visitMethodInsn(INVOKESPECIAL, tranlocalName, "<init>", constructorDesc);
+        m.visitInsn(ARETURN);
+        m.visitMaxs(0, 0);//value's don't matter, will be reculculated, but call is needed
+        m.visitEnd();
+        return m;
+    }
+
     private MethodNode createTakeSnapshotMethod() {
         MethodNode m = new MethodNode(
                 ACC_PUBLIC + ACC_SYNTHETIC,
@@ -28,9 +28,9 @@ public class TranlocalSnapshotFactory implements Opcodes {
     private String tranlocalSnapshotName;
     private MetadataRepository metadataService;
 
-    public TranlocalSnapshotFactory(ClassNode original) {
+    public TranlocalSnapshotFactory(ClassNode original, MetadataRepository metadataService) {
         this.original = original;
-        this.metadataService = MetadataRepository.INSTANCE;
+        this.metadataService = metadataService;
         this.tranlocalName = metadataService.getTranlocalName(original);
         this.tranlocalSnapshotName = metadataService.getTranlocalSnapshotName(original);
     }
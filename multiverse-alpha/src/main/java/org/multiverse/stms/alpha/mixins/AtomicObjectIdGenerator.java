@@ -0,0 +1,54 @@
+package org.multiverse.stms.alpha.mixins;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ids of the atomicobjects (see {@link org.multiverse.stms.alpha.AlphaAtomicObject#___getId()}).
+ * <p/>
+ * To prevent contention on a single counter, every thread claims a block of ids at once and hands them out
+ * itself. So ids are unique, but not ordered by the moment they are assigned.
+ * <p/>
+ * This class is used by the {@link FastAtomicObjectMixin}, and because the methods of the mixin are copied into the
+ * instrumented atomicobjects, it needs to be public. It can't be part of the mixin itself, because the static fields
+ * of the mixin are copied into every instrumented class.
+ *
+ * @author Peter Veentjer
+ */
+public final class AtomicObjectIdGenerator {
+
+    /**
+     * The number of ids a thread claims at once.
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    private static final AtomicLong nextBlock = new AtomicLong();
+
+    //the element at index 0 contains the next id of the thread, the element at index 1 the end of the block.
+    private static final ThreadLocal<long[]> threadBlock = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    /**
+     * Returns a new id.
+     *
+     * @return the new id, always larger than 0.
+     */
+    public static long nextId() {
+        long[] block = threadBlock.get();
+        if (block[0] == block[1]) {
+            long begin = nextBlock.getAndIncrement() * BLOCK_SIZE + 1;
+            block[0] = begin;
+            block[1] = begin + BLOCK_SIZE;
+        }
+
+        long id = block[0];
+        block[0] = id + 1;
+        return id;
+    }
+
+    private AtomicObjectIdGenerator() {
+    }
+}
@@ -12,6 +12,7 @@ import org.multiverse.utils.Listeners;
 import org.multiverse.utils.latches.Latch;
 
 import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -34,6 +35,10 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
     private final static AtomicReferenceFieldUpdater<FastAtomicObjectMixin, Listeners> ___LISTENERS_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(FastAtomicObjectMixin.class, Listeners.class, "___listeners");
 
+    private final static AtomicLongFieldUpdater<FastAtomicObjectMixin> ___ID_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(FastAtomicObjectMixin.class, "___id");
+
+    private volatile long ___id;
     private volatile Transaction ___lockOwner;
     private volatile AlphaTranlocal ___tranlocal;
     private volatile Listeners ___listeners;
@@ -45,8 +50,18 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
 
     @Override
     public final AlphaTranlocal ___load(long readVersion) {
-        if (___LOCKOWNER_UPDATER.get(this) != null) {
-            throw LoadLockedException.INSTANCE;
+        //the lock only is hold while a transaction commits. If the commit is published, the tranlocal can be
+        //determined without waiting, otherwise the lock could be released very soon.
+        Transaction initialLockOwner = ___LOCKOWNER_UPDATER.get(this);
+        if (initialLockOwner != null) {
+            AlphaTranlocal published = LockedLoadHelper.tryLoad(this, initialLockOwner, readVersion);
+            if (published != null) {
+                return published;
+            }
+
+            if (!LockSpinner.awaitUnlocked(this)) {
+                throw LoadLockedException.INSTANCE;
+            }
         }
 
         AlphaTranlocal tranlocalTime1 = ___TRANLOCAL_UPDATER.get(this);
@@ -73,22 +88,24 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
             //we are lucky, the tranlocal is exactly the one we are looking for.
             return tranlocalTime1;
         } else if (tranlocalTime1.___writeVersion > readVersion) {
-            //the current tranlocal it too new to return, so we fail. In the future this would
-            //be the location to search for tranlocal with the correct version.
-            if (LoadTooOldVersionException.reuse) {
-                throw LoadTooOldVersionException.INSTANCE;
-            } else {
-                String msg = format("Can't load version '%s' for atomicobject '%s', the oldest version found is '%s'",
-                                    readVersion, toAtomicObjectString(this), tranlocalTime1.___writeVersion);
-                throw new LoadTooOldVersionException(msg);
-            }
+            //the current tranlocal it too new to return, so lets search the version history
+            //for the tranlocal that was current at the readVersion.
+            return ___loadHistorical(tranlocalTime1, readVersion);
         } else {
             Transaction lockOwner = ___LOCKOWNER_UPDATER.get(this);
 
+            //As long as the lock is there, we are not sure if the version read is the version that can be
+            //returned (perhaps there are pending writes). So we wait a little for the lock to be released, once
+            //the lock is released, the tranlocal read below shows if there has been a write. If the lock owner has
+            //published its commit, we don't need to wait.
             if (lockOwner != null) {
-                //this would be the location for spinning. As long as the lock is there,
-                //we are not sure if the version read is the version that can be returned (perhaps there are
-                //pending writes).
+                AlphaTranlocal published = LockedLoadHelper.tryLoad(this, lockOwner, readVersion);
+                if (published != null) {
+                    return published;
+                }
+            }
+
+            if (lockOwner != null && !LockSpinner.awaitUnlocked(this)) {
                 if (LoadLockedException.reuse) {
                     throw LoadLockedException.INSTANCE;
                 } else {
@@ -107,8 +124,13 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                 }
 
                 //we were not able to find the version we are looking for. It could be tranlocalT1
-                //or tranlocalT2 but it could also have been a write we didn't notice. So lets
-                //fails to indicate that we didn't find it.
+                //or tranlocalT2 but it could also have been a write we didn't notice. If tranlocalT2
+                //is newer than the readVersion, the version history is able to tell which one is
+                //correct. Otherwise we fail to indicate that we didn't find it.
+                if (tranlocalTime2.___writeVersion > readVersion) {
+                    return ___loadHistorical(tranlocalTime2, readVersion);
+                }
+
                 if (LoadTooOldVersionException.reuse) {
                     throw LoadTooOldVersionException.INSTANCE;
                 } else {
@@ -124,6 +146,44 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         }
     }
 
+    /**
+     * Searches the version history of a committed tranlocal that is too new for the readVersion. The history is a
+     * chain of consecutive commits on this atomicobject, so the first tranlocal found with a version equal or smaller
+     * than the readVersion, is the one that was current at the readVersion.
+     *
+     * @param tooNew      the committed tranlocal that is too new.
+     * @param readVersion the version of the tranlocal to look for.
+     * @return the found tranlocal.
+     * @throws LoadTooOldVersionException if the version history doesn't go back far enough.
+     */
+    private AlphaTranlocal ___loadHistorical(AlphaTranlocal tooNew, long readVersion) {
+        AlphaTranlocal historical = tooNew.findHistoricalVersion(readVersion);
+        if (historical != null) {
+            return historical;
+        }
+
+        if (LoadTooOldVersionException.reuse) {
+            throw LoadTooOldVersionException.INSTANCE;
+        } else {
+            String msg = format("Can't load version '%s' for atomicobject '%s', the oldest version found is '%s'",
+                                readVersion, toAtomicObjectString(this), tooNew.___writeVersion);
+            throw new LoadTooOldVersionException(msg);
+        }
+    }
+
+    @Override
+    public final long ___getId() {
+        long id = ___ID_UPDATER.get(this);
+        if (id != 0) {
+            return id;
+        }
+
+        //the id is assigned lazily, the constructor of the mixin is not copied. If another thread assigned an id
+        //concurrently, the generated id is lost; that is no problem, ids only need to be unique.
+        ___ID_UPDATER.compareAndSet(this, 0, AtomicObjectIdGenerator.nextId());
+        return ___ID_UPDATER.get(this);
+    }
+
     @Override
     public final Transaction ___getLockOwner() {
         return ___lockOwner;
@@ -131,19 +191,25 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
 
     @Override
     public final boolean ___tryLock(Transaction lockOwner) {
+        //TTAS (Test-Test-And-Swap, see 'the art of multiprocessor programming' chapter 7.2): the cas is only
+        //done if the lock looks free, so a failing lock attempt doesn't invalidate the cacheline.
+        if (___LOCKOWNER_UPDATER.get(this) != null) {
+            return false;
+        }
+
         return ___LOCKOWNER_UPDATER.compareAndSet(this, null, lockOwner);
     }
 
     @Override
     public final void ___releaseLock(Transaction expectedLockOwner) {
-        //todo: here is where contention could happen.. 
-        //idea for performance improvement based on 'the art of multiprocessor programming
-        //chapter 7.2 change to: TTAS (Test-Test-And-Swap) 
-        ___LOCKOWNER_UPDATER.compareAndSet(this, expectedLockOwner, null);
+        //TTAS: only cas if the lock is owned by the expectedLockOwner.
+        if (___LOCKOWNER_UPDATER.get(this) == expectedLockOwner) {
+            ___LOCKOWNER_UPDATER.compareAndSet(this, expectedLockOwner, null);
+        }
     }
 
     @Override
-    public final Listeners ___storeAndReleaseLock(AlphaTranlocal tranlocal, long writeVersion) {
+    public final Listeners ___storeAndReleaseLock(AlphaTranlocal tranlocal, long writeVersion, int maxHistoryDepth) {
         assert tranlocal != null;
 
         if (SANITY_CHECKS_ENABLED) {
@@ -153,7 +219,8 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                 throw new PanicError(msg);
             }
 
-            if (tranlocal.___writeVersion >= writeVersion) {
+            //a tranlocal of a published commit already is prepared with the writeVersion.
+            if (tranlocal.___writeVersion != 0 && tranlocal.___writeVersion != writeVersion) {
                 String msg = format("The tranlocal of atomicObject '%s' has version '%s'  " +
                         "and and is too large for writeVersion '%s'",
                                     toAtomicObjectString(this), tranlocal.getAtomicObject(), writeVersion);
@@ -175,12 +242,29 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         //it also is very important that the commit and version are set, before the tranlocal write.
         //the tranlocal write also creates a happens before relation between the changes made on the
         //tranlocal, and the read on the tranlocal.
-        tranlocal.prepareForCommit(writeVersion);
+        //a tranlocal of a published commit already is prepared (see AlphaCommitPublisher) and should not be
+        //prepared again.
+        if (tranlocal.___writeVersion != writeVersion) {
+            tranlocal.prepareForCommit(writeVersion);
+        }
+
+        //the previous committed tranlocal becomes part of the version history, so that transactions with
+        //an older readVersion still are able to find their version. The history is trimmed before the
+        //publication, so readers never see more than maxHistoryDepth older versions.
+        if (maxHistoryDepth > 0) {
+            tranlocal.___previous = ___TRANLOCAL_UPDATER.get(this);
+            tranlocal.trimHistory(maxHistoryDepth);
+        }
 
         ___TRANLOCAL_UPDATER.set(this, tranlocal);
 
         //it is important that the listeners are removed after the tranlocal write en before the lockrelease.
-        Listeners listeners = ___LISTENERS_UPDATER.getAndSet(this, null);
+        //The getAndSet only is done if there are listeners: a listener that is registered after the read below,
+        //sees the tranlocal write (both are volatile) and opens itself (see ___registerRetryListener). This saves
+        //an atomic operation per store, in the common case that there are no listeners.
+        Listeners listeners = ___LISTENERS_UPDATER.get(this) == null
+                ? null
+                : ___LISTENERS_UPDATER.getAndSet(this, null);
 
         //release the listeners
         //___LOCKOWNER_UPDATER.set(this, null);
@@ -188,6 +272,24 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         return listeners;
     }
 
+    @Override
+    public final void ___deregisterRetryListener(Latch listener) {
+        Listeners oldListeners;
+        Listeners newListeners;
+        do {
+            oldListeners = ___LISTENERS_UPDATER.get(this);
+            if (oldListeners == null) {
+                return;
+            }
+
+            newListeners = oldListeners.remove(listener);
+            if (newListeners == oldListeners) {
+                //the listener is not registered (anymore), e.g. because a write already removed it.
+                return;
+            }
+        } while (!___LISTENERS_UPDATER.compareAndSet(this, oldListeners, newListeners));
+    }
+
     @Override
     public final boolean ___registerRetryListener(Latch listener, long minimumWakeupVersion) {
         AlphaTranlocal tranlocalT1 = ___TRANLOCAL_UPDATER.get(this);
@@ -0,0 +1,94 @@
+package org.multiverse.stms.alpha.mixins;
+
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.System.getProperty;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Responsible for waiting a short while until the lock of an {@link AlphaAtomicObject} is released. The lock of an
+ * atomicobject only is held while a transaction commits, and that normally is very short. So instead of failing
+ * immediately (and aborting the transaction that wanted to load the atomicobject), it often is better to wait a
+ * little.
+ * <p/>
+ * The waiting is done in 2 phases:
+ * <ol>
+ * <li>spinning: the lock owner is read (not cas-ed) till it is released (test-test-and-set). The spin limit adapts:
+ * if the spinning was successful it grows, if it failed, it shrinks. So if commits take long, not too much cpu is
+ * wasted on spinning. The spin limit is kept per thread, so it adapts to the contention a thread sees and threads
+ * don't overwrite each other's limit.</li>
+ * <li>parking: the thread is parked with an exponential backoff. If the lock still isn't released after
+ * {@link #MAX_PARK_COUNT} parks, the wait fails.</li>
+ * </ol>
+ * The waiting is bounded, so a deadlock is not possible. The limits can be configured using system properties (see
+ * {@link org.multiverse.MultiverseConstants} for the same mechanism).
+ * <p/>
+ * This class is used by the {@link FastAtomicObjectMixin}, and because the methods of the mixin are copied into the
+ * instrumented atomicobjects, it needs to be public.
+ *
+ * @author Peter Veentjer
+ */
+public final class LockSpinner {
+
+    /**
+     * The maximum number of times the lock owner is read while spinning.
+     */
+    public static final int MAX_SPIN_COUNT =
+            parseInt(getProperty(LockSpinner.class.getName() + ".maxSpinCount", "128"));
+
+    /**
+     * The maximum number of times the thread is parked. The first park is 1 microsecond, and every next park the
+     * time is doubled.
+     */
+    public static final int MAX_PARK_COUNT =
+            parseInt(getProperty(LockSpinner.class.getName() + ".maxParkCount", "4"));
+
+    //the spin limit of the current thread. The ThreadLocal is only accessed when a lock is found, so the fast path
+    //(an unlocked atomicobject) doesn't pay for it.
+    private static final ThreadLocal<SpinLimit> spinLimits = new ThreadLocal<SpinLimit>() {
+        @Override
+        protected SpinLimit initialValue() {
+            return new SpinLimit();
+        }
+    };
+
+    /**
+     * Waits for the lock of the atomicobject to be released.
+     *
+     * @param atomicObject the AlphaAtomicObject to wait for.
+     * @return true if the lock was seen released, false if the wait failed.
+     */
+    public static boolean awaitUnlocked(AlphaAtomicObject atomicObject) {
+        SpinLimit spinLimit = spinLimits.get();
+        int limit = spinLimit.value;
+        for (int k = 0; k < limit; k++) {
+            if (atomicObject.___getLockOwner() == null) {
+                if (limit < MAX_SPIN_COUNT) {
+                    spinLimit.value = limit + 1;
+                }
+                return true;
+            }
+        }
+
+        if (limit > 1) {
+            spinLimit.value = limit / 2;
+        }
+
+        for (int parkCount = 0; parkCount < MAX_PARK_COUNT; parkCount++) {
+            LockSupport.parkNanos(1000L << parkCount);
+            if (atomicObject.___getLockOwner() == null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class SpinLimit {
+        private int value = MAX_SPIN_COUNT;
+    }
+
+    private LockSpinner() {
+    }
+}
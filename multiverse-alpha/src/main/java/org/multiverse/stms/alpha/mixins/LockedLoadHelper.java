@@ -0,0 +1,76 @@
+package org.multiverse.stms.alpha.mixins;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaCommitPublisher;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+
+/**
+ * Responsible for loading an {@link AlphaAtomicObject} that is locked by a transaction that publishes its commit (see
+ * {@link AlphaCommitPublisher}). If the commit is published, the tranlocal that belongs to a read version can be
+ * determined without waiting for the lock to be released.
+ * <p/>
+ * The published information is read without any locking and a transaction could be reused for a next commit, so
+ * after the tranlocal has been found, it is validated that the atomicobject still is locked by the same commit. This
+ * is possible because the lock is released before the commit is unpublished, and the write version of a next commit
+ * of the same transaction always is larger.
+ * <p/>
+ * This class is used by the {@link FastAtomicObjectMixin}, and because the methods of the mixin are copied into the
+ * instrumented atomicobjects, it needs to be public.
+ *
+ * @author Peter Veentjer
+ */
+public final class LockedLoadHelper {
+
+    /**
+     * Tries to load the tranlocal of a locked atomicobject for the readVersion.
+     *
+     * @param atomicObject the locked AlphaAtomicObject.
+     * @param lockOwner    the transaction that was seen as owner of the lock.
+     * @param readVersion  the version of the tranlocal to load.
+     * @return the found tranlocal, or null if it can't be determined without waiting for the lock to be released.
+     */
+    public static AlphaTranlocal tryLoad(AlphaAtomicObject atomicObject, Transaction lockOwner, long readVersion) {
+        if (!(lockOwner instanceof AlphaCommitPublisher)) {
+            return null;
+        }
+
+        AlphaCommitPublisher publisher = (AlphaCommitPublisher) lockOwner;
+        long writeVersion = publisher.getPublishedWriteVersion();
+        if (writeVersion == 0) {
+            //the lock owner has not published a commit (yet).
+            return null;
+        }
+
+        AlphaTranlocal found;
+        if (writeVersion <= readVersion) {
+            //the pending write is part of the snapshot of the reader, so the published tranlocal is needed.
+            found = publisher.getPublishedTranlocal(atomicObject);
+            if (found == null || found.___writeVersion != writeVersion) {
+                return null;
+            }
+        } else {
+            //the pending write is not part of the snapshot of the reader, so the committed tranlocal (or one from
+            //the version history if the pending write already has been stored) can be used.
+            AlphaTranlocal committed = atomicObject.___load();
+            if (committed == null) {
+                return null;
+            }
+
+            found = committed.findHistoricalVersion(readVersion);
+            if (found == null) {
+                return null;
+            }
+        }
+
+        //check that the same commit still holds the lock, so nothing else could have been written in the meantime.
+        if (atomicObject.___getLockOwner() != lockOwner || publisher.getPublishedWriteVersion() != writeVersion) {
+            return null;
+        }
+
+        return found;
+    }
+
+    private LockedLoadHelper() {
+    }
+}
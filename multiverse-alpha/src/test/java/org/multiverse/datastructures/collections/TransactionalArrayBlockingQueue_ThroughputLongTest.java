@@ -0,0 +1,111 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A throughput benchmark for the TransactionalArrayBlockingQueue. Producer threads put items on a shared queue and
+ * consumer threads take them; the number of items per second is printed for the TransactionalArrayBlockingQueue and
+ * the TransactionalLinkedList (where every put conflicts with every take).
+ *
+ * @author Peter Veentjer
+ */
+public class TransactionalArrayBlockingQueue_ThroughputLongTest {
+
+    private int producerCount = 2;
+    private int consumerCount = 2;
+    private int itemCountPerProducer = 500 * 1000;
+    private int capacity = 1000;
+
+    private AtomicLong sum;
+
+    @Before
+    public void setUp() {
+        setThreadLocalTransaction(null);
+        sum = new AtomicLong();
+    }
+
+    @Test
+    public void transactionalArrayBlockingQueue() {
+        test(new TransactionalArrayBlockingQueue<Long>(capacity), "TransactionalArrayBlockingQueue");
+    }
+
+    @Test
+    public void transactionalLinkedList() {
+        test(new TransactionalLinkedList<Long>(capacity), "TransactionalLinkedList");
+    }
+
+    private void test(BlockingQueue<Long> queue, String name) {
+        ProducerThread[] producers = new ProducerThread[producerCount];
+        for (int k = 0; k < producers.length; k++) {
+            producers[k] = new ProducerThread(k, queue);
+        }
+
+        ConsumerThread[] consumers = new ConsumerThread[consumerCount];
+        for (int k = 0; k < consumers.length; k++) {
+            consumers[k] = new ConsumerThread(k, queue);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(producers);
+        startAll(consumers);
+        joinAll(producers);
+        joinAll(consumers);
+        long periodNs = System.nanoTime() - startNs;
+
+        long itemCount = (long) itemCountPerProducer * producerCount;
+        assertEquals(producerCount * sumOfItems(), sum.get());
+        assertEquals(0, queue.size());
+
+        double itemsPerSecond = (itemCount * 1.0d * TimeUnit.SECONDS.toNanos(1)) / periodNs;
+        System.out.printf("%s: %s items/second\n", name, itemsPerSecond);
+    }
+
+    private long sumOfItems() {
+        return ((long) itemCountPerProducer * (itemCountPerProducer - 1)) / 2;
+    }
+
+    private class ProducerThread extends TestThread {
+
+        private final BlockingQueue<Long> queue;
+
+        ProducerThread(int id, BlockingQueue<Long> queue) {
+            super("ProducerThread-" + id);
+            this.queue = queue;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            for (long k = 0; k < itemCountPerProducer; k++) {
+                queue.put(k);
+            }
+        }
+    }
+
+    private class ConsumerThread extends TestThread {
+
+        private final BlockingQueue<Long> queue;
+
+        ConsumerThread(int id, BlockingQueue<Long> queue) {
+            super("ConsumerThread-" + id);
+            this.queue = queue;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            int itemCount = (itemCountPerProducer * producerCount) / consumerCount;
+            for (int k = 0; k < itemCount; k++) {
+                sum.addAndGet(queue.take());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TransactionalArrayBlockingQueue_putTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenCapacitySmallerThanOneIllegalArgumentExceptionIsThrown() {
+        try {
+            new TransactionalArrayBlockingQueue<String>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void whenNullItemNullPointerIsThrown() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+
+        long version = stm.getTime();
+        try {
+            queue.put(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertEquals(version, stm.getTime());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void whenSpaceAvailableItemIsAdded() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+
+        long version = stm.getTime();
+        queue.put("1");
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(1, queue.size());
+        assertEquals(9, queue.remainingCapacity());
+        assertEquals("1", queue.peek());
+    }
+
+    @Test
+    public void whenFullOfferFails() {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(2);
+        queue.offer("1");
+        queue.offer("2");
+
+        long version = stm.getTime();
+        assertFalse(queue.offer("3"));
+
+        assertEquals(version, stm.getTime());
+        assertEquals(Arrays.asList("1", "2"), new ArrayList<String>(queue));
+    }
+
+    @Test
+    public void itemsWrapAroundTheRingBuffer() {
+        TransactionalArrayBlockingQueue<Integer> queue = new TransactionalArrayBlockingQueue<Integer>(3);
+
+        for (int k = 0; k < 10; k++) {
+            assertTrue(queue.offer(k));
+            assertTrue(queue.offer(k + 100));
+            assertEquals(new Integer(k), queue.poll());
+            assertEquals(new Integer(k + 100), queue.poll());
+        }
+
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void putsAreRolledBack() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+        queue.put("1");
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        queue.put("2");
+        queue.put("3");
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(Arrays.asList("1"), new ArrayList<String>(queue));
+    }
+
+    @Test
+    public void concurrentPutsConflict() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        queue.put("1");
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        queue.put("2");
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertEquals(Arrays.asList("1"), new ArrayList<String>(queue));
+    }
+
+    @Test
+    public void clear() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+        queue.put("1");
+        queue.put("2");
+
+        queue.clear();
+
+        assertTrue(queue.isEmpty());
+        assertEquals(10, queue.remainingCapacity());
+        assertNull(queue.poll());
+    }
+}
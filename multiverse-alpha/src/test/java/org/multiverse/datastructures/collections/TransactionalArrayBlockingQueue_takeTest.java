@@ -0,0 +1,116 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TransactionalArrayBlockingQueue_takeTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenItemAvailableItIsRemoved() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+        queue.put("1");
+        queue.put("2");
+
+        long version = stm.getTime();
+        assertEquals("1", queue.take());
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(Arrays.asList("2"), new ArrayList<String>(queue));
+    }
+
+    @Test
+    public void whenEmptyPollReturnsNull() {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+
+        long version = stm.getTime();
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        assertEquals(version, stm.getTime());
+    }
+
+    @Test
+    public void whenEmptyTakeBlocksUntilItemIsPut() throws InterruptedException {
+        final TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+
+        TestThread t = new TestThread("TakeThread") {
+            @Override
+            public void doRun() throws Exception {
+                assertEquals("1", queue.take());
+            }
+        };
+        startAll(t);
+
+        sleepMs(300);
+        assertTrue(t.isAlive());
+
+        queue.put("1");
+        joinAll(t);
+
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void putAndTakeOnNonEmptyQueueDontConflict() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+        queue.put("1");
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        queue.put("2");
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        assertEquals("1", queue.take());
+
+        t1.commit();
+        t2.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(Arrays.asList("2"), new ArrayList<String>(queue));
+    }
+
+    @Test
+    public void concurrentTakesConflict() throws InterruptedException {
+        TransactionalArrayBlockingQueue<String> queue = new TransactionalArrayBlockingQueue<String>(10);
+        queue.put("1");
+        queue.put("2");
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        assertEquals("1", queue.take());
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        assertEquals("1", queue.take());
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertEquals(Arrays.asList("2"), new ArrayList<String>(queue));
+    }
+}
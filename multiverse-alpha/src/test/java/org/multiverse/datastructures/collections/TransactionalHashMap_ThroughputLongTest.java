@@ -0,0 +1,135 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.annotations.AtomicObject;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A throughput benchmark for the TransactionalHashMap. Every thread does random gets and puts on a shared map; the
+ * number of operations per second is printed for the TransactionalHashMap, the ConcurrentHashMap and a map that is
+ * stored as a whole in a single atomic object (the coarse alternative, where every put conflicts with every other put).
+ *
+ * @author Peter Veentjer
+ */
+public class TransactionalHashMap_ThroughputLongTest {
+
+    private int keyCount = 1000;
+    private int operationCountPerThread = 200 * 1000;
+    private int putPercentage = 20;
+
+    @Before
+    public void setUp() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void transactionalHashMap() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new TransactionalHashMap<Integer, Integer>(), "TransactionalHashMap", threadCount);
+        }
+    }
+
+    @Test
+    public void concurrentHashMap() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new ConcurrentHashMap<Integer, Integer>(), "ConcurrentHashMap", threadCount);
+        }
+    }
+
+    @Test
+    public void coarseMap() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new CoarseMap(), "CoarseMap", threadCount);
+        }
+    }
+
+    private void test(Map<Integer, Integer> map, String name, int threadCount) {
+        for (int k = 0; k < keyCount; k++) {
+            map.put(k, 0);
+        }
+
+        WorkerThread[] threads = new WorkerThread[threadCount];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new WorkerThread(k, map);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(threads);
+        joinAll(threads);
+        long periodNs = System.nanoTime() - startNs;
+
+        assertEquals(keyCount, map.size());
+
+        double operationsPerSecond =
+                (operationCountPerThread * threadCount * 1.0d * TimeUnit.SECONDS.toNanos(1)) / periodNs;
+        System.out.printf("%s with %s threads: %s operations/second\n", name, threadCount, operationsPerSecond);
+    }
+
+    private class WorkerThread extends TestThread {
+
+        private final Map<Integer, Integer> map;
+
+        WorkerThread(int id, Map<Integer, Integer> map) {
+            super("WorkerThread-" + id);
+            this.map = map;
+        }
+
+        @Override
+        public void doRun() {
+            Random random = new Random(getName().hashCode());
+            for (int k = 0; k < operationCountPerThread; k++) {
+                Integer key = random.nextInt(keyCount);
+                if (random.nextInt(100) < putPercentage) {
+                    map.put(key, k);
+                } else {
+                    map.get(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * A map where the content is stored in a single atomic object; a put replaces the complete map.
+     */
+    @AtomicObject
+    public static class CoarseMap extends AbstractMap<Integer, Integer> {
+
+        private Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+
+        @Override
+        public Integer get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Integer put(Integer key, Integer value) {
+            Map<Integer, Integer> copy = new HashMap<Integer, Integer>(map);
+            Integer old = copy.put(key, value);
+            map = copy;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, Integer>> entrySet() {
+            return map.entrySet();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class TransactionalHashMap_iteratorTest {
+
+    @Before
+    public void setUp() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void iterateOverEmptyMap() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void iterateOverAllEntries() {
+        TransactionalHashMap<Integer, Integer> map = new TransactionalHashMap<Integer, Integer>();
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        for (int k = 0; k < 1000; k++) {
+            map.put(k, k * 10);
+            expected.put(k, k * 10);
+        }
+
+        Map<Integer, Integer> found = new HashMap<Integer, Integer>();
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            found.put(entry.getKey(), entry.getValue());
+        }
+
+        assertEquals(expected, found);
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void iteratorIsNotLive() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        map.put("b", "2");
+
+        assertTrue(it.hasNext());
+        assertEquals("a", it.next().getKey());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        Iterator<String> it = map.keySet().iterator();
+        it.next();
+        it.remove();
+
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void containsValue() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        assertTrue(map.containsValue("1"));
+        assertFalse(map.containsValue("2"));
+        assertTrue(map.values().contains("1"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+
+public class TransactionalHashMap_putTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenNullKeyNullPointerIsThrown() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        long version = stm.getTime();
+        try {
+            map.put(null, "1");
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertEquals(version, stm.getTime());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void whenNullValueNullPointerIsThrown() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        try {
+            map.put("1", null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void whenKeyNotFoundItIsAdded() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        long version = stm.getTime();
+        assertNull(map.put("a", "1"));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals("1", map.get("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void whenKeyFoundValueIsReplaced() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        assertEquals("1", map.put("a", "2"));
+        assertEquals("2", map.get("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putIfAbsent() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        assertNull(map.putIfAbsent("a", "1"));
+        long version = stm.getTime();
+        assertEquals("1", map.putIfAbsent("a", "2"));
+
+        assertEquals(version, stm.getTime());
+        assertEquals("1", map.get("a"));
+    }
+
+    @Test
+    public void manyPutsCauseResize() {
+        TransactionalHashMap<Integer, Integer> map = new TransactionalHashMap<Integer, Integer>(1, 1);
+
+        for (int k = 0; k < 10000; k++) {
+            map.put(k, k);
+        }
+
+        assertEquals(10000, map.size());
+        for (int k = 0; k < 10000; k++) {
+            assertEquals(new Integer(k), map.get(k));
+        }
+    }
+
+    @Test
+    public void putsAreRolledBack() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        map.put("a", "2");
+        map.put("b", "2");
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals("1", map.get("a"));
+        assertNull(map.get("b"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putsOnDifferentBucketsDontConflict() {
+        TransactionalHashMap<Integer, String> map = new TransactionalHashMap<Integer, String>(1024, 1);
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        map.put(1, "1");
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        map.put(2, "2");
+
+        t1.commit();
+        t2.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals("1", map.get(1));
+        assertEquals("2", map.get(2));
+    }
+}
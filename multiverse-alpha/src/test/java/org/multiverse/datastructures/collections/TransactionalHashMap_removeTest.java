@@ -0,0 +1,108 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+public class TransactionalHashMap_removeTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenNullKeyNullPointerIsThrown() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        try {
+            map.remove(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void whenKeyNotFound() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        long version = stm.getTime();
+        assertNull(map.remove("b"));
+        assertEquals(version, stm.getTime());
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void whenKeyFound() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+        map.put("b", "2");
+
+        long version = stm.getTime();
+        assertEquals("1", map.remove("a"));
+        assertEquals(version + 1, stm.getTime());
+        assertNull(map.get("a"));
+        assertEquals("2", map.get("b"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removeWithValue() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+        map.put("a", "1");
+
+        assertFalse(map.remove("a", "2"));
+        assertEquals("1", map.get("a"));
+        assertTrue(map.remove("a", "1"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void replace() {
+        TransactionalHashMap<String, String> map = new TransactionalHashMap<String, String>();
+
+        assertNull(map.replace("a", "1"));
+        assertNull(map.get("a"));
+
+        map.put("a", "1");
+        assertEquals("1", map.replace("a", "2"));
+        assertFalse(map.replace("a", "1", "3"));
+        assertTrue(map.replace("a", "2", "3"));
+        assertEquals("3", map.get("a"));
+    }
+
+    @Test
+    public void removeFromSameBucket() {
+        TransactionalHashMap<Integer, Integer> map = new TransactionalHashMap<Integer, Integer>(1, 1);
+        for (int k = 0; k < 5; k++) {
+            map.put(k, k);
+        }
+
+        map.remove(2);
+
+        assertEquals(4, map.size());
+        assertNull(map.get(2));
+        for (int k : new int[]{0, 1, 3, 4}) {
+            assertEquals(new Integer(k), map.get(k));
+        }
+    }
+
+    @Test
+    public void clear() {
+        TransactionalHashMap<Integer, Integer> map = new TransactionalHashMap<Integer, Integer>();
+        for (int k = 0; k < 100; k++) {
+            map.put(k, k);
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+    }
+}
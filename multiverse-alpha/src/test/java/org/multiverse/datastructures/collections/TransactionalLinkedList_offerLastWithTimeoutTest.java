@@ -0,0 +1,83 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+public class TransactionalLinkedList_offerLastWithTimeoutTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenSpaceAvailableItemIsAdded() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>(2);
+        deque.add("1");
+
+        long version = stm.getTime();
+        boolean result = deque.offerLast("2", 1, TimeUnit.SECONDS);
+
+        assertTrue(result);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals("[1, 2]", deque.toString());
+    }
+
+    @Test
+    public void whenFullAndNoSpaceComesAvailableTimeout() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>(1);
+        deque.add("1");
+
+        long version = stm.getTime();
+        long startNs = System.nanoTime();
+        boolean result = deque.offerLast("2", 100, TimeUnit.MILLISECONDS);
+        long periodNs = System.nanoTime() - startNs;
+
+        assertFalse(result);
+        assertTrue(periodNs >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(version, stm.getTime());
+        assertEquals("[1]", deque.toString());
+    }
+
+    @Test
+    public void whenFullAndSpaceComesAvailableItemIsAdded() throws InterruptedException {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>(1);
+        deque.add("1");
+
+        TestThread offerThread = new TestThread("OfferThread") {
+            @Override
+            public void doRun() throws Exception {
+                assertTrue(deque.offerLast("2", 1, TimeUnit.MINUTES));
+            }
+        };
+
+        offerThread.start();
+        sleepMs(300);
+        assertTrue(offerThread.isAlive());
+
+        assertEquals("1", deque.pollFirst());
+        joinAll(offerThread);
+        assertEquals("[2]", deque.toString());
+    }
+
+    @Test
+    public void whenFullWithZeroTimeoutReturnsImmediately() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>(1);
+        deque.add("1");
+
+        assertFalse(deque.offer("2", 0, TimeUnit.SECONDS));
+        assertEquals("[1]", deque.toString());
+    }
+}
@@ -0,0 +1,188 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.templates.AtomicTemplate;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+public class TransactionalLinkedList_pollFirstWithTimeoutTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenItemAvailableItIsReturned() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+        deque.add("1");
+        deque.add("2");
+
+        long version = stm.getTime();
+        String result = deque.pollFirst(1, TimeUnit.SECONDS);
+
+        assertEquals("1", result);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals("[2]", deque.toString());
+    }
+
+    @Test
+    public void whenEmptyAndNoItemComesAvailableTimeout() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        long version = stm.getTime();
+        long startNs = System.nanoTime();
+        String result = deque.pollFirst(100, TimeUnit.MILLISECONDS);
+        long periodNs = System.nanoTime() - startNs;
+
+        assertNull(result);
+        assertTrue(periodNs >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(version, stm.getTime());
+        assertEquals("[]", deque.toString());
+    }
+
+    @Test
+    public void whenEmptyAndItemComesAvailableItIsReturned() throws InterruptedException {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        PollThread pollThread = new PollThread(deque);
+        pollThread.start();
+        sleepMs(300);
+        assertTrue(pollThread.isAlive());
+
+        deque.add("1");
+        joinAll(pollThread);
+        assertEquals("1", pollThread.result);
+        assertEquals("[]", deque.toString());
+    }
+
+    @Test
+    public void itemIsTakenAfterTimeouts() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        for (int k = 0; k < 100; k++) {
+            assertNull(deque.poll(1, TimeUnit.MILLISECONDS));
+        }
+
+        deque.add("1");
+        assertEquals("1", deque.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenInterruptedWhileWaitingInterruptedExceptionIsThrown() throws InterruptedException {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        TestThread pollThread = new TestThread("PollThread") {
+            @Override
+            public void doRun() throws Exception {
+                try {
+                    deque.pollFirst(1, TimeUnit.MINUTES);
+                    fail();
+                } catch (InterruptedException expected) {
+                }
+            }
+        };
+
+        pollThread.start();
+        sleepMs(300);
+        assertTrue(pollThread.isAlive());
+
+        pollThread.interrupt();
+        joinAll(pollThread);
+        assertEquals("[]", deque.toString());
+    }
+
+    @Test
+    public void whenAlreadyInterruptedInterruptedExceptionIsThrown() {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+        deque.add("1");
+
+        Thread.currentThread().interrupt();
+        try {
+            deque.pollFirst(1, TimeUnit.SECONDS);
+            fail();
+        } catch (InterruptedException expected) {
+        }
+
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals("[1]", deque.toString());
+    }
+
+    @Test
+    public void whenEmptyInsideTransactionItWaitsAndTimeoutIsNotKeptOnTransaction() {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        long startNs = System.nanoTime();
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                assertNull(deque.pollFirst(100, TimeUnit.MILLISECONDS));
+                assertEquals(Long.MAX_VALUE, t.getRemainingTimeoutNs());
+
+                deque.add("1");
+                assertEquals("1", deque.pollFirst(1, TimeUnit.MINUTES));
+                return null;
+            }
+        }.execute();
+        long periodNs = System.nanoTime() - startNs;
+
+        assertTrue(periodNs >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(periodNs < TimeUnit.SECONDS.toNanos(30));
+        assertEquals("[]", deque.toString());
+    }
+
+    @Test
+    public void whenEmptyInsideTransactionAndItemComesAvailableItIsReturned() {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        TestThread pollThread = new TestThread("PollThread") {
+            @Override
+            public void doRun() throws Exception {
+                new AtomicTemplate() {
+                    @Override
+                    public Object execute(Transaction t) throws Exception {
+                        assertEquals("1", deque.pollFirst(1, TimeUnit.MINUTES));
+                        assertEquals(Long.MAX_VALUE, t.getRemainingTimeoutNs());
+                        return null;
+                    }
+                }.execute();
+            }
+        };
+
+        pollThread.start();
+        sleepMs(300);
+        assertTrue(pollThread.isAlive());
+
+        deque.add("1");
+        joinAll(pollThread);
+        assertEquals("[]", deque.toString());
+    }
+
+    static class PollThread extends TestThread {
+
+        private final BlockingDeque<String> deque;
+        private volatile String result;
+
+        PollThread(BlockingDeque<String> deque) {
+            super("PollThread");
+            this.deque = deque;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            result = deque.pollFirst(1, TimeUnit.MINUTES);
+        }
+    }
+}
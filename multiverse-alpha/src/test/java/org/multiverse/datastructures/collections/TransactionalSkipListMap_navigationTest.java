@@ -0,0 +1,96 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+import java.util.NoSuchElementException;
+
+public class TransactionalSkipListMap_navigationTest {
+
+    private TransactionalSkipListMap<Integer, String> map;
+
+    @Before
+    public void setUp() {
+        setThreadLocalTransaction(null);
+        map = new TransactionalSkipListMap<Integer, String>();
+        for (int k = 10; k <= 50; k += 10) {
+            map.put(k, "" + k);
+        }
+    }
+
+    @Test
+    public void lower() {
+        assertNull(map.lowerKey(10));
+        assertEquals(new Integer(10), map.lowerKey(11));
+        assertEquals(new Integer(10), map.lowerKey(20));
+        assertEquals(new Integer(50), map.lowerKey(100));
+    }
+
+    @Test
+    public void floor() {
+        assertNull(map.floorKey(9));
+        assertEquals(new Integer(10), map.floorKey(10));
+        assertEquals(new Integer(10), map.floorKey(19));
+        assertEquals(new Integer(50), map.floorKey(100));
+    }
+
+    @Test
+    public void ceiling() {
+        assertEquals(new Integer(10), map.ceilingKey(0));
+        assertEquals(new Integer(20), map.ceilingKey(20));
+        assertEquals(new Integer(30), map.ceilingKey(21));
+        assertNull(map.ceilingKey(51));
+    }
+
+    @Test
+    public void higher() {
+        assertEquals(new Integer(10), map.higherKey(0));
+        assertEquals(new Integer(30), map.higherKey(20));
+        assertNull(map.higherKey(50));
+    }
+
+    @Test
+    public void entriesContainTheValue() {
+        assertEquals("20", map.ceilingEntry(15).getValue());
+        assertEquals("10", map.floorEntry(15).getValue());
+        assertEquals("10", map.firstEntry().getValue());
+        assertEquals("50", map.lastEntry().getValue());
+    }
+
+    @Test
+    public void firstAndLast() {
+        assertEquals(new Integer(10), map.firstKey());
+        assertEquals(new Integer(50), map.lastKey());
+    }
+
+    @Test
+    public void whenEmptyFirstAndLastKeyThrowNoSuchElementException() {
+        map.clear();
+
+        assertNull(map.firstEntry());
+        assertNull(map.lastEntry());
+
+        try {
+            map.firstKey();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+
+        try {
+            map.lastKey();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test
+    public void whenNullKeyNullPointerIsThrown() {
+        try {
+            map.ceilingKey(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TransactionalSkipListMap_putTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenNullKeyNullPointerIsThrown() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+
+        long version = stm.getTime();
+        try {
+            map.put(null, "1");
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertEquals(version, stm.getTime());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void whenNullValueNullPointerIsThrown() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+
+        try {
+            map.put("1", null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void whenKeyNotFoundItIsAdded() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+
+        long version = stm.getTime();
+        assertNull(map.put("a", "1"));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals("1", map.get("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void whenKeyFoundValueIsReplaced() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+        map.put("a", "1");
+
+        assertEquals("1", map.put("a", "2"));
+        assertEquals("2", map.get("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putIfAbsent() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+
+        assertNull(map.putIfAbsent("a", "1"));
+        long version = stm.getTime();
+        assertEquals("1", map.putIfAbsent("a", "2"));
+
+        assertEquals(version, stm.getTime());
+        assertEquals("1", map.get("a"));
+    }
+
+    @Test
+    public void keysAreSorted() {
+        TransactionalSkipListMap<Integer, Integer> map = new TransactionalSkipListMap<Integer, Integer>();
+
+        List<Integer> keys = new ArrayList<Integer>();
+        for (int k = 0; k < 1000; k++) {
+            keys.add(k);
+        }
+        Collections.shuffle(keys);
+
+        for (Integer key : keys) {
+            map.put(key, key);
+        }
+
+        assertEquals(1000, map.size());
+        int expected = 0;
+        for (Integer key : map.keySet()) {
+            assertEquals(expected, key.intValue());
+            expected++;
+        }
+    }
+
+    @Test
+    public void keysAreSortedWithComparator() {
+        TransactionalSkipListMap<Integer, Integer> map =
+                new TransactionalSkipListMap<Integer, Integer>(Collections.<Integer>reverseOrder());
+        map.put(1, 1);
+        map.put(3, 3);
+        map.put(2, 2);
+
+        assertEquals(Arrays.asList(3, 2, 1), new ArrayList<Integer>(map.keySet()));
+    }
+
+    @Test
+    public void putsAreRolledBack() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+        map.put("a", "1");
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        map.put("a", "2");
+        map.put("b", "2");
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals("1", map.get("a"));
+        assertNull(map.get("b"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putsWithTheSamePredecessorConflict() {
+        TransactionalSkipListMap<Integer, String> map = new TransactionalSkipListMap<Integer, String>();
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        map.put(1, "1");
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        map.put(2, "2");
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertEquals("1", map.get(1));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void putsInDisjointRangesDontConflict() {
+        TransactionalSkipListMap<Integer, String> map = new TransactionalSkipListMap<Integer, String>();
+        for (int k = 0; k < 100000; k += 10) {
+            map.put(k, "" + k);
+        }
+
+        //the nodes are placed on a random level, so two inserts far apart only conflict in the rare case they share
+        //a predecessor on one of the highest levels.
+        int conflicts = 0;
+        for (int k = 1; k < 50000; k += 500) {
+            Transaction t1 = stm.startUpdateTransaction(null);
+            setThreadLocalTransaction(t1);
+            map.put(k, "" + k);
+
+            Transaction t2 = stm.startUpdateTransaction(null);
+            setThreadLocalTransaction(t2);
+            map.put(k + 50000, "" + k);
+
+            t1.commit();
+            try {
+                t2.commit();
+            } catch (WriteConflictException e) {
+                conflicts++;
+            }
+            setThreadLocalTransaction(null);
+        }
+
+        assertTrue("too many conflicts: " + conflicts, conflicts < 10);
+    }
+}
@@ -0,0 +1,127 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TransactionalSkipListMap_removeTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void whenNullKeyNullPointerIsThrown() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+
+        try {
+            map.remove(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void whenKeyNotFoundNothingIsChanged() {
+        TransactionalSkipListMap<String, String> map = new TransactionalSkipListMap<String, String>();
+        map.put("a", "1");
+
+        long version = stm.getTime();
+        assertNull(map.remove("b"));
+
+        assertEquals(version, stm.getTime());
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void whenKeyFoundItIsRemoved() {
+        TransactionalSkipListMap<Integer, Integer> map = new TransactionalSkipListMap<Integer, Integer>();
+        for (int k = 0; k < 100; k++) {
+            map.put(k, k);
+        }
+
+        for (int k = 0; k < 100; k += 2) {
+            assertEquals(new Integer(k), map.remove(k));
+        }
+
+        assertEquals(50, map.size());
+        int expected = 1;
+        for (Integer key : map.keySet()) {
+            assertEquals(expected, key.intValue());
+            expected += 2;
+        }
+    }
+
+    @Test
+    public void pollFirstAndLast() {
+        TransactionalSkipListMap<Integer, String> map = new TransactionalSkipListMap<Integer, String>();
+        map.put(1, "1");
+        map.put(2, "2");
+        map.put(3, "3");
+
+        Map.Entry<Integer, String> first = map.pollFirstEntry();
+        assertEquals(new Integer(1), first.getKey());
+        assertEquals("1", first.getValue());
+
+        Map.Entry<Integer, String> last = map.pollLastEntry();
+        assertEquals(new Integer(3), last.getKey());
+        assertEquals("3", last.getValue());
+
+        assertEquals(Arrays.asList(2), new ArrayList<Integer>(map.keySet()));
+        map.pollFirstEntry();
+        assertNull(map.pollFirstEntry());
+        assertNull(map.pollLastEntry());
+    }
+
+    @Test
+    public void clear() {
+        TransactionalSkipListMap<Integer, Integer> map = new TransactionalSkipListMap<Integer, Integer>();
+        for (int k = 0; k < 100; k++) {
+            map.put(k, k);
+        }
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertNull(map.get(50));
+    }
+
+    @Test
+    public void removeConflictsWithInsertBehindRemovedNode() {
+        TransactionalSkipListMap<Integer, String> map = new TransactionalSkipListMap<Integer, String>();
+        map.put(10, "10");
+        map.put(20, "20");
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        map.remove(10);
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        map.put(15, "15");
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertEquals(Arrays.asList(20), new ArrayList<Integer>(map.keySet()));
+    }
+}
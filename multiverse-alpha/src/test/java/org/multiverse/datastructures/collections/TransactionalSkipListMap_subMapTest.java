@@ -0,0 +1,130 @@
+package org.multiverse.datastructures.collections;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableMap;
+
+public class TransactionalSkipListMap_subMapTest {
+
+    private Stm stm;
+    private TransactionalSkipListMap<Integer, String> map;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+        map = new TransactionalSkipListMap<Integer, String>();
+        for (int k = 10; k <= 50; k += 10) {
+            map.put(k, "" + k);
+        }
+    }
+
+    @Test
+    public void subMap() {
+        NavigableMap<Integer, String> sub = map.subMap(20, true, 40, false);
+
+        assertEquals(Arrays.asList(20, 30), new ArrayList<Integer>(sub.keySet()));
+        assertEquals(2, sub.size());
+        assertEquals(new Integer(20), sub.firstKey());
+        assertEquals(new Integer(30), sub.lastKey());
+        assertNull(sub.get(40));
+        assertNull(sub.higherKey(30));
+        assertEquals(new Integer(30), sub.lowerKey(100));
+    }
+
+    @Test
+    public void headAndTailMap() {
+        assertEquals(Arrays.asList(10, 20), new ArrayList<Integer>(map.headMap(30).keySet()));
+        assertEquals(Arrays.asList(10, 20, 30), new ArrayList<Integer>(map.headMap(30, true).keySet()));
+        assertEquals(Arrays.asList(30, 40, 50), new ArrayList<Integer>(map.tailMap(30).keySet()));
+        assertEquals(Arrays.asList(40, 50), new ArrayList<Integer>(map.tailMap(30, false).keySet()));
+    }
+
+    @Test
+    public void descendingMap() {
+        NavigableMap<Integer, String> descending = map.descendingMap();
+
+        assertEquals(Arrays.asList(50, 40, 30, 20, 10), new ArrayList<Integer>(descending.keySet()));
+        assertEquals(new Integer(50), descending.firstKey());
+        assertEquals(new Integer(30), descending.higherKey(40));
+        assertEquals(Arrays.asList(40, 30), new ArrayList<Integer>(descending.subMap(40, true, 20, false).keySet()));
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), new ArrayList<Integer>(descending.descendingKeySet()));
+    }
+
+    @Test
+    public void viewIsLive() {
+        NavigableMap<Integer, String> sub = map.subMap(20, true, 40, true);
+
+        map.put(25, "25");
+        map.put(60, "60");
+        sub.remove(30);
+
+        assertEquals(Arrays.asList(20, 25, 40), new ArrayList<Integer>(sub.keySet()));
+        assertNull(map.get(30));
+    }
+
+    @Test
+    public void whenPutOutOfRangeIllegalArgumentExceptionIsThrown() {
+        NavigableMap<Integer, String> sub = map.subMap(20, true, 40, true);
+
+        try {
+            sub.put(50, "50");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        try {
+            sub.subMap(10, true, 30, true);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void pollAndClearOnlyAffectTheRange() {
+        NavigableMap<Integer, String> sub = map.subMap(20, true, 40, true);
+
+        assertEquals(new Integer(20), sub.pollFirstEntry().getKey());
+        assertEquals(new Integer(40), sub.pollLastEntry().getKey());
+        sub.clear();
+
+        assertTrue(sub.isEmpty());
+        assertEquals(Arrays.asList(10, 50), new ArrayList<Integer>(map.keySet()));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        Iterator<Integer> it = map.subMap(20, true, 40, true).keySet().iterator();
+        it.next();
+        it.remove();
+
+        assertEquals(Arrays.asList(10, 30, 40, 50), new ArrayList<Integer>(map.keySet()));
+    }
+
+    @Test
+    public void rangeScanInReadonlyTransaction() {
+        long version = stm.getTime();
+
+        Transaction t = stm.startReadOnlyTransaction(null);
+        setThreadLocalTransaction(t);
+        int count = 0;
+        for (String value : map.subMap(20, true, 40, true).values()) {
+            assertNotNull(value);
+            count++;
+        }
+        t.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(3, count);
+        assertEquals(version, stm.getTime());
+    }
+}
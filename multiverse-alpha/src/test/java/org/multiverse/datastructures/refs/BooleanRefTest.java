@@ -0,0 +1,72 @@
+package org.multiverse.datastructures.refs;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+
+public class BooleanRefTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void test() {
+        BooleanRef b = new BooleanRef();
+        assertFalse(b.get());
+    }
+
+    @Test
+    public void set() {
+        BooleanRef b = new BooleanRef();
+
+        long version = stm.getTime();
+        assertFalse(b.set(true));
+
+        assertEquals(version + 1, stm.getTime());
+        assertTrue(b.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        BooleanRef b = new BooleanRef(false);
+
+        assertFalse(b.compareAndSet(true, false));
+        assertTrue(b.compareAndSet(false, true));
+        assertTrue(b.get());
+    }
+
+    @Test
+    public void awaitBlocksUntilValueIsSet() {
+        final BooleanRef b = new BooleanRef(false);
+
+        TestThread t = new TestThread("AwaitThread") {
+            @Override
+            public void doRun() throws Exception {
+                b.await(true);
+            }
+        };
+        startAll(t);
+
+        sleepMs(300);
+        assertTrue(t.isAlive());
+
+        b.set(true);
+        joinAll(t);
+    }
+}
@@ -0,0 +1,73 @@
+package org.multiverse.datastructures.refs;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+
+public class DoubleRefTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void test() {
+        DoubleRef d = new DoubleRef();
+        assertEquals(0.0d, d.get(), 0.0d);
+    }
+
+    @Test
+    public void setAndAdd() {
+        DoubleRef d = new DoubleRef(1.5d);
+
+        assertEquals(1.5d, d.set(2.5d), 0.0d);
+        assertEquals(3.0d, d.add(0.5d), 0.0d);
+        assertEquals(3.0d, d.get(), 0.0d);
+    }
+
+    @Test
+    public void compareAndSet() {
+        DoubleRef d = new DoubleRef(1.5d);
+
+        assertFalse(d.compareAndSet(1.0d, 2.0d));
+        assertTrue(d.compareAndSet(1.5d, 2.0d));
+        assertEquals(2.0d, d.get(), 0.0d);
+    }
+
+    @Test
+    public void compareAndSetWithNaN() {
+        DoubleRef d = new DoubleRef(Double.NaN);
+
+        assertTrue(d.compareAndSet(Double.NaN, 1.0d));
+        assertEquals(1.0d, d.get(), 0.0d);
+    }
+
+    @Test
+    public void changesAreRolledBack() {
+        DoubleRef d = new DoubleRef(1.5d);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        d.add(1.0d);
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(1.5d, d.get(), 0.0d);
+    }
+}
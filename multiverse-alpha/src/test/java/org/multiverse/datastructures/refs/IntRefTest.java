@@ -1,13 +1,28 @@
 package org.multiverse.datastructures.refs;
 
 import org.junit.After;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+import org.junit.Before;
 import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.RetryError;
 
 public class IntRefTest {
 
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
     @After
     public void tearDown() {
+        setThreadLocalTransaction(null);
         //assertNoInstrumentationProblems();
     }
 
@@ -23,4 +38,87 @@ public class IntRefTest {
         i.setValue(10);
         assertEquals(10, i.get());
     }
+
+    @Test
+    public void set() {
+        IntRef i = new IntRef(5);
+
+        long version = stm.getTime();
+        assertEquals(5, i.set(10));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10, i.get());
+    }
+
+    @Test
+    public void incDecAndAdd() {
+        IntRef i = new IntRef(10);
+
+        assertEquals(11, i.inc());
+        assertEquals(10, i.dec());
+        assertEquals(15, i.add(5));
+        assertEquals(12, i.add(-3));
+        assertEquals(12, i.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        IntRef i = new IntRef(10);
+
+        long version = stm.getTime();
+        assertFalse(i.compareAndSet(9, 20));
+        assertEquals(version, stm.getTime());
+        assertEquals(10, i.get());
+
+        assertTrue(i.compareAndSet(10, 20));
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(20, i.get());
+    }
+
+    @Test
+    public void whenPredicateHoldsGetOrAwaitReturnsValue() {
+        IntRef i = new IntRef(10);
+
+        assertEquals(10, i.getOrAwait(new IntPredicate() {
+            @Override
+            public boolean evaluate(int value) {
+                return value > 5;
+            }
+        }));
+    }
+
+    @Test
+    public void whenPredicateDoesntHoldGetOrAwaitRetries() {
+        IntRef i = new IntRef(10);
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        try {
+            i.getOrAwait(new IntPredicate() {
+                @Override
+                public boolean evaluate(int value) {
+                    return value > 20;
+                }
+            });
+            fail();
+        } catch (RetryError expected) {
+        }
+        t.abort();
+    }
+
+    @Test
+    public void changesAreRolledBack() {
+        IntRef i = new IntRef(10);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        i.inc();
+        i.add(10);
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(10, i.get());
+    }
 }
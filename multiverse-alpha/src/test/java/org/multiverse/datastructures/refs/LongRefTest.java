@@ -0,0 +1,117 @@
+package org.multiverse.datastructures.refs;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.RetryError;
+
+public class LongRefTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+        //assertNoInstrumentationProblems();
+    }
+
+    @Test
+    public void test() {
+        LongRef i = new LongRef();
+        assertEquals(0L, i.get());
+    }
+
+    @Test
+    public void set() {
+        LongRef i = new LongRef(5L);
+
+        long version = stm.getTime();
+        assertEquals(5L, i.set(10L));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10L, i.get());
+    }
+
+    @Test
+    public void incDecAndAdd() {
+        LongRef i = new LongRef(10L);
+
+        assertEquals(11L, i.inc());
+        assertEquals(10L, i.dec());
+        assertEquals(15L, i.add(5L));
+        assertEquals(12L, i.add(-3L));
+        assertEquals(12L, i.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        LongRef i = new LongRef(10L);
+
+        long version = stm.getTime();
+        assertFalse(i.compareAndSet(9L, 20L));
+        assertEquals(version, stm.getTime());
+        assertEquals(10L, i.get());
+
+        assertTrue(i.compareAndSet(10L, 20L));
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(20L, i.get());
+    }
+
+    @Test
+    public void whenPredicateHoldsGetOrAwaitReturnsValue() {
+        LongRef i = new LongRef(10L);
+
+        assertEquals(10L, i.getOrAwait(new LongPredicate() {
+            @Override
+            public boolean evaluate(long value) {
+                return value > 5;
+            }
+        }));
+    }
+
+    @Test
+    public void whenPredicateDoesntHoldGetOrAwaitRetries() {
+        LongRef i = new LongRef(10L);
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        try {
+            i.getOrAwait(new LongPredicate() {
+                @Override
+                public boolean evaluate(long value) {
+                    return value > 20;
+                }
+            });
+            fail();
+        } catch (RetryError expected) {
+        }
+        t.abort();
+    }
+
+    @Test
+    public void changesAreRolledBack() {
+        LongRef i = new LongRef(10L);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        i.inc();
+        i.add(10L);
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(10L, i.get());
+    }
+}
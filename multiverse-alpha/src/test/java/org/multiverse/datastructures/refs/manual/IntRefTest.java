@@ -0,0 +1,140 @@
+package org.multiverse.datastructures.refs.manual;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.datastructures.refs.IntPredicate;
+
+public class IntRefTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void createCommitted() {
+        Transaction t = stm.startUpdateTransaction("test");
+        long version = stm.getTime();
+        IntRef ref = IntRef.createCommittedRef(stm, 10);
+        t.abort();
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void set() {
+        IntRef ref = new IntRef(5);
+
+        long version = stm.getTime();
+        assertEquals(5, ref.set(10));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void incDecAndAdd() {
+        IntRef ref = new IntRef(10);
+
+        assertEquals(11, ref.inc());
+        assertEquals(10, ref.dec());
+        assertEquals(15, ref.add(5));
+        assertEquals(15, ref.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        IntRef ref = new IntRef(10);
+
+        assertFalse(ref.compareAndSet(9, 20));
+        assertTrue(ref.compareAndSet(10, 20));
+        assertEquals(20, ref.get());
+    }
+
+    @Test
+    public void operationsUseTheRunningTransaction() {
+        IntRef ref = new IntRef(10);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        ref.inc();
+        ref.add(5);
+        assertEquals(16, ref.get());
+        assertEquals(version, stm.getTime());
+        t.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(16, ref.get());
+    }
+
+    @Test
+    public void changesAreRolledBack() {
+        IntRef ref = new IntRef(10);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        ref.inc();
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void whenReadonlyTransactionWriteFails() {
+        IntRef ref = new IntRef(10);
+
+        Transaction t = stm.startReadOnlyTransaction(null);
+        try {
+            ref.inc(t);
+            fail();
+        } catch (ReadonlyException expected) {
+        }
+        t.abort();
+
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void whenPredicateDoesntHoldGetOrAwaitRetries() {
+        IntRef ref = new IntRef(10);
+        IntPredicate largerThan20 = new IntPredicate() {
+            @Override
+            public boolean evaluate(int value) {
+                return value > 20;
+            }
+        };
+
+        Transaction t = stm.startUpdateTransaction(null);
+        try {
+            ref.getOrAwait(t, largerThan20);
+            fail();
+        } catch (RetryError expected) {
+        }
+        t.abort();
+
+        ref.set(30);
+        assertEquals(30, ref.getOrAwait(largerThan20));
+    }
+}
@@ -0,0 +1,140 @@
+package org.multiverse.datastructures.refs.manual;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.datastructures.refs.LongPredicate;
+
+public class LongRefTest {
+
+    private Stm stm;
+
+    @Before
+    public void setUp() {
+        stm = getGlobalStmInstance();
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void createCommitted() {
+        Transaction t = stm.startUpdateTransaction("test");
+        long version = stm.getTime();
+        LongRef ref = LongRef.createCommittedRef(stm, 10L);
+        t.abort();
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10L, ref.get());
+    }
+
+    @Test
+    public void set() {
+        LongRef ref = new LongRef(5L);
+
+        long version = stm.getTime();
+        assertEquals(5L, ref.set(10L));
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(10L, ref.get());
+    }
+
+    @Test
+    public void incDecAndAdd() {
+        LongRef ref = new LongRef(10L);
+
+        assertEquals(11L, ref.inc());
+        assertEquals(10L, ref.dec());
+        assertEquals(15L, ref.add(5L));
+        assertEquals(15L, ref.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        LongRef ref = new LongRef(10L);
+
+        assertFalse(ref.compareAndSet(9L, 20L));
+        assertTrue(ref.compareAndSet(10L, 20L));
+        assertEquals(20L, ref.get());
+    }
+
+    @Test
+    public void operationsUseTheRunningTransaction() {
+        LongRef ref = new LongRef(10L);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        ref.inc();
+        ref.add(5L);
+        assertEquals(16L, ref.get());
+        assertEquals(version, stm.getTime());
+        t.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(16L, ref.get());
+    }
+
+    @Test
+    public void changesAreRolledBack() {
+        LongRef ref = new LongRef(10L);
+        long version = stm.getTime();
+
+        Transaction t = stm.startUpdateTransaction("rollback");
+        setThreadLocalTransaction(t);
+        ref.inc();
+        t.abort();
+        setThreadLocalTransaction(null);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(10L, ref.get());
+    }
+
+    @Test
+    public void whenReadonlyTransactionWriteFails() {
+        LongRef ref = new LongRef(10L);
+
+        Transaction t = stm.startReadOnlyTransaction(null);
+        try {
+            ref.inc(t);
+            fail();
+        } catch (ReadonlyException expected) {
+        }
+        t.abort();
+
+        assertEquals(10L, ref.get());
+    }
+
+    @Test
+    public void whenPredicateDoesntHoldGetOrAwaitRetries() {
+        LongRef ref = new LongRef(10L);
+        LongPredicate largerThan20 = new LongPredicate() {
+            @Override
+            public boolean evaluate(long value) {
+                return value > 20;
+            }
+        };
+
+        Transaction t = stm.startUpdateTransaction(null);
+        try {
+            ref.getOrAwait(t, largerThan20);
+            fail();
+        } catch (RetryError expected) {
+        }
+        t.abort();
+
+        ref.set(30L);
+        assertEquals(30L, ref.getOrAwait(largerThan20));
+    }
+}
@@ -1,24 +1,109 @@
 package org.multiverse.integrationtests;
 
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
 import org.junit.Before;
 import org.junit.Test;
-import org.multiverse.TestUtils;
-
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+import org.multiverse.utils.profiling.ProfileRepository;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
 
 /**
- * A test that checks that committing transactions, won't cause deadlocks.
+ * A test that checks that committing transactions, won't cause deadlocks (or livelocks).
  * <p/>
- * Tests for direct deadlocks and deadlock chains.
+ * 2 threads execute large transactions that write to the same atomicobjects, but they attach them in the opposite
+ * order. If the locks would be acquired in the order the atomicobjects are attached, both transactions could keep
+ * failing because each holds locks the other needs. The test checks that no increments are lost and prints the time
+ * it took and the number of failed lock acquisitions.
+ *
+ * @author Peter Veentjer
  */
 public class CommitWontDeadlockLongTest {
 
+    private int refCount = 1000;
+    private int transactionCountPerThread = 1000;
+
+    private IntRef[] refs;
+    private AlphaStm stm;
+    private ProfileRepository profiler;
+
     @Before
     public void setUp() {
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        profiler = new SimpleProfileRepository();
+        config.profiler = profiler;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
 
+        refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
     }
 
     @Test
     public void test() {
-        TestUtils.testIncomplete();
+        WriteThread forwardThread = new WriteThread("ForwardThread", false);
+        WriteThread reverseThread = new WriteThread("ReverseThread", true);
+
+        long startNs = System.nanoTime();
+        startAll(forwardThread, reverseThread);
+        joinAll(forwardThread, reverseThread);
+        long periodNs = System.nanoTime() - startNs;
+
+        for (IntRef ref : refs) {
+            assertEquals(2 * transactionCountPerThread, ref.get());
+        }
+
+        System.out.printf("%s ms for 2x%s overlapping transactions on %s atomicobjects, %s failed lock acquisitions\n",
+                          periodNs / (1000 * 1000),
+                          transactionCountPerThread,
+                          refCount,
+                          profiler.sumKey1("updatetransaction.failedtoacquirelocks.count"));
+    }
+
+    private class WriteThread extends TestThread {
+
+        private final boolean reverse;
+
+        WriteThread(String name, boolean reverse) {
+            super(name);
+            this.reverse = reverse;
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < transactionCountPerThread; k++) {
+                new AtomicTemplate<Object>(stm, getName(), false, false, Integer.MAX_VALUE) {
+                    @Override
+                    public Object execute(Transaction t) {
+                        AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                        for (int index = 0; index < refs.length; index++) {
+                            IntRef ref = refs[reverse ? refs.length - 1 - index : index];
+                            IntRefTranlocal tranlocal = (IntRefTranlocal) alphaTransaction.load(ref);
+                            ref.inc(tranlocal);
+                        }
+                        return null;
+                    }
+                }.execute();
+            }
+        }
     }
 }
@@ -11,6 +11,9 @@ import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 import org.multiverse.datastructures.refs.IntRef;
 import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.utils.profiling.ProfileRepository;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
 
 import java.util.concurrent.TimeUnit;
 
@@ -22,10 +25,14 @@ public class ConcurrentUpdateLongTest {
     public IntRef intValue;
     public int incCount = 10 * 1000 * 1000;
     public int threadCount = 3;
+    private ProfileRepository profiler;
 
     @Before
     public void setUp() {
-        setGlobalStmInstance(AlphaStm.createFast());
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        profiler = new SimpleProfileRepository();
+        config.profiler = profiler;
+        setGlobalStmInstance(new AlphaStm(config));
         setThreadLocalTransaction(null);
         intValue = new IntRef(0);
     }
@@ -49,6 +56,11 @@ public class ConcurrentUpdateLongTest {
         long periodNs = System.nanoTime() - startNs;
         double transactionPerSecond = (incCount * threadCount * 1.0d * TimeUnit.SECONDS.toNanos(1)) / periodNs;
         System.out.printf("%s Transaction/second\n", transactionPerSecond);
+
+        long abortedCount = profiler.sumKey1("updatetransaction.aborted.count");
+        long lockedLoadCount = profiler.sumKey1("updatetransaction.failedtolock.count");
+        System.out.printf("%s aborted transactions (%s%%), %s because of a locked load\n",
+                          abortedCount, (abortedCount * 100.0d) / (incCount * threadCount), lockedLoadCount);
     }
 
     public UpdateThread[] createThreads() {
@@ -0,0 +1,120 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaStm_transactionPoolingTest {
+
+    private AlphaStm stm;
+
+    private void setUp(boolean pooling) {
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        config.transactionPoolingEnabled = pooling;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void noPoolingByDefault() {
+        setUp(false);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        t1.commit();
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        assertNotSame(t1, t2);
+    }
+
+    @Test
+    public void committedUpdateTransactionIsRecycled() {
+        setUp(true);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction("foo");
+        t1.commit();
+
+        AlphaTransaction t2 = stm.startUpdateTransaction("bar");
+        assertSame(t1, t2);
+        assertIsActive(t2);
+        assertEquals("bar", t2.getFamilyName());
+        assertEquals(stm.getTime(), t2.getReadVersion());
+    }
+
+    @Test
+    public void abortedReadonlyTransactionIsRecycled() {
+        setUp(true);
+
+        AlphaTransaction t1 = stm.startReadOnlyTransaction("foo");
+        t1.abort();
+
+        AlphaTransaction t2 = stm.startReadOnlyTransaction("bar");
+        assertSame(t1, t2);
+        assertIsActive(t2);
+        assertEquals("bar", t2.getFamilyName());
+    }
+
+    @Test
+    public void activeTransactionIsNotRecycled() {
+        setUp(true);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+
+        assertNotSame(t1, t2);
+        assertIsActive(t1);
+        assertIsActive(t2);
+    }
+
+    @Test
+    public void recycledTransactionDoesNotSeeOldTranlocals() {
+        setUp(true);
+
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal1 = (IntRefTranlocal) t1.load(ref);
+        ref.inc(tranlocal1);
+        t1.commit();
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        assertSame(t1, t2);
+        IntRefTranlocal tranlocal2 = (IntRefTranlocal) t2.load(ref);
+        assertNotSame(tranlocal1, tranlocal2);
+        assertEquals(1, ref.get(tranlocal2));
+        t2.abort();
+    }
+
+    @Test
+    public void poolIsPerThread() throws InterruptedException {
+        setUp(true);
+
+        final AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        t1.commit();
+
+        final AlphaTransaction[] found = new AlphaTransaction[1];
+        Thread thread = new Thread() {
+            public void run() {
+                found[0] = stm.startUpdateTransaction(null);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotNull(found[0]);
+        assertNotSame(t1, found[0]);
+    }
+}
@@ -0,0 +1,156 @@
+package org.multiverse.stms.alpha;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaTranlocalSetTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = AlphaStm.createDebug();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallCapacity() {
+        new AlphaTranlocalSet(0);
+    }
+
+    @Test
+    public void emptySet() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(1);
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+        assertNull(set.get(new IntRef(0)));
+    }
+
+    @Test
+    public void putAndGetSmallSet() {
+        testPutAndGet(AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD);
+    }
+
+    @Test
+    public void putAndGetLargeSet() {
+        testPutAndGet(AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 10);
+    }
+
+    private void testPutAndGet(int count) {
+        testPutAndGet(new AlphaTranlocalSet(1), count);
+    }
+
+    private void testPutAndGet(AlphaTranlocalSet set, int count) {
+        set.clear();
+
+        IntRefTranlocal[] tranlocals = new IntRefTranlocal[count];
+        for (int k = 0; k < count; k++) {
+            tranlocals[k] = new IntRefTranlocal(new IntRef(k));
+            set.put(tranlocals[k]);
+        }
+
+        assertEquals(count, set.size());
+        assertFalse(set.isEmpty());
+
+        for (int k = 0; k < count; k++) {
+            assertSame(tranlocals[k], set.get(k));
+            assertSame(tranlocals[k], set.get(tranlocals[k].getAtomicObject()));
+        }
+
+        assertNull(set.get(new IntRef(0)));
+    }
+
+    @Test
+    public void singleTranlocalOverflows() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(1);
+
+        IntRefTranlocal first = new IntRefTranlocal(new IntRef(0));
+        set.put(first);
+        assertEquals(1, set.size());
+        assertSame(first, set.get(0));
+        assertSame(first, set.get(first.getAtomicObject()));
+        assertNull(set.get(new IntRef(0)));
+
+        IntRefTranlocal second = new IntRefTranlocal(new IntRef(0));
+        set.put(second);
+        assertEquals(2, set.size());
+        assertSame(first, set.get(0));
+        assertSame(second, set.get(1));
+        assertSame(first, set.get(first.getAtomicObject()));
+        assertSame(second, set.get(second.getAtomicObject()));
+    }
+
+    @Test
+    public void putAndGetWithLargeInitialCapacity() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(100);
+
+        IntRefTranlocal tranlocal = new IntRefTranlocal(new IntRef(0));
+        set.put(tranlocal);
+
+        assertEquals(1, set.size());
+        assertSame(tranlocal, set.get(0));
+        assertSame(tranlocal, set.get(tranlocal.getAtomicObject()));
+    }
+
+    @Test
+    public void clear() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(1);
+
+        IntRefTranlocal[] tranlocals = new IntRefTranlocal[AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 2];
+        for (int k = 0; k < tranlocals.length; k++) {
+            tranlocals[k] = new IntRefTranlocal(new IntRef(k));
+            set.put(tranlocals[k]);
+        }
+
+        set.clear();
+
+        assertTrue(set.isEmpty());
+        for (IntRefTranlocal tranlocal : tranlocals) {
+            assertNull(set.get(tranlocal.getAtomicObject()));
+        }
+    }
+
+    @Test
+    public void reuseAfterClearWithSmallExpectedSize() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(1);
+
+        for (int k = 0; k < AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 10; k++) {
+            set.put(new IntRefTranlocal(new IntRef(k)));
+        }
+
+        //the removed tranlocals still count as needed, so a restarting transaction keeps its arrays.
+        set.clear(1);
+        testPutAndGet(set, AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 10);
+
+        set.clear(1);
+        set.clear(1);
+        testPutAndGet(set, 2);
+        testPutAndGet(set, AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 2);
+    }
+
+    @Test
+    public void reuseAfterClear() {
+        AlphaTranlocalSet set = new AlphaTranlocalSet(1);
+
+        for (int k = 0; k < AlphaTranlocalSet.LINEAR_SCAN_THRESHOLD * 2; k++) {
+            set.put(new IntRefTranlocal(new IntRef(k)));
+        }
+        set.clear();
+
+        IntRefTranlocal tranlocal = new IntRefTranlocal(new IntRef(0));
+        set.put(tranlocal);
+
+        assertEquals(1, set.size());
+        assertSame(tranlocal, set.get(0));
+        assertSame(tranlocal, set.get(tranlocal.getAtomicObject()));
+    }
+}
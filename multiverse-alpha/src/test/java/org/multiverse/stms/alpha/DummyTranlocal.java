@@ -2,6 +2,11 @@ package org.multiverse.stms.alpha;
 
 public class DummyTranlocal extends AlphaTranlocal {
 
+    @Override
+    public AlphaTranlocal openForWrite() {
+        throw new RuntimeException();
+    }
+
     @Override
     public AlphaTranlocalSnapshot takeSnapshot() {
         throw new RuntimeException();
@@ -123,6 +123,30 @@ public class ReadonlyAlphaTransaction_loadTest {
         }
     }
 
+    @Test
+    public void loadFindsOldVersionInHistoryIfCommittedChangesMadeByOtherTransactions() {
+        AlphaStmConfig config = AlphaStmConfig.createDebugConfig();
+        config.maxHistoryDepth = 1;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction readonlyTransaction = stm.startReadOnlyTransaction(null);
+        ref.inc();
+
+        IntRefTranlocal tranlocal = (IntRefTranlocal) readonlyTransaction.load(ref);
+        assertEquals(0, ref.get(tranlocal));
+
+        ref.inc();
+
+        try {
+            readonlyTransaction.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException ex) {
+        }
+    }
+
     @Test
     public void loadOnCommittedTransactionFails() {
         IntRef value = new IntRef(10);
@@ -0,0 +1,80 @@
+package org.multiverse.stms.alpha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class TransactionSizeHintsTest {
+
+    private TransactionSizeHints hints;
+
+    @Before
+    public void setUp() {
+        hints = new TransactionSizeHints();
+    }
+
+    @Test
+    public void unknownFamily() {
+        assertEquals(1, hints.getHint("foo"));
+    }
+
+    @Test
+    public void nullFamilyIsIgnored() {
+        hints.signal(null, 10);
+        assertEquals(1, hints.getHint(null));
+    }
+
+    @Test
+    public void firstSignalIsUsedAsHint() {
+        hints.signal("foo", 5);
+        assertEquals(5, hints.getHint("foo"));
+        assertEquals(1, hints.getHint("bar"));
+    }
+
+    @Test
+    public void hintGrowsTowardsTypicalSize() {
+        hints.signal("foo", 2);
+        for (int k = 0; k < 20; k++) {
+            hints.signal("foo", 10);
+        }
+        assertEquals(10, hints.getHint("foo"));
+    }
+
+    @Test
+    public void hintGrowsWhenOneMoreIsNeeded() {
+        hints.signal("foo", 2);
+        hints.signal("foo", 3);
+        assertEquals(3, hints.getHint("foo"));
+    }
+
+    @Test
+    public void outlierDoesNotPinHint() {
+        hints.signal("foo", 2);
+        hints.signal("foo", TransactionSizeHints.MAX_HINT);
+        assertTrue(hints.getHint("foo") > 2);
+
+        for (int k = 0; k < 50; k++) {
+            hints.signal("foo", 2);
+        }
+        assertTrue(hints.getHint("foo") < 2 + TransactionSizeHints.SMOOTHING);
+    }
+
+    @Test
+    public void hintShrinksTowardsTypicalSize() {
+        hints.signal("foo", 10);
+        for (int k = 0; k < 20; k++) {
+            hints.signal("foo", 1);
+        }
+        assertTrue(hints.getHint("foo") < 1 + TransactionSizeHints.SMOOTHING);
+    }
+
+    @Test
+    public void hintIsCapped() {
+        hints.signal("foo", TransactionSizeHints.MAX_HINT + 1);
+        assertEquals(TransactionSizeHints.MAX_HINT, hints.getHint("foo"));
+    }
+}
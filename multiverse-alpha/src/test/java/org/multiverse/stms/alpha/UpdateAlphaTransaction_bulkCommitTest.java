@@ -0,0 +1,120 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_bulkCommitTest {
+
+    private int refCount = 3 * BulkStore.CHUNK_SIZE + 10;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+        executor.shutdownNow();
+    }
+
+    private AlphaStm createStm(Executor bulkStoreExecutor, int bulkCommitThreshold) {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.bulkStoreExecutor = bulkStoreExecutor;
+        config.bulkCommitThreshold = bulkCommitThreshold;
+        AlphaStm stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        return stm;
+    }
+
+    @Test
+    public void largeCommitIsStoredInParallel() {
+        AlphaStm stm = createStm(executor, 100);
+        IntRef[] refs = createRefs();
+
+        long writeVersion = incAll(stm, refs);
+
+        assertEquals(1, stm.getProfiler().sumKey1("updatetransaction.bulkstore.count"));
+        assertCommitted(refs, 1, writeVersion);
+    }
+
+    @Test
+    public void smallCommitIsNotStoredInParallel() {
+        AlphaStm stm = createStm(executor, refCount + 1);
+        IntRef[] refs = createRefs();
+
+        long writeVersion = incAll(stm, refs);
+
+        assertEquals(0, stm.getProfiler().sumKey1("updatetransaction.bulkstore.count"));
+        assertCommitted(refs, 1, writeVersion);
+    }
+
+    @Test
+    public void rejectedChunksAreStoredByCommittingThread() {
+        Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        AlphaStm stm = createStm(rejectingExecutor, 100);
+        IntRef[] refs = createRefs();
+
+        long writeVersion = incAll(stm, refs);
+
+        assertEquals(1, stm.getProfiler().sumKey1("updatetransaction.bulkstore.count"));
+        assertCommitted(refs, 1, writeVersion);
+    }
+
+    @Test
+    public void multipleBulkCommits() {
+        AlphaStm stm = createStm(executor, 100);
+        IntRef[] refs = createRefs();
+
+        incAll(stm, refs);
+        long writeVersion = incAll(stm, refs);
+
+        assertCommitted(refs, 2, writeVersion);
+    }
+
+    private IntRef[] createRefs() {
+        IntRef[] refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+        return refs;
+    }
+
+    private long incAll(AlphaStm stm, IntRef[] refs) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        for (IntRef ref : refs) {
+            ref.inc((IntRefTranlocal) t.load(ref));
+        }
+        return t.commit();
+    }
+
+    private void assertCommitted(IntRef[] refs, int expectedValue, long expectedWriteVersion) {
+        for (IntRef ref : refs) {
+            assertNull(ref.___getLockOwner());
+            assertEquals(expectedWriteVersion, ref.___load().___writeVersion);
+            assertEquals(expectedValue, ref.get());
+        }
+    }
+}
@@ -268,4 +268,44 @@ public class UpdateAlphaTransaction_commitTest {
         assertEquals(version, stm.getTime());
         assertEquals(1, value.get());
     }
+
+    @Test
+    public void commitSingleDirtyObject() {
+        IntRef ref = new IntRef(0);
+
+        long version = stm.getTime();
+        AlphaTransaction t = stm.startUpdateTransaction("single");
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        ref.inc(tranlocal);
+        t.commit();
+
+        assertIsCommitted(t);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void commitUpgradesTransparentlyWhenMoreObjectsAreAttachedThanExpected() {
+        IntRef[] refs = new IntRef[20];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+
+        //the first transaction of the family starts as a single object transaction and needs to grow, the second
+        //already starts with the learned size.
+        for (int attempt = 0; attempt < 2; attempt++) {
+            AlphaTransaction t = stm.startUpdateTransaction("growing");
+            for (IntRef ref : refs) {
+                IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+                ref.inc(tranlocal);
+                assertSame(tranlocal, t.load(ref));
+            }
+            t.commit();
+            assertIsCommitted(t);
+        }
+
+        for (IntRef ref : refs) {
+            assertEquals(2, ref.get());
+        }
+    }
 }
@@ -0,0 +1,327 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.api.exceptions.FailedToObtainLocksException;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.commitlock.CommitLock;
+import org.multiverse.utils.commitlock.CommitLockPolicy;
+import org.multiverse.utils.commitlock.CommitLockResult;
+import org.multiverse.utils.commitlock.GenericCommitLockPolicy;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_commuteTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    public AlphaTransaction startUpdateTransaction() {
+        return stm.startUpdateTransaction(null);
+    }
+
+    @Test
+    public void commuteOnNonAttachedObjectIsExecutedOnCommit() {
+        IntRef ref = new IntRef(10);
+
+        long version = stm.getTime();
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        assertEquals(version, stm.getTime());
+        assertEquals(10, ref.get());
+
+        t.commit();
+        assertIsCommitted(t);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void multipleCommutesOnSameObject() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        t.commute(ref, IncFunction.INSTANCE);
+        t.commute(ref, IncFunction.INSTANCE);
+        t.commit();
+
+        assertEquals(13, ref.get());
+    }
+
+    @Test
+    public void concurrentCommutesDontConflict() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t1 = startUpdateTransaction();
+        AlphaTransaction t2 = startUpdateTransaction();
+
+        t1.commute(ref, IncFunction.INSTANCE);
+        t2.commute(ref, IncFunction.INSTANCE);
+
+        //an unrelated transaction that changes the ref.
+        ref.inc();
+
+        t1.commit();
+        t2.commit();
+
+        assertEquals(3, ref.get());
+    }
+
+    @Test
+    public void commuteOnAttachedObjectIsAppliedDirectly() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        t.commute(ref, IncFunction.INSTANCE);
+        assertEquals(11, tranlocal.value);
+
+        t.commit();
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void loadAfterCommuteSeesCommutedValue() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        assertEquals(11, tranlocal.value);
+
+        t.commit();
+        //the commute should not be applied twice.
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void commuteOnObjectLockedByOtherTransactionFailsCommit() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction owner = startUpdateTransaction();
+        ref.___tryLock(owner);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        try {
+            t.commit();
+            fail();
+        } catch (FailedToObtainLocksException expected) {
+        }
+
+        assertIsAborted(t);
+        assertSame(owner, ref.___getLockOwner());
+        ref.___releaseLock(owner);
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void commuteLocksAreAcquiredThroughCommitLockPolicyInGlobalOrder() {
+        //contains the tranlocals of the writeset and the atomicobjects of the commutes, in the order of locking.
+        final List<Object> acquired = new LinkedList<Object>();
+        AlphaStmConfig config = AlphaStmConfig.createDebugConfig();
+        config.commitLockPolicy = new CommitLockPolicy() {
+            @Override
+            public CommitLockResult tryLockAndDetectConflict(CommitLock lock, Transaction lockOwner) {
+                acquired.add(lock);
+                return GenericCommitLockPolicy.FAIL_FAST.tryLockAndDetectConflict(lock, lockOwner);
+            }
+
+            @Override
+            public CommitLockResult tryLockAllAndDetectConflicts(CommitLock[] locks, Transaction lockOwner) {
+                for (CommitLock lock : locks) {
+                    if (lock == null) {
+                        break;
+                    }
+                    if (lock instanceof CommuteCommitLock) {
+                        acquired.add(((CommuteCommitLock) lock).atomicObject);
+                    } else {
+                        acquired.add(lock);
+                    }
+                }
+                return GenericCommitLockPolicy.FAIL_FAST.tryLockAllAndDetectConflicts(locks, lockOwner);
+            }
+        };
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+
+        IntRef commuted = new IntRef(10);
+        IntRef written = new IntRef(10);
+        //the ids are assigned lazily, so this makes sure that the commuted ref comes first in the global order.
+        assertTrue(commuted.___getId() < written.___getId());
+        acquired.clear();
+
+        AlphaTransaction t = startUpdateTransaction();
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(written);
+        written.inc(tranlocal);
+        t.commute(commuted, IncFunction.INSTANCE);
+        t.commit();
+
+        assertEquals(2, acquired.size());
+        assertSame(commuted, acquired.get(0));
+        assertSame(tranlocal, acquired.get(1));
+        assertNull(commuted.___getLockOwner());
+        assertNull(written.___getLockOwner());
+        assertEquals(11, commuted.get());
+        assertEquals(11, written.get());
+    }
+
+    @Test
+    public void failingFunctionAbortsWithoutChanges() {
+        IntRef ref1 = new IntRef(10);
+        IntRef ref2 = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref1);
+        ref1.inc(tranlocal);
+        t.commute(ref2, new AlphaCommutingFunction() {
+            @Override
+            public void apply(AlphaTranlocal tranlocal) {
+                throw new IllegalStateException();
+            }
+        });
+
+        long version = stm.getTime();
+        try {
+            t.commit();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertIsAborted(t);
+        assertEquals(version, stm.getTime());
+        assertNull(ref1.___getLockOwner());
+        assertNull(ref2.___getLockOwner());
+        assertEquals(10, ref1.get());
+        assertEquals(10, ref2.get());
+    }
+
+    @Test
+    public void commuteInRolledBackOrBranchIsDropped() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        t.startOr();
+        t.commute(ref, IncFunction.INSTANCE);
+        t.load(ref);
+        t.endOrAndStartElse();
+        t.commit();
+
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void commuteOnAbortedTransactionIsDropped() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commute(ref, IncFunction.INSTANCE);
+        t.abort();
+
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void commuteWithNullArgumentsFails() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        try {
+            t.commute(null, IncFunction.INSTANCE);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        try {
+            t.commute(ref, null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertIsActive(t);
+    }
+
+    @Test
+    public void commuteOnReadonlyTransactionFails() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        try {
+            t.commute(ref, IncFunction.INSTANCE);
+            fail();
+        } catch (ReadonlyException expected) {
+        }
+
+        assertIsActive(t);
+    }
+
+    @Test
+    public void commuteOnCommittedTransactionFails() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commit();
+
+        try {
+            t.commute(ref, IncFunction.INSTANCE);
+            fail();
+        } catch (DeadTransactionException expected) {
+        }
+
+        assertIsCommitted(t);
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void commuteOnAbortedTransactionFails() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.abort();
+
+        try {
+            t.commute(ref, IncFunction.INSTANCE);
+            fail();
+        } catch (DeadTransactionException expected) {
+        }
+
+        assertIsAborted(t);
+        assertEquals(10, ref.get());
+    }
+
+    static class IncFunction implements AlphaCommutingFunction {
+
+        static final IncFunction INSTANCE = new IncFunction();
+
+        @Override
+        public void apply(AlphaTranlocal tranlocal) {
+            ((IntRefTranlocal) tranlocal).value++;
+        }
+    }
+}
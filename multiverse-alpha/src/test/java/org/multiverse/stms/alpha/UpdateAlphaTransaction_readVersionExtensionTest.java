@@ -0,0 +1,138 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_readVersionExtensionTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.readVersionExtensionEnabled = true;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void readVersionIsExtendedIfNothingHasBeenRead() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ref.inc();
+
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        assertEquals(1, tranlocal.value);
+        assertEquals(stm.getTime(), t.getReadVersion());
+        assertIsActive(t);
+    }
+
+    @Test
+    public void readVersionIsExtendedIfReadsStillAreValid() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal1 = (IntRefTranlocal) t.load(ref1);
+        tranlocal1.value++;
+
+        ref2.inc();
+
+        IntRefTranlocal tranlocal2 = (IntRefTranlocal) t.load(ref2);
+        assertEquals(1, tranlocal2.value);
+        assertEquals(stm.getTime(), t.getReadVersion());
+
+        tranlocal2.value++;
+        t.commit();
+
+        assertEquals(1, ref1.get());
+        assertEquals(2, ref2.get());
+    }
+
+    @Test
+    public void readVersionIsNotExtendedIfReadIsInvalid() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        long readVersion = t.getReadVersion();
+
+        ref1.inc();
+        ref2.inc();
+
+        try {
+            t.load(ref2);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+
+        assertEquals(readVersion, t.getReadVersion());
+        assertIsActive(t);
+    }
+
+    @Test
+    public void readVersionIsNotExtendedIfReadIsLocked() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        long readVersion = t.getReadVersion();
+
+        ref2.inc();
+
+        Transaction owner = new DummyTransaction();
+        ref1.___tryLock(owner);
+
+        try {
+            t.load(ref2);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+
+        assertEquals(readVersion, t.getReadVersion());
+        assertIsActive(t);
+    }
+
+    @Test
+    public void noExtensionIfDisabled() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        long readVersion = t.getReadVersion();
+        ref.inc();
+
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+
+        assertEquals(readVersion, t.getReadVersion());
+    }
+}
@@ -0,0 +1,237 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.latches.CheapLatch;
+import org.multiverse.utils.latches.Latch;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_wakeupConditionTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    public AlphaTransaction startUpdateTransaction() {
+        return stm.startUpdateTransaction(null);
+    }
+
+    @Test
+    public void withoutConditionEveryCommitWakesUp() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void commitThatDoesntSatisfyConditionDoesntWakeUp() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertFalse(latch.isOpen());
+        ref.set(-2);
+        assertFalse(latch.isOpen());
+
+        ref.set(1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void conditionAlreadySatisfiedWakesUpImmediately() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+
+        ref.set(1);
+
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void conditionOnlyAppliesToItsAtomicObject() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref1);
+        t.load(ref2);
+        t.registerWakeupCondition(ref1, PositiveCondition.INSTANCE);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref1.set(-1);
+        assertFalse(latch.isOpen());
+
+        ref2.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void conditionIsReplaced() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+        t.registerWakeupCondition(ref, new AlphaWakeupCondition() {
+            @Override
+            public boolean isSatisfied(AlphaTranlocal tranlocal) {
+                return ((IntRefTranlocal) tranlocal).value < 0;
+            }
+        });
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void failingConditionWakesUp() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.registerWakeupCondition(ref, new AlphaWakeupCondition() {
+            @Override
+            public boolean isSatisfied(AlphaTranlocal tranlocal) {
+                throw new IllegalStateException();
+            }
+        });
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void conditionIsRemovedOnRestart() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+
+        t.load(ref);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void conditionInRolledBackOrBranchIsDropped() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.load(ref);
+        t.startOr();
+        t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+        t.endOrAndStartElse();
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        ref.set(-1);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void registerWithNullArgumentsFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        try {
+            t.registerWakeupCondition(null, PositiveCondition.INSTANCE);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        try {
+            t.registerWakeupCondition(ref, null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertIsActive(t);
+    }
+
+    @Test
+    public void registerOnReadonlyTransactionFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        try {
+            t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+            fail();
+        } catch (ReadonlyException expected) {
+        }
+
+        assertIsActive(t);
+    }
+
+    @Test
+    public void registerOnCommittedTransactionFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startUpdateTransaction();
+        t.commit();
+
+        try {
+            t.registerWakeupCondition(ref, PositiveCondition.INSTANCE);
+            fail();
+        } catch (DeadTransactionException expected) {
+        }
+
+        assertIsCommitted(t);
+    }
+
+    static class PositiveCondition implements AlphaWakeupCondition {
+
+        static final PositiveCondition INSTANCE = new PositiveCondition();
+
+        @Override
+        public boolean isSatisfied(AlphaTranlocal tranlocal) {
+            return ((IntRefTranlocal) tranlocal).value > 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.multiverse.stms.alpha;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.randomInt;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Peter Veentjer
+ */
+public class WriteSetSorterTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = AlphaStm.createDebug();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void idsAreUniqueAndStable() {
+        Set<Long> ids = new HashSet<Long>();
+        for (int k = 0; k < 3000; k++) {
+            IntRef ref = new IntRef(0);
+            long id = ref.___getId();
+            assertTrue(id > 0);
+            assertEquals(id, ref.___getId());
+            assertTrue(ids.add(id));
+        }
+    }
+
+    @Test
+    public void sortSmallWriteSet() {
+        testSort(WriteSetSorter.INSERTION_SORT_THRESHOLD);
+    }
+
+    @Test
+    public void sortLargeWriteSet() {
+        testSort(WriteSetSorter.INSERTION_SORT_THRESHOLD + 1);
+        testSort(1000);
+    }
+
+    @Test
+    public void onlySizeElementsAreSorted() {
+        AlphaTranlocal[] writeSet = createWriteSet(10);
+        reverse(writeSet);
+        AlphaTranlocal last = writeSet[9];
+
+        WriteSetSorter.sort(writeSet, 9);
+
+        assertSorted(writeSet, 9);
+        assertSame(last, writeSet[9]);
+    }
+
+    @Test
+    public void sortAlreadySortedWriteSet() {
+        AlphaTranlocal[] writeSet = createWriteSet(1000);
+        WriteSetSorter.sort(writeSet, writeSet.length);
+        WriteSetSorter.sort(writeSet, writeSet.length);
+        assertSorted(writeSet, writeSet.length);
+
+        reverse(writeSet);
+        WriteSetSorter.sort(writeSet, writeSet.length);
+        assertSorted(writeSet, writeSet.length);
+    }
+
+    public void testSort(int size) {
+        AlphaTranlocal[] writeSet = createWriteSet(size);
+        for (int k = 0; k < size; k++) {
+            int other = randomInt(size);
+            AlphaTranlocal tmp = writeSet[k];
+            writeSet[k] = writeSet[other];
+            writeSet[other] = tmp;
+        }
+
+        WriteSetSorter.sort(writeSet, size);
+        assertSorted(writeSet, size);
+    }
+
+    private AlphaTranlocal[] createWriteSet(int size) {
+        AlphaTranlocal[] writeSet = new AlphaTranlocal[size];
+        for (int k = 0; k < size; k++) {
+            writeSet[k] = new IntRef(0).___load();
+        }
+        return writeSet;
+    }
+
+    private void reverse(AlphaTranlocal[] writeSet) {
+        for (int k = 0; k < writeSet.length / 2; k++) {
+            AlphaTranlocal tmp = writeSet[k];
+            writeSet[k] = writeSet[writeSet.length - 1 - k];
+            writeSet[writeSet.length - 1 - k] = tmp;
+        }
+    }
+
+    private void assertSorted(AlphaTranlocal[] writeSet, int size) {
+        for (int k = 1; k < size; k++) {
+            long previousId = writeSet[k - 1].getAtomicObject().___getId();
+            long id = writeSet[k].getAtomicObject().___getId();
+            assertTrue(previousId < id);
+        }
+    }
+}
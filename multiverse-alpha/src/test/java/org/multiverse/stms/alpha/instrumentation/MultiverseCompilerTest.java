@@ -0,0 +1,44 @@
+package org.multiverse.stms.alpha.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * @author Peter Veentjer
+ */
+public class MultiverseCompilerTest {
+
+    @Test(expected = NullPointerException.class)
+    public void whenNullClassesDirectory_thenNullPointerException() {
+        new MultiverseCompiler(null, new LinkedList<File>());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void whenNullClasspath_thenNullPointerException() {
+        new MultiverseCompiler(new File(System.getProperty("java.io.tmpdir")), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenClassesDirectoryIsNoDirectory_thenIllegalArgumentException() throws IOException {
+        File file = File.createTempFile("multiversecompiler", ".tmp");
+        file.deleteOnExit();
+        new MultiverseCompiler(file, new LinkedList<File>());
+    }
+
+    @Test
+    public void whenNoClasses_thenNothingInstrumented() throws IOException {
+        File directory = File.createTempFile("multiversecompiler", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+
+        List<File> classpath = new LinkedList<File>();
+        MultiverseCompiler compiler = new MultiverseCompiler(directory, classpath);
+        assertEquals(0, compiler.compile());
+    }
+}
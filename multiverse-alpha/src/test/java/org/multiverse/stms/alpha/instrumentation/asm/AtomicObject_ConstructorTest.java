@@ -317,8 +317,6 @@ public class AtomicObject_ConstructorTest {
 
         long startVersion = stm.getTime();
 
-        MetadataRepository s = MetadataRepository.INSTANCE;
-
         CreateAtomicObjectInConstructor o = new CreateAtomicObjectInConstructor(10);
 
         assertEquals(startVersion + 1, stm.getTime());
@@ -0,0 +1,223 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsAborted;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.annotations.AtomicObject;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.AlphaStm;
+import static org.multiverse.stms.alpha.instrumentation.AlphaReflectionUtils.existsTranlocalField;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicObject_FieldGranularityTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void tranlocalContainsWriteVersionPerField() {
+        assertTrue(existsTranlocalField(FieldGranularPair.class, "___writeVersion_left"));
+        assertTrue(existsTranlocalField(FieldGranularPair.class, "___writeVersion_right"));
+        assertFalse(existsTranlocalField(ObjectGranularPair.class, "___writeVersion_left"));
+        assertFalse(existsTranlocalField(ObjectGranularPair.class, "___writeVersion_right"));
+    }
+
+    @Test
+    public void concurrentWritesToDifferentFieldsDontConflict() {
+        FieldGranularPair pair = new FieldGranularPair();
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        pair.incLeft();
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        pair.incRight();
+
+        t1.commit();
+        t2.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(1, pair.getLeft());
+        assertEquals(1, pair.getRight());
+    }
+
+    @Test
+    public void concurrentWritesToDifferentReferenceFieldsDontConflict() {
+        FieldGranularNames names = new FieldGranularNames();
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        names.setFirst("peter");
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        names.setLast("veentjer");
+
+        t1.commit();
+        t2.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals("peter", names.getFirst());
+        assertEquals("veentjer", names.getLast());
+    }
+
+    @Test
+    public void concurrentWritesToSameFieldConflict() {
+        FieldGranularPair pair = new FieldGranularPair();
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        pair.incLeft();
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        pair.incLeft();
+        pair.incRight();
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertIsAborted(t2);
+        assertEquals(1, pair.getLeft());
+        assertEquals(0, pair.getRight());
+    }
+
+    @Test
+    public void fieldWriteVersionsAreKeptOverMultipleCommits() {
+        FieldGranularPair pair = new FieldGranularPair();
+        pair.incLeft();
+
+        //t1 starts before the right field is changed, but after the left field is changed.
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        pair.incLeft();
+        setThreadLocalTransaction(null);
+
+        pair.incRight();
+        pair.incRight();
+
+        setThreadLocalTransaction(t1);
+        t1.commit();
+        setThreadLocalTransaction(null);
+
+        assertEquals(2, pair.getLeft());
+        assertEquals(2, pair.getRight());
+    }
+
+    @Test
+    public void objectGranularityIsTheDefault() {
+        ObjectGranularPair pair = new ObjectGranularPair();
+
+        Transaction t1 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t1);
+        pair.incLeft();
+
+        Transaction t2 = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t2);
+        pair.incRight();
+
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+        setThreadLocalTransaction(null);
+
+        assertEquals(1, pair.getLeft());
+        assertEquals(0, pair.getRight());
+    }
+
+    @AtomicObject(fieldGranularity = true)
+    public static class FieldGranularPair {
+
+        private int left;
+        private int right;
+
+        public void incLeft() {
+            left++;
+        }
+
+        public void incRight() {
+            right++;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getRight() {
+            return right;
+        }
+    }
+
+    @AtomicObject(fieldGranularity = true)
+    public static class FieldGranularNames {
+
+        private String first;
+        private String last;
+
+        public String getFirst() {
+            return first;
+        }
+
+        public void setFirst(String first) {
+            this.first = first;
+        }
+
+        public String getLast() {
+            return last;
+        }
+
+        public void setLast(String last) {
+            this.last = last;
+        }
+    }
+
+    @AtomicObject
+    public static class ObjectGranularPair {
+
+        private int left;
+        private int right;
+
+        public void incLeft() {
+            left++;
+        }
+
+        public void incRight() {
+            right++;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getRight() {
+            return right;
+        }
+    }
+}
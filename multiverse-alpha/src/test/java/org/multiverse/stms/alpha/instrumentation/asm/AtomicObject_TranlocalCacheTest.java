@@ -0,0 +1,188 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.clearThreadLocalTransaction;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.utils.profiling.ProfileRepository;
+
+/**
+ * Tests that reusing the tranlocal of an atomic object within an atomic method, doesn't change the behavior.
+ *
+ * @author Peter Veentjer
+ */
+public class AtomicObject_TranlocalCacheTest {
+
+    private AlphaStm stm;
+    private ProfileRepository profiler;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        profiler = stm.getProfiler();
+        setGlobalStmInstance(stm);
+        clearThreadLocalTransaction();
+    }
+
+    @Test
+    public void repeatedAccessOnThisIsNotLoadedAgain() {
+        Counter counter = new Counter();
+
+        long uselessLoads = profiler.sumKey1("atomicobject.uselessload.count");
+        counter.incAll(10);
+
+        assertEquals(10, counter.getValue());
+        assertEquals(10, counter.getIncrements());
+        assertEquals(uselessLoads, profiler.sumKey1("atomicobject.uselessload.count"));
+    }
+
+    @Test
+    public void readonlyUpdateAfterReadIsDetected() {
+        Counter counter = new Counter();
+        counter.incAll(1);
+
+        long version = stm.getTime();
+        try {
+            counter.readonlyInc();
+            fail();
+        } catch (ReadonlyException expected) {
+        }
+
+        assertEquals(version, stm.getTime());
+        assertEquals(1, counter.getValue());
+    }
+
+    @AtomicObject
+    static class Counter {
+
+        private int value;
+        private long increments;
+
+        public void incAll(int count) {
+            for (int k = 0; k < count; k++) {
+                value++;
+                increments += value - value + 1;
+            }
+        }
+
+        @AtomicMethod(readonly = true)
+        public void readonlyInc() {
+            if (value >= 0) {
+                value++;
+            }
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public long getIncrements() {
+            return increments;
+        }
+    }
+
+    @Test
+    public void loopOverNodes() {
+        LinkedList list = new LinkedList();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+
+        assertEquals(0, list.indexOf("a"));
+        assertEquals(2, list.indexOf("c"));
+        assertEquals(-1, list.indexOf("d"));
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    public void reassignedVariableIsNotConfused() {
+        Node first = new Node("first");
+        Node second = new Node("second");
+
+        Node.assignToFirstAndThenSecond(first, second, "changed");
+
+        assertEquals("second", first.getValue());
+        assertEquals("changed", second.getValue());
+    }
+
+    @Test
+    public void conditionallyLoadedTranlocal() {
+        Node node = new Node("a");
+
+        assertEquals("a", node.conditionalGet(false));
+        assertEquals("b", node.conditionalGet(true));
+        assertEquals("b", node.getValue());
+    }
+
+    @AtomicObject
+    static class LinkedList {
+
+        private Node head;
+        private Node tail;
+        private int size;
+
+        public void add(String value) {
+            Node node = new Node(value);
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.setNext(node);
+            }
+            tail = node;
+            size++;
+        }
+
+        public int indexOf(String value) {
+            int index = 0;
+            for (Node node = head; node != null; node = node.next) {
+                if (node.value.equals(value)) {
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    @AtomicObject
+    static class Node {
+
+        String value;
+        Node next;
+
+        Node(String value) {
+            this.value = value;
+        }
+
+        @AtomicMethod
+        public static void assignToFirstAndThenSecond(Node node, Node other, String value) {
+            node.value = node.value + "-" + value;
+            node.value = (node = other).value;
+            node.value = value;
+        }
+
+        public String conditionalGet(boolean update) {
+            if (update) {
+                value = "b";
+            }
+            return value;
+        }
+
+        public void setNext(Node next) {
+            this.next = next;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+import org.multiverse.stms.alpha.instrumentation.asm.ConstantPoolScanner.FieldReference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ConstantPoolScannerTest {
+
+    @Test(expected = NullPointerException.class)
+    public void whenNullBytecode_thenNullPointerException() {
+        new ConstantPoolScanner(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNoClassfile_thenIllegalArgumentException() {
+        new ConstantPoolScanner(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+    }
+
+    @Test
+    public void usesAtomicAnnotations() {
+        assertTrue(scan(AtomicObjectClass.class).usesAtomicAnnotations());
+        assertTrue(scan(AtomicMethodClass.class).usesAtomicAnnotations());
+        assertFalse(scan(PlainClass.class).usesAtomicAnnotations());
+        assertFalse(scan(FieldAccessClass.class).usesAtomicAnnotations());
+        assertFalse(scan(ClassWithConstants.class).usesAtomicAnnotations());
+    }
+
+    @Test
+    public void getFieldReferences() {
+        List<FieldReference> references = scan(FieldAccessClass.class).getFieldReferences();
+
+        assertTrue(contains(references, PlainClass.class, "value"));
+        assertFalse(contains(references, PlainClass.class, "other"));
+    }
+
+    @Test
+    public void getFieldReferencesWithLongDoubleAndNonAsciiConstants() {
+        List<FieldReference> references = scan(ClassWithConstants.class).getFieldReferences();
+
+        assertTrue(contains(references, ClassWithConstants.class, "l"));
+        assertTrue(contains(references, ClassWithConstants.class, "d"));
+        assertTrue(contains(references, ClassWithConstants.class, "caf\u00e9"));
+    }
+
+    private static boolean contains(List<FieldReference> references, Class owner, String name) {
+        String ownerName = owner.getName().replace('.', '/');
+        for (FieldReference reference : references) {
+            if (reference.owner.equals(ownerName) && reference.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ConstantPoolScanner scan(Class clazz) {
+        String fileName = clazz.getName().replace('.', '/') + ".class";
+        InputStream is = clazz.getClassLoader().getResourceAsStream(fileName);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            is.close();
+            return new ConstantPoolScanner(out.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @AtomicObject
+    static class AtomicObjectClass {
+        int value;
+    }
+
+    static class AtomicMethodClass {
+        @AtomicMethod
+        void doIt() {
+        }
+    }
+
+    static class PlainClass {
+        int value;
+        int other;
+    }
+
+    static class FieldAccessClass {
+        int read(PlainClass plain) {
+            return plain.value;
+        }
+    }
+
+    static class ClassWithConstants {
+        long l = 1234567890123L;
+        double d = 1.5d;
+        String s = "\u00e9\u4e2d";
+        int caf\u00e9 = 10;
+    }
+}
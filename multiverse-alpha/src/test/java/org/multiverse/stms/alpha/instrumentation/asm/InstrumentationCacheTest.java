@@ -0,0 +1,119 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.stms.alpha.instrumentation.asm.ConstantPoolScanner.FieldReference;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Peter Veentjer
+ */
+public class InstrumentationCacheTest {
+
+    private File directory;
+    private InstrumentationCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("instrumentationcache", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+        cache = new InstrumentationCache(directory, "1");
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+        cache.getFile().delete();
+    }
+
+    @Test
+    public void whenNotFound_thenNull() {
+        assertNull(cache.get(createKey(1)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void whenPut_thenFound() {
+        InstrumentationCache.Key key = createKey(1);
+        cache.put(key, createResult(1));
+
+        assertResult(1, cache.get(key));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void whenReopened_thenEntriesFound() throws IOException {
+        cache.put(createKey(1), createResult(1));
+        cache.put(createKey(2), createResult(2));
+        cache.close();
+
+        cache = new InstrumentationCache(directory, "1");
+
+        assertEquals(2, cache.size());
+        assertResult(1, cache.get(createKey(1)));
+        assertResult(2, cache.get(createKey(2)));
+
+        cache.put(createKey(3), createResult(3));
+        assertResult(3, cache.get(createKey(3)));
+    }
+
+    @Test
+    public void whenReopenedWithOtherAgentVersion_thenCacheCleared() throws IOException {
+        cache.put(createKey(1), createResult(1));
+        cache.close();
+
+        cache = new InstrumentationCache(directory, "2");
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get(createKey(1)));
+    }
+
+    @Test
+    public void keyDependsOnManagedFieldReferences() {
+        byte[] bytecode = new byte[]{1, 2, 3};
+        List<FieldReference> references = new LinkedList<FieldReference>();
+        references.add(new FieldReference("Foo", "a"));
+        references.add(new FieldReference("Foo", "b"));
+        List<FieldReference> reversed = new LinkedList<FieldReference>();
+        reversed.add(new FieldReference("Foo", "b"));
+        reversed.add(new FieldReference("Foo", "a"));
+
+        InstrumentationCache.Key noReferences =
+                InstrumentationCache.createKey(bytecode, new LinkedList<FieldReference>());
+        InstrumentationCache.Key withReferences = InstrumentationCache.createKey(bytecode, references);
+        InstrumentationCache.Key withReversedReferences = InstrumentationCache.createKey(bytecode, reversed);
+
+        assertFalse(noReferences.equals(withReferences));
+        assertEquals(withReferences, withReversedReferences);
+    }
+
+    private static InstrumentationCache.Key createKey(int value) {
+        return InstrumentationCache.createKey(new byte[]{(byte) value}, new LinkedList<FieldReference>());
+    }
+
+    private static Instrumentor.Result createResult(int value) {
+        Map<String, byte[]> generatedClasses = new LinkedHashMap<String, byte[]>();
+        generatedClasses.put("Foo" + value + "__Tranlocal", new byte[]{(byte) value, 1});
+        generatedClasses.put("Foo" + value + "__TranlocalSnapshot", new byte[]{(byte) value, 2});
+        return new Instrumentor.Result(new byte[]{(byte) value, 0}, generatedClasses);
+    }
+
+    private static void assertResult(int value, Instrumentor.Result result) {
+        assertNotNull(result);
+        assertArrayEquals(new byte[]{(byte) value, 0}, result.bytecode);
+        assertEquals(2, result.generatedClasses.size());
+        assertArrayEquals(new byte[]{(byte) value, 1}, result.generatedClasses.get("Foo" + value + "__Tranlocal"));
+        assertArrayEquals(new byte[]{(byte) value, 2},
+                result.generatedClasses.get("Foo" + value + "__TranlocalSnapshot"));
+    }
+}
@@ -0,0 +1,72 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * @author Peter Veentjer
+ */
+public class MetadataRepositoryTest {
+
+    private final ClassLoader classLoader = MetadataRepositoryTest.class.getClassLoader();
+
+    @Test
+    public void whenSameClassLoader_thenSameRepository() {
+        assertSame(MetadataRepository.getInstance(classLoader), MetadataRepository.getInstance(classLoader));
+    }
+
+    @Test
+    public void whenDifferentClassLoader_thenDifferentRepository() {
+        ClassLoader otherClassLoader = new URLClassLoader(new URL[]{}, classLoader);
+        assertNotSame(MetadataRepository.getInstance(classLoader), MetadataRepository.getInstance(otherClassLoader));
+    }
+
+    @Test
+    public void whenBootstrapClassLoader_thenRepositoryReturned() {
+        MetadataRepository repository = MetadataRepository.getInstance(null);
+
+        assertSame(repository, MetadataRepository.getInstance(null));
+        assertFalse(repository.isAtomicObject("java/lang/Object"));
+    }
+
+    @Test
+    public void whenClassNotFound_thenEmptyMetadata() {
+        MetadataRepository repository = MetadataRepository.getInstance(classLoader);
+
+        ClassMetadata metadata = repository.getClassMetadata("org/multiverse/NonExisting");
+
+        assertNotNull(metadata);
+        assertEquals("org/multiverse/NonExisting", metadata.getName());
+        assertFalse(metadata.isAtomicObject());
+        assertFalse(metadata.isRealAtomicObject());
+        assertFalse(metadata.hasAtomicMethods());
+        assertNull(metadata.getTranlocalName());
+        assertTrue(repository.isLoaded("org/multiverse/NonExisting"));
+    }
+
+    @Test
+    public void whenAtomicObject_thenMetadataExtracted() {
+        MetadataRepository repository = MetadataRepository.getInstance(classLoader);
+        String className = "org/multiverse/datastructures/refs/Ref";
+
+        ClassMetadata metadata = repository.getClassMetadata(className);
+
+        assertSame(metadata, repository.getClassMetadata(className));
+        assertTrue(metadata.isAtomicObject());
+        assertTrue(metadata.isRealAtomicObject());
+        assertTrue(metadata.isManagedField("reference"));
+        assertEquals(className + "__Tranlocal", metadata.getTranlocalName());
+        assertEquals(className + "__TranlocalSnapshot", metadata.getTranlocalSnapshotName());
+    }
+
+    @Test
+    public void whenNoAtomicObject_thenNoManagedFields() {
+        MetadataRepository repository = MetadataRepository.getInstance(classLoader);
+
+        assertFalse(repository.isAtomicObject("java/lang/String"));
+        assertFalse(repository.isManagedInstanceField("java/lang/String", "value"));
+    }
+}
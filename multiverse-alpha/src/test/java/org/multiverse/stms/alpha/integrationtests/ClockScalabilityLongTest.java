@@ -0,0 +1,99 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.utils.clock.Clock;
+import org.multiverse.utils.clock.RelaxedClock;
+import org.multiverse.utils.clock.StrictClock;
+import org.multiverse.utils.clock.StripedClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scalability benchmark (along the lines of the IndependantScalabilityLongTest) that measures the number of commits
+ * per second of independent transactions for 1 to N threads, for the different {@link Clock} implementations. Every
+ * thread increments its own IntRef, so the only shared state between the threads is the clock.
+ *
+ * @author Peter Veentjer
+ */
+public class ClockScalabilityLongTest {
+
+    private int updateCountPerThread = 2 * 1000 * 1000;
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void strictClock() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new StrictClock(), threadCount);
+        }
+    }
+
+    @Test
+    public void relaxedClock() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new RelaxedClock(), threadCount);
+        }
+    }
+
+    @Test
+    public void stripedClock() {
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount++) {
+            test(new StripedClock(), threadCount);
+        }
+    }
+
+    private void test(Clock clock, int threadCount) {
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        config.clock = clock;
+        AlphaStm stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+
+        IncThread[] threads = new IncThread[threadCount];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new IncThread(k);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(threads);
+        joinAll(threads);
+        long periodNs = System.nanoTime() - startNs;
+
+        for (IncThread thread : threads) {
+            assertEquals(updateCountPerThread, thread.ref.get());
+        }
+
+        double commitsPerSecond = (updateCountPerThread * threadCount * 1.0d * TimeUnit.SECONDS.toNanos(1)) / periodNs;
+        System.out.printf("%s with %s threads: %s commits/second\n",
+                          clock.getClass().getSimpleName(), threadCount, commitsPerSecond);
+    }
+
+    private class IncThread extends TestThread {
+
+        private final IntRef ref = new IntRef(0);
+
+        IncThread(int id) {
+            super("IncThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < updateCountPerThread; k++) {
+                ref.inc();
+            }
+        }
+    }
+}
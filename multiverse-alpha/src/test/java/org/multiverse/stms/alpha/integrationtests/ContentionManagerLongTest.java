@@ -0,0 +1,154 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import org.multiverse.api.Transaction;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.contentionmanager.GreedyContentionManager;
+import org.multiverse.utils.contentionmanager.KarmaContentionManager;
+import org.multiverse.utils.contentionmanager.PoliteContentionManager;
+import org.multiverse.utils.contentionmanager.TimestampContentionManager;
+
+/**
+ * A test with a skewed workload: a single thread executes large transactions that increment all refs, while other
+ * threads execute tiny transactions that increment a single ref. It checks that no increments are lost and prints
+ * the number of large transactions that could be completed, for the default commit lock policy and the different
+ * contention managers.
+ *
+ * @author Peter Veentjer
+ */
+public class ContentionManagerLongTest {
+
+    private int refCount = 100;
+    private int smallThreadCount = 3;
+    private int largeTransactionCount = 500;
+    private int smallTransactionCountPerThread = 500 * 1000;
+
+    private IntRef[] refs;
+    private AlphaStm stm;
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void withoutContentionManager() {
+        test(null);
+    }
+
+    @Test
+    public void politeContentionManager() {
+        test(new PoliteContentionManager());
+    }
+
+    @Test
+    public void karmaContentionManager() {
+        test(new KarmaContentionManager());
+    }
+
+    @Test
+    public void timestampContentionManager() {
+        test(new TimestampContentionManager());
+    }
+
+    @Test
+    public void greedyContentionManager() {
+        test(new GreedyContentionManager());
+    }
+
+    private void test(ContentionManager contentionManager) {
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        config.contentionManager = contentionManager;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+
+        refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+
+        LargeThread largeThread = new LargeThread();
+        SmallThread[] smallThreads = new SmallThread[smallThreadCount];
+        for (int k = 0; k < smallThreads.length; k++) {
+            smallThreads[k] = new SmallThread(k);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(smallThreads);
+        startAll(largeThread);
+        joinAll(largeThread);
+        long largePeriodNs = System.nanoTime() - startNs;
+        joinAll(smallThreads);
+
+        long total = 0;
+        for (IntRef ref : refs) {
+            total += ref.get();
+        }
+        assertEquals(largeTransactionCount * refCount + smallThreadCount * smallTransactionCountPerThread, total);
+
+        System.out.printf("%s: %s ms for %s large transactions\n",
+                          contentionManager == null ? "no contentionmanager" : contentionManager,
+                          largePeriodNs / (1000 * 1000),
+                          largeTransactionCount);
+    }
+
+    private class LargeThread extends TestThread {
+
+        LargeThread() {
+            super("LargeThread");
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < largeTransactionCount; k++) {
+                new AtomicTemplate<Object>(stm, "large", false, false, Integer.MAX_VALUE) {
+                    @Override
+                    public Object execute(Transaction t) {
+                        AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                        for (IntRef ref : refs) {
+                            IntRefTranlocal tranlocal = (IntRefTranlocal) alphaTransaction.load(ref);
+                            ref.inc(tranlocal);
+                        }
+                        return null;
+                    }
+                }.execute();
+            }
+        }
+    }
+
+    private class SmallThread extends TestThread {
+
+        SmallThread(int id) {
+            super("SmallThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < smallTransactionCountPerThread; k++) {
+                final IntRef ref = refs[randomInt(refs.length)];
+                new AtomicTemplate<Object>(stm, "small", false, false, Integer.MAX_VALUE) {
+                    @Override
+                    public Object execute(Transaction t) {
+                        AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                        IntRefTranlocal tranlocal = (IntRefTranlocal) alphaTransaction.load(ref);
+                        ref.inc(tranlocal);
+                        return null;
+                    }
+                }.execute();
+            }
+        }
+    }
+}
@@ -13,7 +13,6 @@ import org.multiverse.stms.alpha.AlphaAtomicObject;
 import org.multiverse.stms.alpha.AlphaStm;
 import org.multiverse.stms.alpha.AlphaTranlocal;
 import org.multiverse.stms.alpha.AlphaTransaction;
-import org.multiverse.stms.alpha.instrumentation.asm.MetadataRepository;
 
 public class ReadonlyTransactionTest {
 
@@ -29,7 +28,6 @@ public class ReadonlyTransactionTest {
     @Test
     public void refIsTransformed() {
         Ref ref = new Ref();
-        MetadataRepository s = MetadataRepository.INSTANCE;
         assertTrue(((Object) ref) instanceof AlphaAtomicObject);
     }
 
@@ -0,0 +1,145 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import org.multiverse.api.Transaction;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bank transfer test (see the BankTransactionLongTest) that is executed with and without transaction pooling. It
+ * checks that no money is lost and prints the number of bytes allocated per transfer, so the effect of pooling on
+ * the pressure on the young generation can be seen.
+ *
+ * @author Peter Veentjer
+ */
+public class TransactionPoolingLongTest {
+
+    private int threadCount = 4;
+    private int accountCount = 10;
+    private int transferCountPerThread = 500 * 1000;
+
+    private AlphaStm stm;
+    private IntRef[] accounts;
+    private AtomicLong allocatedBytes;
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void withoutPooling() {
+        test(false);
+    }
+
+    @Test
+    public void withPooling() {
+        test(true);
+    }
+
+    private void test(boolean pooling) {
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        config.transactionPoolingEnabled = pooling;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+        allocatedBytes = new AtomicLong();
+
+        accounts = new IntRef[accountCount];
+        int initialAmount = 0;
+        for (int k = 0; k < accounts.length; k++) {
+            int amount = randomInt(1000);
+            initialAmount += amount;
+            accounts[k] = new IntRef(amount);
+        }
+
+        TransferThread[] threads = new TransferThread[threadCount];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new TransferThread(k);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(threads);
+        joinAll(threads);
+        long periodNs = System.nanoTime() - startNs;
+
+        int total = 0;
+        for (IntRef account : accounts) {
+            total += account.get();
+        }
+        assertEquals(initialAmount, total);
+
+        long transferCount = threadCount * transferCountPerThread;
+        System.out.printf("pooling=%s: %s ns/transfer\n", pooling, periodNs / transferCount);
+        if (allocatedBytes.get() >= 0) {
+            System.out.printf("pooling=%s: %s bytes/transfer\n", pooling, allocatedBytes.get() / transferCount);
+        }
+    }
+
+    private class TransferThread extends TestThread {
+
+        TransferThread(int id) {
+            super("TransferThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            long allocatedBefore = getAllocatedBytes();
+
+            for (int k = 0; k < transferCountPerThread; k++) {
+                IntRef from = accounts[randomInt(accounts.length)];
+                IntRef to = accounts[randomInt(accounts.length)];
+                transfer(from, to, randomInt(100));
+            }
+
+            long allocatedAfter = getAllocatedBytes();
+            if (allocatedBefore < 0 || allocatedAfter < 0) {
+                allocatedBytes.set(-1);
+            } else {
+                allocatedBytes.addAndGet(allocatedAfter - allocatedBefore);
+            }
+        }
+
+        private void transfer(final IntRef from, final IntRef to, final int amount) {
+            new AtomicTemplate<Object>(stm, "transfer", false, false, Integer.MAX_VALUE) {
+                @Override
+                public Object execute(Transaction t) {
+                    AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                    IntRefTranlocal fromTranlocal = (IntRefTranlocal) alphaTransaction.load(from);
+                    IntRefTranlocal toTranlocal = (IntRefTranlocal) alphaTransaction.load(to);
+                    from.set(fromTranlocal, from.get(fromTranlocal) - amount);
+                    to.set(toTranlocal, to.get(toTranlocal) + amount);
+                    return null;
+                }
+            }.execute();
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
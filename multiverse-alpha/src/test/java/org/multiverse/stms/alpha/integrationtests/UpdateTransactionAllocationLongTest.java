@@ -0,0 +1,117 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import static org.multiverse.stms.alpha.AlphaStmConfig.createFastConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A microbenchmark that measures the number of bytes allocated per commit of an update transaction that touches a
+ * small number of atomicobjects; the typical transaction. The number of bytes includes the tranlocals that need to
+ * be created for the dirty atomicobjects, the remainder is overhead of the transaction (attached set, writeset etc).
+ * <p/>
+ * The transaction is reused (by restarting it) to isolate the cost of the transaction itself from the cost of
+ * creating a new transaction.
+ * <p/>
+ * The allocated bytes can only be measured on a jvm that provides a com.sun.management.ThreadMXBean, on other jvms
+ * only the throughput is printed.
+ *
+ * @author Peter Veentjer
+ */
+public class UpdateTransactionAllocationLongTest {
+
+    private int warmupCount = 100 * 1000;
+    private int transactionCount = 1000 * 1000;
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm(createFastConfig());
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void with2Refs() {
+        test(2);
+    }
+
+    @Test
+    public void with10Refs() {
+        test(10);
+    }
+
+    @Test
+    public void with20Refs() {
+        test(20);
+    }
+
+    private void test(int refCount) {
+        IntRef[] refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t = run(t, refs, warmupCount);
+
+        long allocatedBefore = getAllocatedBytes();
+        long startNs = System.nanoTime();
+        t = run(t, refs, transactionCount);
+        long periodNs = System.nanoTime() - startNs;
+        long allocatedAfter = getAllocatedBytes();
+        t.abort();
+
+        for (IntRef ref : refs) {
+            assertEquals(warmupCount + transactionCount, ref.get());
+        }
+
+        System.out.printf("%s refs: %s ns/transaction\n", refCount, periodNs / transactionCount);
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            System.out.printf("%s refs: %s bytes/transaction (including %s tranlocals)\n",
+                              refCount, (allocatedAfter - allocatedBefore) / transactionCount, refCount);
+        }
+    }
+
+    private AlphaTransaction run(AlphaTransaction t, IntRef[] refs, int count) {
+        for (int k = 0; k < count; k++) {
+            for (IntRef ref : refs) {
+                IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+                ref.inc(tranlocal);
+            }
+            t.commit();
+            t = (AlphaTransaction) t.abortAndReturnRestarted();
+        }
+        return t;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,134 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import org.multiverse.api.Transaction;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A benchmark that compares the number of aborts of long readonly transactions while writers keep on updating the
+ * same atomicobjects. Without version history (the single version design) a readonly transaction needs to restart as
+ * soon as one of its atomicobjects is updated after it started. With version history it can find the correct
+ * version in the history of the atomicobject.
+ *
+ * @author Peter Veentjer
+ */
+public class VersionHistoryAbortRateLongTest {
+
+    private int refCount = 100;
+    private int writerCount = 2;
+    private int readerCount = 2;
+    private int readCountPerReader = 2 * 1000;
+
+    private AlphaStm stm;
+    private IntRef[] refs;
+    private AtomicBoolean readersFinished;
+
+    @Before
+    public void setUp() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void test() {
+        long abortsWithoutHistory = run(0);
+        long abortsWithHistory = run(100);
+
+        System.out.printf("readonly aborts without history: %s\n", abortsWithoutHistory);
+        System.out.printf("readonly aborts with history: %s\n", abortsWithHistory);
+
+        assertTrue(abortsWithHistory <= abortsWithoutHistory);
+    }
+
+    private long run(int maxHistoryDepth) {
+        AlphaStmConfig config = AlphaStmConfig.createDebugConfig();
+        config.maxHistoryDepth = maxHistoryDepth;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+
+        refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(0);
+        }
+
+        readersFinished = new AtomicBoolean();
+
+        WriterThread[] writers = new WriterThread[writerCount];
+        for (int k = 0; k < writers.length; k++) {
+            writers[k] = new WriterThread(k);
+        }
+
+        ReaderThread[] readers = new ReaderThread[readerCount];
+        for (int k = 0; k < readers.length; k++) {
+            readers[k] = new ReaderThread(k);
+        }
+
+        long startNs = System.nanoTime();
+        startAll(writers);
+        startAll(readers);
+        joinAll(readers);
+        readersFinished.set(true);
+        joinAll(writers);
+        long periodNs = System.nanoTime() - startNs;
+
+        System.out.printf("maxHistoryDepth %s took %s ms\n", maxHistoryDepth, periodNs / (1000 * 1000));
+        return stm.getProfiler().sumKey1("readonlytransaction.aborted.count");
+    }
+
+    private class WriterThread extends TestThread {
+
+        WriterThread(int id) {
+            super("WriterThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            int k = 0;
+            while (!readersFinished.get()) {
+                refs[k % refs.length].inc();
+                k++;
+            }
+        }
+    }
+
+    private class ReaderThread extends TestThread {
+
+        ReaderThread(int id) {
+            super("ReaderThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < readCountPerReader; k++) {
+                sum();
+            }
+        }
+
+        private long sum() {
+            return new AtomicTemplate<Long>(stm, null, true, true, Integer.MAX_VALUE) {
+                @Override
+                public Long execute(Transaction t) {
+                    long sum = 0;
+                    for (IntRef ref : refs) {
+                        IntRefTranlocal tranlocal = (IntRefTranlocal) ((AlphaTransaction) t).load(ref);
+                        sum += ref.get(tranlocal);
+                    }
+                    return sum;
+                }
+            }.execute();
+        }
+    }
+}
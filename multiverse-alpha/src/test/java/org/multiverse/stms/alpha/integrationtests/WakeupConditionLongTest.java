@@ -0,0 +1,170 @@
+package org.multiverse.stms.alpha.integrationtests;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.StmUtils.retry;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.AlphaWakeupCondition;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A benchmark for the {@link AlphaWakeupCondition}: a bounded queue (only the size is modelled) with a single producer
+ * and a large number of mostly idle consumers. Without a wakeup condition every take wakes up all waiting consumers,
+ * even when the queue has become empty. With a wakeup condition the consumers only are woken up when the queue is not
+ * empty. The test prints the number of executions of the take transaction, which is a measure for the number of
+ * wakeups (and context switches).
+ *
+ * @author Peter Veentjer
+ */
+public class WakeupConditionLongTest {
+
+    private int consumerCount = 1000;
+    private int takeCountPerConsumer = 10;
+    private static final int CAPACITY = 10;
+
+    private AlphaStm stm;
+    private IntRef size;
+    private AtomicLong takeExecutionCount = new AtomicLong();
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void withoutWakeupCondition() {
+        test(false);
+    }
+
+    @Test
+    public void withWakeupCondition() {
+        test(true);
+    }
+
+    private void test(boolean useWakeupCondition) {
+        stm = new AlphaStm(AlphaStmConfig.createFastConfig());
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+        size = new IntRef(0);
+        takeExecutionCount.set(0);
+
+        ConsumerThread[] consumers = new ConsumerThread[consumerCount];
+        for (int k = 0; k < consumers.length; k++) {
+            consumers[k] = new ConsumerThread(k, useWakeupCondition);
+        }
+        ProducerThread producer = new ProducerThread(useWakeupCondition);
+
+        long startNs = System.nanoTime();
+        startAll(consumers);
+        startAll(producer);
+        joinAll(producer);
+        joinAll(consumers);
+        long periodNs = System.nanoTime() - startNs;
+
+        assertEquals(0, size.get());
+
+        long takeCount = consumerCount * takeCountPerConsumer;
+        System.out.printf("%s: %s ms, %s executions of the take transaction for %s takes\n",
+                          useWakeupCondition ? "with wakeup condition" : "without wakeup condition",
+                          periodNs / (1000 * 1000),
+                          takeExecutionCount.get(),
+                          takeCount);
+    }
+
+    private class ProducerThread extends TestThread {
+
+        private final boolean useWakeupCondition;
+
+        ProducerThread(boolean useWakeupCondition) {
+            super("ProducerThread");
+            this.useWakeupCondition = useWakeupCondition;
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < consumerCount * takeCountPerConsumer; k++) {
+                new AtomicTemplate<Object>(stm, "put", false, false, Integer.MAX_VALUE) {
+                    @Override
+                    public Object execute(Transaction t) {
+                        AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                        IntRefTranlocal tranlocal = (IntRefTranlocal) alphaTransaction.load(size);
+                        if (tranlocal.value == CAPACITY) {
+                            if (useWakeupCondition) {
+                                alphaTransaction.registerWakeupCondition(size, NotFullCondition.INSTANCE);
+                            }
+                            retry();
+                        }
+                        size.inc(tranlocal);
+                        return null;
+                    }
+                }.execute();
+            }
+        }
+    }
+
+    private class ConsumerThread extends TestThread {
+
+        private final boolean useWakeupCondition;
+
+        ConsumerThread(int id, boolean useWakeupCondition) {
+            super("ConsumerThread-" + id);
+            this.useWakeupCondition = useWakeupCondition;
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < takeCountPerConsumer; k++) {
+                new AtomicTemplate<Object>(stm, "take", false, false, Integer.MAX_VALUE) {
+                    @Override
+                    public Object execute(Transaction t) {
+                        takeExecutionCount.incrementAndGet();
+                        AlphaTransaction alphaTransaction = (AlphaTransaction) t;
+                        IntRefTranlocal tranlocal = (IntRefTranlocal) alphaTransaction.load(size);
+                        if (tranlocal.value == 0) {
+                            if (useWakeupCondition) {
+                                alphaTransaction.registerWakeupCondition(size, NotEmptyCondition.INSTANCE);
+                            }
+                            retry();
+                        }
+                        size.dec(tranlocal);
+                        return null;
+                    }
+                }.execute();
+            }
+        }
+    }
+
+    static class NotEmptyCondition implements AlphaWakeupCondition {
+
+        static final NotEmptyCondition INSTANCE = new NotEmptyCondition();
+
+        @Override
+        public boolean isSatisfied(AlphaTranlocal tranlocal) {
+            return ((IntRefTranlocal) tranlocal).value > 0;
+        }
+    }
+
+    static class NotFullCondition implements AlphaWakeupCondition {
+
+        static final NotFullCondition INSTANCE = new NotFullCondition();
+
+        @Override
+        public boolean isSatisfied(AlphaTranlocal tranlocal) {
+            return ((IntRefTranlocal) tranlocal).value < CAPACITY;
+        }
+    }
+}
@@ -124,6 +124,11 @@ class AbaRefTranlocal<E> extends AlphaTranlocal {
         this.writeVersion = origin.writeVersion;
     }
 
+    @Override
+    public AbaRefTranlocal<E> openForWrite() {
+        return new AbaRefTranlocal<E>(this);
+    }
+
     AbaRefTranlocal(AbaRef<E> atomicObject) {
         this(atomicObject, null);
     }
@@ -74,6 +74,11 @@ class BooleanRefTranlocal extends AlphaTranlocal {
         this.___atomicObject = origin.___atomicObject;
     }
 
+    @Override
+    public BooleanRefTranlocal openForWrite() {
+        return new BooleanRefTranlocal(this);
+    }
+
     public BooleanRefTranlocal(BooleanRef atomicObject) {
         this.___atomicObject = atomicObject;
     }
@@ -21,6 +21,11 @@ public class IntRefTranlocal extends AlphaTranlocal {
         this.value = origin.value;
     }
 
+    @Override
+    public IntRefTranlocal openForWrite() {
+        return new IntRefTranlocal(this);
+    }
+
     public IntRefTranlocal(IntRef atomicObject) {
         this.___atomicObject = atomicObject;
     }
@@ -20,6 +20,11 @@ public final class IntStackTranlocal extends AlphaTranlocal {
         this.head = origin.head;
     }
 
+    @Override
+    public IntStackTranlocal openForWrite() {
+        return new IntStackTranlocal(this);
+    }
+
     IntStackTranlocal(IntStack atomicObject) {
         this.___atomicObject = atomicObject;
     }
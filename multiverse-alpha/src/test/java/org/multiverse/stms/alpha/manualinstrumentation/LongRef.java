@@ -122,6 +122,11 @@ class LongRefTranlocal extends AlphaTranlocal {
         this.value = origin.value;
     }
 
+    @Override
+    public LongRefTranlocal openForWrite() {
+        return new LongRefTranlocal(this);
+    }
+
     public LongRefTranlocal(LongRef atomicObject) {
         this.___atomicObject = atomicObject;
     }
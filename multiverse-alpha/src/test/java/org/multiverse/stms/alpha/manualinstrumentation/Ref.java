@@ -122,6 +122,11 @@ class RefTranlocal<E> extends AlphaTranlocal {
         this.value = origin.value;
     }
 
+    @Override
+    public RefTranlocal<E> openForWrite() {
+        return new RefTranlocal<E>(this);
+    }
+
     RefTranlocal(Ref<E> atomicObject) {
         this.___atomicObject = atomicObject;
     }
@@ -165,6 +165,11 @@ public final class Stack<E> extends FastAtomicObjectMixin {
             this.head = origin.head;
         }
 
+        @Override
+        public StackTranlocal<E> openForWrite() {
+            return new StackTranlocal<E>(this);
+        }
+
         @Override
         public AlphaAtomicObject getAtomicObject() {
             return ___atomicObject;
@@ -12,6 +12,8 @@ import org.multiverse.api.exceptions.LoadTooOldVersionException;
 import org.multiverse.stms.alpha.*;
 import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
 import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.latches.CheapLatch;
+import org.multiverse.utils.latches.Latch;
 
 public class FastAtomicObjectMixinTest {
 
@@ -47,7 +49,7 @@ public class FastAtomicObjectMixinTest {
         DummyTranlocal tranlocal = new DummyTranlocal(atomicObject);
         long writeVersion = 10;
         atomicObject.___tryLock(lockOwner);
-        atomicObject.___storeAndReleaseLock(tranlocal, writeVersion);
+        atomicObject.___storeAndReleaseLock(tranlocal, writeVersion, 0);
         atomicObject.___releaseLock(lockOwner);
 
         AlphaTranlocal result = atomicObject.___load(writeVersion);
@@ -62,7 +64,7 @@ public class FastAtomicObjectMixinTest {
         DummyTranlocal tranlocal = new DummyTranlocal(atomicObject);
         long writeVersion = 10;
         atomicObject.___tryLock(lockOwner);
-        atomicObject.___storeAndReleaseLock(tranlocal, writeVersion);
+        atomicObject.___storeAndReleaseLock(tranlocal, writeVersion, 0);
         atomicObject.___releaseLock(lockOwner);
 
         AlphaTranlocal result = atomicObject.___load(writeVersion + 1);
@@ -143,6 +145,112 @@ public class FastAtomicObjectMixinTest {
         }
     }
 
+    // ================ version history ==========================
+
+    @Test
+    public void loadTooNewVersionFindsVersionInHistory() {
+        DummyFastAtomicObjectMixin atomicObject = new DummyFastAtomicObjectMixin();
+        DummyTranlocal first = store(atomicObject, 10, 2);
+        DummyTranlocal second = store(atomicObject, 20, 2);
+
+        assertSame(first, atomicObject.___load(10));
+        assertSame(first, atomicObject.___load(15));
+        assertSame(second, atomicObject.___load(20));
+    }
+
+    @Test
+    public void loadTooNewVersionFailsIfHistoryDoesNotGoBackFarEnough() {
+        DummyFastAtomicObjectMixin atomicObject = new DummyFastAtomicObjectMixin();
+        store(atomicObject, 10, 1);
+        DummyTranlocal second = store(atomicObject, 20, 1);
+        store(atomicObject, 30, 1);
+
+        assertSame(second, atomicObject.___load(25));
+
+        try {
+            atomicObject.___load(15);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+    }
+
+    @Test
+    public void storeTrimsHistory() {
+        DummyFastAtomicObjectMixin atomicObject = new DummyFastAtomicObjectMixin();
+        DummyTranlocal first = store(atomicObject, 10, 2);
+        DummyTranlocal second = store(atomicObject, 20, 2);
+        DummyTranlocal third = store(atomicObject, 30, 2);
+        DummyTranlocal fourth = store(atomicObject, 40, 2);
+
+        assertSame(third, fourth.___previous);
+        assertSame(second, third.___previous);
+        assertNull(second.___previous);
+        assertNull(first.___previous);
+    }
+
+    @Test
+    public void storeWithoutHistoryDepthKeepsNoHistory() {
+        DummyFastAtomicObjectMixin atomicObject = new DummyFastAtomicObjectMixin();
+        store(atomicObject, 10, 0);
+        DummyTranlocal second = store(atomicObject, 20, 0);
+
+        assertNull(second.___previous);
+
+        try {
+            atomicObject.___load(15);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+    }
+
+    private DummyTranlocal store(DummyFastAtomicObjectMixin atomicObject, long writeVersion, int maxHistoryDepth) {
+        Transaction lockOwner = new DummyTransaction();
+        DummyTranlocal tranlocal = new DummyTranlocal(atomicObject);
+        atomicObject.___tryLock(lockOwner);
+        atomicObject.___storeAndReleaseLock(tranlocal, writeVersion, maxHistoryDepth);
+        atomicObject.___releaseLock(lockOwner);
+        return tranlocal;
+    }
+
+    // ================ deregisterRetryListener ==========================
+
+    @Test
+    public void deregisteredRetryListenerIsNotOpened() {
+        IntRef ref = new IntRef(0);
+        Latch latch = new CheapLatch();
+
+        assertTrue(ref.___registerRetryListener(latch, stm.getTime() + 1));
+        ref.___deregisterRetryListener(latch);
+
+        ref.inc();
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void deregisterKeepsOtherRetryListeners() {
+        IntRef ref = new IntRef(0);
+        Latch latch1 = new CheapLatch();
+        Latch latch2 = new CheapLatch();
+
+        ref.___registerRetryListener(latch1, stm.getTime() + 1);
+        ref.___registerRetryListener(latch2, stm.getTime() + 1);
+        ref.___deregisterRetryListener(latch1);
+
+        ref.inc();
+        assertFalse(latch1.isOpen());
+        assertTrue(latch2.isOpen());
+    }
+
+    @Test
+    public void deregisterNonRegisteredRetryListenerIsIgnored() {
+        IntRef ref = new IntRef(0);
+        Latch latch = new CheapLatch();
+
+        ref.___deregisterRetryListener(latch);
+
+        ref.inc();
+        assertFalse(latch.isOpen());
+    }
 
     // ================ acquireLock ==========================
 
@@ -230,6 +338,11 @@ public class FastAtomicObjectMixinTest {
             ___writeVersion = writeVersion;
         }
 
+        @Override
+        public AlphaTranlocal openForWrite() {
+            throw new RuntimeException();
+        }
+
         @Override
         public AlphaTranlocalSnapshot takeSnapshot() {
             throw new RuntimeException();
@@ -0,0 +1,69 @@
+package org.multiverse.stms.alpha.mixins;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+
+/**
+ * @author Peter Veentjer
+ */
+public class LockSpinnerTest {
+
+    @Before
+    public void setUp() {
+        setGlobalStmInstance(new AlphaStm());
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void freeLockSucceedsImmediately() {
+        IntRef ref = new IntRef(0);
+        assertTrue(LockSpinner.awaitUnlocked(ref));
+    }
+
+    @Test
+    public void lockThatIsNotReleasedFails() {
+        IntRef ref = new IntRef(0);
+        Transaction owner = new DummyTransaction();
+        ref.___tryLock(owner);
+
+        assertFalse(LockSpinner.awaitUnlocked(ref));
+        assertSame(owner, ref.___getLockOwner());
+    }
+
+    @Test
+    public void lockThatIsReleasedWhileWaitingSucceeds() {
+        final IntRef ref = new IntRef(0);
+        final Transaction owner = new DummyTransaction();
+        ref.___tryLock(owner);
+
+        TestThread releaseThread = new TestThread("ReleaseThread") {
+            @Override
+            public void doRun() {
+                ref.___releaseLock(owner);
+            }
+        };
+
+        //there is no guarantee that the release happens within the wait, so just check that it doesn't fail.
+        startAll(releaseThread);
+        while (!LockSpinner.awaitUnlocked(ref)) {
+        }
+        joinAll(releaseThread);
+
+        assertNull(ref.___getLockOwner());
+    }
+}
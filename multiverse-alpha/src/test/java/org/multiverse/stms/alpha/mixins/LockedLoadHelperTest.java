@@ -0,0 +1,150 @@
+package org.multiverse.stms.alpha.mixins;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaCommitPublisher;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.UpdateAlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class LockedLoadHelperTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.commitPublishingEnabled = true;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void lockOwnerThatDoesntPublishIsNotHelped() {
+        IntRef ref = new IntRef(0);
+        DummyTransaction owner = new DummyTransaction();
+        ref.___tryLock(owner);
+
+        assertNull(LockedLoadHelper.tryLoad(ref, owner, stm.getTime()));
+    }
+
+    @Test
+    public void lockOwnerWithoutPublishedCommitIsNotHelped() {
+        IntRef ref = new IntRef(0);
+        PublishingTransaction owner = new PublishingTransaction();
+        ref.___tryLock(owner);
+
+        assertNull(LockedLoadHelper.tryLoad(ref, owner, stm.getTime()));
+    }
+
+    @Test
+    public void readVersionBeforePublishedWriteVersionReturnsCommitted() {
+        IntRef ref = new IntRef(0);
+        AlphaTranlocal committed = ref.___load();
+        long readVersion = stm.getTime();
+
+        PublishingTransaction owner = new PublishingTransaction();
+        ref.___tryLock(owner);
+        owner.publish(ref, 10, readVersion + 1);
+
+        assertSame(committed, LockedLoadHelper.tryLoad(ref, owner, readVersion));
+        assertSame(committed, ref.___load(readVersion));
+    }
+
+    @Test
+    public void readVersionAfterPublishedWriteVersionReturnsPublished() {
+        IntRef ref = new IntRef(0);
+        long writeVersion = stm.getTime() + 1;
+
+        PublishingTransaction owner = new PublishingTransaction();
+        ref.___tryLock(owner);
+        owner.publish(ref, 10, writeVersion);
+
+        assertSame(owner.published, LockedLoadHelper.tryLoad(ref, owner, writeVersion));
+        assertSame(owner.published, ref.___load(writeVersion));
+        assertEquals(10, ((IntRefTranlocal) ref.___load(writeVersion)).value);
+    }
+
+    @Test
+    public void publishedCommitThatDoesntHoldTheLockIsNotHelped() {
+        IntRef ref = new IntRef(0);
+        long writeVersion = stm.getTime() + 1;
+
+        PublishingTransaction owner = new PublishingTransaction();
+        owner.publish(ref, 10, writeVersion);
+
+        assertNull(LockedLoadHelper.tryLoad(ref, owner, writeVersion));
+    }
+
+    @Test
+    public void publishedTranlocalOfOtherCommitIsNotHelped() {
+        IntRef ref = new IntRef(0);
+        long writeVersion = stm.getTime() + 1;
+
+        PublishingTransaction owner = new PublishingTransaction();
+        ref.___tryLock(owner);
+        owner.publish(ref, 10, writeVersion);
+        owner.publishedWriteVersion = writeVersion + 1;
+
+        assertNull(LockedLoadHelper.tryLoad(ref, owner, writeVersion + 1));
+    }
+
+    @Test
+    public void commitIsUnpublishedAfterCommit() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        UpdateAlphaTransaction t = (UpdateAlphaTransaction) stm.startUpdateTransaction(null);
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        ref2.inc((IntRefTranlocal) t.load(ref2));
+        long writeVersion = t.commit();
+
+        assertEquals(0, t.getPublishedWriteVersion());
+        assertEquals(1, ref1.get());
+        assertEquals(1, ref2.get());
+        assertEquals(writeVersion, ref1.___load().___writeVersion);
+        assertEquals(writeVersion, ref2.___load().___writeVersion);
+    }
+
+    static class PublishingTransaction extends DummyTransaction implements AlphaCommitPublisher {
+
+        volatile long publishedWriteVersion;
+        AlphaTranlocal published;
+
+        void publish(IntRef ref, int value, long writeVersion) {
+            IntRefTranlocal tranlocal = (IntRefTranlocal) ref.___load().openForWrite();
+            tranlocal.value = value;
+            tranlocal.prepareForCommit(writeVersion);
+            published = tranlocal;
+            publishedWriteVersion = writeVersion;
+        }
+
+        @Override
+        public long getPublishedWriteVersion() {
+            return publishedWriteVersion;
+        }
+
+        @Override
+        public AlphaTranlocal getPublishedTranlocal(AlphaAtomicObject atomicObject) {
+            return published != null && published.getAtomicObject() == atomicObject ? published : null;
+        }
+    }
+}
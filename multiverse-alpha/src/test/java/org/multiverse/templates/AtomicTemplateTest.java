@@ -10,13 +10,16 @@ import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
 import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 import org.multiverse.api.Transaction;
+import static org.multiverse.api.StmUtils.retry;
 import org.multiverse.api.exceptions.LoadTooOldVersionException;
 import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.RetryTimeoutException;
 import org.multiverse.api.exceptions.TooManyRetriesException;
 import org.multiverse.datastructures.refs.IntRef;
 import org.multiverse.stms.alpha.AlphaStm;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class AtomicTemplateTest {
 
@@ -293,6 +296,66 @@ public class AtomicTemplateTest {
         assertEquals(0, ref.get());
     }
 
+    // =========  timed retry ===============================
+
+    @Test
+    public void timedRetryTimesOut() {
+        final IntRef ref = new IntRef(0);
+        final IntHolder executeCounter = new IntHolder();
+
+        long version = stm.getTime();
+        long startNs = System.nanoTime();
+
+        try {
+            new AtomicTemplate() {
+                @Override
+                public Object execute(Transaction t) throws Exception {
+                    executeCounter.value++;
+                    if (ref.get() == 0) {
+                        retry(100, TimeUnit.MILLISECONDS);
+                    }
+                    return null;
+                }
+            }.execute();
+
+            fail();
+        } catch (RetryTimeoutException expected) {
+        }
+
+        assertTrue(System.nanoTime() - startNs >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(2, executeCounter.value);
+        assertEquals(version, stm.getTime());
+        assertNull(getThreadLocalTransaction());
+    }
+
+    @Test
+    public void timedRetryEndsWhenInterrupted() {
+        final IntRef ref = new IntRef(0);
+        final IntHolder executeCounter = new IntHolder();
+
+        long startNs = System.nanoTime();
+        Thread.currentThread().interrupt();
+        try {
+            new AtomicTemplate() {
+                @Override
+                public Object execute(Transaction t) throws Exception {
+                    executeCounter.value++;
+                    if (ref.get() == 0) {
+                        retry(1, TimeUnit.MINUTES);
+                    }
+                    return null;
+                }
+            }.execute();
+
+            fail();
+        } catch (RetryTimeoutException expected) {
+        }
+
+        assertTrue(Thread.interrupted());
+        assertTrue(System.nanoTime() - startNs < TimeUnit.SECONDS.toNanos(30));
+        assertEquals(2, executeCounter.value);
+    }
+
     private static class IntHolder {
 
         int value;
@@ -2,8 +2,12 @@ package org.multiverse.api;
 
 import org.multiverse.api.exceptions.NoTransactionFoundException;
 import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.api.exceptions.RetryTimeoutException;
 import static org.multiverse.api.ThreadLocalTransaction.getRequiredThreadLocalTransaction;
 
+import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A utility class with convenience methods to access the {@link org.multiverse.api.Stm} or
  * {@link Transaction}. These methods can be imported using the static import for a less
@@ -26,6 +30,45 @@ public final class StmUtils {
         throw RetryError.create();
     }
 
+    /**
+     * Does a retry, but doesn't wait longer than the timeout for a change.
+     * <p/>
+     * The first timed retry of a transaction sets the timeout; when the transaction is retried, the time spent waiting
+     * is subtracted from it (see {@link Transaction#getRemainingTimeoutNs()}). So calling this method again with the
+     * same timeout after a wakeup, doesn't restart the timeout. Once the timeout has elapsed, a
+     * {@link RetryTimeoutException} is thrown instead of a retry, so that the caller can give up. If the waiting
+     * thread is interrupted, the wait ends as if the timeout has elapsed and the interrupt status is kept.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit    the TimeUnit of the timeout.
+     * @throws NoTransactionFoundException if no transaction is found in the ThreadLocalTransaction.
+     * @throws NullPointerException        if unit is null.
+     * @throws RetryTimeoutException       if the timeout has elapsed.
+     */
+    public static void retry(long timeout, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        Transaction t = getRequiredThreadLocalTransaction();
+        long remainingTimeoutNs = t.getRemainingTimeoutNs();
+        if (remainingTimeoutNs == Long.MAX_VALUE) {
+            remainingTimeoutNs = unit.toNanos(timeout);
+            t.setRemainingTimeoutNs(remainingTimeoutNs);
+        }
+
+        if (remainingTimeoutNs <= 0) {
+            if (RetryTimeoutException.reuse) {
+                throw RetryTimeoutException.INSTANCE;
+            } else {
+                String msg = format("Timed retry on transaction '%s' timed out", t.getFamilyName());
+                throw new RetryTimeoutException(msg);
+            }
+        }
+
+        throw RetryError.create();
+    }
+
     /**
      * Schedules a tasks so that it executes when the transaction commits.
      *
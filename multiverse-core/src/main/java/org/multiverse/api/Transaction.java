@@ -111,6 +111,36 @@ public interface Transaction {
      */
     void abortAndRegisterRetryLatch(Latch latch);
 
+    /**
+     * Removes the latch that was registered using {@link #abortAndRegisterRetryLatch(Latch)} from the atomicobjects it
+     * was registered on. This should be done when a timed retry times out, so that the registrations don't pile up on
+     * atomicobjects that are not changed. It is a best effort; a registration that has not been removed, can only cause
+     * a spurious wakeup.
+     * <p/>
+     * This call only makes sense on an aborted transaction that has not been restarted yet.
+     *
+     * @param latch the Latch to deregister.
+     * @throws NullPointerException if latch is null.
+     */
+    void deregisterRetryLatch(Latch latch);
+
+    /**
+     * Returns the remaining time in nanoseconds this transaction is allowed to wait for a timed retry (see {@link
+     * org.multiverse.api.StmUtils#retry(long, java.util.concurrent.TimeUnit)}). The remaining timeout is kept when the
+     * transaction is restarted.
+     *
+     * @return the remaining timeout in nanoseconds, or Long.MAX_VALUE if no timeout has been set.
+     */
+    long getRemainingTimeoutNs();
+
+    /**
+     * Sets the remaining time in nanoseconds this transaction is allowed to wait for a timed retry.
+     *
+     * @param remainingTimeoutNs the remaining timeout in nanoseconds, Long.MAX_VALUE if there is no timeout.
+     * @see #getRemainingTimeoutNs()
+     */
+    void setRemainingTimeoutNs(long remainingTimeoutNs);
+
     /**
      * Starts the 'or' from the 'orelse' block.
      * <p/>
@@ -9,6 +9,13 @@ import java.lang.annotation.Target;
 /**
  * Can be placed on an object to make it Atomic. See the {@link AtomicMethod} for more information.
  * All instance methods will be {@link AtomicMethod} by default (not readonly).
+ * <p/>
+ * By default a conflict is detected on the granularity of the object: if a transaction writes to an atomic object
+ * and another transaction has committed a change to the same object in the meantime, the transaction fails, even if
+ * both changed unrelated fields. When fieldGranularity is set to true, a conflict is only detected if the other
+ * transaction changed one of the fields this transaction changed; the changes of the other transaction to the other
+ * fields are merged. Be careful: reads of fields are not validated in this mode, so a field that was only read could
+ * have been changed by a concurrent transaction.
  *
  * @author Peter Veentjer.
  */
@@ -17,4 +24,5 @@ import java.lang.annotation.Target;
 @Inherited
 public @interface AtomicObject {
 
+    boolean fieldGranularity() default false;
 }
@@ -7,7 +7,8 @@ import static java.lang.System.getProperty;
  * A {@link LoadException} that indicates that a load was done, but the version needed could not be found because it is
  * too old (and doesn't exist anymore).
  * <p/>
- * In the future version history will be added so that multiple version could be alive at any given moment.
+ * Depending on the stm implementation, a version history could be kept so that multiple versions are alive at any
+ * given moment. This reduces the chance of this exception being thrown, but doesn't remove it completely.
  *
  * @author Peter Veentjer.
  */
@@ -0,0 +1,39 @@
+package org.multiverse.api.exceptions;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.System.getProperty;
+
+/**
+ * A {@link RuntimeException} that indicates that a timed retry (see {@link org.multiverse.api.StmUtils#retry(long,
+ * java.util.concurrent.TimeUnit)}) didn't get the change it was waiting for within the timeout.
+ * <p/>
+ * It is not a {@link RecoverableThrowable}, so the transaction is aborted and the exception is propagated to the
+ * caller of the atomic method. A timeout is a normal outcome for a timed blocking operation, so the instance can be
+ * reused to prevent the cost of creating the stacktrace.
+ *
+ * @author Peter Veentjer.
+ */
+public class RetryTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 0;
+
+    public final static RetryTimeoutException INSTANCE = new RetryTimeoutException();
+
+    public final static boolean reuse = parseBoolean(
+            getProperty(RetryTimeoutException.class.getName() + ".reuse", "true"));
+
+    public RetryTimeoutException() {
+    }
+
+    public RetryTimeoutException(String message) {
+        super(message);
+    }
+
+    public RetryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RetryTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
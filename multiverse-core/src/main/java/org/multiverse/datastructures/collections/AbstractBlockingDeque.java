@@ -1,7 +1,10 @@
 package org.multiverse.datastructures.collections;
 
 import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.Transaction;
 import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.exceptions.RetryTimeoutException;
+import static org.multiverse.datastructures.collections.TimedWaits.*;
 import org.multiverse.utils.TodoException;
 
 import java.util.AbstractCollection;
@@ -12,16 +15,62 @@ import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractBlockingDeque<E> extends AbstractCollection<E> implements BlockingDeque<E> {
 
+    //the timed methods are not atomic themselves; the RetryTimeoutException thrown by the timed retry can only be
+    //caught outside of the atomic method that does the retry. Within a running transaction the timed retry restarts
+    //that transaction, and the timeout is removed from it again once the call is done (see TimedWaits).
+
     @Override
-    @AtomicMethod
     public boolean offerFirst(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            putFirst(e, timeout, unit);
+            endTimedWait(t);
+            return true;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return false;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
     }
 
-    @Override
     @AtomicMethod
+    private void putFirst(E e, long timeout, TimeUnit unit) {
+        if (hasNoStorageCapacity()) {
+            retry(timeout, unit);
+        }
+
+        doAddFirst(e);
+    }
+
+    @Override
     public boolean offerLast(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            putLast(e, timeout, unit);
+            endTimedWait(t);
+            return true;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return false;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
+    }
+
+    @AtomicMethod
+    private void putLast(E e, long timeout, TimeUnit unit) {
+        if (hasNoStorageCapacity()) {
+            retry(timeout, unit);
+        }
+
+        doAddLast(e);
     }
 
     @Override
@@ -209,27 +258,67 @@ public abstract class AbstractBlockingDeque<E> extends AbstractCollection<E> imp
     }
 
     @Override
-    @AtomicMethod
     public E pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            E item = takeFirst(timeout, unit);
+            endTimedWait(t);
+            return item;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return null;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
     }
 
-    @Override
     @AtomicMethod
-    public E pollLast(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+    private E takeFirst(long timeout, TimeUnit unit) {
+        if (isEmpty()) {
+            retry(timeout, unit);
+        }
+
+        return doRemoveFirst();
     }
 
     @Override
+    public E pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            E item = takeLast(timeout, unit);
+            endTimedWait(t);
+            return item;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return null;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
+    }
+
     @AtomicMethod
+    private E takeLast(long timeout, TimeUnit unit) {
+        if (isEmpty()) {
+            retry(timeout, unit);
+        }
+
+        return doRemoveLast();
+    }
+
+    @Override
     public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        return offerLast(e, timeout, unit);
     }
 
     @Override
-    @AtomicMethod
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        return pollFirst(timeout, unit);
     }
 
     @Override
@@ -1,7 +1,10 @@
 package org.multiverse.datastructures.collections;
 
 import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.Transaction;
 import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.exceptions.RetryTimeoutException;
+import static org.multiverse.datastructures.collections.TimedWaits.*;
 import org.multiverse.utils.TodoException;
 
 import java.util.AbstractQueue;
@@ -38,10 +41,35 @@ public abstract class AbstractBlockingQueue<E> extends AbstractQueue<E> implemen
         doAdd(e);
     }
 
+    //the timed methods are not atomic themselves; the RetryTimeoutException thrown by the timed retry can only be
+    //caught outside of the atomic method that does the retry. Within a running transaction the timed retry restarts
+    //that transaction, and the timeout is removed from it again once the call is done (see TimedWaits).
+
     @Override
-    @AtomicMethod
     public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            put(e, timeout, unit);
+            endTimedWait(t);
+            return true;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return false;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
+    }
+
+    @AtomicMethod
+    private void put(E e, long timeout, TimeUnit unit) {
+        if (isFull()) {
+            retry(timeout, unit);
+        }
+
+        doAdd(e);
     }
 
     @Override
@@ -55,9 +83,30 @@ public abstract class AbstractBlockingQueue<E> extends AbstractQueue<E> implemen
     }
 
     @Override
-    @AtomicMethod
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        Transaction t = getRunningTransaction();
+        try {
+            checkInterrupted();
+            E item = take(timeout, unit);
+            endTimedWait(t);
+            return item;
+        } catch (RetryTimeoutException ex) {
+            endTimedWait(t);
+            checkInterrupted();
+            return null;
+        } catch (InterruptedException ex) {
+            endTimedWait(t);
+            throw ex;
+        }
+    }
+
+    @AtomicMethod
+    private E take(long timeout, TimeUnit unit) {
+        if (isEmpty()) {
+            retry(timeout, unit);
+        }
+
+        return doRemove();
     }
 
     @Override
@@ -0,0 +1,55 @@
+package org.multiverse.datastructures.collections;
+
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+
+/**
+ * Shared logic for the timed methods of the blocking collections.
+ * <p/>
+ * A timed method is not atomic itself; the RetryTimeoutException thrown by the timed retry can only be caught outside
+ * of the atomic method that does the retry. If the timed method is called within a running transaction, the retry
+ * restarts the complete transaction and the remaining timeout is kept on that transaction. So once the call is done,
+ * the timeout needs to be removed again, else a later timed retry in the same transaction would start with what is
+ * left of it.
+ *
+ * @author Peter Veentjer.
+ */
+final class TimedWaits {
+
+    /**
+     * Returns the running transaction of the calling thread.
+     *
+     * @return the running transaction, or null if there is none.
+     */
+    static Transaction getRunningTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t != null && t.getStatus() == TransactionStatus.active ? t : null;
+    }
+
+    /**
+     * Ends the timed wait of a timed method that is called within the running transaction t.
+     *
+     * @param t the running transaction, or null if the timed method runs in its own transaction.
+     */
+    static void endTimedWait(Transaction t) {
+        if (t != null) {
+            t.setRemainingTimeoutNs(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Throws an InterruptedException if the calling thread is interrupted; the interrupt status is cleared.
+     *
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    //we don't want instances.
+    private TimedWaits() {
+    }
+}
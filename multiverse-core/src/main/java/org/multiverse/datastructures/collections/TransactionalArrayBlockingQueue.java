@@ -0,0 +1,200 @@
+package org.multiverse.datastructures.collections;
+
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A bounded transactional {@link java.util.concurrent.BlockingQueue} backed by a ring buffer. Each operation is atomic
+ * by default, and of course can participate in already running transactions.
+ * <p/>
+ * Unlike the {@link TransactionalLinkedList}, where the head, tail and size are stored in a single atomic object, the
+ * head index, the tail index and every slot of the ring buffer are separate atomic objects. A put only writes the tail
+ * and the slot at the tail, and a take only writes the head and the slot at the head. The indices only increase, so
+ * the size is the difference between the tail and the head and there is no size field that needs to be written. The
+ * consequence is that a producer and a consumer on a queue that is not empty and not full, never conflict; they only
+ * read the index of each other. Producers still conflict with producers, and consumers with consumers.
+ * <p/>
+ * The slots are created once, so no objects are created when items are placed on the queue.
+ * <p/>
+ * Null items are not allowed. The iterator is not live: it iterates over a snapshot of the queue that is taken
+ * atomically when the iterator is created, and it doesn't support remove.
+ *
+ * @author Peter Veentjer.
+ * @param <E> the type of the items
+ */
+@AtomicObject
+public final class TransactionalArrayBlockingQueue<E> extends AbstractBlockingQueue<E> {
+
+    private final Slot<E>[] slots;
+
+    //the index of the next item to take.
+    private final Index head = new Index();
+
+    //the index of the next item to put.
+    private final Index tail = new Index();
+
+    /**
+     * Creates a TransactionalArrayBlockingQueue with the given capacity.
+     *
+     * @param capacity the maximum number of items in the queue.
+     * @throws IllegalArgumentException if capacity is smaller than 1.
+     */
+    public TransactionalArrayBlockingQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity can't be smaller than 1");
+        }
+
+        this.slots = newSlotArray(capacity);
+        for (int k = 0; k < capacity; k++) {
+            slots[k] = new Slot<E>();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Slot<E>[] newSlotArray(int length) {
+        return (Slot<E>[]) new Slot[length];
+    }
+
+    private Slot<E> slotFor(long index) {
+        return slots[(int) (index % slots.length)];
+    }
+
+    @AtomicMethod(readonly = true)
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    @Override
+    protected void doAdd(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
+        long t = tail.value;
+        slotFor(t).item = item;
+        tail.value = t + 1;
+    }
+
+    @Override
+    protected E doRemove() {
+        long h = head.value;
+        Slot<E> slot = slotFor(h);
+        E item = slot.item;
+        //the slot is cleared so the item can be garbage collected.
+        slot.item = null;
+        head.value = h + 1;
+        return item;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    protected boolean isFull() {
+        return tail.value - head.value >= slots.length;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean isEmpty() {
+        return tail.value == head.value;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public int size() {
+        return (int) (tail.value - head.value);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public int remainingCapacity() {
+        return slots.length - size();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public E peek() {
+        long h = head.value;
+        return h == tail.value ? null : slotFor(h).item;
+    }
+
+    @Override
+    public void clear() {
+        long h = head.value;
+        long t = tail.value;
+        if (h == t) {
+            return;
+        }
+
+        for (long index = h; index < t; index++) {
+            slotFor(index).item = null;
+        }
+        head.value = t;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<E> iterator = snapshot().iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns a snapshot of all items from head to tail. Because it is an atomic method, the snapshot is consistent.
+     *
+     * @return the list of items.
+     */
+    @AtomicMethod(readonly = true)
+    private List<E> snapshot() {
+        long h = head.value;
+        long t = tail.value;
+        List<E> result = new ArrayList<E>((int) (t - h));
+        for (long index = h; index < t; index++) {
+            result.add(slotFor(index).item);
+        }
+        return result;
+    }
+
+    /**
+     * An index in the ring buffer. It only increases, so it never wraps around.
+     */
+    @AtomicObject
+    public static final class Index {
+
+        long value;
+
+        Index() {
+            value = 0;
+        }
+    }
+
+    /**
+     * A slot of the ring buffer.
+     */
+    @AtomicObject
+    public static final class Slot<E> {
+
+        E item;
+
+        Slot() {
+            item = null;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package org.multiverse.datastructures.collections;
+
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A transactional {@link ConcurrentMap} based on hashing. Each operation is atomic by default, and of course can
+ * participate in already running transactions.
+ * <p/>
+ * The map is split up in a fixed number of segments, and every segment has its own table of buckets. Every bucket is
+ * an atomic object, so transactions that change entries in different buckets don't cause write conflicts. There also
+ * is no shared size field (that would be a hot field every put and remove needs to write), every bucket keeps track of
+ * its own size. The price is that {@link #size()} needs to read all buckets.
+ * <p/>
+ * A segment doubles its table when a bucket in it becomes too big. The resize only writes the segment and the old
+ * buckets of that segment, so it only conflicts with transactions that change the same segment; transactions on the
+ * other segments, and readonly transactions, are not disturbed. The old buckets are marked as moved so that concurrent
+ * changes to them are detected as write conflicts and retried on the new table.
+ * <p/>
+ * Null keys and values are not allowed.
+ * <p/>
+ * The iterators of the views are not live: they iterate over a snapshot of the map that is taken atomically when the
+ * iterator is created. The remove of an iterator removes the entry from the map.
+ *
+ * @author Peter Veentjer.
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+@AtomicObject
+public final class TransactionalHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    //the number of entries in a bucket that triggers a resize of the segment.
+    static final int MAX_BUCKET_SIZE = 8;
+
+    static final int MAX_SEGMENT_TABLE_LENGTH = 1 << 24;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    private final Set<Map.Entry<K, V>> entrySet = new EntrySet();
+
+    /**
+     * Creates a TransactionalHashMap with the default initial capacity and segment count.
+     */
+    public TransactionalHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Creates a TransactionalHashMap with the given initial capacity and the default segment count.
+     *
+     * @param initialCapacity the initial number of buckets.
+     * @throws IllegalArgumentException if initialCapacity is smaller than 1.
+     */
+    public TransactionalHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Creates a TransactionalHashMap.
+     *
+     * @param initialCapacity the initial number of buckets over all segments.
+     * @param segmentCount    the number of segments, it will be rounded up to a power of 2.
+     * @throws IllegalArgumentException if initialCapacity or segmentCount is smaller than 1.
+     */
+    public TransactionalHashMap(int initialCapacity, int segmentCount) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity can't be smaller than 1");
+        }
+
+        if (segmentCount < 1) {
+            throw new IllegalArgumentException("segmentCount can't be smaller than 1");
+        }
+
+        int shift = 0;
+        int length = 1;
+        while (length < segmentCount && length < (1 << 16)) {
+            length <<= 1;
+            shift++;
+        }
+
+        int tableLength = 1;
+        while (tableLength * length < initialCapacity && tableLength < MAX_SEGMENT_TABLE_LENGTH) {
+            tableLength <<= 1;
+        }
+
+        this.segmentShift = 32 - shift;
+        this.segmentMask = length - 1;
+        this.segments = newSegmentArray(length);
+        for (int k = 0; k < segments.length; k++) {
+            segments[k] = new Segment<K, V>(tableLength);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegmentArray(int length) {
+        return (Segment<K, V>[]) new Segment[length];
+    }
+
+    /**
+     * Spreads the bits of the hashcode, so that keys with hashcodes that only differ in the higher or lower bits, end
+     * up in different segments and buckets. The same function as the one used by the java.util.HashMap.
+     *
+     * @param key the key to hash.
+     * @return the hash.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        //the segment is selected by the high bits, the bucket within the segment by the low bits.
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public V get(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        Entry<K, V> entry = segmentFor(hash).getBucket(hash).find(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        for (Segment<K, V> segment : segments) {
+            for (Bucket<K, V> bucket : segment.table) {
+                for (Entry<K, V> entry = bucket.head; entry != null; entry = entry.next) {
+                    if (entry.value.equals(value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, true);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        Bucket<K, V> bucket = segmentFor(hash).getBucket(hash);
+        Entry<K, V> entry = bucket.find(key);
+        if (entry == null) {
+            return null;
+        }
+
+        bucket.remove(entry);
+        return entry.value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        Bucket<K, V> bucket = segmentFor(hash).getBucket(hash);
+        Entry<K, V> entry = bucket.find(key);
+        if (entry == null || !entry.value.equals(value)) {
+            return false;
+        }
+
+        bucket.remove(entry);
+        return true;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        Bucket<K, V> bucket = segmentFor(hash).getBucket(hash);
+        Entry<K, V> entry = bucket.find(key);
+        if (entry == null || !entry.value.equals(oldValue)) {
+            return false;
+        }
+
+        bucket.replace(entry, newValue);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        Bucket<K, V> bucket = segmentFor(hash).getBucket(hash);
+        Entry<K, V> entry = bucket.find(key);
+        if (entry == null) {
+            return null;
+        }
+
+        bucket.replace(entry, value);
+        return entry.value;
+    }
+
+    /**
+     * Returns the number of entries. The size of every bucket needs to be read, so this call is not cheap and it
+     * conflicts with every transaction that changes the map if it is done in an update transaction.
+     *
+     * @return the number of entries.
+     */
+    @Override
+    @AtomicMethod(readonly = true)
+    public int size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            for (Bucket<K, V> bucket : segment.table) {
+                size += bucket.size;
+            }
+        }
+
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            for (Bucket<K, V> bucket : segment.table) {
+                if (bucket.size > 0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            for (Bucket<K, V> bucket : segment.table) {
+                if (bucket.size > 0) {
+                    bucket.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Returns a snapshot of all entries. Because it is an atomic method, the snapshot is consistent.
+     *
+     * @return the list of entries.
+     */
+    @AtomicMethod(readonly = true)
+    private List<Map.Entry<K, V>> snapshot() {
+        List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>();
+        for (Segment<K, V> segment : segments) {
+            for (Bucket<K, V> bucket : segment.table) {
+                for (Entry<K, V> entry = bucket.head; entry != null; entry = entry.next) {
+                    result.add(new SimpleImmutableEntry<K, V>(entry.key, entry.value));
+                }
+            }
+        }
+        return result;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new SnapshotIterator(snapshot());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if (entry.getKey() == null) {
+                return false;
+            }
+
+            V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return false;
+            }
+
+            return TransactionalHashMap.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public int size() {
+            return TransactionalHashMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return TransactionalHashMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            TransactionalHashMap.this.clear();
+        }
+    }
+
+    private class SnapshotIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Iterator<Map.Entry<K, V>> iterator;
+        private Map.Entry<K, V> current;
+
+        private SnapshotIterator(List<Map.Entry<K, V>> snapshot) {
+            this.iterator = snapshot.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            current = iterator.next();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+
+            TransactionalHashMap.this.remove(current.getKey(), current.getValue());
+            current = null;
+        }
+    }
+
+    /**
+     * A segment of the map with its own table of buckets. The table is never changed, only replaced by a bigger one.
+     */
+    @AtomicObject
+    public static final class Segment<K, V> {
+
+        private Bucket<K, V>[] table;
+
+        Segment(int tableLength) {
+            Bucket<K, V>[] newTable = newBucketArray(tableLength);
+            for (int k = 0; k < newTable.length; k++) {
+                newTable[k] = new Bucket<K, V>();
+            }
+            this.table = newTable;
+        }
+
+        @AtomicMethod(readonly = true)
+        Bucket<K, V> getBucket(int hash) {
+            Bucket<K, V>[] t = table;
+            return t[hash & (t.length - 1)];
+        }
+
+        V put(int hash, K key, V value, boolean onlyIfAbsent) {
+            Bucket<K, V>[] t = table;
+            Bucket<K, V> bucket = t[hash & (t.length - 1)];
+
+            Entry<K, V> entry = bucket.find(key);
+            if (entry != null) {
+                if (!onlyIfAbsent) {
+                    bucket.replace(entry, value);
+                }
+                return entry.value;
+            }
+
+            bucket.add(hash, key, value);
+            if (bucket.size > MAX_BUCKET_SIZE && t.length < MAX_SEGMENT_TABLE_LENGTH) {
+                resize(t);
+            }
+            return null;
+        }
+
+        /**
+         * Replaces the table by a table with twice the number of buckets. The old buckets are marked as moved, so that
+         * transactions that concurrently changed them, conflict.
+         */
+        private void resize(Bucket<K, V>[] oldTable) {
+            Bucket<K, V>[] newTable = newBucketArray(oldTable.length * 2);
+            for (int k = 0; k < newTable.length; k++) {
+                newTable[k] = new Bucket<K, V>();
+            }
+
+            int mask = newTable.length - 1;
+            for (Bucket<K, V> oldBucket : oldTable) {
+                for (Entry<K, V> entry = oldBucket.head; entry != null; entry = entry.next) {
+                    newTable[entry.hash & mask].add(entry.hash, entry.key, entry.value);
+                }
+                oldBucket.markMoved();
+            }
+
+            this.table = newTable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K, V> Bucket<K, V>[] newBucketArray(int length) {
+            return (Bucket<K, V>[]) new Bucket[length];
+        }
+    }
+
+    /**
+     * A bucket containing an immutable chain of entries. Every change replaces the (part of the) chain.
+     */
+    @AtomicObject
+    public static final class Bucket<K, V> {
+
+        Entry<K, V> head;
+        int size;
+        //set once the bucket has been replaced by a resize; the write makes concurrent changes conflict.
+        boolean moved;
+
+        Bucket() {
+            head = null;
+            size = 0;
+            moved = false;
+        }
+
+        @AtomicMethod(readonly = true)
+        Entry<K, V> find(Object key) {
+            for (Entry<K, V> entry = head; entry != null; entry = entry.next) {
+                if (entry.key.equals(key)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        void add(int hash, K key, V value) {
+            head = new Entry<K, V>(hash, key, value, head);
+            size++;
+        }
+
+        void replace(Entry<K, V> entry, V value) {
+            head = new Entry<K, V>(entry.hash, entry.key, value, removeFromChain(head, entry));
+        }
+
+        void remove(Entry<K, V> entry) {
+            head = removeFromChain(head, entry);
+            size--;
+        }
+
+        void clear() {
+            head = null;
+            size = 0;
+        }
+
+        void markMoved() {
+            moved = true;
+        }
+
+        private static <K, V> Entry<K, V> removeFromChain(Entry<K, V> head, Entry<K, V> entry) {
+            if (head == entry) {
+                return entry.next;
+            }
+
+            return new Entry<K, V>(head.hash, head.key, head.value, removeFromChain(head.next, entry));
+        }
+    }
+
+    static final class Entry<K, V> {
+
+        final int hash;
+        final K key;
+        final V value;
+        final Entry<K, V> next;
+
+        Entry(int hash, K key, V value, Entry<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,1154 @@
+package org.multiverse.datastructures.collections;
+
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * A transactional {@link NavigableMap} based on a skip list. Each operation is atomic by default, and of course can
+ * participate in already running transactions.
+ * <p/>
+ * Every node of the skip list is an atomic object. Searching only reads nodes, and an insert or remove only writes the
+ * nodes in front of the changed node (on every level the changed node is part of) and the changed node itself. So
+ * transactions that change keys in disjoint ranges of the map normally don't cause write conflicts; they only conflict
+ * when they share a predecessor on one of the higher levels, and the chance of that decreases quickly with the level.
+ * Like the {@link TransactionalHashMap} there is no shared size field, so {@link #size()} needs to walk over all nodes.
+ * <p/>
+ * Range queries (the iterators of the map and its views, and the size of a view) are executed by a single readonly
+ * atomic method, so a range scan is done in a single readonly transaction instead of a transaction per element. The
+ * iterators are not live: they iterate over a snapshot of the range that is taken atomically when the iterator is
+ * created. The remove of an iterator removes the entry from the map. The entries returned by the map are immutable
+ * snapshots and don't support {@link Map.Entry#setValue(Object)}.
+ * <p/>
+ * The views returned by {@link #subMap}, {@link #headMap}, {@link #tailMap} and {@link #descendingMap} are live views
+ * on the map.
+ * <p/>
+ * Null keys and values are not allowed.
+ *
+ * @author Peter Veentjer.
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+@AtomicObject
+public final class TransactionalSkipListMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    //with a level probability of 1/4, 16 levels are enough for 4^16 entries.
+    static final int MAX_LEVEL = 16;
+
+    //the seed of the level generator. Races on it are harmless, it only needs to be random enough.
+    private static int seed = (int) System.nanoTime() | 1;
+
+    private final Comparator<? super K> comparator;
+
+    //the head doesn't contain a key, it only contains the first node of every level.
+    private final Node<K, V> head = new Node<K, V>(null, null, Node.<K, V>newArray(MAX_LEVEL));
+
+    private final SubMap<K, V> fullView = new SubMap<K, V>(this, null, false, null, false, false);
+
+    /**
+     * Creates an empty TransactionalSkipListMap that is sorted on the natural ordering of its keys.
+     */
+    public TransactionalSkipListMap() {
+        this.comparator = null;
+    }
+
+    /**
+     * Creates an empty TransactionalSkipListMap that is sorted using the given comparator.
+     *
+     * @param comparator the comparator used to sort the keys. If null, the natural ordering of the keys is used.
+     */
+    public TransactionalSkipListMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Creates a TransactionalSkipListMap that is sorted on the natural ordering of its keys, containing all entries of
+     * the given map.
+     *
+     * @param map the map containing the entries to add.
+     * @throws NullPointerException if map is null, or contains a null key or value.
+     */
+    public TransactionalSkipListMap(Map<? extends K, ? extends V> map) {
+        this.comparator = null;
+        putAll(map);
+    }
+
+    //the comparison methods are static so that they are not instrumented as atomic methods; they also are used by
+    //the views outside of a transaction.
+
+    @SuppressWarnings("unchecked")
+    static <K> int compare(Comparator<? super K> comparator, Object key1, Object key2) {
+        if (comparator == null) {
+            return ((Comparable<Object>) key1).compareTo(key2);
+        }
+        return comparator.compare((K) key1, (K) key2);
+    }
+
+    static <K> boolean tooLow(Comparator<? super K> comparator, Object key, K lo, boolean loInclusive) {
+        if (lo == null) {
+            return false;
+        }
+        int c = compare(comparator, key, lo);
+        return c < 0 || (c == 0 && !loInclusive);
+    }
+
+    static <K> boolean tooHigh(Comparator<? super K> comparator, Object key, K hi, boolean hiInclusive) {
+        if (hi == null) {
+            return false;
+        }
+        int c = compare(comparator, key, hi);
+        return c > 0 || (c == 0 && !hiInclusive);
+    }
+
+    private static int randomLevel() {
+        //xorshift, never returns 0 for a seed that isn't 0.
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+
+        int level = 1;
+        while ((x & 3) == 0 && level < MAX_LEVEL) {
+            level++;
+            x >>>= 2;
+        }
+        return level;
+    }
+
+    // ================== skip list primitives ===========================
+
+    /**
+     * Finds the last node with a key smaller than the given key (or smaller or equal if inclusive), on the lowest
+     * level. If preds is not null, it is filled with the last node with such a key on every level.
+     *
+     * @param key       the key to search for.
+     * @param inclusive if a node with a key equal to the given key should be included.
+     * @param preds     the array to store the predecessors on every level in, can be null.
+     * @return the found node, or the head if there is no such node.
+     */
+    private Node<K, V> findPredecessor(Object key, boolean inclusive, Node<K, V>[] preds) {
+        Node<K, V> x = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            Node<K, V> n = x.next[level];
+            while (n != null) {
+                int c = compare(comparator, n.key, key);
+                if (c > 0 || (c == 0 && !inclusive)) {
+                    break;
+                }
+                x = n;
+                n = x.next[level];
+            }
+
+            if (preds != null) {
+                preds[level] = x;
+            }
+        }
+        return x;
+    }
+
+    private Node<K, V> findNode(Object key) {
+        Node<K, V> n = findPredecessor(key, false, null).next[0];
+        return n != null && compare(comparator, n.key, key) == 0 ? n : null;
+    }
+
+    private Node<K, V> ceilingNode(Object key) {
+        return findPredecessor(key, false, null).next[0];
+    }
+
+    private Node<K, V> higherNode(Object key) {
+        return findPredecessor(key, true, null).next[0];
+    }
+
+    private Node<K, V> floorNode(Object key) {
+        Node<K, V> n = findPredecessor(key, true, null);
+        return n == head ? null : n;
+    }
+
+    private Node<K, V> lowerNode(Object key) {
+        Node<K, V> n = findPredecessor(key, false, null);
+        return n == head ? null : n;
+    }
+
+    private Node<K, V> lastNode() {
+        Node<K, V> x = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            Node<K, V> n = x.next[level];
+            while (n != null) {
+                x = n;
+                n = x.next[level];
+            }
+        }
+        return x == head ? null : x;
+    }
+
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        Node<K, V>[] preds = Node.newArray(MAX_LEVEL);
+        Node<K, V> n = findPredecessor(key, false, preds).next[0];
+        if (n != null && compare(comparator, n.key, key) == 0) {
+            V oldValue = n.value;
+            if (!onlyIfAbsent) {
+                n.value = value;
+            }
+            return oldValue;
+        }
+
+        int level = randomLevel();
+        Node<K, V>[] next = Node.newArray(level);
+        for (int k = 0; k < level; k++) {
+            next[k] = preds[k].next[k];
+        }
+
+        Node<K, V> node = new Node<K, V>(key, value, next);
+        for (int k = 0; k < level; k++) {
+            preds[k].setNext(k, node);
+        }
+        return null;
+    }
+
+    private V doRemove(Object key) {
+        Node<K, V>[] preds = Node.newArray(MAX_LEVEL);
+        Node<K, V> n = findPredecessor(key, false, preds).next[0];
+        if (n == null || compare(comparator, n.key, key) != 0) {
+            return null;
+        }
+
+        V oldValue = n.value;
+        unlink(n, preds);
+        return oldValue;
+    }
+
+    private void unlink(Node<K, V> node, Node<K, V>[] preds) {
+        Node<K, V>[] next = node.next;
+        for (int k = 0; k < next.length; k++) {
+            preds[k].setNext(k, next[k]);
+        }
+        //the removed node is written as well, so that transactions that concurrently change it or insert a node
+        //behind it, conflict.
+        node.markRemoved();
+    }
+
+    private static <K, V> Map.Entry<K, V> entryFor(Node<K, V> node) {
+        return node == null ? null : new SimpleImmutableEntry<K, V>(node.key, node.value);
+    }
+
+    private static <K> K keyOrNull(Map.Entry<K, ?> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    private static <K> K keyOrThrow(Map.Entry<K, ?> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    // ================== map ===========================
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public V get(Object key) {
+        checkKey(key);
+        Node<K, V> node = findNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        for (Node<K, V> node = head.next[0]; node != null; node = node.next[0]) {
+            if (node.value.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Puts the value for the key if the key is not in the map.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value that already is in the map, or null if the value was put.
+     * @throws NullPointerException if key or value is null.
+     */
+    public V putIfAbsent(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        return doPut(key, value, true);
+    }
+
+    @Override
+    public V remove(Object key) {
+        checkKey(key);
+        return doRemove(key);
+    }
+
+    /**
+     * Returns the number of entries. All nodes need to be read, so this call is not cheap and it conflicts with every
+     * transaction that changes the map if it is done in an update transaction.
+     *
+     * @return the number of entries.
+     */
+    @Override
+    @AtomicMethod(readonly = true)
+    public int size() {
+        return count(null, false, null, false);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public boolean isEmpty() {
+        return head.next[0] == null;
+    }
+
+    @Override
+    public void clear() {
+        clear(null, false, null, false);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Set<Map.Entry<K, V>> entrySet() {
+        return fullView.entrySet();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Set<K> keySet() {
+        return fullView.navigableKeySet();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Collection<V> values() {
+        return fullView.values();
+    }
+
+    // ================== sorted map ===========================
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K firstKey() {
+        return keyOrThrow(firstEntry());
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K lastKey() {
+        return keyOrThrow(lastEntry());
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // ================== navigable map ===========================
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> lowerEntry(K key) {
+        checkKey(key);
+        return entryFor(lowerNode(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K lowerKey(K key) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> floorEntry(K key) {
+        checkKey(key);
+        return entryFor(floorNode(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K floorKey(K key) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        checkKey(key);
+        return entryFor(ceilingNode(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> higherEntry(K key) {
+        checkKey(key);
+        return entryFor(higherNode(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public K higherKey(K key) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> firstEntry() {
+        return entryFor(head.next[0]);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public Map.Entry<K, V> lastEntry() {
+        return entryFor(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return poll(null, false, null, false, false);
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return poll(null, false, null, false, true);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableMap<K, V> descendingMap() {
+        return fullView.descendingMap();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableSet<K> navigableKeySet() {
+        return fullView.navigableKeySet();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableSet<K> descendingKeySet() {
+        return fullView.descendingKeySet();
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return fullView.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return fullView.headMap(toKey, inclusive);
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return fullView.tailMap(fromKey, inclusive);
+    }
+
+    // ================== range operations ===========================
+
+    /**
+     * Returns the first node in the range, or null if the range is empty. A null bound means that the range is
+     * unbounded on that side.
+     */
+    private Node<K, V> firstNodeInRange(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        Node<K, V> node;
+        if (lo == null) {
+            node = head.next[0];
+        } else {
+            node = loInclusive ? ceilingNode(lo) : higherNode(lo);
+        }
+        return node == null || tooHigh(comparator, node.key, hi, hiInclusive) ? null : node;
+    }
+
+    private Node<K, V> lastNodeInRange(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        Node<K, V> node;
+        if (hi == null) {
+            node = lastNode();
+        } else {
+            node = hiInclusive ? floorNode(hi) : lowerNode(hi);
+        }
+        return node == null || tooLow(comparator, node.key, lo, loInclusive) ? null : node;
+    }
+
+    /**
+     * Returns a snapshot of the entries in the range in ascending order. Because it is a readonly atomic method, the
+     * complete range is read in a single readonly transaction and the snapshot is consistent.
+     */
+    @AtomicMethod(readonly = true)
+    List<Map.Entry<K, V>> snapshot(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>();
+        Node<K, V> node = firstNodeInRange(lo, loInclusive, hi, hiInclusive);
+        while (node != null && !tooHigh(comparator, node.key, hi, hiInclusive)) {
+            result.add(new SimpleImmutableEntry<K, V>(node.key, node.value));
+            node = node.next[0];
+        }
+        return result;
+    }
+
+    @AtomicMethod(readonly = true)
+    int count(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        long count = 0;
+        Node<K, V> node = firstNodeInRange(lo, loInclusive, hi, hiInclusive);
+        while (node != null && !tooHigh(comparator, node.key, hi, hiInclusive)) {
+            count++;
+            node = node.next[0];
+        }
+        return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) count;
+    }
+
+    @AtomicMethod(readonly = true)
+    Map.Entry<K, V> firstEntry(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        return entryFor(firstNodeInRange(lo, loInclusive, hi, hiInclusive));
+    }
+
+    @AtomicMethod(readonly = true)
+    Map.Entry<K, V> lastEntry(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        return entryFor(lastNodeInRange(lo, loInclusive, hi, hiInclusive));
+    }
+
+    Map.Entry<K, V> poll(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean last) {
+        Node<K, V> node = last
+                ? lastNodeInRange(lo, loInclusive, hi, hiInclusive)
+                : firstNodeInRange(lo, loInclusive, hi, hiInclusive);
+        if (node == null) {
+            return null;
+        }
+
+        Map.Entry<K, V> entry = entryFor(node);
+        doRemove(node.key);
+        return entry;
+    }
+
+    void clear(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        Node<K, V>[] preds = Node.newArray(MAX_LEVEL);
+        Node<K, V> node = firstNodeInRange(lo, loInclusive, hi, hiInclusive);
+        if (node == null) {
+            return;
+        }
+
+        findPredecessor(node.key, false, preds);
+        while (node != null && !tooHigh(comparator, node.key, hi, hiInclusive)) {
+            Node<K, V> next = node.next[0];
+            //after unlinking, the predecessors of the removed node also are the predecessors of the next node.
+            unlink(node, preds);
+            node = next;
+        }
+    }
+
+    /**
+     * A node of the skip list. The key is final, the value and the next nodes are managed by the stm. The array with
+     * the next nodes is never changed, only replaced, because the stm only tracks the reference to the array.
+     */
+    @AtomicObject
+    public static final class Node<K, V> {
+
+        final K key;
+        V value;
+        Node<K, V>[] next;
+
+        Node(K key, V value, Node<K, V>[] next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        void setNext(int level, Node<K, V> node) {
+            Node<K, V>[] newNext = next.clone();
+            newNext[level] = node;
+            next = newNext;
+        }
+
+        void markRemoved() {
+            value = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K, V> Node<K, V>[] newArray(int length) {
+            return (Node<K, V>[]) new Node[length];
+        }
+    }
+
+    /**
+     * A view on a range of the map, in ascending or descending order. A null bound means that the range is unbounded on
+     * that side. The bounds are always in the ascending order of the backing map.
+     */
+    static final class SubMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+        private final TransactionalSkipListMap<K, V> m;
+        private final K lo;
+        private final boolean loInclusive;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        SubMap(TransactionalSkipListMap<K, V> m, K lo, boolean loInclusive, K hi, boolean hiInclusive,
+               boolean descending) {
+            this.m = m;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private boolean inRange(Object key) {
+            return !tooLow(m.comparator, key, lo, loInclusive) && !tooHigh(m.comparator, key, hi, hiInclusive);
+        }
+
+        private Map.Entry<K, V> checkHigh(Map.Entry<K, V> entry) {
+            return entry == null || tooHigh(m.comparator, entry.getKey(), hi, hiInclusive) ? null : entry;
+        }
+
+        private Map.Entry<K, V> checkLow(Map.Entry<K, V> entry) {
+            return entry == null || tooLow(m.comparator, entry.getKey(), lo, loInclusive) ? null : entry;
+        }
+
+        private Map.Entry<K, V> absLowest() {
+            return m.firstEntry(lo, loInclusive, hi, hiInclusive);
+        }
+
+        private Map.Entry<K, V> absHighest() {
+            return m.lastEntry(lo, loInclusive, hi, hiInclusive);
+        }
+
+        private Map.Entry<K, V> absCeiling(K key) {
+            checkKey(key);
+            return tooLow(m.comparator, key, lo, loInclusive) ? absLowest() : checkHigh(m.ceilingEntry(key));
+        }
+
+        private Map.Entry<K, V> absHigher(K key) {
+            checkKey(key);
+            return tooLow(m.comparator, key, lo, loInclusive) ? absLowest() : checkHigh(m.higherEntry(key));
+        }
+
+        private Map.Entry<K, V> absFloor(K key) {
+            checkKey(key);
+            return tooHigh(m.comparator, key, hi, hiInclusive) ? absHighest() : checkLow(m.floorEntry(key));
+        }
+
+        private Map.Entry<K, V> absLower(K key) {
+            checkKey(key);
+            return tooHigh(m.comparator, key, hi, hiInclusive) ? absHighest() : checkLow(m.lowerEntry(key));
+        }
+
+        // ================== map ===========================
+
+        @Override
+        public V get(Object key) {
+            checkKey(key);
+            return inRange(key) ? m.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            checkKey(key);
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+            return m.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            checkKey(key);
+            return inRange(key) ? m.remove(key) : null;
+        }
+
+        @Override
+        public int size() {
+            return m.count(lo, loInclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return absLowest() == null;
+        }
+
+        @Override
+        public void clear() {
+            m.clear(lo, loInclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet();
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        // ================== sorted map ===========================
+
+        @Override
+        public Comparator<? super K> comparator() {
+            if (descending) {
+                return Collections.reverseOrder(m.comparator);
+            }
+            return m.comparator;
+        }
+
+        @Override
+        public K firstKey() {
+            return keyOrThrow(firstEntry());
+        }
+
+        @Override
+        public K lastKey() {
+            return keyOrThrow(lastEntry());
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        // ================== navigable map ===========================
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return descending ? absHigher(key) : absLower(key);
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(lowerEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return descending ? absCeiling(key) : absFloor(key);
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(floorEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return descending ? absFloor(key) : absCeiling(key);
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(ceilingEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return descending ? absLower(key) : absHigher(key);
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(higherEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return m.poll(lo, loInclusive, hi, hiInclusive, descending);
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return m.poll(lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap<K, V>(m, lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<K>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            checkBound(fromKey, fromInclusive);
+            checkBound(toKey, toInclusive);
+            if (descending) {
+                if (compare(m.comparator, toKey, fromKey) > 0) {
+                    throw new IllegalArgumentException("fromKey > toKey");
+                }
+                return new SubMap<K, V>(m, toKey, toInclusive, fromKey, fromInclusive, true);
+            } else {
+                if (compare(m.comparator, fromKey, toKey) > 0) {
+                    throw new IllegalArgumentException("fromKey > toKey");
+                }
+                return new SubMap<K, V>(m, fromKey, fromInclusive, toKey, toInclusive, false);
+            }
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            checkBound(toKey, inclusive);
+            if (descending) {
+                return new SubMap<K, V>(m, toKey, inclusive, hi, hiInclusive, true);
+            } else {
+                return new SubMap<K, V>(m, lo, loInclusive, toKey, inclusive, false);
+            }
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            checkBound(fromKey, inclusive);
+            if (descending) {
+                return new SubMap<K, V>(m, lo, loInclusive, fromKey, inclusive, true);
+            } else {
+                return new SubMap<K, V>(m, fromKey, inclusive, hi, hiInclusive, false);
+            }
+        }
+
+        /**
+         * Checks if a bound of a view on a part of this view lies within the bounds of this view. An inclusive bound
+         * needs to be in the range, an exclusive bound may be equal to a bound of this view.
+         */
+        private void checkBound(K bound, boolean inclusive) {
+            checkKey(bound);
+            if (outOfBounds(bound, inclusive)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+        }
+
+        private boolean outOfBounds(K bound, boolean inclusive) {
+            if (lo != null) {
+                int c = compare(m.comparator, bound, lo);
+                if (c < 0 || (c == 0 && inclusive && !loInclusive)) {
+                    return true;
+                }
+            }
+
+            if (hi != null) {
+                int c = compare(m.comparator, bound, hi);
+                if (c > 0 || (c == 0 && inclusive && !hiInclusive)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                List<Map.Entry<K, V>> snapshot = m.snapshot(lo, loInclusive, hi, hiInclusive);
+                if (descending) {
+                    Collections.reverse(snapshot);
+                }
+                return new SnapshotIterator(snapshot);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                if (entry.getKey() == null) {
+                    return false;
+                }
+
+                V value = SubMap.this.get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            @Override
+            public int size() {
+                return SubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return SubMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                SubMap.this.clear();
+            }
+        }
+
+        private class SnapshotIterator implements Iterator<Map.Entry<K, V>> {
+
+            private final Iterator<Map.Entry<K, V>> iterator;
+            private Map.Entry<K, V> current;
+
+            private SnapshotIterator(List<Map.Entry<K, V>> snapshot) {
+                this.iterator = snapshot.iterator();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+
+                m.remove(current.getKey());
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * A {@link NavigableSet} view on the keys of a {@link NavigableMap}.
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+        private final NavigableMap<E, ?> m;
+
+        KeySet(NavigableMap<E, ?> m) {
+            this.m = m;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<? extends Map.Entry<E, ?>> iterator = m.entrySet().iterator();
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return iterator.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return m.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return m.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return m.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            m.clear();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return m.comparator();
+        }
+
+        @Override
+        public E first() {
+            return m.firstKey();
+        }
+
+        @Override
+        public E last() {
+            return m.lastKey();
+        }
+
+        @Override
+        public E lower(E e) {
+            return m.lowerKey(e);
+        }
+
+        @Override
+        public E floor(E e) {
+            return m.floorKey(e);
+        }
+
+        @Override
+        public E ceiling(E e) {
+            return m.ceilingKey(e);
+        }
+
+        @Override
+        public E higher(E e) {
+            return m.higherKey(e);
+        }
+
+        @Override
+        public E pollFirst() {
+            return keyOrNull(m.pollFirstEntry());
+        }
+
+        @Override
+        public E pollLast() {
+            return keyOrNull(m.pollLastEntry());
+        }
+
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(m.descendingMap());
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySet<E>(m.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(m.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(m.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+}
@@ -42,7 +42,6 @@ public final class AbaRef<E> implements ManagedRef<E> {
     }
 
     @Override
-    @AtomicMethod(readonly = true)
     public E getOrAwait() {
         if (reference == null) {
             retry();
@@ -0,0 +1,87 @@
+package org.multiverse.datastructures.refs;
+
+import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import static java.lang.String.format;
+
+/**
+ * A ref containing a boolean. Unlike a {@link Ref} containing a Boolean, the value is stored as a raw boolean in the
+ * tranlocal.
+ * <p/>
+ * There is no getOrAwait with a predicate; a boolean only has 2 values, so {@link #await(boolean)} is enough.
+ *
+ * @author Peter Veentjer
+ */
+@AtomicObject
+public final class BooleanRef {
+
+    private boolean value;
+
+    /**
+     * Creates a BooleanRef with false as value.
+     */
+    public BooleanRef() {
+        this(false);
+    }
+
+    /**
+     * Creates a BooleanRef with the given value.
+     *
+     * @param value the initial value.
+     */
+    public BooleanRef(boolean value) {
+        this.value = value;
+    }
+
+    @AtomicMethod(readonly = true)
+    public boolean get() {
+        return value;
+    }
+
+    /**
+     * Retries until the value is equal to the desired value.
+     *
+     * @param desiredValue the value to wait for.
+     */
+    public void await(boolean desiredValue) {
+        if (value != desiredValue) {
+            retry();
+        }
+    }
+
+    /**
+     * Sets the value.
+     *
+     * @param newValue the new value.
+     * @return the old value.
+     */
+    public boolean set(boolean newValue) {
+        boolean oldValue = value;
+        value = newValue;
+        return oldValue;
+    }
+
+    /**
+     * Sets the value to the update if the current value is equal to the expected value.
+     *
+     * @param expected the expected value.
+     * @param update   the new value.
+     * @return true if the value was set, false otherwise.
+     */
+    public boolean compareAndSet(boolean expected, boolean update) {
+        if (value != expected) {
+            return false;
+        }
+
+        value = update;
+        return true;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public String toString() {
+        return format("BooleanRef(value=%s)", value);
+    }
+}
@@ -0,0 +1,17 @@
+package org.multiverse.datastructures.refs;
+
+/**
+ * A predicate on a double, used by the DoubleRef to wait for a value without boxing it.
+ *
+ * @author Peter Veentjer
+ */
+public interface DoublePredicate {
+
+    /**
+     * Evaluates the predicate on the value.
+     *
+     * @param value the value to evaluate.
+     * @return true if the predicate holds, false otherwise.
+     */
+    boolean evaluate(double value);
+}
@@ -0,0 +1,114 @@
+package org.multiverse.datastructures.refs;
+
+import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import static java.lang.String.format;
+
+/**
+ * A ref containing a double. Unlike a {@link Ref} containing a Double, the value is stored as a raw double in the
+ * tranlocal, so no boxing is needed when the value is read or changed.
+ *
+ * @author Peter Veentjer
+ */
+@AtomicObject
+public final class DoubleRef {
+
+    private double value;
+
+    /**
+     * Creates a DoubleRef with 0 as value.
+     */
+    public DoubleRef() {
+        this(0.0d);
+    }
+
+    /**
+     * Creates a DoubleRef with the given value.
+     *
+     * @param value the initial value.
+     */
+    public DoubleRef(double value) {
+        this.value = value;
+    }
+
+    @AtomicMethod(readonly = true)
+    public double get() {
+        return value;
+    }
+
+    /**
+     * Gets the value, or retries until the predicate holds.
+     *
+     * @param predicate the predicate the value needs to satisfy.
+     * @return the value.
+     * @throws NullPointerException if predicate is null.
+     */
+    public double getOrAwait(DoublePredicate predicate) {
+        if (!predicate.evaluate(value)) {
+            retry();
+        }
+
+        return value;
+    }
+
+    /**
+     * Retries until the value is equal to the desired value. The values are compared like {@link Double#equals(Object)}
+     * does.
+     *
+     * @param desiredValue the value to wait for.
+     */
+    public void await(double desiredValue) {
+        if (Double.doubleToLongBits(value) != Double.doubleToLongBits(desiredValue)) {
+            retry();
+        }
+    }
+
+    /**
+     * Sets the value.
+     *
+     * @param newValue the new value.
+     * @return the old value.
+     */
+    public double set(double newValue) {
+        double oldValue = value;
+        value = newValue;
+        return oldValue;
+    }
+
+    /**
+     * Adds the amount to the value.
+     *
+     * @param amount the amount to add, can be negative.
+     * @return the new value.
+     */
+    public double add(double amount) {
+        double newValue = value + amount;
+        value = newValue;
+        return newValue;
+    }
+
+    /**
+     * Sets the value to the update if the current value is equal to the expected value. The values are compared like
+     * {@link Double#equals(Object)} does, so NaN is equal to itself.
+     *
+     * @param expected the expected value.
+     * @param update   the new value.
+     * @return true if the value was set, false otherwise.
+     */
+    public boolean compareAndSet(double expected, double update) {
+        if (Double.doubleToLongBits(value) != Double.doubleToLongBits(expected)) {
+            return false;
+        }
+
+        value = update;
+        return true;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public String toString() {
+        return format("DoubleRef(value=%s)", value);
+    }
+}
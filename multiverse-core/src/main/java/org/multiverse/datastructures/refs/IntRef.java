@@ -0,0 +1,134 @@
+package org.multiverse.datastructures.refs;
+
+import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import static java.lang.String.format;
+
+/**
+ * A ref containing an int. Unlike a {@link Ref} containing an Integer, the value is stored as a raw int in the
+ * tranlocal, so no boxing is needed when the value is read or changed.
+ *
+ * @author Peter Veentjer
+ */
+@AtomicObject
+public final class IntRef {
+
+    private int value;
+
+    /**
+     * Creates an IntRef with 0 as value.
+     */
+    public IntRef() {
+        this(0);
+    }
+
+    /**
+     * Creates an IntRef with the given value.
+     *
+     * @param value the initial value.
+     */
+    public IntRef(int value) {
+        this.value = value;
+    }
+
+    @AtomicMethod(readonly = true)
+    public int get() {
+        return value;
+    }
+
+    /**
+     * Gets the value, or retries until the predicate holds.
+     *
+     * @param predicate the predicate the value needs to satisfy.
+     * @return the value.
+     * @throws NullPointerException if predicate is null.
+     */
+    public int getOrAwait(IntPredicate predicate) {
+        if (!predicate.evaluate(value)) {
+            retry();
+        }
+
+        return value;
+    }
+
+    /**
+     * Retries until the value is equal to the desired value.
+     *
+     * @param desiredValue the value to wait for.
+     */
+    public void await(int desiredValue) {
+        if (value != desiredValue) {
+            retry();
+        }
+    }
+
+    /**
+     * Sets the value.
+     *
+     * @param newValue the new value.
+     * @return the old value.
+     */
+    public int set(int newValue) {
+        int oldValue = value;
+        value = newValue;
+        return oldValue;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Increments the value by one.
+     *
+     * @return the new value.
+     */
+    public int inc() {
+        return add(1);
+    }
+
+    /**
+     * Decrements the value by one.
+     *
+     * @return the new value.
+     */
+    public int dec() {
+        return add(-1);
+    }
+
+    /**
+     * Adds the amount to the value.
+     *
+     * @param amount the amount to add, can be negative.
+     * @return the new value.
+     */
+    public int add(int amount) {
+        int newValue = value + amount;
+        value = newValue;
+        return newValue;
+    }
+
+    /**
+     * Sets the value to the update if the current value is equal to the expected value.
+     *
+     * @param expected the expected value.
+     * @param update   the new value.
+     * @return true if the value was set, false otherwise.
+     */
+    public boolean compareAndSet(int expected, int update) {
+        if (value != expected) {
+            return false;
+        }
+
+        value = update;
+        return true;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public String toString() {
+        return format("IntRef(value=%s)", value);
+    }
+}
@@ -0,0 +1,17 @@
+package org.multiverse.datastructures.refs;
+
+/**
+ * A predicate on a long, used by the LongRef to wait for a value without boxing it.
+ *
+ * @author Peter Veentjer
+ */
+public interface LongPredicate {
+
+    /**
+     * Evaluates the predicate on the value.
+     *
+     * @param value the value to evaluate.
+     * @return true if the predicate holds, false otherwise.
+     */
+    boolean evaluate(long value);
+}
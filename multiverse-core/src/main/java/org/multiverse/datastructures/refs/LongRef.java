@@ -0,0 +1,130 @@
+package org.multiverse.datastructures.refs;
+
+import static org.multiverse.api.StmUtils.retry;
+import org.multiverse.api.annotations.AtomicMethod;
+import org.multiverse.api.annotations.AtomicObject;
+
+import static java.lang.String.format;
+
+/**
+ * A ref containing a long. Unlike a {@link Ref} containing a Long, the value is stored as a raw long in the
+ * tranlocal, so no boxing is needed when the value is read or changed.
+ *
+ * @author Peter Veentjer
+ */
+@AtomicObject
+public final class LongRef {
+
+    private long value;
+
+    /**
+     * Creates a LongRef with 0 as value.
+     */
+    public LongRef() {
+        this(0L);
+    }
+
+    /**
+     * Creates a LongRef with the given value.
+     *
+     * @param value the initial value.
+     */
+    public LongRef(long value) {
+        this.value = value;
+    }
+
+    @AtomicMethod(readonly = true)
+    public long get() {
+        return value;
+    }
+
+    /**
+     * Gets the value, or retries until the predicate holds.
+     *
+     * @param predicate the predicate the value needs to satisfy.
+     * @return the value.
+     * @throws NullPointerException if predicate is null.
+     */
+    public long getOrAwait(LongPredicate predicate) {
+        if (!predicate.evaluate(value)) {
+            retry();
+        }
+
+        return value;
+    }
+
+    /**
+     * Retries until the value is equal to the desired value.
+     *
+     * @param desiredValue the value to wait for.
+     */
+    public void await(long desiredValue) {
+        if (value != desiredValue) {
+            retry();
+        }
+    }
+
+    /**
+     * Sets the value.
+     *
+     * @param newValue the new value.
+     * @return the old value.
+     */
+    public long set(long newValue) {
+        long oldValue = value;
+        value = newValue;
+        return oldValue;
+    }
+
+    /**
+     * Increments the value by one.
+     *
+     * @return the new value.
+     */
+    public long inc() {
+        return add(1);
+    }
+
+    /**
+     * Decrements the value by one.
+     *
+     * @return the new value.
+     */
+    public long dec() {
+        return add(-1);
+    }
+
+    /**
+     * Adds the amount to the value.
+     *
+     * @param amount the amount to add, can be negative.
+     * @return the new value.
+     */
+    public long add(long amount) {
+        long newValue = value + amount;
+        value = newValue;
+        return newValue;
+    }
+
+    /**
+     * Sets the value to the update if the current value is equal to the expected value.
+     *
+     * @param expected the expected value.
+     * @param update   the new value.
+     * @return true if the value was set, false otherwise.
+     */
+    public boolean compareAndSet(long expected, long update) {
+        if (value != expected) {
+            return false;
+        }
+
+        value = update;
+        return true;
+    }
+
+    @Override
+    @AtomicMethod(readonly = true)
+    public String toString() {
+        return format("LongRef(value=%s)", value);
+    }
+}
@@ -4,8 +4,8 @@ package org.multiverse.datastructures.refs;
  * An object responsible for storing an ref so that it can be managed by a
  * {@link org.multiverse.api.Transaction}.
  *
- * Atm there is no support for primitives, but if needed please send in a request
- * or create one yourself (just replace the generic type by a primitive version).
+ * For primitives see the {@link IntRef}, {@link LongRef}, {@link DoubleRef} and {@link BooleanRef}; they
+ * don't box the value.
  *
  * @author Peter Veentjer
  */
@@ -38,7 +38,6 @@ public final class Ref<E> implements ManagedRef<E> {
     }
 
     @Override
-    @AtomicMethod(readonly = true)
     public E getOrAwait() {
         if (reference == null) {
             retry();
@@ -6,6 +6,7 @@ import org.multiverse.api.Transaction;
 import org.multiverse.api.TransactionStatus;
 import org.multiverse.api.exceptions.DeadTransactionException;
 import org.multiverse.api.exceptions.PanicError;
+import org.multiverse.utils.contentionmanager.Contender;
 import org.multiverse.utils.latches.Latch;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
@@ -22,14 +23,17 @@ import static java.text.MessageFormat.format;
  * <p/>
  * AbstractTransaction requires the clock.time to be at least 1. It used the version field to encode the transaction
  * state. See the version field for more information.
+ * <p/>
+ * A transaction that is committed or aborted can be recycled using {@link #recycle(String)}, so that an stm is able
+ * to pool transactions instead of creating a new one for every execution.
  *
  * @author Peter Veentjer.
  */
 public abstract class AbstractTransaction<D extends AbstractTransactionDependencies>
-        implements Transaction, MultiverseConstants {
+        implements Transaction, Contender, MultiverseConstants {
 
     protected final D dependencies;
-    protected final String familyName;
+    protected String familyName;
 
     private TaskListNode scheduledTasks;
 
@@ -40,6 +44,12 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
      */
     private long version;
 
+    //the time of the first attempt and the work done over all attempts, they are kept when the transaction restarts.
+    private long startTime;
+    private long karma;
+    //the remaining time for a timed retry, also kept when the transaction restarts.
+    private long remainingTimeoutNs = Long.MAX_VALUE;
+
     public AbstractTransaction(D dependencies, String familyName) {
         assert dependencies != null;
         this.dependencies = dependencies;
@@ -82,12 +92,92 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
     protected final void init() {
         this.scheduledTasks = null;
         this.version = dependencies.clock.getTime();
+        if (startTime == 0) {
+            startTime = version;
+        }
         doInit();
     }
 
     protected void doInit() {
     }
 
+    /**
+     * Moves the read version of this active transaction forward. It is the responsibility of the subclass to make
+     * sure that everything it has read so far, still is valid at the new read version.
+     *
+     * @param newReadVersion the new read version.
+     * @throws PanicError if the transaction is not active, or if the read version would go back in time (only if
+     *                    sanity checks are enabled).
+     */
+    protected final void extendReadVersion(long newReadVersion) {
+        if (SANITY_CHECKS_ENABLED) {
+            if (version <= 0) {
+                throw new PanicError(format("Can't extend the read version of non active transaction '%s'",
+                                            familyName));
+            }
+
+            if (newReadVersion < version) {
+                throw new PanicError(format("The read version of transaction '%s' can't go back in time",
+                                            familyName));
+            }
+        }
+
+        this.version = newReadVersion;
+    }
+
+    /**
+     * Recycles this (committed or aborted) transaction so it can be used again, possibly by a transaction of a
+     * different family. After this call the transaction is active, just like a newly created transaction.
+     * <p/>
+     * This call should only be made by the stm that owns this transaction, and only if no one else has a reference
+     * to this transaction anymore.
+     *
+     * @param familyName the familyName of the recycled transaction.
+     * @throws PanicError if the transaction still is active (only if sanity checks are enabled).
+     */
+    public final void recycle(String familyName) {
+        if (SANITY_CHECKS_ENABLED) {
+            if (version > 0) {
+                throw new PanicError(format("Can't recycle active transaction '%s'", this.familyName));
+            }
+        }
+
+        this.familyName = familyName;
+        this.startTime = 0;
+        this.karma = 0;
+        this.remainingTimeoutNs = Long.MAX_VALUE;
+        init();
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getKarma() {
+        return karma;
+    }
+
+    @Override
+    public long getRemainingTimeoutNs() {
+        return remainingTimeoutNs;
+    }
+
+    @Override
+    public void setRemainingTimeoutNs(long remainingTimeoutNs) {
+        this.remainingTimeoutNs = remainingTimeoutNs;
+    }
+
+    /**
+     * Increases the karma of this transaction; should be called every time the transaction does some work (e.g.
+     * loading an atomicobject) so that a {@link org.multiverse.utils.contentionmanager.ContentionManager} can give
+     * priority to transactions that have done a lot of work.
+     */
+    protected final void incKarma() {
+        karma++;
+    }
+
     @Override
     public void schedule(Runnable task, ScheduleType scheduleType) {
         switch (getStatus()) {
@@ -241,6 +331,26 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void deregisterRetryLatch(Latch latch) {
+        if (latch == null) {
+            throw new NullPointerException();
+        }
+
+        if (getStatus() == TransactionStatus.aborted) {
+            doDeregisterRetryLatch(latch);
+        }
+    }
+
+    /**
+     * Removes the registrations of the latch done by the {@link #doAbortAndRegisterRetryLatch(Latch)}. The default
+     * implementation does nothing.
+     *
+     * @param latch the Latch to deregister.
+     */
+    protected void doDeregisterRetryLatch(Latch latch) {
+    }
+
     @Override
     public void startOr() {
         switch (getStatus()) {
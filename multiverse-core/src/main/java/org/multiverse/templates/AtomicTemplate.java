@@ -10,10 +10,11 @@ import org.multiverse.api.exceptions.PanicError;
 import org.multiverse.api.exceptions.RecoverableThrowable;
 import org.multiverse.api.exceptions.RetryError;
 import org.multiverse.api.exceptions.TooManyRetriesException;
-import org.multiverse.utils.latches.CheapLatch;
 import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
 
 import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -310,9 +311,7 @@ public abstract class AtomicTemplate<E> {
             } catch (Throwable throwable) {
                 lastFailureCause = throwable;
                 if (throwable instanceof RetryError) {
-                    Latch latch = new CheapLatch();
-                    t.abortAndRegisterRetryLatch(latch);
-                    latch.awaitUninterruptible();
+                    awaitRetry(t);
                 } else if (throwable instanceof RecoverableThrowable) {
                     //ignore
                 } else {
@@ -343,6 +342,35 @@ public abstract class AtomicTemplate<E> {
 
     }
 
+    /**
+     * Aborts the transaction and waits till one of the atomicobjects it has read, has changed. If a timed retry has
+     * been done, the wait is bounded by the remaining timeout of the transaction and the time waited is subtracted
+     * from it. An interrupt ends a timed wait as if the timeout has elapsed, and the interrupt status is kept.
+     *
+     * @param t the transaction that did the retry.
+     */
+    private static void awaitRetry(Transaction t) {
+        Latch latch = ParkingLatch.getThreadLocalLatch();
+        long remainingTimeoutNs = t.getRemainingTimeoutNs();
+        t.abortAndRegisterRetryLatch(latch);
+
+        if (remainingTimeoutNs == Long.MAX_VALUE) {
+            latch.awaitUninterruptible();
+        } else {
+            long startNs = System.nanoTime();
+            try {
+                if (!latch.tryAwait(remainingTimeoutNs, TimeUnit.NANOSECONDS)) {
+                    t.deregisterRetryLatch(latch);
+                }
+                t.setRemainingTimeoutNs(remainingTimeoutNs - (System.nanoTime() - startNs));
+            } catch (InterruptedException ex) {
+                t.deregisterRetryLatch(latch);
+                t.setRemainingTimeoutNs(0);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private static void rethrow(Throwable ex) throws Exception {
         if (ex instanceof Exception) {
             throw (Exception) ex;
@@ -37,6 +37,40 @@ public final class Listeners {
         return next;
     }
 
+    /**
+     * Returns a Listeners without the (first occurrence of the) listener. The nodes before the removed node are copied,
+     * the nodes after it are shared.
+     *
+     * @param listener the listener to remove.
+     * @return the Listeners without the listener. Could be null if the list becomes empty, and is this if the listener
+     *         isn't found.
+     */
+    public Listeners remove(Latch listener) {
+        int index = 0;
+        Listeners found = this;
+        while (found != null && found.listener != listener) {
+            found = found.next;
+            index++;
+        }
+
+        if (found == null) {
+            return this;
+        }
+
+        Listeners[] prefix = new Listeners[index];
+        Listeners node = this;
+        for (int k = 0; k < index; k++) {
+            prefix[k] = node;
+            node = node.next;
+        }
+
+        Listeners result = found.next;
+        for (int k = index - 1; k >= 0; k--) {
+            result = new Listeners(prefix[k].listener, result);
+        }
+        return result;
+    }
+
     /**
      * Opens all listeners. Method is not recursive but iterative.
      */
@@ -0,0 +1,108 @@
+package org.multiverse.utils.clock;
+
+import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Clock} that spreads the time over a number of stripes, so that concurrent ticks of independent
+ * transactions don't all need to contend on a single counter (and a single cache line) like the {@link StrictClock}
+ * and {@link RelaxedClock} do.
+ * <p/>
+ * The time of the clock is the maximum of all stripes. A tick reads the time, adds one and writes that value to
+ * the stripe of the calling thread (the stripe is selected based on the id of the thread). So a tick only writes to
+ * the cacheline of its own stripe; threads that use a different stripe don't interfere with each other. Just like
+ * with the {@link RelaxedClock}, concurrent ticks are allowed to return the same time. Ticks that don't overlap
+ * always return an increasing time.
+ * <p/>
+ * The price is paid when reading the time: all stripes need to be read. The read is conservative; it could miss a
+ * tick that is still in progress, but because a stripe only increases, it never misses a tick that has completed.
+ * So the contract of the {@link Clock} is not violated: once a tick has completed, {@link #getTime()} will always
+ * return a time equal or larger. The ordering guarantees are the same as the ones of the RelaxedClock.
+ * <p/>
+ * Every stripe is placed on its own cache line (the stripes are padded) to prevent false sharing.
+ * <p/>
+ * <h3>Warning</h3> Just like the RelaxedClock, a striped clock can not be used to find the total number of committed
+ * transactions.
+ *
+ * @author Peter Veentjer.
+ */
+public final class StripedClock implements Clock {
+
+    //the number of longs between 2 stripes, so that every stripe lives on its own cacheline (64 bytes).
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray stripes;
+    private final int stripeMask;
+
+    /**
+     * Creates a StripedClock with a stripe for every available processor.
+     */
+    public StripedClock() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a StripedClock with the given number of stripes. The number of stripes is rounded up to the next power
+     * of 2.
+     *
+     * @param stripeCount the number of stripes.
+     * @throws IllegalArgumentException if stripeCount smaller than 1.
+     */
+    public StripedClock(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        int length = 1;
+        while (length < stripeCount) {
+            length <<= 1;
+        }
+
+        this.stripeMask = length - 1;
+        this.stripes = new AtomicLongArray(length * PADDING);
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return the number of stripes.
+     */
+    public int getStripeCount() {
+        return stripeMask + 1;
+    }
+
+    @Override
+    public long tick() {
+        long time = getTime() + 1;
+        int index = ((int) Thread.currentThread().getId() & stripeMask) * PADDING;
+
+        while (true) {
+            long current = stripes.get(index);
+            if (current >= time) {
+                //another thread using the same stripe already has set a higher time, so our time is visible.
+                return time;
+            }
+
+            if (stripes.compareAndSet(index, current, time)) {
+                return time;
+            }
+        }
+    }
+
+    @Override
+    public long getTime() {
+        long time = 0;
+        for (int index = 0; index < stripes.length(); index += PADDING) {
+            long stripeTime = stripes.get(index);
+            if (stripeTime > time) {
+                time = stripeTime;
+            }
+        }
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return format("StripedClock(time=%s, stripeCount=%s)", getTime(), getStripeCount());
+    }
+}
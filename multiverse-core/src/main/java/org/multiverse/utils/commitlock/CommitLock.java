@@ -38,4 +38,11 @@ public interface CommitLock {
      * @param expectedLockOwner the expected Transaction that owns the lock.
      */
     void releaseLock(Transaction expectedLockOwner);
+
+    /**
+     * Returns the Transaction that currently owns the lock. The value could be stale as soon as it is returned.
+     *
+     * @return the Transaction that owns the lock, or null if the lock is free.
+     */
+    Transaction getLockOwner();
 }
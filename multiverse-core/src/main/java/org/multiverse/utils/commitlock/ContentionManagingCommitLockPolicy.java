@@ -0,0 +1,170 @@
+package org.multiverse.utils.commitlock;
+
+import org.multiverse.api.Transaction;
+import static org.multiverse.utils.commitlock.CommitLockUtils.nothingToLock;
+import org.multiverse.utils.contentionmanager.ContentionDecision;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.profiling.ProfileRepository;
+
+import static java.lang.String.format;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link CommitLockPolicy} that lets a {@link ContentionManager} decide what to do when a lock can't be acquired
+ * because it is owned by another transaction: spin, backoff or abort. Unlike the {@link GenericCommitLockPolicy}, the
+ * locks that already are acquired are kept while waiting for a lock, so a transaction with a high priority isn't
+ * starved by transactions that only need a few locks.
+ * <p/>
+ * The backoff is exponential in the number of attempts (1 microsecond times 2^attempt) and truncated at the
+ * maxBackoffNs.
+ * <p/>
+ * If a profiler is provided, the decisions are counted per familyName ("contention.spin.count",
+ * "contention.backoff.count" and "contention.abort.count").
+ * <p/>
+ * This ContentionManagingCommitLockPolicy is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer
+ */
+public final class ContentionManagingCommitLockPolicy implements CommitLockPolicy {
+
+    private final ContentionManager contentionManager;
+    private final ProfileRepository profiler;
+    private final long maxBackoffNs;
+
+    /**
+     * Creates a ContentionManagingCommitLockPolicy with a maximum backoff of 100 microseconds.
+     *
+     * @param contentionManager the ContentionManager.
+     * @param profiler          the ProfileRepository used to collect statistics, can be null.
+     * @throws NullPointerException if contentionManager is null.
+     */
+    public ContentionManagingCommitLockPolicy(ContentionManager contentionManager, ProfileRepository profiler) {
+        this(contentionManager, profiler, 100 * 1000);
+    }
+
+    /**
+     * Creates a ContentionManagingCommitLockPolicy.
+     *
+     * @param contentionManager the ContentionManager.
+     * @param profiler          the ProfileRepository used to collect statistics, can be null.
+     * @param maxBackoffNs      the maximum time in nanoseconds to backoff.
+     * @throws NullPointerException     if contentionManager is null.
+     * @throws IllegalArgumentException if maxBackoffNs smaller than 0.
+     */
+    public ContentionManagingCommitLockPolicy(ContentionManager contentionManager, ProfileRepository profiler,
+                                              long maxBackoffNs) {
+        if (contentionManager == null) {
+            throw new NullPointerException();
+        }
+
+        if (maxBackoffNs < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.contentionManager = contentionManager;
+        this.profiler = profiler;
+        this.maxBackoffNs = maxBackoffNs;
+    }
+
+    public ContentionManager getContentionManager() {
+        return contentionManager;
+    }
+
+    public long getMaxBackoffNs() {
+        return maxBackoffNs;
+    }
+
+    @Override
+    public CommitLockResult tryLockAndDetectConflict(CommitLock lock, Transaction lockOwner) {
+        if (lockOwner == null) {
+            throw new NullPointerException();
+        } else if (lock == null) {
+            return CommitLockResult.success;
+        } else {
+            return acquire(lock, lockOwner);
+        }
+    }
+
+    @Override
+    public CommitLockResult tryLockAllAndDetectConflicts(CommitLock[] locks, Transaction lockOwner) {
+        if (lockOwner == null) {
+            throw new NullPointerException();
+        } else if (nothingToLock(locks)) {
+            return CommitLockResult.success;
+        }
+
+        for (int lockIndex = 0; lockIndex < locks.length; lockIndex++) {
+            CommitLock lock = locks[lockIndex];
+            if (lock == null) {
+                return CommitLockResult.success;
+            }
+
+            CommitLockResult result = acquire(lock, lockOwner);
+            if (result != CommitLockResult.success) {
+                releaseLocks(locks, lockOwner, lockIndex - 1);
+                return result;
+            }
+        }
+
+        return CommitLockResult.success;
+    }
+
+    private CommitLockResult acquire(CommitLock lock, Transaction lockOwner) {
+        int attempt = 1;
+        while (true) {
+            CommitLockResult result = lock.tryLockAndDetectConflicts(lockOwner);
+            if (result != CommitLockResult.failure) {
+                return result;
+            }
+
+            Transaction enemy = lock.getLockOwner();
+            ContentionDecision decision;
+            if (enemy == null) {
+                //the lock has been released in the meantime.
+                decision = ContentionDecision.spin;
+            } else {
+                decision = contentionManager.resolve(lockOwner, enemy, attempt);
+            }
+
+            switch (decision) {
+                case spin:
+                    if (profiler != null) {
+                        profiler.incCounter("contention.spin.count", lockOwner.getFamilyName());
+                    }
+                    break;
+                case backoff:
+                    if (profiler != null) {
+                        profiler.incCounter("contention.backoff.count", lockOwner.getFamilyName());
+                    }
+                    LockSupport.parkNanos(calcBackoffNs(attempt));
+                    break;
+                case abort:
+                    if (profiler != null) {
+                        profiler.incCounter("contention.abort.count", lockOwner.getFamilyName());
+                    }
+                    return CommitLockResult.failure;
+                default:
+                    throw new IllegalStateException();
+            }
+
+            attempt++;
+        }
+    }
+
+    private long calcBackoffNs(int attempt) {
+        long backoffNs = attempt >= 20 ? Long.MAX_VALUE : 1000L << attempt;
+        return backoffNs > maxBackoffNs ? maxBackoffNs : backoffNs;
+    }
+
+    private void releaseLocks(CommitLock[] locks, Transaction owner, int lastIndexOfLockToRelease) {
+        for (int k = 0; k <= lastIndexOfLockToRelease; k++) {
+            locks[k].releaseLock(owner);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format("ContentionManagingCommitLockPolicy(contentionManager=%s, maxBackoffNs=%s)",
+                      contentionManager, maxBackoffNs);
+    }
+}
@@ -0,0 +1,91 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+/**
+ * An abstract {@link ContentionManager} for contention managers that compare the priority of the 2 transactions. The
+ * transaction with the highest priority keeps trying to acquire the lock: first by spinning and then by backing off.
+ * The transaction with the lowest priority aborts.
+ * <p/>
+ * If one of the transactions is not a {@link Contender}, the priority can't be determined. By default the transaction
+ * that wants the lock then is polite: it spins and backs off until the maxAttempts is reached.
+ *
+ * @author Peter Veentjer.
+ */
+public abstract class AbstractContentionManager implements ContentionManager {
+
+    private final int spinAttempts;
+    private final int maxAttempts;
+
+    /**
+     * Creates an AbstractContentionManager.
+     *
+     * @param spinAttempts the number of attempts a winning transaction spins before it starts to backoff.
+     * @param maxAttempts  the maximum number of attempts a winning transaction tries to acquire the lock. A value of
+     *                     Integer.MAX_VALUE means that it keeps trying.
+     * @throws IllegalArgumentException if spinAttempts smaller than 0 or maxAttempts smaller than 1.
+     */
+    public AbstractContentionManager(int spinAttempts, int maxAttempts) {
+        if (spinAttempts < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.spinAttempts = spinAttempts;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getSpinAttempts() {
+        return spinAttempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public final ContentionDecision resolve(Transaction me, Transaction enemy, int attempt) {
+        if (!(me instanceof Contender) || !(enemy instanceof Contender)) {
+            return resolveWithoutPriority(attempt);
+        }
+
+        if (hasPriority((Contender) me, (Contender) enemy, attempt)) {
+            return waitForLock(attempt);
+        } else {
+            return ContentionDecision.abort;
+        }
+    }
+
+    /**
+     * Checks if the transaction that wants the lock has priority over the transaction that owns it.
+     *
+     * @param me      the transaction that wants the lock.
+     * @param enemy   the transaction that owns the lock.
+     * @param attempt the number of failed attempts to acquire the lock.
+     * @return true if me has priority, false otherwise.
+     */
+    protected abstract boolean hasPriority(Contender me, Contender enemy, int attempt);
+
+    /**
+     * Resolves the conflict if the priority of the transactions can't be determined.
+     *
+     * @param attempt the number of failed attempts to acquire the lock.
+     * @return the decision.
+     */
+    protected ContentionDecision resolveWithoutPriority(int attempt) {
+        return waitForLock(attempt);
+    }
+
+    protected final ContentionDecision waitForLock(int attempt) {
+        if (attempt >= maxAttempts) {
+            return ContentionDecision.abort;
+        } else if (attempt <= spinAttempts) {
+            return ContentionDecision.spin;
+        } else {
+            return ContentionDecision.backoff;
+        }
+    }
+}
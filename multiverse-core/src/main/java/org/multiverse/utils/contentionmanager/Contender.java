@@ -0,0 +1,27 @@
+package org.multiverse.utils.contentionmanager;
+
+/**
+ * A transaction that provides the information a {@link ContentionManager} needs to decide which transaction should
+ * win a conflict. The information survives the restart of a transaction, so a transaction that failed a lot of times
+ * increases its chance of winning.
+ *
+ * @author Peter Veentjer.
+ */
+public interface Contender {
+
+    /**
+     * Returns the time of the clock when the first attempt of this transaction was started. A smaller value means an
+     * older transaction.
+     *
+     * @return the time of the first attempt.
+     */
+    long getStartTime();
+
+    /**
+     * Returns the amount of work this transaction has done over all its attempts, e.g. the number of atomicobjects
+     * it has loaded.
+     *
+     * @return the karma of this transaction.
+     */
+    long getKarma();
+}
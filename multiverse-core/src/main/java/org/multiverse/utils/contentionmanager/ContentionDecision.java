@@ -0,0 +1,25 @@
+package org.multiverse.utils.contentionmanager;
+
+/**
+ * The decision a {@link ContentionManager} makes when a transaction fails to acquire a lock that is owned by another
+ * transaction.
+ *
+ * @author Peter Veentjer.
+ */
+public enum ContentionDecision {
+
+    /**
+     * Try to acquire the lock again immediately.
+     */
+    spin,
+
+    /**
+     * Wait a little while before trying to acquire the lock again.
+     */
+    backoff,
+
+    /**
+     * Give up; the transaction that wants the lock fails to acquire its locks and aborts.
+     */
+    abort
+}
@@ -0,0 +1,28 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+/**
+ * A ContentionManager decides what a transaction should do when it fails to acquire a lock because it is owned by
+ * another transaction (the enemy). It is used by the {@link org.multiverse.utils.commitlock.ContentionManagingCommitLockPolicy}.
+ * <p/>
+ * Because locks are only held while a transaction commits, the enemy already is committing and can't be aborted
+ * anymore. So a transaction that 'wins' the conflict waits for the lock (spinning or backing off) and a transaction
+ * that 'loses' gives up and aborts, so that it releases the locks it already acquired.
+ * <p/>
+ * A ContentionManager should be threadsafe.
+ *
+ * @author Peter Veentjer.
+ */
+public interface ContentionManager {
+
+    /**
+     * Resolves a conflict between a transaction that wants a lock, and the enemy that owns it.
+     *
+     * @param me      the transaction that wants to acquire the lock.
+     * @param enemy   the transaction that owns the lock.
+     * @param attempt the number of failed attempts to acquire this lock (starts with 1).
+     * @return the decision. The returned value will never be null.
+     */
+    ContentionDecision resolve(Transaction me, Transaction enemy, int attempt);
+}
@@ -0,0 +1,51 @@
+package org.multiverse.utils.contentionmanager;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+
+/**
+ * A {@link ContentionManager} that, just like the {@link TimestampContentionManager}, gives priority to the oldest
+ * transaction, but the oldest transaction never gives up. Transactions with the same start time are ordered on their
+ * identity hashcode. The identity hashcode isn't unique, so this is not a total order: if 2 transactions also have
+ * the same identity hashcode, neither has priority and the transaction that wants the lock aborts. A transaction only
+ * waits for a transaction it has a strictly higher priority than, so there can't be a cycle of transactions waiting
+ * on each other: the youngest transaction in such a cycle aborts and releases its locks. If the order can't be
+ * determined because one of the transactions is not a {@link Contender}, the transaction that wants the lock aborts.
+ * <p/>
+ * This GreedyContentionManager is immutable and threadsafe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class GreedyContentionManager extends AbstractContentionManager {
+
+    /**
+     * Creates a GreedyContentionManager that spins 10 times before it starts to backoff.
+     */
+    public GreedyContentionManager() {
+        this(10);
+    }
+
+    public GreedyContentionManager(int spinAttempts) {
+        super(spinAttempts, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected boolean hasPriority(Contender me, Contender enemy, int attempt) {
+        if (me.getStartTime() != enemy.getStartTime()) {
+            return me.getStartTime() < enemy.getStartTime();
+        }
+
+        return identityHashCode(me) < identityHashCode(enemy);
+    }
+
+    @Override
+    protected ContentionDecision resolveWithoutPriority(int attempt) {
+        //without an order, waiting forever could lead to a deadlock.
+        return ContentionDecision.abort;
+    }
+
+    @Override
+    public String toString() {
+        return format("GreedyContentionManager(spinAttempts=%s)", getSpinAttempts());
+    }
+}
@@ -0,0 +1,36 @@
+package org.multiverse.utils.contentionmanager;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link ContentionManager} that gives priority to the transaction that has done the most work (see
+ * {@link Contender#getKarma()}). The karma is kept when a transaction restarts, and every failed attempt to acquire
+ * the lock adds one, so a large transaction that keeps failing on small transactions eventually wins.
+ * <p/>
+ * This KarmaContentionManager is immutable and threadsafe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class KarmaContentionManager extends AbstractContentionManager {
+
+    /**
+     * Creates a KarmaContentionManager that spins 10 times and aborts after 100 attempts.
+     */
+    public KarmaContentionManager() {
+        this(10, 100);
+    }
+
+    public KarmaContentionManager(int spinAttempts, int maxAttempts) {
+        super(spinAttempts, maxAttempts);
+    }
+
+    @Override
+    protected boolean hasPriority(Contender me, Contender enemy, int attempt) {
+        return me.getKarma() + attempt > enemy.getKarma();
+    }
+
+    @Override
+    public String toString() {
+        return format("KarmaContentionManager(spinAttempts=%s, maxAttempts=%s)", getSpinAttempts(), getMaxAttempts());
+    }
+}
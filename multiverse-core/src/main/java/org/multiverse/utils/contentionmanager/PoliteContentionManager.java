@@ -0,0 +1,36 @@
+package org.multiverse.utils.contentionmanager;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link ContentionManager} that doesn't look at the priority of the transactions: it spins, then backs off and
+ * aborts if the lock still can't be acquired after the maximum number of attempts. This is the behavior of the
+ * {@link org.multiverse.utils.commitlock.GenericCommitLockPolicy}, but with a backoff.
+ * <p/>
+ * This PoliteContentionManager is immutable and threadsafe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class PoliteContentionManager extends AbstractContentionManager {
+
+    /**
+     * Creates a PoliteContentionManager that spins 10 times and aborts after 20 attempts.
+     */
+    public PoliteContentionManager() {
+        this(10, 20);
+    }
+
+    public PoliteContentionManager(int spinAttempts, int maxAttempts) {
+        super(spinAttempts, maxAttempts);
+    }
+
+    @Override
+    protected boolean hasPriority(Contender me, Contender enemy, int attempt) {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("PoliteContentionManager(spinAttempts=%s, maxAttempts=%s)", getSpinAttempts(), getMaxAttempts());
+    }
+}
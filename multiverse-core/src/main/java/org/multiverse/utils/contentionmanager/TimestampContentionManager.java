@@ -0,0 +1,38 @@
+package org.multiverse.utils.contentionmanager;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link ContentionManager} that gives priority to the oldest transaction (see {@link Contender#getStartTime()}).
+ * Because the start time is kept when a transaction restarts, a transaction eventually becomes the oldest and wins.
+ * The oldest transaction waits for the lock until the maximum number of attempts is reached, the younger transaction
+ * aborts immediately.
+ * <p/>
+ * This TimestampContentionManager is immutable and threadsafe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class TimestampContentionManager extends AbstractContentionManager {
+
+    /**
+     * Creates a TimestampContentionManager that spins 10 times and aborts after 100 attempts.
+     */
+    public TimestampContentionManager() {
+        this(10, 100);
+    }
+
+    public TimestampContentionManager(int spinAttempts, int maxAttempts) {
+        super(spinAttempts, maxAttempts);
+    }
+
+    @Override
+    protected boolean hasPriority(Contender me, Contender enemy, int attempt) {
+        return me.getStartTime() <= enemy.getStartTime();
+    }
+
+    @Override
+    public String toString() {
+        return format("TimestampContentionManager(spinAttempts=%s, maxAttempts=%s)",
+                      getSpinAttempts(), getMaxAttempts());
+    }
+}
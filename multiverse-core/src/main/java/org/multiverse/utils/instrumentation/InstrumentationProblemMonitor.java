@@ -1,5 +1,6 @@
 package org.multiverse.utils.instrumentation;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -8,6 +9,9 @@ import java.util.logging.Logger;
  * <p/>
  * What is does is it launches a thread that prints warning messages every 10 second to the Log.servere when the
  * first problem is signalled. Following problems are ignored.
+ * <p/>
+ * It also keeps track of the hits and misses of the instrumentation cache (if the instrumentation uses a cache), so
+ * that the effectiveness of the cache can be checked.
  *
  * @author Peter Veentjer
  */
@@ -19,6 +23,10 @@ public final class InstrumentationProblemMonitor {
 
     private volatile boolean problemFound;
 
+    private final AtomicLong cacheHitCount = new AtomicLong();
+
+    private final AtomicLong cacheMissCount = new AtomicLong();
+
     private InstrumentationProblemMonitor() {
     }
 
@@ -41,6 +49,29 @@ public final class InstrumentationProblemMonitor {
         }
     }
 
+    /**
+     * Signals that the instrumented bytecode of a class was found in the instrumentation cache.
+     */
+    public void signalCacheHit() {
+        cacheHitCount.incrementAndGet();
+    }
+
+    /**
+     * Signals that the instrumented bytecode of a class was not found in the instrumentation cache, so the class needed
+     * to be instrumented.
+     */
+    public void signalCacheMiss() {
+        cacheMissCount.incrementAndGet();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
     static class LoggingDaemon extends Thread {
         LoggingDaemon() {
             super("LoggingDaemon");
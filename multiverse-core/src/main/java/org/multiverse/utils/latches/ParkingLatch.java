@@ -0,0 +1,236 @@
+package org.multiverse.utils.latches;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Latch} for a single waiting thread, based on {@link LockSupport#park(Object)} and {@link
+ * LockSupport#unpark(Thread)}. Unlike the {@link CheapLatch} no monitor lock is needed to open the latch, timed waits
+ * are supported, and before the thread is parked, it spins a little while, so a latch that is opened very soon
+ * doesn't cause a context switch.
+ * <p/>
+ * The latch can be reused: {@link #reset()} closes it again. Every thread has a ParkingLatch that can be obtained
+ * using {@link #getThreadLocalLatch()}, so no latch needs to be created for every retry. A reused latch could still
+ * be registered somewhere from a previous use, and be opened by that registration; so the waiter should be able to
+ * deal with spurious wakeups (a retrying transaction simply is executed again). The {@link #getGeneration()} can be
+ * used to detect that a registration is stale.
+ * <p/>
+ * Only a single thread is allowed to wait on the latch at any moment; if a second thread tries to wait, an
+ * IllegalStateException is thrown.
+ *
+ * @author Peter Veentjer
+ */
+public final class ParkingLatch implements Latch {
+
+    /**
+     * The number of times the latch is checked before the thread is parked. On a single processor machine spinning
+     * is useless, so no spinning is done.
+     */
+    public static final int SPIN_COUNT = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+
+    private static final AtomicReferenceFieldUpdater<ParkingLatch, Thread> WAITER_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ParkingLatch.class, Thread.class, "waiter");
+
+    private static final ThreadLocal<ParkingLatch> threadLocalLatch = new ThreadLocal<ParkingLatch>() {
+        @Override
+        protected ParkingLatch initialValue() {
+            return new ParkingLatch();
+        }
+    };
+
+    /**
+     * Returns the ParkingLatch of the calling thread. The latch is reset, so it is closed.
+     *
+     * @return the ParkingLatch of the calling thread.
+     */
+    public static ParkingLatch getThreadLocalLatch() {
+        ParkingLatch latch = threadLocalLatch.get();
+        latch.reset();
+        return latch;
+    }
+
+    private volatile boolean isOpen;
+    private volatile Thread waiter;
+    private volatile long generation;
+
+    /**
+     * Creates a new closed ParkingLatch.
+     */
+    public ParkingLatch() {
+        this(false);
+    }
+
+    /**
+     * Creates a new ParkingLatch.
+     *
+     * @param isOpen true if the latch already is open, false if the latch is closed.
+     */
+    public ParkingLatch(boolean isOpen) {
+        this.isOpen = isOpen;
+    }
+
+    /**
+     * Closes the latch so that it can be used again. It should not be called while a thread is waiting.
+     */
+    public void reset() {
+        generation++;
+        isOpen = false;
+    }
+
+    /**
+     * Returns the generation of this latch: the number of times it has been reset.
+     *
+     * @return the generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public void open() {
+        if (isOpen) {
+            return;
+        }
+
+        //the isOpen write needs to be done before the waiter read; the waiter does it the other way around, so
+        //either the waiter sees that the latch is open, or it is unparked.
+        isOpen = true;
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+        if (spin()) {
+            return;
+        }
+
+        registerWaiter();
+        try {
+            while (!isOpen) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public void awaitUninterruptible() {
+        if (spin()) {
+            return;
+        }
+
+        boolean restoreInterrupt = false;
+        registerWaiter();
+        try {
+            while (!isOpen) {
+                //the interrupt status needs to be cleared, a park returns immediately if it is set.
+                if (Thread.interrupted()) {
+                    restoreInterrupt = true;
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            waiter = null;
+            if (restoreInterrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAwait(long timeout, TimeUnit unit) throws InterruptedException {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (spin()) {
+            return true;
+        }
+
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+        registerWaiter();
+        try {
+            while (!isOpen) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                long remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remainingNs);
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public boolean tryAwaitUninterruptible(long timeout, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (spin()) {
+            return true;
+        }
+
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+        boolean restoreInterrupt = false;
+        registerWaiter();
+        try {
+            while (!isOpen) {
+                if (Thread.interrupted()) {
+                    restoreInterrupt = true;
+                }
+
+                long remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remainingNs);
+            }
+            return true;
+        } finally {
+            waiter = null;
+            if (restoreInterrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean spin() {
+        for (int k = 0; k < SPIN_COUNT; k++) {
+            if (isOpen) {
+                return true;
+            }
+        }
+        return isOpen;
+    }
+
+    private void registerWaiter() {
+        if (!WAITER_UPDATER.compareAndSet(this, null, Thread.currentThread())) {
+            throw new IllegalStateException("Only a single thread is allowed to wait on a ParkingLatch");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isOpen() ? "ParkingLatch(open=true)" : "ParkingLatch(open=false)";
+    }
+}
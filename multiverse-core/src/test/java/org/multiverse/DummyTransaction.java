@@ -67,6 +67,21 @@ public class DummyTransaction implements Transaction {
         throw new RuntimeException();
     }
 
+    @Override
+    public void deregisterRetryLatch(Latch latch) {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public long getRemainingTimeoutNs() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public void setRemainingTimeoutNs(long remainingTimeoutNs) {
+        throw new RuntimeException();
+    }
+
     @Override
     public void schedule(Runnable task, ScheduleType scheduleType) {
         throw new RuntimeException();
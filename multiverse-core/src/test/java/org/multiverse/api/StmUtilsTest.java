@@ -3,14 +3,17 @@ package org.multiverse.api;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
 import static org.multiverse.api.StmUtils.*;
 import org.multiverse.api.exceptions.NoTransactionFoundException;
 import org.multiverse.api.exceptions.RetryError;
+import org.multiverse.api.exceptions.RetryTimeoutException;
 import static org.multiverse.api.ThreadLocalTransaction.clearThreadLocalTransaction;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Peter Veentjer
  */
@@ -39,6 +42,50 @@ public class StmUtilsTest {
         retry();
     }
 
+    @Test
+    public void timedRetrySetsTimeoutOnFirstCall() {
+        Transaction t = mock(Transaction.class);
+        when(t.getRemainingTimeoutNs()).thenReturn(Long.MAX_VALUE);
+        setThreadLocalTransaction(t);
+
+        try {
+            retry(10, TimeUnit.SECONDS);
+            fail();
+        } catch (RetryError expected) {
+        }
+
+        verify(t).setRemainingTimeoutNs(TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void timedRetryKeepsRemainingTimeout() {
+        Transaction t = mock(Transaction.class);
+        when(t.getRemainingTimeoutNs()).thenReturn(100L);
+        setThreadLocalTransaction(t);
+
+        try {
+            retry(10, TimeUnit.SECONDS);
+            fail();
+        } catch (RetryError expected) {
+        }
+
+        verify(t, never()).setRemainingTimeoutNs(anyLong());
+    }
+
+    @Test(expected = RetryTimeoutException.class)
+    public void timedRetryFailsWhenTimeoutHasElapsed() {
+        Transaction t = mock(Transaction.class);
+        when(t.getRemainingTimeoutNs()).thenReturn(0L);
+        setThreadLocalTransaction(t);
+
+        retry(10, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = NoTransactionFoundException.class)
+    public void timedRetryWithoutTransactionFails() {
+        retry(10, TimeUnit.SECONDS);
+    }
+
     @Test
     public void deferredExecuteIsForwardedToTransactionThreadLocal() {
         Runnable task = mock(Runnable.class);
@@ -45,4 +45,50 @@ public class ListenersTest {
         assertTrue(latch1.isOpen());
         assertTrue(latch2.isOpen());
     }
+
+    @Test
+    public void removeHead() {
+        Latch latch1 = new CheapLatch();
+        Latch latch2 = new CheapLatch();
+
+        Listeners tail = new Listeners(latch2, null);
+        Listeners head = new Listeners(latch1, tail);
+
+        assertSame(tail, head.remove(latch1));
+    }
+
+    @Test
+    public void removeTail() {
+        Latch latch1 = new CheapLatch();
+        Latch latch2 = new CheapLatch();
+        Latch latch3 = new CheapLatch();
+
+        Listeners listeners = new Listeners(latch1, new Listeners(latch2, new Listeners(latch3, null)));
+        Listeners result = listeners.remove(latch3);
+
+        assertSame(latch1, result.getListener());
+        assertSame(latch2, result.getNext().getListener());
+        assertNull(result.getNext().getNext());
+        //the original list is not changed.
+        assertSame(latch3, listeners.getNext().getNext().getListener());
+    }
+
+    @Test
+    public void removeLastListener() {
+        Latch latch = new CheapLatch();
+
+        Listeners listeners = new Listeners(latch, null);
+
+        assertNull(listeners.remove(latch));
+    }
+
+    @Test
+    public void removeNonExistingListener() {
+        Latch latch1 = new CheapLatch();
+        Latch latch2 = new CheapLatch();
+
+        Listeners listeners = new Listeners(latch1, null);
+
+        assertSame(listeners, listeners.remove(latch2));
+    }
 }
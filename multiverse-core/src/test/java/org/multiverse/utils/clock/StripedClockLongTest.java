@@ -0,0 +1,67 @@
+package org.multiverse.utils.clock;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+
+import static java.lang.Math.max;
+
+/**
+ * Executes a stress test on the {@link org.multiverse.utils.clock.StripedClock} to see that it behaves correctly.
+ * Unlike the StrictClock, concurrent ticks are allowed to return the same time, so the final time can't be
+ * predicted. But a tick always needs to return a value larger than a time that was read before.
+ *
+ * @author Peter Veentjer
+ */
+public class StripedClockLongTest {
+
+    private final long tickCount = 10 * 1000 * 1000;
+    private final Clock clock = new StripedClock();
+    //since the test would not make sense using a single thread, the minimal number of
+    //thread is 2 (but who has a single core system these days).
+    private final int threadCount = max(Runtime.getRuntime().availableProcessors(), 2);
+
+    @Test
+    public void test() {
+        System.out.printf("StripedClockLongTest threadCount=%s  tickCount/thread=%s\n", threadCount, tickCount);
+
+        TickThread[] threads = createThreads();
+        startAll(threads);
+        joinAll(threads);
+
+        assertTrue(clock.getTime() >= tickCount);
+    }
+
+    public TickThread[] createThreads() {
+        TickThread[] threads = new TickThread[threadCount];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new TickThread(k);
+        }
+        return threads;
+    }
+
+    class TickThread extends TestThread {
+
+        public TickThread(int id) {
+            super("TickThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            for (long k = 0; k < tickCount; k++) {
+                long timeBefore = clock.getTime();
+                long nextTime = clock.tick();
+                if (nextTime <= timeBefore) {
+                    fail();
+                }
+
+                if (clock.getTime() < nextTime) {
+                    fail();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.multiverse.utils.clock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class StripedClockTest {
+
+    @Test
+    public void testConstructor() {
+        StripedClock clock = new StripedClock();
+        assertEquals(0, clock.getTime());
+        assertTrue(clock.getStripeCount() >= Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithTooSmallStripeCount() {
+        new StripedClock(0);
+    }
+
+    @Test
+    public void testStripeCountIsRoundedToPowerOf2() {
+        assertEquals(1, new StripedClock(1).getStripeCount());
+        assertEquals(4, new StripedClock(3).getStripeCount());
+        assertEquals(8, new StripedClock(8).getStripeCount());
+    }
+
+    @Test
+    public void testTick() {
+        StripedClock clock = new StripedClock(4);
+        long old = clock.getTime();
+        long returned = clock.tick();
+        assertEquals(old + 1, clock.getTime());
+        assertEquals(returned, clock.getTime());
+    }
+
+    @Test
+    public void testTicksFromDifferentThreadsAreOrdered() throws InterruptedException {
+        final StripedClock clock = new StripedClock(16);
+
+        for (int k = 0; k < 10; k++) {
+            final long old = clock.getTime();
+            final long[] returned = new long[1];
+            Thread thread = new Thread() {
+                public void run() {
+                    returned[0] = clock.tick();
+                }
+            };
+            thread.start();
+            thread.join();
+
+            assertEquals(old + 1, returned[0]);
+            assertEquals(old + 1, clock.getTime());
+        }
+    }
+
+    @Test
+    public void testToString() {
+        StripedClock clock = new StripedClock(2);
+        clock.tick();
+
+        assertEquals("StripedClock(time=1, stripeCount=2)", clock.toString());
+    }
+}
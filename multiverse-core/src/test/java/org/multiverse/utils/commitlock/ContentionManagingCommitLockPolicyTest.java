@@ -0,0 +1,139 @@
+package org.multiverse.utils.commitlock;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+import org.multiverse.DummyTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.utils.contentionmanager.ContentionDecision;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ContentionManagingCommitLockPolicyTest {
+
+    private ContentionManager contentionManager;
+    private ContentionManagingCommitLockPolicy policy;
+
+    @Before
+    public void setUp() {
+        contentionManager = mock(ContentionManager.class);
+        policy = new ContentionManagingCommitLockPolicy(contentionManager, null, 1000);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructWithNullContentionManager() {
+        new ContentionManagingCommitLockPolicy(null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithNegativeMaxBackoff() {
+        new ContentionManagingCommitLockPolicy(contentionManager, null, -1);
+    }
+
+    @Test
+    public void tryLock_succeedsWithNullLock() {
+        Transaction t = new DummyTransaction();
+        assertEquals(CommitLockResult.success, policy.tryLockAndDetectConflict(null, t));
+    }
+
+    @Test
+    public void tryLock_conflictIsReturnedImmediately() {
+        CommitLock lock = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        when(lock.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.conflict);
+
+        assertEquals(CommitLockResult.conflict, policy.tryLockAndDetectConflict(lock, t));
+        verifyZeroInteractions(contentionManager);
+    }
+
+    @Test
+    public void tryLock_contentionManagerDecidesToSpin() {
+        CommitLock lock = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        Transaction enemy = new DummyTransaction();
+        when(lock.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.failure, CommitLockResult.success);
+        when(lock.getLockOwner()).thenReturn(enemy);
+        when(contentionManager.resolve(t, enemy, 1)).thenReturn(ContentionDecision.spin);
+
+        assertEquals(CommitLockResult.success, policy.tryLockAndDetectConflict(lock, t));
+        verify(contentionManager).resolve(t, enemy, 1);
+    }
+
+    @Test
+    public void tryLock_contentionManagerDecidesToBackoff() {
+        CommitLock lock = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        Transaction enemy = new DummyTransaction();
+        when(lock.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.failure, CommitLockResult.success);
+        when(lock.getLockOwner()).thenReturn(enemy);
+        when(contentionManager.resolve(t, enemy, 1)).thenReturn(ContentionDecision.backoff);
+
+        assertEquals(CommitLockResult.success, policy.tryLockAndDetectConflict(lock, t));
+    }
+
+    @Test
+    public void tryLock_contentionManagerDecidesToAbort() {
+        CommitLock lock = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        Transaction enemy = new DummyTransaction();
+        when(lock.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.failure);
+        when(lock.getLockOwner()).thenReturn(enemy);
+        when(contentionManager.resolve(t, enemy, 1)).thenReturn(ContentionDecision.abort);
+
+        assertEquals(CommitLockResult.failure, policy.tryLockAndDetectConflict(lock, t));
+    }
+
+    @Test
+    public void tryLock_contentionManagerIsNotCalledIfLockIsReleasedInTheMeantime() {
+        CommitLock lock = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        when(lock.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.failure, CommitLockResult.success);
+        when(lock.getLockOwner()).thenReturn(null);
+
+        assertEquals(CommitLockResult.success, policy.tryLockAndDetectConflict(lock, t));
+        verifyZeroInteractions(contentionManager);
+    }
+
+    @Test
+    public void tryLockAll_nullLocksSucceeds() {
+        assertEquals(CommitLockResult.success, policy.tryLockAllAndDetectConflicts(null, new DummyTransaction()));
+    }
+
+    @Test
+    public void tryLockAll_acquiredLocksAreReleasedOnAbort() {
+        CommitLock lock1 = mock(CommitLock.class);
+        CommitLock lock2 = mock(CommitLock.class);
+        CommitLock lock3 = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+        Transaction enemy = new DummyTransaction();
+
+        when(lock1.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.success);
+        when(lock2.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.failure);
+        when(lock2.getLockOwner()).thenReturn(enemy);
+        when(contentionManager.resolve(t, enemy, 1)).thenReturn(ContentionDecision.abort);
+
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(new CommitLock[]{lock1, lock2, lock3}, t);
+        assertEquals(CommitLockResult.failure, result);
+        verify(lock1).releaseLock(t);
+        verify(lock2, never()).releaseLock(t);
+        verifyZeroInteractions(lock3);
+    }
+
+    @Test
+    public void tryLockAll_success() {
+        CommitLock lock1 = mock(CommitLock.class);
+        CommitLock lock2 = mock(CommitLock.class);
+        Transaction t = new DummyTransaction();
+
+        when(lock1.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.success);
+        when(lock2.tryLockAndDetectConflicts(t)).thenReturn(CommitLockResult.success);
+
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(new CommitLock[]{lock1, lock2, null}, t);
+        assertEquals(CommitLockResult.success, result);
+        verify(lock1, never()).releaseLock(t);
+        verify(lock2, never()).releaseLock(t);
+    }
+}
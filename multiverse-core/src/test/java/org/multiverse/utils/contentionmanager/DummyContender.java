@@ -0,0 +1,27 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.DummyTransaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class DummyContender extends DummyTransaction implements Contender {
+
+    private final long startTime;
+    private final long karma;
+
+    public DummyContender(long startTime, long karma) {
+        this.startTime = startTime;
+        this.karma = karma;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getKarma() {
+        return karma;
+    }
+}
@@ -0,0 +1,50 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class GreedyContentionManagerTest {
+
+    @Test
+    public void olderTransactionNeverGivesUp() {
+        GreedyContentionManager manager = new GreedyContentionManager(1);
+        DummyContender me = new DummyContender(1, 0);
+        DummyContender enemy = new DummyContender(10, 100);
+
+        assertEquals(ContentionDecision.spin, manager.resolve(me, enemy, 1));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 2));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 1000 * 1000));
+    }
+
+    @Test
+    public void youngerTransactionAborts() {
+        GreedyContentionManager manager = new GreedyContentionManager(1);
+        DummyContender me = new DummyContender(10, 100);
+        DummyContender enemy = new DummyContender(1, 0);
+
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 1));
+    }
+
+    @Test
+    public void sameStartTimeOnlyOneWaits() {
+        GreedyContentionManager manager = new GreedyContentionManager(1);
+        DummyContender t1 = new DummyContender(1, 0);
+        DummyContender t2 = new DummyContender(1, 0);
+
+        boolean t1Waits = manager.resolve(t1, t2, 1) != ContentionDecision.abort;
+        boolean t2Waits = manager.resolve(t2, t1, 1) != ContentionDecision.abort;
+        assertTrue(!(t1Waits && t2Waits));
+    }
+
+    @Test
+    public void abortsIfPriorityCantBeDetermined() {
+        GreedyContentionManager manager = new GreedyContentionManager(1);
+
+        assertEquals(ContentionDecision.abort, manager.resolve(new DummyTransaction(), new DummyTransaction(), 1));
+    }
+}
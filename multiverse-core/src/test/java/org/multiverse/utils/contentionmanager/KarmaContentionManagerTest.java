@@ -0,0 +1,40 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class KarmaContentionManagerTest {
+
+    @Test
+    public void transactionWithMoreKarmaWaits() {
+        KarmaContentionManager manager = new KarmaContentionManager(1, 10);
+        DummyContender me = new DummyContender(10, 20);
+        DummyContender enemy = new DummyContender(1, 5);
+
+        assertEquals(ContentionDecision.spin, manager.resolve(me, enemy, 1));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 2));
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 10));
+    }
+
+    @Test
+    public void transactionWithLessKarmaAborts() {
+        KarmaContentionManager manager = new KarmaContentionManager(1, 10);
+        DummyContender me = new DummyContender(1, 5);
+        DummyContender enemy = new DummyContender(10, 20);
+
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 1));
+    }
+
+    @Test
+    public void failedAttemptsIncreaseKarma() {
+        KarmaContentionManager manager = new KarmaContentionManager(1, 100);
+        DummyContender me = new DummyContender(1, 5);
+        DummyContender enemy = new DummyContender(10, 8);
+
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 3));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 4));
+    }
+}
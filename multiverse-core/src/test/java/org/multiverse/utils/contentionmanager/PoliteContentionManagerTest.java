@@ -0,0 +1,42 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class PoliteContentionManagerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithNegativeSpinAttempts() {
+        new PoliteContentionManager(-1, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallMaxAttempts() {
+        new PoliteContentionManager(0, 0);
+    }
+
+    @Test
+    public void spinsThenBacksOffThenAborts() {
+        PoliteContentionManager manager = new PoliteContentionManager(2, 4);
+        DummyContender me = new DummyContender(10, 0);
+        DummyContender enemy = new DummyContender(1, 100);
+
+        assertEquals(ContentionDecision.spin, manager.resolve(me, enemy, 1));
+        assertEquals(ContentionDecision.spin, manager.resolve(me, enemy, 2));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 3));
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 4));
+    }
+
+    @Test
+    public void worksWithTransactionsThatAreNoContenders() {
+        PoliteContentionManager manager = new PoliteContentionManager(1, 3);
+
+        assertEquals(ContentionDecision.spin, manager.resolve(new DummyTransaction(), new DummyTransaction(), 1));
+        assertEquals(ContentionDecision.backoff, manager.resolve(new DummyTransaction(), new DummyTransaction(), 2));
+        assertEquals(ContentionDecision.abort, manager.resolve(new DummyTransaction(), new DummyTransaction(), 3));
+    }
+}
@@ -0,0 +1,30 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class TimestampContentionManagerTest {
+
+    @Test
+    public void olderTransactionWaits() {
+        TimestampContentionManager manager = new TimestampContentionManager(1, 10);
+        DummyContender me = new DummyContender(1, 0);
+        DummyContender enemy = new DummyContender(10, 100);
+
+        assertEquals(ContentionDecision.spin, manager.resolve(me, enemy, 1));
+        assertEquals(ContentionDecision.backoff, manager.resolve(me, enemy, 2));
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 10));
+    }
+
+    @Test
+    public void youngerTransactionAborts() {
+        TimestampContentionManager manager = new TimestampContentionManager(1, 10);
+        DummyContender me = new DummyContender(10, 100);
+        DummyContender enemy = new DummyContender(1, 0);
+
+        assertEquals(ContentionDecision.abort, manager.resolve(me, enemy, 1));
+    }
+}
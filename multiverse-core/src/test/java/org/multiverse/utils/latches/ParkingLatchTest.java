@@ -0,0 +1,256 @@
+package org.multiverse.utils.latches;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ParkingLatchTest {
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();//clear the interrupt status
+    }
+
+    @Test
+    public void constructorWithOpenLatch() {
+        ParkingLatch latch = new ParkingLatch(true);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void constructorWithClosedLatch() {
+        ParkingLatch latch = new ParkingLatch(false);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void constructorWithNoArgs() {
+        ParkingLatch latch = new ParkingLatch();
+        assertFalse(latch.isOpen());
+        assertEquals(0, latch.getGeneration());
+    }
+
+    @Test
+    public void openAlreadyOpenLatch() {
+        ParkingLatch latch = new ParkingLatch(true);
+        latch.open();
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void awaitOpenLatchCompletes() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch(true);
+        latch.await();
+
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void awaitClosedLatchIsInterruptedIfStartingWithInterruptedFlag() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch, true);
+        awaitThread.start();
+
+        awaitThread.join();
+        assertTrue(awaitThread.getThrowable() instanceof InterruptedException);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void awaitClosedLatchIsInterrupted() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch);
+        awaitThread.start();
+        sleepMs(500);
+        assertTrue(awaitThread.isAlive());
+
+        awaitThread.interrupt();
+        awaitThread.join();
+        assertTrue(awaitThread.getThrowable() instanceof InterruptedException);
+    }
+
+    @Test
+    public void awaitClosedLatchCompletesWhenLatchIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch);
+        startAll(awaitThread);
+        sleepMs(500);
+        assertTrue(awaitThread.isAlive());
+
+        latch.open();
+        joinAll(awaitThread);
+    }
+
+    @Test
+    public void awaitUninterruptibleCompletesWhenLatchIsOpen() {
+        ParkingLatch latch = new ParkingLatch(true);
+        AwaitUninterruptibleThread awaitThread = new AwaitUninterruptibleThread(latch, false);
+        startAll(awaitThread);
+        joinAll(awaitThread);
+    }
+
+    @Test
+    public void awaitUninterruptibleCompletesWhenLatchIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitUninterruptibleThread awaitThread = new AwaitUninterruptibleThread(latch, false);
+        startAll(awaitThread);
+        sleepMs(500);
+        assertTrue(awaitThread.isAlive());
+
+        latch.open();
+        joinAll(awaitThread);
+        assertFalse(awaitThread.hasEndedWithInterruptStatus());
+    }
+
+    @Test
+    public void awaitUninterruptibleRestoresInterruptStatus() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitUninterruptibleThread awaitThread = new AwaitUninterruptibleThread(latch, true);
+        startAll(awaitThread);
+        sleepMs(500);
+        assertTrue(awaitThread.isAlive());
+
+        awaitThread.interrupt();
+        sleepMs(100);
+        assertTrue(awaitThread.isAlive());
+
+        latch.open();
+        joinAll(awaitThread);
+        assertTrue(awaitThread.hasEndedWithInterruptStatus());
+    }
+
+    @Test
+    public void tryAwaitOnOpenLatchSucceeds() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch(true);
+
+        assertTrue(latch.tryAwait(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tryAwaitTimesOut() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        long startNs = System.nanoTime();
+        assertFalse(latch.tryAwait(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - startNs >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitCompletesWhenLatchIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        TryAwaitThread awaitThread = new TryAwaitThread(latch, 1, TimeUnit.MINUTES);
+        startAll(awaitThread);
+        sleepMs(500);
+        assertTrue(awaitThread.isAlive());
+
+        latch.open();
+        joinAll(awaitThread);
+        assertTrue(awaitThread.isResult());
+    }
+
+    @Test
+    public void tryAwaitWithNullUnitFails() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        try {
+            latch.tryAwait(10, null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void tryAwaitUninterruptibleTimesOut() {
+        ParkingLatch latch = new ParkingLatch();
+
+        assertFalse(latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS));
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitUninterruptibleRestoresInterruptStatus() {
+        ParkingLatch latch = new ParkingLatch();
+
+        Thread.currentThread().interrupt();
+        assertFalse(latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS));
+        assertTrue(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void secondWaiterFails() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch);
+        startAll(awaitThread);
+        sleepMs(500);
+
+        try {
+            latch.tryAwait(10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        latch.open();
+        joinAll(awaitThread);
+    }
+
+    @Test
+    public void resetClosesLatch() {
+        ParkingLatch latch = new ParkingLatch(true);
+        latch.reset();
+
+        assertFalse(latch.isOpen());
+        assertEquals(1, latch.getGeneration());
+    }
+
+    @Test
+    public void threadLocalLatchIsReused() {
+        ParkingLatch latch = ParkingLatch.getThreadLocalLatch();
+        latch.open();
+        long generation = latch.getGeneration();
+
+        ParkingLatch found = ParkingLatch.getThreadLocalLatch();
+        assertSame(latch, found);
+        assertFalse(found.isOpen());
+        assertEquals(generation + 1, found.getGeneration());
+    }
+
+    @Test
+    public void threadLocalLatchIsNotShared() throws InterruptedException {
+        final ParkingLatch latch = ParkingLatch.getThreadLocalLatch();
+        final ParkingLatch[] found = new ParkingLatch[1];
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                found[0] = ParkingLatch.getThreadLocalLatch();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotNull(found[0]);
+        assertNotSame(latch, found[0]);
+    }
+
+    @Test
+    public void testToString() {
+        ParkingLatch latch = new ParkingLatch();
+        assertEquals("ParkingLatch(open=false)", latch.toString());
+        latch.open();
+        assertEquals("ParkingLatch(open=true)", latch.toString());
+    }
+}